@@ -648,7 +648,7 @@ public class JanusGraphClient extends DB {
 			}
 
 			for (Map<Object, Object> friendData : friends) {
-				HashMap<String, ByteIterator> friendMap = new HashMap<>();
+				HashMap<String, ByteIterator> friendMap = newResultRow();
 				friendData.forEach((key, value) -> {
 					if (value instanceof List<?> && !((List<?>) value).isEmpty()) {
 						friendMap.put(key.toString(), new StringByteIterator(((List<?>) value).get(0).toString()));
@@ -681,7 +681,7 @@ public class JanusGraphClient extends DB {
 			);
 
 			for (Map<Object, Object> friendData : pendingRequests) {
-				HashMap<String, ByteIterator> friendMap = new HashMap<>();
+				HashMap<String, ByteIterator> friendMap = newResultRow();
 				friendData.forEach((key, value) -> {
 					if (key instanceof String && value instanceof List) {
 						List<?> valueList = (List<?>) value;
@@ -4,16 +4,22 @@
 package edu.usc.bg;
 import edu.usc.bg.base.*;
 
-import java.util.ArrayList;
+import edu.usc.bg.measurements.LatencyHistogram;
+
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.text.DecimalFormat;
 import java.util.Properties;
 
 
@@ -59,15 +65,23 @@ public class Distribution extends Thread{
 	static long numOfReq;
 	static long warmupNumOfReq;
 	static int type; //type of distribution
+	//varies the rate over the run, null for the constant lambda. The arrivals are generated at lambda and their times are mapped
+	//to the times the profile has the same number of requests due at, which keeps the Poisson and random arrivals Poisson and random
+	static LoadProfile profile;
 
-	static final long GRAN_LOOP_ITERATION = 10; // number of iterations for granularity
-	static public  double granularity;		//milliseconds
+	//the arrivals are waited for with parkNanos until this close to their time and spun for the rest, parkNanos overshoots by tens of usec
+	static final long SPIN_NANOS = 100000;
 	static int currentReqCount=0;
 
-	public static  ArrayList<Request> queue = new ArrayList<Request>();  
-	public static  Semaphore QS = new Semaphore(1);
+	//requests that arrived and are not taken by a worker yet, the arrivals are added without locking
+	public static  ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<Request>();
+	public static  AtomicInteger queuedReqs = new AtomicInteger(0);
+	//one permit per queued request, the idle workers wait on it
+	static Semaphore available = new Semaphore(0);
 
-	public static HashMap<Integer,Times> requestStats = new HashMap<Integer,Times>();
+	public static ConcurrentHashMap<Integer,Times> requestStats = new ConcurrentHashMap<Integer,Times>();
+	//time in usec between the time an arrival was scheduled at and the time it was queued
+	static LatencyHistogram arrivalLag = new LatencyHistogram();
 
 	public static AtomicBoolean flag=new AtomicBoolean(false);
 	//	public static Server server1; Use this if need to test using our dummy server
@@ -115,6 +129,7 @@ public class Distribution extends Thread{
 		Distribution.lambda = lambda;
 		Distribution.ActualSimulationTime = maxexecutiontime*1000;
 		type =distributionType;
+		profile = Client.loadProfile;
 		Distribution.warmupTime = warmupTime*1000;
 		simulationTime = warmupTime*1000 + ActualSimulationTime;
 		String dir = Distribution._props.getProperty(Client.LOG_DIR_PROPERTY, Client.LOG_DIR_PROPERTY_DEFAULT);
@@ -122,9 +137,11 @@ public class Distribution extends Thread{
 		opsDone=new AtomicInteger(0);
 		actionsDone=new AtomicInteger(0);
 		seqID=new AtomicInteger(0);
-		queue = new ArrayList<Request>();  
-		QS = new Semaphore(1);
-		requestStats = new HashMap<Integer,Times>();
+		queue = new ConcurrentLinkedQueue<Request>();
+		queuedReqs = new AtomicInteger(0);
+		available = new Semaphore(0);
+		requestStats = new ConcurrentHashMap<Integer,Times>();
+		arrivalLag = new LatencyHistogram();
 		flag=new AtomicBoolean(false);
 		//
 		try {
@@ -164,7 +181,6 @@ public class Distribution extends Thread{
 	}
 
 	public void run () {
-		granularity = calc_granularity();
 		//server1 = new Server(1,100); //numofServers, serviceTime
 
 		runSimulation();
@@ -214,20 +230,29 @@ public class Distribution extends Thread{
 			break;
 
 		}
-		//double totalClientQueueingTime=0;
 		//Statistics
+		//the time a request waited for a worker is reported apart from the time the worker took to service it
 		double totalResponseTime =0;
-		int count =0;
+		double totalQueueingDelay =0;
+		long servedReqs =0;
+		LatencyHistogram queueingDelay = new LatencyHistogram();
+		LatencyHistogram serviceTime = new LatencyHistogram();
 		for(Map.Entry<Integer,Times> e: requestStats.entrySet()){
-			if(count >= warmupNumOfReq){
-				//totalClientQueueingTime += e.getValue().getClientQueueingTime()-e.getValue().getTimeAtCreation(); can be found if required
-				totalResponseTime += e.getValue().getTimeAfterService()-e.getValue().getTimeBeforeService();
-			}else
-				count++;	
+			Times t = e.getValue();
+			//the request ids start at 1, skip the warmup requests and those not serviced before the end
+			if(e.getKey() <= warmupNumOfReq || t.getTimeAfterService() == 0)
+				continue;
+			double service = t.getTimeAfterService()-t.getTimeBeforeService();
+			double queueing = t.getTimeBeforeService()-t.getTimeAtCreation();
+			totalResponseTime += service;
+			totalQueueingDelay += queueing;
+			serviceTime.record((long)(service*1000000));
+			queueingDelay.record((long)(queueing*1000000));
+			servedReqs++;
 		}
 
 		long actualNumOfReq = numOfReq - warmupNumOfReq;
-		double W=totalResponseTime/actualNumOfReq;
+		double W=totalResponseTime/Math.max(1, servedReqs);
 
 		try {
 
@@ -236,6 +261,13 @@ public class Distribution extends Thread{
 				OpenSimulationStats.write("Total Response Time: "+ totalResponseTime*1000.0 + " ms\n");
 				OpenSimulationStats.write("No. of Requests:  " + actualNumOfReq+"\n");
 				OpenSimulationStats.write("Average Response Time: "+  W*1000.0 + " ms\n");
+				OpenSimulationStats.write("Serviced Requests: "+ servedReqs + "\n");
+				OpenSimulationStats.write("Shed Requests: "+ WorkerPool.getShedReqs() + "\n");
+				OpenSimulationStats.write("Average Queueing Delay: "+ totalQueueingDelay/Math.max(1, servedReqs)*1000.0 + " ms\n");
+				OpenSimulationStats.write("Queueing Delay: "+ getSummary(queueingDelay) + "\n");
+				OpenSimulationStats.write("Service Time: "+ getSummary(serviceTime) + "\n");
+				OpenSimulationStats.write("Workers Created: "+ Worker.maxWorker + "\n");
+				OpenSimulationStats.write("Arrival Lag: "+ getArrivalLagSummary() + "\n");
 				if(OpenSimulationStats != null)
 					OpenSimulationStats.close();
 			}
@@ -248,66 +280,121 @@ public class Distribution extends Thread{
 
 
 
-	protected  double calc_granularity()
-	{
+	/**
+	 * @return the time of the next arrival in milliseconds from the start of the simulation, a negative value once all the requests arrived
+	 */
+	protected double nextArrivalTime(){
+		return -1;
+	}
 
-		double granularity = 100;
-		double actualGran = 100;
-		long miliSleepTime = 100;  // assuming sleeps at least for 100 millisecond
-		int nanoSleepTime = 0;
+	/**
+	 * Queues every request at the time given by nextArrivalTime.
+	 * Arrivals whose time passed while the previous ones were queued are queued right away, so a late arrival
+	 * does not delay the following ones.
+	 */
+	protected void scheduleArrivals(){
+		currentReqCount = 1;
+		long start = profile != null ? profile.markStart() : System.nanoTime();
+		double arrivalTime;
+		while(currentReqCount <= numOfReq && !_workload.isStopRequested() && (arrivalTime = nextArrivalTime()) >= 0)
+		{
+			long due = start + (long)(profiledTime(arrivalTime)*1000000);
+			if(!waitUntil(due))
+				break;
+			if(!WorkerPool.admit()){
+				arrivalLag.record((System.nanoTime() - due)/1000);
+				currentReqCount++;
+				continue;
+			}
+			long now = System.nanoTime();
+			arrivalLag.record((now - due)/1000);
+			Request newReq = new Request(currentReqCount);
+			requestStats.put(newReq.ReqID, new Times(now/1000000000.0));
+			offerRequest(newReq);
+			WorkerPool.requestQueued();
+			currentReqCount++;
+		}
+		System.out.println("Arrival Lag: "+getArrivalLagSummary());
+	}
 
-		System.out.println("---------- Number of iterations : " +  GRAN_LOOP_ITERATION);   
+	/**
+	 * @param arrivalTime ms since the start of an arrival generated at lambda
+	 * @return ms since the start at which the load profile has as many requests due as lambda at arrivalTime
+	 */
+	static double profiledTime(double arrivalTime){
+		if(profile == null)
+			return arrivalTime;
+		return Math.min(profile.getTimeOf(arrivalTime*lambda/1000), simulationTime);
+	}
 
-		try {
-			while(true)
-			{	
-				double timeBeforeSleep = (System.nanoTime())/1000000.0;
-
-				int i=0;
-				while(i < GRAN_LOOP_ITERATION )
-				{
-					Thread.sleep(miliSleepTime, nanoSleepTime);
-					i++;
-				}	
-
-				double timeAfterSleep = (System.nanoTime())/1000000.0;
-				//actual time slept
-				double timeDiff = timeAfterSleep - timeBeforeSleep;
-				//expected time slept
-
-				double expectedTimeSlept = 1.0 * GRAN_LOOP_ITERATION * (miliSleepTime*1.0 + nanoSleepTime/1000000.0); //in milliseconds after GRAN_LOOP_ITERATIONs
-
-				System.out.println("Current Sleep time : "+ (miliSleepTime*1.0 + nanoSleepTime/1000000.0)  + " ms");
-				System.out.println("Expected time difference : "+ expectedTimeSlept  + " ms");
-				System.out.println("Actual time difference : "+ timeDiff + " ms");
-				/*If difference between expected and actual time difference is less than 3 ms, go check for smaller granularity
-				 * else break with the actual granularity set to the value of granularity just before this break*/
-				if(Math.abs(( timeDiff - expectedTimeSlept)) < 3 )
-				{
-					if(miliSleepTime  == 1 )
-					{
-						miliSleepTime =0;
-						nanoSleepTime = 100000; 
-					}else if(miliSleepTime  == 0 )
-					{
-						nanoSleepTime = nanoSleepTime/10 ; 
-
-					}else 
-						miliSleepTime = miliSleepTime/10;  
-
-					granularity = granularity/10;
-
-				}else 
-					break;
-				//Before going for smaller value of granularity assign actual granularity till this point 
-				actualGran = granularity*10;			
-			}
+	/**
+	 * @param time ms since the start
+	 * @return the time at which lambda has as many requests due as the load profile at time, the arrivals are generated up to it
+	 */
+	static double unprofiledTime(double time){
+		if(profile == null)
+			return time;
+		return profile.getWork(time)*1000/lambda;
+	}
 
+	/**
+	 * Parks until shortly before due and spins for the rest.
+	 * @return false if a stop was requested before due
+	 */
+	protected boolean waitUntil(long due){
+		long wait;
+		while((wait = due - System.nanoTime()) > SPIN_NANOS){
+			if(_workload.isStopRequested())
+				return false;
+			LockSupport.parkNanos(wait - SPIN_NANOS);
+		}
+		while(System.nanoTime() < due){
+			if(_workload.isStopRequested())
+				return false;
+		}
+		return true;
+	}
+
+	public static void offerRequest(Request req){
+		queue.offer(req);
+		queuedReqs.getAndIncrement();
+		available.release();
+	}
+
+	/**
+	 * Waits for a request to be queued.
+	 * @return the oldest request not taken by a worker, null if none was queued within timeout ms
+	 */
+	public static Request takeRequest(long timeout){
+		try {
+			if(!available.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+				return null;
 		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}   
+			e.printStackTrace(System.out);
+			return null;
+		}
+		return pollRequest();
+	}
+
+	/**
+	 * @return the oldest request not taken by a worker, null if there is none
+	 */
+	public static Request pollRequest(){
+		Request req = queue.poll();
+		if(req != null)
+			queuedReqs.getAndDecrement();
+		return req;
+	}
+
+	public static String getArrivalLagSummary(){
+		return getSummary(arrivalLag);
+	}
 
-		System.out.println("Granularity : "+ actualGran + " ms");
-		return actualGran;		
+	static String getSummary(LatencyHistogram h){
+		DecimalFormat d = new DecimalFormat("#.#");
+		String ret = "count="+h.getTotalCount();
+		for(double p : LatencyHistogram.REPORTED_PERCENTILES)
+			ret += ", p"+d.format(p)+"(us)="+h.getValueAtPercentile(p);
+		return ret + ", max(us)="+h.getValueAtPercentile(100);
 	}
 }
\ No newline at end of file
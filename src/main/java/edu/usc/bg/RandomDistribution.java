@@ -2,9 +2,9 @@
  * Authors:  Aniruddh Munde and Snehal Deshmukh
  */
 package edu.usc.bg;
-import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Arrays;
+
+import edu.usc.bg.base.Utils;
 
 
 
@@ -17,52 +17,17 @@ public class RandomDistribution extends Distribution {
 
 	//random
 	double interArriveTime;  // milliseconds
-	SortedSet<Double> interArriveTimeset = new TreeSet<Double>();
-	int count[];
-	int NUM_OF_COUNTS; // number of granularity window slots in the simulation time
+	//time instances of the requests in increasing order
+	double[] arrivalTimes;
+	int nextReq = 0;
 
 
 
 	public void runSimulation(){
 
-		int index=0;
-		currentReqCount = 1;
-		Worker workerRunnable = new Worker(null,0, _workload); 
-		Thread workerThread = new Thread(workerRunnable);
-		workerThread.setName("First Thread");
-		Worker.setParameters();
-		Worker.initInitialWorkerThred();
-
-		workerThread.start();
-		while(currentReqCount <= numOfReq && !_workload.isStopRequested())
-		{	
-
-			int i=0;
-			while(i< count[index]) //count[index] gives the number of requests in this granularity window
-			{
-				//System.out.println("Arrival of New Request : "+(currentReqCount));
-				Request newReq = new Request(currentReqCount);
-				requestStats.put(newReq.ReqID, new Times(System.nanoTime()/1000000000.0));
-
-				try {
-					QS.acquire();
-					queue.add(newReq);
-				} catch (InterruptedException e1) {
-					e1.printStackTrace();
-				}
-
-				QS.release();
-				currentReqCount++;
-
-				i++;
-			}
-			try {
-				Thread.sleep((long)granularity);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			} 
-			index++;			
-		}
+		//create the workers before the first arrival
+		WorkerPool.start(_workload);
+		scheduleArrivals();
 
 		//enable if you want all queued requests to be processed
 		//while(!flag.get())
@@ -75,67 +40,31 @@ public class RandomDistribution extends Distribution {
 
 	}
 
+	protected double nextArrivalTime(){
+		if(nextReq >= arrivalTimes.length)
+			return -1;
+		return arrivalTimes[nextReq++];
+	}
+
 
 
 	public void preProcessing(){
 		interArriveTime = (1/lambda)*1000;
-		numOfReq=(long) Math.floor(simulationTime/interArriveTime);
-		double randNo;
+		double arrivalsEnd=unprofiledTime(simulationTime);
+		numOfReq=(long) Math.floor(arrivalsEnd/interArriveTime);
 		//Get the random time instances
-		while( interArriveTimeset.size() < numOfReq){
-
-			randNo = simulationTime *Math.random();
-			interArriveTimeset.add(randNo);
-		}
-
-		NUM_OF_COUNTS=(int)Math.floor(simulationTime/granularity);
-		count=new int[NUM_OF_COUNTS];
-
-		Iterator<Double> it=interArriveTimeset.iterator();
-		double value=0.0;
-		int temp=0,index=0;
-		double timePassed=granularity;
-		/*count number of requests to be submitted in each granularity window*/
-		while(it.hasNext())
-		{
-			value=it.next();
-			//	System.out.println("Random Time Instance:"+value);
-
-			if(value<=timePassed)
-				temp++;
-			else {
-				count[index++]=temp;
-				timePassed+=granularity;
-				temp=0;
-				//value is greater than granularity
-				while(value >= timePassed){
-					count[index++]=0;
-					timePassed+=granularity;  
-				}
-				temp=1;
-			}
-		}
-		if(index<NUM_OF_COUNTS)
-		{
-			count[index++]=temp;
-			timePassed+=granularity;
-		}
-		while(index<NUM_OF_COUNTS)
-		{
-			count[index++]=0;
-		}
-
+		arrivalTimes = new double[(int)numOfReq];
+		for(int i=0; i<arrivalTimes.length; i++)
+			arrivalTimes[i] = arrivalsEnd*Utils.random().nextDouble();
+		Arrays.sort(arrivalTimes);
 	}
 
 	public void warmupProcessing(){
 
-		Iterator<Double> it=interArriveTimeset.iterator();
-		double value=0.0;
-
-		while(it.hasNext())
+		double warmupEnd=unprofiledTime(warmupTime);
+		for(double value : arrivalTimes)
 		{
-			value=it.next();
-			if(value <= warmupTime)
+			if(value <= warmupEnd)
 				warmupNumOfReq++;
 			else 
 				break;
@@ -17,31 +17,42 @@ public class Worker implements Runnable{
 	DB _db;
 
 
-	public static AtomicInteger NumOfWorker=new AtomicInteger(0);
-	private Request req;
 	static int thinkTime = 0;
 	static boolean insertImage = false;
 	BufferedWriter updateLog; // update log file
 	BufferedWriter readLog; // read log file
+	AsyncLogWriter.Log asyncUpdateLog; // update log written by the log writer thread(s)
+	AsyncLogWriter.Log asyncReadLog; // read log written by the log writer thread(s)
 	int workerId;
-	public static int maxWorker=1;
-	private static AtomicInteger processedReq=new AtomicInteger(0);
-	private static AtomicInteger NumOfIdleWorkers=new AtomicInteger(0);
+	//number of worker ids handed out, the log files of workers 0 to maxWorker-1 are validated
+	public static int maxWorker=0;
+	static AtomicInteger processedReq=new AtomicInteger(0);
 	private static Workload _workload;
 	
 	
-	Worker(Request InputReq,int workerId, Workload workload){
-		req= InputReq;
+	/**
+	 * @param db the initialized DB of a worker that retired, null to create one
+	 */
+	Worker(int workerId, Workload workload, DB db){
 		this.workerId=workerId;
 		_workload = workload;
-		String dbname=Distribution._props.getProperty(Client.DB_CLIENT_PROPERTY,Client.DB_CLIENT_PROPERTY_DEFAULT);
-		_db = null;
-		try {
-			_db = DBFactory.newDB(dbname,Distribution._props);
-		} catch (UnknownDBException e) {
-			System.out.println("Unknown DB "+dbname);
-			System.exit(0);
-		}	
+		_db = db;
+		if(_db == null){
+			String dbname=Distribution._props.getProperty(Client.DB_CLIENT_PROPERTY,Client.DB_CLIENT_PROPERTY_DEFAULT);
+			try {
+				_db = DBFactory.newDB(dbname,Distribution._props);
+			} catch (UnknownDBException e) {
+				System.out.println("Unknown DB "+dbname);
+				System.exit(0);
+			}
+			if (!this.initThread()) {
+				System.out.println("Worker "+workerId+" could not initialize its DB");
+				System.exit(0);
+			}
+		}
+		//records the actions when tracerecordfile is set
+		if(!Distribution._warmup && _db instanceof DBWrapper)
+			((DBWrapper) _db).setTraceRecorder(TraceRecorder.get(Distribution._props));
 		String machineid = Distribution._props.getProperty(Client.MACHINE_ID_PROPERTY, Client.MACHINE_ID_PROPERTY_DEFAULT);
 		String dir = Distribution._props.getProperty(Client.LOG_DIR_PROPERTY, Client.LOG_DIR_PROPERTY_DEFAULT);
 		//no file is needed if the thread is in warmup or load step
@@ -58,24 +69,19 @@ public class Worker implements Runnable{
 		} catch (IOException e) {
 			e.printStackTrace(System.out);
 		}
-		boolean started = false;
-		started = this.initThread();
-		while (!started) {
-			try {
-				Thread.sleep(1);
-			} catch (InterruptedException e) {
-				e.printStackTrace(System.out);
-			}
+		if (Boolean.parseBoolean(Distribution._props.getProperty(Client.ASYNC_LOG_PROPERTY, Client.ASYNC_LOG_PROPERTY_DEFAULT))
+				&& updateLog != null && readLog != null) {
+			AsyncLogWriter.start(Integer.parseInt(Distribution._props.getProperty(Client.ASYNC_LOG_WRITERS_PROPERTY, Client.ASYNC_LOG_WRITERS_PROPERTY_DEFAULT)),
+					Integer.parseInt(Distribution._props.getProperty(Client.ASYNC_LOG_CAPACITY_PROPERTY, Client.ASYNC_LOG_CAPACITY_PROPERTY_DEFAULT)));
+			asyncUpdateLog = AsyncLogWriter.open(updateLog);
+			asyncReadLog = AsyncLogWriter.open(readLog);
 		}
-
 	}
 	
 	public static void initInitialWorkerThred(){
 		
-		NumOfWorker=new AtomicInteger(0);
-		maxWorker=1;
+		maxWorker=0;
 		processedReq=new AtomicInteger(0);
-		NumOfIdleWorkers=new AtomicInteger(0);
 		System.out.println("********************");
 		
 	}
@@ -106,113 +112,92 @@ public class Worker implements Runnable{
 
 	public void run()
 	{
-
-
-
-
 		StringBuilder updateTestLog = new StringBuilder();
 		StringBuilder readTestLog = new StringBuilder();
-		int actsDone=0;
-		NumOfWorker.getAndIncrement();
+		boolean retired = false;
+		long idleSince = System.nanoTime();
 
 		try{
 
 			while ( processedReq.get() < Distribution.numOfReq && !_workload.isStopRequested()) //not done
 			{
-
-				if ( req != null)
-				{	
-					updateTestLog.delete(0, updateTestLog.length());
-					readTestLog.delete(0, readTestLog.length());
-					Distribution.requestStats.get(req.ReqID).setTimeBeforeService(System.nanoTime()/1000000000.0);
-
-					//submit request
-					//Distribution.server1.service(workerId,req.ReqID.intValue()); Use this if need to test using our dummy server
-
-					actsDone = 0;
-					if ((actsDone = Distribution._workload.doTransaction(_db,Distribution._workloadstate,
-							workerId, updateTestLog,readTestLog, Distribution.seqID.get(), Distribution.resUpdateOperations,
-							Distribution.friendshipInfo, Distribution.pendingInfo, thinkTime,
-							insertImage, Distribution._warmup)) < 0) { //=0 when only perfomring actions like accept friendship and no pending frnd are there
-						System.out.println("Couldnt Service request");
+				Request req = WorkerPool.takeRequest();
+				if ( req == null)
+				{
+					if(WorkerPool.tryRetire(idleSince)){
+						retired = true;
+						break;
 					}
-					Distribution.requestStats.get(req.ReqID).setTimeAfterService(System.nanoTime()/1000000000.0);
+					continue;
+				}
+				Times times = Distribution.requestStats.get(req.ReqID);
+				times.setClientQueueingTime(System.nanoTime()/1000000000.0);
+				updateTestLog.delete(0, updateTestLog.length());
+				readTestLog.delete(0, readTestLog.length());
+				times.setTimeBeforeService(System.nanoTime()/1000000000.0);
+
+				//submit request
+				//Distribution.server1.service(workerId,req.ReqID.intValue()); Use this if need to test using our dummy server
+
+				int actsDone = 0;
+				if ((actsDone = Distribution._workload.doTransaction(_db,Distribution._workloadstate,
+						workerId, updateTestLog,readTestLog, Distribution.seqID.get(), Distribution.resUpdateOperations,
+						Distribution.friendshipInfo, Distribution.pendingInfo, thinkTime,
+						insertImage, Distribution._warmup)) < 0) { //=0 when only perfomring actions like accept friendship and no pending frnd are there
+					System.out.println("Couldnt Service request");
+				}
+				times.setTimeAfterService(System.nanoTime()/1000000000.0);
 
-					Distribution.actionsDone.getAndAdd(actsDone);
-					Distribution.opsDone.getAndIncrement();
+				Distribution.actionsDone.getAndAdd(actsDone);
+				Distribution.opsDone.getAndIncrement();
 
-					Distribution.seqID.getAndIncrement();
-					try {
+				Distribution.seqID.getAndIncrement();
+				try {
 
+					if(asyncUpdateLog != null){ //written off the request path
+						asyncUpdateLog.write(updateTestLog.toString());
+						asyncReadLog.write(readTestLog.toString());
+					}else{
 						if(updateLog != null)
 							updateLog.write(updateTestLog.toString());
 						if(readLog != null)
 							readLog.write(readTestLog.toString());
-					} catch (IOException e) {
-						e.printStackTrace();
 					}
-
-
-					processedReq.getAndIncrement();
-					NumOfIdleWorkers.getAndIncrement();
-					//System.out.println("After processing request : "+ processedReq.get()+" "+_workload.isStopRequested()+" "+workerId);
-					req= null;
-				}
-
-				//Wait for QS
-				try {
-
-					while(/*true &&*/ !_workload.isStopRequested())
-					{
-						Distribution.QS.acquire();
-						//create new worker only if following conditions satisfy else break
-						if(!((Distribution.queue.size() >1) && ((Distribution.queue.size()-(NumOfIdleWorkers.get()-1))>0)&& (maxWorker < 500) && !_workload.isStopRequested()))
-						{	
-							Distribution.QS.release();
-							break;
-						}	
-
-						Worker workerRunnable = new Worker(Distribution.queue.remove(0),maxWorker, _workload);
-						Thread workerThread = new Thread(workerRunnable);
-						maxWorker++;
-						workerThread.start();
-						Distribution.QS.release();
-					}
-
-					Distribution.QS.acquire();
-					if(!Distribution.queue.isEmpty() && !_workload.isStopRequested()){
-						req =Distribution.queue.remove(0); //the remaining element in the queue
-						Distribution.requestStats.get(req.ReqID).setClientQueueingTime(System.nanoTime()/1000000000.0);
-
-						if(!(Thread.currentThread().getName().equalsIgnoreCase("First Thread")))
-							NumOfIdleWorkers.getAndDecrement();
-					}	
-				} catch (InterruptedException e) {
+				} catch (IOException e) {
 					e.printStackTrace();
 				}
 
-				//Release QS
-				Distribution.QS.release();	
 
+				processedReq.getAndIncrement();
+				WorkerPool.requestServed();
+				idleSince = System.nanoTime();
 			}   
 		} catch (Exception e) {
 			e.printStackTrace(System.out);
 			e.printStackTrace(System.out);
 			System.exit(0);
 		}
-		NumOfWorker.getAndDecrement();
+		boolean last = !retired && WorkerPool.workerDone();
 		try {
 			cleanup();
-			if(updateLog != null)
-				updateLog.close();
-			if(readLog != null)
-				readLog.close();
+			if(asyncUpdateLog != null){
+				asyncUpdateLog.close();
+				asyncReadLog.close();
+			}else{
+				if(updateLog != null)
+					updateLog.close();
+				if(readLog != null)
+					readLog.close();
+			}
 		} catch (Exception e) {
 			e.printStackTrace(System.out);
 			e.printStackTrace(System.out);
 			return;
 		}
-		if(NumOfWorker.get()==0)
+		//the next worker created takes over the DB
+		if(retired)
+			WorkerPool.freeDBs.add(_db);
+		if(last)
 			Distribution.flag.set(true);
 
 	}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+
+package edu.usc.bg;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.usc.bg.base.Client;
+import edu.usc.bg.base.DB;
+import edu.usc.bg.base.Workload;
+
+/**
+ * The workers of the open simulation.
+ * openminworkers workers are created before the first arrival. When more requests are queued than there are
+ * idle workers, the grower thread adds workers up to openmaxworkers, so the arrivals never wait for a worker
+ * to be created. A worker idle for openworkerkeepalive ms retires while more than openminworkers are alive
+ * and its DB is reused by the next worker created.
+ * Once openqueuecapacity requests are queued the overload policy decides whether an arrival is queued anyway,
+ * shed or delayed until there is room.
+ */
+public class WorkerPool {
+	static final String QUEUE_POLICY = "queue";
+	static final String SHED_POLICY = "shed";
+	static final String BLOCK_POLICY = "block";
+	//how long a worker waits for a request before checking whether the simulation is done
+	static final long POLL_MS = 100;
+
+	static int minWorkers;
+	static int maxWorkers;
+	static long keepAliveNanos;
+	static String overloadPolicy;
+	static int queueCapacity;
+
+	static AtomicInteger liveWorkers = new AtomicInteger(0);
+	static AtomicInteger idleWorkers = new AtomicInteger(0);
+	static AtomicInteger shedReqs = new AtomicInteger(0);
+	//initialized DBs of the workers that retired
+	static ConcurrentLinkedQueue<DB> freeDBs = new ConcurrentLinkedQueue<DB>();
+	//released when the queued requests outnumber the idle workers
+	static Semaphore growSignal = new Semaphore(0);
+	static Workload _workload;
+
+	/**
+	 * Creates the initial workers and starts them and the grower thread.
+	 */
+	public static void start(Workload workload){
+		_workload = workload;
+		minWorkers = Math.max(1, Integer.parseInt(Distribution._props.getProperty(Client.OPEN_MIN_WORKERS_PROPERTY, Client.OPEN_MIN_WORKERS_PROPERTY_DEFAULT)));
+		maxWorkers = Math.max(minWorkers, Integer.parseInt(Distribution._props.getProperty(Client.OPEN_MAX_WORKERS_PROPERTY, Client.OPEN_MAX_WORKERS_PROPERTY_DEFAULT)));
+		keepAliveNanos = Long.parseLong(Distribution._props.getProperty(Client.OPEN_WORKER_KEEPALIVE_PROPERTY, Client.OPEN_WORKER_KEEPALIVE_PROPERTY_DEFAULT))*1000000;
+		overloadPolicy = Distribution._props.getProperty(Client.OPEN_OVERLOAD_POLICY_PROPERTY, Client.OPEN_OVERLOAD_POLICY_PROPERTY_DEFAULT).toLowerCase();
+		queueCapacity = Integer.parseInt(Distribution._props.getProperty(Client.OPEN_QUEUE_CAPACITY_PROPERTY, Client.OPEN_QUEUE_CAPACITY_PROPERTY_DEFAULT));
+		if(!overloadPolicy.equals(QUEUE_POLICY) && !overloadPolicy.equals(SHED_POLICY) && !overloadPolicy.equals(BLOCK_POLICY)){
+			System.out.println("Unknown open overload policy "+overloadPolicy+", should be one of queue, shed, block. Using queue.");
+			overloadPolicy = QUEUE_POLICY;
+		}
+		liveWorkers = new AtomicInteger(0);
+		idleWorkers = new AtomicInteger(0);
+		shedReqs = new AtomicInteger(0);
+		freeDBs = new ConcurrentLinkedQueue<DB>();
+		growSignal = new Semaphore(0);
+		Worker.setParameters();
+		Worker.initInitialWorkerThred();
+
+		Worker[] initial = new Worker[minWorkers];
+		for(int i=0; i<minWorkers; i++)
+			initial[i] = newWorker();
+		for(Worker w : initial)
+			startWorker(w);
+		System.out.println("Started "+minWorkers+" workers, at most "+maxWorkers+" workers, overload policy "+overloadPolicy
+				+(overloadPolicy.equals(QUEUE_POLICY) ? "" : " past "+queueCapacity+" queued requests"));
+
+		Thread grower = new Thread(){
+			public void run(){
+				grow();
+			}
+		};
+		grower.setName("Worker Grower");
+		grower.setDaemon(true);
+		grower.start();
+	}
+
+	static Worker newWorker(){
+		liveWorkers.getAndIncrement();
+		idleWorkers.getAndIncrement();
+		return new Worker(Worker.maxWorker++, _workload, freeDBs.poll());
+	}
+
+	static void startWorker(Worker w){
+		Thread workerThread = new Thread(w);
+		workerThread.setName("Worker "+w.workerId);
+		workerThread.start();
+	}
+
+	static boolean isDone(){
+		return Worker.processedReq.get() >= Distribution.numOfReq || _workload.isStopRequested();
+	}
+
+	static void grow(){
+		while(!isDone()){
+			try {
+				if(!growSignal.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS))
+					continue;
+			} catch (InterruptedException e) {
+				e.printStackTrace(System.out);
+				continue;
+			}
+			growSignal.drainPermits();
+			while(Distribution.queuedReqs.get() > idleWorkers.get() && liveWorkers.get() < maxWorkers && !isDone())
+				startWorker(newWorker());
+		}
+	}
+
+	/**
+	 * Called once a request is queued, wakes up the grower if no idle worker is left for it.
+	 */
+	static void requestQueued(){
+		if(Distribution.queuedReqs.get() > idleWorkers.get() && liveWorkers.get() < maxWorkers && growSignal.availablePermits() == 0)
+			growSignal.release();
+	}
+
+	/**
+	 * Applies the overload policy to an arrival.
+	 * @return false if the arrival is shed
+	 */
+	static boolean admit(){
+		if(overloadPolicy.equals(QUEUE_POLICY) || Distribution.queuedReqs.get() < queueCapacity)
+			return true;
+		if(overloadPolicy.equals(SHED_POLICY)){
+			shedReqs.getAndIncrement();
+			//the workers are done once every request is processed or shed
+			Worker.processedReq.getAndIncrement();
+			return false;
+		}
+		while(Distribution.queuedReqs.get() >= queueCapacity && !_workload.isStopRequested())
+			LockSupport.parkNanos(50000);
+		return true;
+	}
+
+	/**
+	 * Waits for a request as an idle worker.
+	 * @return null if none was queued within POLL_MS
+	 */
+	static Request takeRequest(){
+		Request req = Distribution.takeRequest(POLL_MS);
+		if(req != null)
+			idleWorkers.getAndDecrement();
+		return req;
+	}
+
+	static void requestServed(){
+		idleWorkers.getAndIncrement();
+	}
+
+	/**
+	 * @return true if the worker, idle since idleSince (System.nanoTime()), should exit
+	 */
+	static boolean tryRetire(long idleSince){
+		if(System.nanoTime() - idleSince < keepAliveNanos)
+			return false;
+		int live;
+		while((live = liveWorkers.get()) > minWorkers){
+			if(liveWorkers.compareAndSet(live, live-1)){
+				idleWorkers.getAndDecrement();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Called by a worker that stops because the simulation is done.
+	 * @return true if it was the last worker alive
+	 */
+	static boolean workerDone(){
+		idleWorkers.getAndDecrement();
+		return liveWorkers.decrementAndGet() == 0;
+	}
+
+	public static int getShedReqs(){
+		return shedReqs.get();
+	}
+}
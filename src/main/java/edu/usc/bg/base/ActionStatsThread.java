@@ -2,11 +2,13 @@ package edu.usc.bg.base;
 
 import java.io.BufferedReader;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 
+import edu.usc.bg.validator.BinaryLogFormat;
+import edu.usc.bg.validator.BinaryLogReader;
 import edu.usc.bg.validator.logObject;
 
 public class ActionStatsThread extends Thread {
@@ -16,11 +18,16 @@ public class ActionStatsThread extends Thread {
 	int threadid;
 	int machineid;
 	String logDir;
+	boolean binaryLog;
 	public ActionStatsThread( int id, String log, int mid  ) {
+		this(id, log, mid, false);
+	}
+	public ActionStatsThread( int id, String log, int mid, boolean binary  ) {
 		// TODO Auto-generated constructor stub
 		threadid=id;
 		logDir=log;
 		machineid=mid;
+		binaryLog=binary;
 		numLocalActs=0;
 		numPartialActs=0;
 		numPartialOrLocalActs=0;
@@ -43,40 +50,33 @@ public class ActionStatsThread extends Thread {
 		long numPartialActions=0;
 		long numlocalOrPartialActions=0;
 		FileInputStream fstream=null;
+		BufferedReader br=null;
+		BinaryLogReader reader=null;
 		logObject record1=null,record2=null;
 		
 
 			try {
-				fstream = new FileInputStream(logDir+"//"+logtype+machineid+"-"+threadid + ".txt");
-			} catch (FileNotFoundException e) {
+				if (binaryLog)
+					reader = new BinaryLogReader(new File(BinaryLogFormat.fileName(logDir, logtype, ""+machineid, threadid)));
+				else {
+					fstream = new FileInputStream(logDir+"//"+logtype+machineid+"-"+threadid + ".txt");
+					br = new BufferedReader(new InputStreamReader(new DataInputStream(fstream)));
+				}
+			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
 
-			DataInputStream in = new DataInputStream(fstream);
-			BufferedReader br = new BufferedReader(new InputStreamReader(in));
-			String prevSeq="-1";
+			int prevSeq=-1;
 			// Read File Line By Line
-			String[] tokens,tokens2=null;
 			try {
-				for (String next, line = br.readLine(); line != null; line = next) 
+				for (logObject next, record = readRecord(br, reader, logtype); record != null; record = next) 
 				{
-					tokens = line.split(",");
-					next = br.readLine();
-					if (logtype.equals("read"))
-					record1 = new logObject(tokens[0], tokens[1], tokens[2],tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], "", tokens[8]);
-					else
-					record1 = new logObject(tokens[0], tokens[1], tokens[2],tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], tokens[8], tokens[9]);
-
+					next = readRecord(br, reader, logtype);
+					record1 = record;
 					if (next!=null)
 					{
-						tokens2 = next.split(",");
-						if (logtype.equals("read"))
-						record2 = new logObject(tokens2[0], tokens2[1], tokens2[2],tokens2[3], tokens2[4], tokens2[5], tokens2[6], tokens2[7], "", tokens2[8]);
-						else
-							record2 = new logObject(tokens2[0], tokens2[1], tokens2[2],tokens2[3], tokens2[4], tokens2[5], tokens2[6], tokens2[7], tokens2[8], tokens2[9]);
-
-							
+						record2 = next;
 					}
 					else
 					{
@@ -87,33 +87,33 @@ public class ActionStatsThread extends Thread {
 					}
 					if (record1.getActionType().equals("GetProfile"))
 					{
-						if (!prevSeq.equals(record1.getSeqId()))
+						if (prevSeq != record1.getIntSeqId())
 						{
 							numLocalActions++;
 						}
-						prevSeq=record1.getSeqId();
+						prevSeq=record1.getIntSeqId();
 
 					}
 					else if (record1.getActionType().equals("InviteFriends") ||record1.getActionType().equals("RejectFriend") )
 					{
 						numlocalOrPartialActions++;
-						prevSeq=record1.getSeqId();
+						prevSeq=record1.getIntSeqId();
 
 					}
 					else if (record1.getActionType().equals("Unfriendfriend") ||record1.getActionType().equals("AcceptFriend") )
 					{
-						if (record1.getActionType().equals("AcceptFriend") && record2.getSeqId().equals(record1.getSeqId()) && record2.getRid().equals(record1.getRid()))
+						if (record1.getActionType().equals("AcceptFriend") && record2.getIntSeqId() == record1.getIntSeqId() && record2.getIntRid() == record1.getIntRid())
 						{// ignoring the first record for accept friend for the invitee because this action generates 3 log records
 							;
 						}
 						else
 						{
-						 if (!record1.getSeqId().equals(prevSeq)&& !record2.getSeqId().equals(record1.getSeqId()))
+						 if (record1.getIntSeqId() != prevSeq && record2.getIntSeqId() != record1.getIntSeqId())
 						{
 							numPartialActions++;
 						}
 
-						else if (record2.getSeqId().equals(record1.getSeqId()))
+						else if (record2.getIntSeqId() == record1.getIntSeqId())
 						{
 							numLocalActions++;
 
@@ -121,11 +121,11 @@ public class ActionStatsThread extends Thread {
 						}
 
 					}
-						prevSeq=record1.getSeqId();
+						prevSeq=record1.getIntSeqId();
 					}
 					else if (record1.getActionType().contains("GetPendingFriends") ||record1.getActionType().contains( "GetFriends") ) { // for listFriends and getPndings
 						numLocalActions++;
-						prevSeq=record1.getSeqId();
+						prevSeq=record1.getIntSeqId();
 					}
 					
 					
@@ -137,10 +137,36 @@ public class ActionStatsThread extends Thread {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
+			try {
+				if (reader != null)
+					reader.close();
+				if (br != null)
+					br.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
 		
 		long []values={numLocalActions,numPartialActions,numlocalOrPartialActions};
 		return values;
 	}
 
+	/**
+	 * @return the next record of the text or binary log or null if there are no more
+	 */
+	logObject readRecord(BufferedReader br, BinaryLogReader reader, String logtype) throws IOException
+	{
+		if (reader != null)
+			return reader.next() ? reader.toRecord() : null;
+		if (br == null)
+			return null;
+		String line = br.readLine();
+		if (line == null)
+			return null;
+		String[] tokens = line.split(",");
+		if (logtype.equals("read"))
+			return new logObject(tokens[0], tokens[1], tokens[2],tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], "", tokens[8]);
+		return new logObject(tokens[0], tokens[1], tokens[2],tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], tokens[8], tokens[9]);
+	}
+
 
 }
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.usc.bg.validator.BinaryLogWriter;
+
+/**
+ * Per process pipeline writing the read/update log records off the request path.
+ * The threads issuing actions hand their per session records to a bounded queue
+ * (ring buffer) and one or a few writer threads drain it in batches into the log
+ * files. Each log is always written by the same writer thread so its records stay
+ * in order. When a queue is full the issuing thread waits, the number and the
+ * duration of these waits are reported as back pressure.
+ */
+public class AsyncLogWriter extends Thread
+{
+	static final int BATCH_SIZE = 256;
+
+	static AsyncLogWriter[] writers = null;
+	static final AtomicInteger nextWriter = new AtomicInteger();
+	static final AtomicLong backPressureStalls = new AtomicLong();
+	static final AtomicLong backPressureNanos = new AtomicLong();
+	static volatile boolean used = false;
+
+	final ArrayBlockingQueue<Entry> queue;
+
+	/**
+	 * a log file written through the pipeline
+	 */
+	public static class Log
+	{
+		final Writer textLog;
+		final BinaryLogWriter binaryLog;
+		final AsyncLogWriter writer;
+
+		Log(Writer textLog, BinaryLogWriter binaryLog, AsyncLogWriter writer)
+		{
+			this.textLog = textLog;
+			this.binaryLog = binaryLog;
+			this.writer = writer;
+		}
+
+		/**
+		 * queues the records to be appended to the log, waits if the queue is full
+		 */
+		public void write(String records)
+		{
+			if (records.length() > 0)
+				writer.enqueue(new Entry(this, records));
+		}
+
+		/**
+		 * queues closing the log once the records queued before are written
+		 */
+		public void close()
+		{
+			writer.enqueue(new Entry(this, null));
+		}
+
+		void append(String records) throws IOException
+		{
+			if (textLog != null)
+				textLog.write(records);
+			else
+				binaryLog.write(records);
+		}
+
+		void closeLog() throws IOException
+		{
+			if (textLog != null)
+				textLog.close();
+			else
+				binaryLog.close();
+		}
+	}
+
+	static class Entry
+	{
+		final Log log; //null asks the writer thread to stop
+		final String records; //null closes the log
+
+		Entry(Log log, String records)
+		{
+			this.log = log;
+			this.records = records;
+		}
+	}
+
+	AsyncLogWriter(int id, int capacity)
+	{
+		this.setName("BGLogWriter " + id);
+		this.setDaemon(true);
+		queue = new ArrayBlockingQueue<Entry>(capacity);
+	}
+
+	/**
+	 * Starts the writer threads, does nothing if they are already running.
+	 * @param numWriters number of writer threads
+	 * @param capacity number of session records each writer thread can have queued
+	 */
+	public static synchronized void start(int numWriters, int capacity)
+	{
+		if (writers != null)
+			return;
+		writers = new AsyncLogWriter[Math.max(1, numWriters)];
+		for (int i = 0; i < writers.length; i++) {
+			writers[i] = new AsyncLogWriter(i, Math.max(1, capacity));
+			writers[i].start();
+		}
+		used = true;
+	}
+
+	public static Log open(Writer textLog)
+	{
+		return new Log(textLog, null, nextWriterThread());
+	}
+
+	public static Log open(BinaryLogWriter binaryLog)
+	{
+		return new Log(null, binaryLog, nextWriterThread());
+	}
+
+	static synchronized AsyncLogWriter nextWriterThread()
+	{
+		if (writers == null)
+			throw new IllegalStateException("The asynchronous log writer is not started");
+		return writers[(nextWriter.getAndIncrement() & Integer.MAX_VALUE) % writers.length];
+	}
+
+	/**
+	 * Writes everything queued so far, closes the logs that were closed and stops the
+	 * writer threads. Must be called before the log files are read back for validation.
+	 */
+	public static synchronized void shutdown()
+	{
+		if (writers == null)
+			return;
+		for (AsyncLogWriter w : writers)
+			w.enqueue(new Entry(null, null));
+		for (AsyncLogWriter w : writers) {
+			try {
+				w.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace(System.out);
+			}
+		}
+		writers = null;
+	}
+
+	void enqueue(Entry e)
+	{
+		if (queue.offer(e))
+			return;
+		long st = System.nanoTime();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(e);
+				break;
+			} catch (InterruptedException ie) {
+				//the record must not be lost, restore the interrupt once it is queued
+				interrupted = true;
+			}
+		}
+		backPressureNanos.addAndGet(System.nanoTime() - st);
+		backPressureStalls.incrementAndGet();
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	public void run()
+	{
+		ArrayList<Entry> batch = new ArrayList<Entry>(BATCH_SIZE);
+		boolean stop = false;
+		while (!stop) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				continue;
+			}
+			queue.drainTo(batch, BATCH_SIZE - 1);
+			for (Entry e : batch) {
+				if (e.log == null) {
+					stop = true;
+					continue;
+				}
+				try {
+					if (e.records == null)
+						e.log.closeLog();
+					else
+						e.log.append(e.records);
+				} catch (IOException ex) {
+					ex.printStackTrace(System.out);
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * @return true if the pipeline was started in this process
+	 */
+	public static boolean wasUsed() {
+		return used;
+	}
+
+	/**
+	 * @return the number of times a thread had to wait because a queue was full
+	 */
+	public static long getBackPressureStalls() {
+		return backPressureStalls.get();
+	}
+
+	/**
+	 * @return the total time (ms) threads waited because a queue was full
+	 */
+	public static double getBackPressureTime() {
+		return backPressureNanos.get() / 1000000.0;
+	}
+}
@@ -21,13 +21,18 @@ package edu.usc.bg.base;
 
 import edu.usc.bg.*;
 import edu.usc.bg.generator.Fragmentation;
+import edu.usc.bg.measurements.IntervalStatsWriter;
 import edu.usc.bg.measurements.MyMeasurement;
+import edu.usc.bg.measurements.OpWindowStats;
 import edu.usc.bg.measurements.StatsPrinter;
 import edu.usc.bg.server.BGServer;
 import edu.usc.bg.server.ClientInfo;
 import edu.usc.bg.server.RequestHandler;
+import edu.usc.bg.validator.OnlineValidator;
 import edu.usc.bg.validator.ValidationMainClass;
 import edu.usc.bg.workloads.CoreWorkload;
+import edu.usc.bg.workloads.InitStateSnapshot;
+import edu.usc.bg.workloads.TraceWorkload;
 import edu.usc.bg.workloads.loadActiveThread;
 
 import java.io.*;
@@ -252,17 +257,21 @@ class WorkerRunnable implements Runnable{
 			String summ=status.summary;
 			int threadcount;
 			double total=0;
-			int index=summ.indexOf('=');
+			String avgToken="AverageResponseTime(us)=";
+			int index=summ.indexOf(avgToken);
 			int i=0;
 			while (index!=-1)
 			{
 				i++;
-				summ=summ.substring(index+1);
+				summ=summ.substring(index+avgToken.length());
+				int endIndex=summ.indexOf(',');
+				if (endIndex==-1 || endIndex>summ.indexOf(']'))
+					endIndex=summ.indexOf(']');
 				double responsetime=0;
-				if (Double.parseDouble(summ.substring(0,summ.indexOf(']')))>0)
-					responsetime=Double.parseDouble(summ.substring(0,summ.indexOf(']')));
+				if (Double.parseDouble(summ.substring(0,endIndex))>0)
+					responsetime=Double.parseDouble(summ.substring(0,endIndex));
 				total=total+responsetime;
-				index=summ.indexOf('=');
+				index=summ.indexOf(avgToken);
 			}
 			total=total/1000;
 			//if (flag==false)
@@ -421,6 +430,7 @@ class StatusThread extends Thread {
 	double curactthroughput;
 	boolean alldone;
 	String summary="";
+	IntervalStatsWriter intervalStats=null;
 
 
 	/**
@@ -433,6 +443,21 @@ class StatusThread extends Thread {
 		_workload = workload;
 	}
 
+	/**
+	 * @param intervalStatsFile if not null the stats of every window are also appended to this CSV file
+	 */
+	public StatusThread(Vector<Thread> threads, Workload workload, String intervalStatsFile) {
+		this(threads, workload);
+		if (intervalStatsFile != null) {
+			try {
+				intervalStats = new IntervalStatsWriter(intervalStatsFile);
+			} catch (IOException e) {
+				System.out.println("Could not create the interval stats file " + intervalStatsFile);
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+
 	/**
 	 * Run and periodically report status.
 	 */
@@ -442,6 +467,8 @@ class StatusThread extends Thread {
 		long lasten = st;
 		long lasttotalops = 0;
 		long lasttotalacts = 0;
+		LoadProfile profile = Client.loadProfile;
+		double lastProfileTime = 0;
 
 
 		do {
@@ -452,7 +479,7 @@ class StatusThread extends Thread {
 
 			// terminate this thread when all the worker threads are done
 			for (Thread t : _threads) {
-				if (t.getState() != Thread.State.TERMINATED) {
+				if (ClientThread.runnerOf(t).getState() != Thread.State.TERMINATED) {
 					alldone = false;
 				}
 
@@ -468,12 +495,24 @@ class StatusThread extends Thread {
 
 			double curthroughput = 1000.0 * (((double) (totalops - lasttotalops)) / ((double) (en - lasten)));
 			curactthroughput = 1000.0 * (((double) (totalacts - lasttotalacts)) / ((double) (en - lasten)));
+			List<OpWindowStats> window = MyMeasurement.getWindowStats();
+			String phase = null;
+			double offered = 0;
+			if (profile != null) {
+				double profileTime = profile.getElapsed();
+				phase = profile.getPhase(profileTime);
+				offered = profileTime > lastProfileTime ? (profile.getWork(profileTime) - profile.getWork(lastProfileTime)) * 1000 / (profileTime - lastProfileTime) : 0;
+				lastProfileTime = profileTime;
+			}
+			writeIntervalStats(interval, en - lasten, phase, offered, totalops - lasttotalops, totalacts - lasttotalacts, window);
 			lasttotalops = totalops;
 			lasttotalacts = totalacts;
 			lasten = en;
 
 			DecimalFormat d = new DecimalFormat("#.##");
 
+			if (phase != null)
+				System.out.print(" phase " + phase + ", " + d.format(offered) + " offered sessions/sec;");
 			if (totalacts == 0) {
 				System.out.print(" " + (interval / 1000) + " sec: " + totalacts
 						+ " actions; ");
@@ -484,12 +523,12 @@ class StatusThread extends Thread {
 			}
 
 			if (totalops == 0) {
-				summary=MyMeasurement.getSummary();
+				summary=MyMeasurement.getSummary(window);
 				System.out.println(" " + (interval / 1000) + " sec: "
 						+ totalops + " operations; "
 						+ summary);
 			} else {
-				summary=MyMeasurement.getSummary();
+				summary=MyMeasurement.getSummary(window);
 				System.out.println(" " + (interval / 1000) + " sec: "
 						+ totalops + " operations; " + d.format(curthroughput)
 						+ " current ops/sec; " + summary);
@@ -502,8 +541,26 @@ class StatusThread extends Thread {
 
 		} while (!alldone && !_workload.isStopRequested());
 		alldone=true;
+		if (intervalStats != null) {
+			try {
+				intervalStats.close();
+			} catch (IOException e) {
+				e.printStackTrace(System.out);
+			}
+		}
 		VisualizationThread.stopServer();
 	}
+
+	private void writeIntervalStats(long elapsed, long window, String phase, double offered, long sessions, long actions, List<OpWindowStats> opStats) {
+		if (intervalStats == null)
+			return;
+		try {
+			intervalStats.write(elapsed, window, phase, offered, sessions, actions, opStats);
+		} catch (IOException e) {
+			System.out.println("Failed to write the interval stats, disabling them: " + e.getMessage());
+			intervalStats = null;
+		}
+	}
 }
 
 
@@ -547,6 +604,27 @@ public class Client {
 	public static final String EXPORT_FILE_PROPERTY = "exportfile";
 	public static final String FEED_LOAD_PROPERTY = "feedload";
 	public static final String FEED_LOAD_DEFAULT_PROPERTY = "false";
+	// CSV file receiving the per window stats of the status thread (needs -s)
+	public static final String INTERVAL_STATS_FILE_PROPERTY = "intervalstatsfile";
+	// with a target throughput, also report the latency of each action measured from the time the throttle
+	// intended it to start, so time spent waiting behind slow actions is not omitted
+	public static final String CORRECT_COORDINATED_OMISSION_PROPERTY = "correctcoordinatedomission";
+	public static final String CORRECT_COORDINATED_OMISSION_PROPERTY_DEFAULT = "false";
+	// format of the read/update log files used for validation, text or binary (see BinaryLogFormat)
+	public static final String LOG_FORMAT_PROPERTY = "logformat";
+	public static final String LOG_FORMAT_PROPERTY_DEFAULT = "text";
+	// seed of the random streams of the threads, a BG client thread draws the same numbers in every
+	// run with the same seed. Empty for an unseeded run
+	public static final String RANDOM_SEED_PROPERTY = "randomseed";
+	public static final String RANDOM_SEED_PROPERTY_DEFAULT = "";
+	// write the read/update logs from a separate thread (see AsyncLogWriter), number of writer threads and
+	// number of session records each of them can have queued before the threads issuing actions wait
+	public static final String ASYNC_LOG_PROPERTY = "asynclog";
+	public static final String ASYNC_LOG_PROPERTY_DEFAULT = "false";
+	public static final String ASYNC_LOG_WRITERS_PROPERTY = "asynclogwriters";
+	public static final String ASYNC_LOG_WRITERS_PROPERTY_DEFAULT = "1";
+	public static final String ASYNC_LOG_CAPACITY_PROPERTY = "asynclogcapacity";
+	public static final String ASYNC_LOG_CAPACITY_PROPERTY_DEFAULT = "4096";
 
 	public static final String WORKLOAD_PROPERTY = "workload";
 	public static final String USER_WORKLOAD_PROPERTY = "userworkload";
@@ -564,6 +642,13 @@ public class Client {
 	public static final String INIT_FRND_COUNT_PROPERTY_DEFAULT = "0";
 	public static final String INIT_RES_COUNT_PROPERTY = "initialresourcesperuser";
 	public static final String INIT_RES_COUNT_PROPERTY_DEFAULT = "0";
+	// number of threads querying the initial state of the members with QUERYDATA
+	public static final String INIT_QUERY_THREADS_PROPERTY = "initquerythreads";
+	public static final String INIT_QUERY_THREADS_PROPERTY_DEFAULT = "5";
+	// the initial state queried with QUERYDATA is saved to this file and read
+	// back by the following runs instead of querying the data store again
+	public static final String INIT_SNAPSHOT_FILE_PROPERTY = "initsnapshotfile";
+	public static final String INIT_SNAPSHOT_FILE_PROPERTY_DEFAULT = "";
 
 	public static final String INSERT_IMAGE_PROPERTY = "insertimage";
 	public static final String INSERT_IMAGE_PROPERTY_DEFAULT = "false";
@@ -571,6 +656,25 @@ public class Client {
 	public static final String IMAGE_SIZE_PROPERTY_DEFAULT = "2";
 	public static final String THREAD_CNT_PROPERTY = "threadcount";
 	public static final String THREAD_CNT_PROPERTY_DEFAULT = "1";
+	// platform runs every socialite on its own thread, virtual runs them on
+	// virtual threads (needs a build and a runtime of JDK 21 or later)
+	public static final String THREAD_MODE_PROPERTY = "threadmode";
+	public static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+	// when greater than 0 the socialites share this many DB instances, taking
+	// one for every session, instead of having a DB instance each. A session
+	// keeps its DB through its think times, so at most this many sessions run
+	// at once. With threadmode=virtual it defaults to min(threadcount, 4 x cores)
+	// without think time and to threadcount with think time
+	public static final String DB_POOL_SIZE_PROPERTY = "dbpoolsize";
+	public static final String DB_POOL_SIZE_PROPERTY_DEFAULT = "0";
+	// the actions the client threads issue to the data store are recorded to
+	// this file, it can be replayed with the trace workload
+	public static final String TRACE_RECORD_FILE_PROPERTY = "tracerecordfile";
+	public static final String TRACE_RECORD_FILE_PROPERTY_DEFAULT = "";
+	// rate varying over the run (see LoadProfile), replaces the target of the
+	// closed simulation and the lambda of the open simulation, e.g. ramp:60:0:1000;const:60:1000
+	public static final String LOAD_PROFILE_PROPERTY = "loadprofile";
+	public static final String LOAD_PROFILE_PROPERTY_DEFAULT = "";
 	public static final String THINK_TIME_PROPERTY = "thinktime";
 	public static final String THINK_TIME_PROPERTY_DEFAULT = "0";
 	public static final String INTERARRIVAL_TIME_PROPERTY = "interarrivaltime";
@@ -603,6 +707,8 @@ public class Client {
 	public static final String ENFORCE_FRIENDSHIP_PROPERTY = "enforcefriendship";
 	public static final String ENFORCE_FRIENDSHIP_PROPERTY_DEFAULT = "false";
 	public static Workload workload = null;
+	//set by the loadprofile property, null for a constant rate
+	public static LoadProfile loadProfile = null;
 	public static Semaphore releaseWorkers= new Semaphore(0);
 
 	//properties for open simulation
@@ -615,6 +721,20 @@ public class Client {
 	public static final String DISTRITYPE_PROPERTY_DEFAULT  = "1";
 	public static final String LAMBDA_PROPERTY_DEFAULT  = "10"; //req/sec
 	public static final String SIM_WARMUP_TIME_PROPERTY_DEFAULT  = "0"; //ms
+	//workers of the open simulation, created and initialized before the first arrival
+	public static final String OPEN_MIN_WORKERS_PROPERTY  = "openminworkers";
+	public static final String OPEN_MIN_WORKERS_PROPERTY_DEFAULT  = "1";
+	public static final String OPEN_MAX_WORKERS_PROPERTY  = "openmaxworkers";
+	public static final String OPEN_MAX_WORKERS_PROPERTY_DEFAULT  = "500";
+	//a worker idle for this long retires if more than openminworkers are alive
+	public static final String OPEN_WORKER_KEEPALIVE_PROPERTY  = "openworkerkeepalive"; //ms
+	public static final String OPEN_WORKER_KEEPALIVE_PROPERTY_DEFAULT  = "10000"; //ms
+	//what happens to an arrival when openqueuecapacity requests are waiting for a worker:
+	//queue queues it anyway (unbounded queue), shed drops it, block delays it until there is room
+	public static final String OPEN_OVERLOAD_POLICY_PROPERTY  = "openoverloadpolicy";
+	public static final String OPEN_OVERLOAD_POLICY_PROPERTY_DEFAULT  = "queue";
+	public static final String OPEN_QUEUE_CAPACITY_PROPERTY  = "openqueuecapacity";
+	public static final String OPEN_QUEUE_CAPACITY_PROPERTY_DEFAULT  = "10000";
 
 	//DB.get constants
 	private final String AVG_PENDING_PER_USER = "avgpendingperuser";
@@ -649,6 +769,8 @@ public class Client {
 	public static int numBGClients = 1;
 	public static int numMembers = 0;
 	public static String logDir;
+	//true when the read/update logs are in the BinaryLogFormat
+	public static boolean binaryLog = false;
 	public static int threadCount = 1;
 
 	public static void usageMessage() {
@@ -938,6 +1060,16 @@ public class Client {
 			printer.write("OVERALL", "Throughput(actions/sec)", actthroughput);
 
 
+			if (AsyncLogWriter.wasUsed()) {
+				printer.write("ASYNCLOG", "BackPressureStalls", (double) AsyncLogWriter.getBackPressureStalls());
+				printer.write("ASYNCLOG", "BackPressureTime(ms)", AsyncLogWriter.getBackPressureTime());
+				System.out.println("ASYNCLOGBACKPRESSURESTALLS:" + AsyncLogWriter.getBackPressureStalls()
+						+ " ASYNCLOGBACKPRESSURETIME(MS):" + AsyncLogWriter.getBackPressureTime());
+			}
+
+			printer.write("ACTIVATION", "FailedClaims", (double) CoreWorkload.getFailedActivationClaims());
+			System.out.println("ACTIVATIONFAILEDCLAIMS:" + CoreWorkload.getFailedActivationClaims());
+
 			System.out.println("OVERALLOPCOUNT(SESSIONS):" + opcount);
 			System.out.println("OVERALLTHROUGHPUT(SESSIONS/SECS):"
 					+ sessionthroughput);
@@ -1027,6 +1159,8 @@ public class Client {
 			//}// if benchmarkStats not null
 			System.out.println("[SatisfyingPerc] " + MyMeasurement.getSatisfyingPerc());
 			printer.write(MyMeasurement.getFinalResults());
+			for (Map.Entry<String, Double> freq : CoreWorkload.getFrequencyReport().entrySet())
+				printer.write("FREQUENCY", freq.getKey(), freq.getValue());
 			// Needed in case you want to print out frequency related stats
 			printer.write(CoreWorkload.getFrequecyStats().toString());
 		} finally {
@@ -1380,6 +1514,13 @@ public class Client {
 		numBGClients = Integer.parseInt(props.getProperty(NUM_BG_PROPERTY,
 				NUM_BG_PROPERTY_DEFAULT));
 		logDir = props.getProperty(Client.LOG_DIR_PROPERTY, Client.LOG_DIR_PROPERTY_DEFAULT);
+		binaryLog = props.getProperty(LOG_FORMAT_PROPERTY, LOG_FORMAT_PROPERTY_DEFAULT).equalsIgnoreCase("binary");
+		String randomSeed = props.getProperty(RANDOM_SEED_PROPERTY, RANDOM_SEED_PROPERTY_DEFAULT).trim();
+		if (!randomSeed.isEmpty()) {
+			//the machine id keeps the streams of the BG clients apart
+			Utils.setSeed(Long.parseLong(randomSeed) * 31 + machineid);
+			System.out.println("Random streams seeded with " + randomSeed);
+		}
 		threadCount = Integer.parseInt(props.getProperty(THREAD_CNT_PROPERTY,THREAD_CNT_PROPERTY_DEFAULT));
 		BGServer bb=null;
 		threadsStart= new CountDownLatch(threadCount);
@@ -1518,8 +1659,8 @@ public class Client {
 		try {
 			if (inputArguments[dotransactions]) {
 				// check to see if the sum of all activity and action
-				// proportions are 1
-				if(!isTotalProbabilityOne(props)){
+				// proportions are 1, a replayed trace has no proportions
+				if(!TraceWorkload.class.getName().equals(props.getProperty(WORKLOAD_PROPERTY)) && !isTotalProbabilityOne(props)){
 					return;	
 				}
 
@@ -1646,6 +1787,9 @@ public class Client {
 		DB db;
 		long loadStart, loadEnd;
 		loadStart = System.currentTimeMillis();
+		String snapshotFile = props.getProperty(INIT_SNAPSHOT_FILE_PROPERTY, INIT_SNAPSHOT_FILE_PROPERTY_DEFAULT);
+		if (!snapshotFile.isEmpty())
+			InitStateSnapshot.invalidate(snapshotFile);
 
 		try {
 			/*
@@ -2051,6 +2195,15 @@ public class Client {
 			double targetperthreadperms, Vector<Thread> threads) {
 		// run the workload
 		System.out.println("Starting benchmark.");
+		try {
+			loadProfile = LoadProfile.fromProperties(props);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println(EXECUTIONDONEMSG);
+			return false;
+		}
+		if (loadProfile != null)
+			System.out.println("Load profile of " + (loadProfile.getDuration() / 1000) + " sec: " + props.getProperty(LOAD_PROFILE_PROPERTY));
 
 		int opcount = Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,
 				OPERATION_COUNT_PROPERTY_DEFAULT));
@@ -2098,21 +2251,57 @@ public class Client {
 
 		}
 		else{
-
-			for (int threadid = 0; threadid < threadCount; threadid++) {
-				DB db = null;
+			ThreadFactory virtualThreads = null;
+			if (props.getProperty(THREAD_MODE_PROPERTY, THREAD_MODE_PROPERTY_DEFAULT).equalsIgnoreCase("virtual"))
+				virtualThreads = VirtualThreads.factory();
+			int dbPoolSize = Integer.parseInt(props.getProperty(DB_POOL_SIZE_PROPERTY, DB_POOL_SIZE_PROPERTY_DEFAULT));
+			//a session holds its DB through the think times of the workload, the pool bounds the sessions running at once
+			boolean thinks = Integer.parseInt(props.getProperty(THINK_TIME_PROPERTY, THINK_TIME_PROPERTY_DEFAULT)) > 0;
+			if (virtualThreads != null && dbPoolSize <= 0) {
+				//a DB instance (connection, wrapper and measurements) per virtual thread defeats their purpose,
+				//unless the sessions spend most of their time thinking
+				dbPoolSize = thinks ? threadCount : Math.min(threadCount, 4 * Runtime.getRuntime().availableProcessors());
+				System.out.println(DB_POOL_SIZE_PROPERTY + " is not set, the virtual threads share a pool of " + dbPoolSize + " DB instances");
+			} else if (thinks && dbPoolSize > 0 && dbPoolSize < threadCount) {
+				System.out.println("The sessions keep their DB while thinking, at most " + dbPoolSize + " of the " + threadCount
+						+ " threads run a session at once (" + DB_POOL_SIZE_PROPERTY + "=" + dbPoolSize + ")");
+			}
+			DBPool dbPool = null;
+			if (dbPoolSize > 0) {
 				try {
-					db = DBFactory.newDB(dbname, props);
+					dbPool = new DBPool(dbname, props, dbPoolSize);
 				} catch (UnknownDBException e) {
 					System.out.println("Unknown DB " + dbname);
-					//System.exit(0);
+					System.out.println(EXECUTIONDONEMSG);
+					return false;
+				} catch (DBException e) {
+					e.printStackTrace(System.out);
 					System.out.println(EXECUTIONDONEMSG);
 					return false;
 				}
+				System.out.println("The " + threadCount + " threads share " + dbPoolSize + " DB instances");
+			}
 
-				Thread t = new ClientThread(db, dotransactions, workload,
+			for (int threadid = 0; threadid < threadCount; threadid++) {
+				DB db = null;
+				if (dbPool == null) {
+					try {
+						db = DBFactory.newDB(dbname, props);
+					} catch (UnknownDBException e) {
+						System.out.println("Unknown DB " + dbname);
+						//System.exit(0);
+						System.out.println(EXECUTIONDONEMSG);
+						return false;
+					}
+				}
+
+				ClientThread t = new ClientThread(db, dotransactions, workload,
 						threadid, threadCount, props, opcount / threadCount,
 						targetperthreadperms, false);
+				if (dbPool != null)
+					t.setDBPool(dbPool);
+				if (virtualThreads != null)
+					t.runOn(virtualThreads);
 
 				threads.add(t);
 			}
@@ -2132,13 +2321,15 @@ public class Client {
 					}
 				}
 			}
+			if (CoreWorkload.enableLogging && (numBGClients == 1 || BENCHMARKING_MODE == PARTITIONED))
+				OnlineValidator.start(props, threadCount);
 		}
 
 		StatusThread statusthread = null;
 
 		System.out.println("status:" + status);
 		if (status) {
-			statusthread = new StatusThread(threads, workload);
+			statusthread = new StatusThread(threads, workload, props.getProperty(INTERVAL_STATS_FILE_PROPERTY));
 		}
 		// start all threads
 		for (Thread t : threads) {
@@ -2202,7 +2393,7 @@ public class Client {
 			System.out.println("Waiting for threads to join...");
 			for (Thread t : threads) {
 				try {
-					t.join();
+					ClientThread.runnerOf(t).join();
 					System.out.println("BG Thread "+((ClientThread)t)._threadid+" join");
 					opsDone += ((ClientThread) t).getOpsDone();
 					actsDone += ((ClientThread) t).getActsDone();
@@ -2247,8 +2438,11 @@ public class Client {
 			props.setProperty(THREAD_CNT_PROPERTY, new Integer(Worker.maxWorker).toString());
 			threadCount=Worker.maxWorker;
 		}
+		TraceRecorder.closeRecorder();
 
 		long en = System.currentTimeMillis();
+		// the log files must be complete before they are read back
+		AsyncLogWriter.shutdown();
 		// if (terminator != null && !terminator.isInterrupted()) {
 		// try {
 		// terminator.join(2000);
@@ -2321,9 +2515,12 @@ public class Client {
 					.println("--Discarding, dumping and validation starting.");
 					dumpVTimeS = System.currentTimeMillis();
 
-					ValidationMainClass.dumpFilesAndValidate(props, seqTracker,
-							staleSeqTracker, expStat, outpS, props.getProperty(
-									LOG_DIR_PROPERTY, LOG_DIR_PROPERTY_DEFAULT));
+					if (OnlineValidator.get() != null)
+						OnlineValidator.get().finish(expStat);
+					else
+						ValidationMainClass.dumpFilesAndValidate(props, seqTracker,
+								staleSeqTracker, expStat, outpS, props.getProperty(
+										LOG_DIR_PROPERTY, LOG_DIR_PROPERTY_DEFAULT));
 					dumpVTimeE = System.currentTimeMillis();
 					System.out
 					.println("******* Discrading, dumping and validation is done."
@@ -2340,6 +2537,8 @@ public class Client {
 				System.out.println("Warning: Update and Graph actions not exist in the workload so the validation is not invoked.");
 			}
 		}
+		// the online validator is still running if the validation was skipped
+		OnlineValidator.stopRunning();
 		System.out.println("DONE");
 		expStat.setOpsTillFirstDeath((double) allOpsDone);
 		expStat.setActsTillFirstDeath((double) allActsDone);
@@ -2372,7 +2571,7 @@ public class Client {
 		for (int i=0;i<threadCount;i++)
 		{
 
-			ActionStatsThread a=new ActionStatsThread(i, logDir, machineid);
+			ActionStatsThread a=new ActionStatsThread(i, logDir, machineid, binaryLog);
 			a.start();
 			actionStatusThreads.add(a);
 		}
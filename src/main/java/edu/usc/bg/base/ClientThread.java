@@ -26,6 +26,12 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.usc.bg.validator.BinaryLogFormat;
+import edu.usc.bg.validator.BinaryLogWriter;
+import edu.usc.bg.validator.OnlineValidator;
 
 
 /**
@@ -50,6 +56,10 @@ public class ClientThread extends Thread {
 	Properties _props;
 	BufferedWriter updateLog; // update log file
 	BufferedWriter readLog; // read log file
+	BinaryLogWriter binaryUpdateLog; // update log file when the log format is binary
+	BinaryLogWriter binaryReadLog; // read log file when the log format is binary
+	AsyncLogWriter.Log asyncUpdateLog; // update log written by the log writer thread(s)
+	AsyncLogWriter.Log asyncReadLog; // read log written by the log writer thread(s)
 	HashMap<String, Integer> resUpdateOperations; // keep a track of the updates
 	// done by this thread on
 	// different resources
@@ -60,6 +70,14 @@ public class ClientThread extends Thread {
 	// this user
 
 	boolean insertImages = false;
+	//when throttled, also report the response time of the actions measured from their intended start time
+	boolean correctCoordinatedOmission = false;
+	//the virtual thread running this socialite, null when it runs on its own thread
+	Thread _runner;
+	//the DB instances shared with the other threads, null when this thread has its own DB
+	DBPool _dbPool;
+	//the rate of sessions replacing _target, null for a constant rate
+	LoadProfile _profile;
 
 	/**
 	 * Constructor.
@@ -104,11 +122,22 @@ public class ClientThread extends Thread {
 		pendingInfo = new HashMap<String, Integer>();
 		insertImages = Boolean.parseBoolean(props.getProperty(Client.INSERT_IMAGE_PROPERTY,
 				Client.INSERT_IMAGE_PROPERTY_DEFAULT));
+		correctCoordinatedOmission = Boolean.parseBoolean(props.getProperty(Client.CORRECT_COORDINATED_OMISSION_PROPERTY,
+				Client.CORRECT_COORDINATED_OMISSION_PROPERTY_DEFAULT));
+		if (!_warmup && dotransactions)
+			_profile = Client.loadProfile;
 		String machineid = props.getProperty(Client.MACHINE_ID_PROPERTY, Client.MACHINE_ID_PROPERTY_DEFAULT);
 		String dir = props.getProperty(Client.LOG_DIR_PROPERTY, Client.LOG_DIR_PROPERTY_DEFAULT);
 		if(!_warmup && dotransactions){ //no file is needed if the thread is in warmup or load step
 			// create file and open it
-			if (true) {
+			if (props.getProperty(Client.LOG_FORMAT_PROPERTY, Client.LOG_FORMAT_PROPERTY_DEFAULT).equalsIgnoreCase("binary")) {
+				try {
+					binaryUpdateLog = new BinaryLogWriter(new File(BinaryLogFormat.fileName(dir, "update", machineid, _threadid)));
+					binaryReadLog = new BinaryLogWriter(new File(BinaryLogFormat.fileName(dir, "read", machineid, _threadid)));
+				} catch (IOException e) {
+					e.printStackTrace(System.out);
+				}
+			} else {
 				try {
 					//update file
 					File ufile = new File(dir+"/update"+machineid+"-"+_threadid + ".txt");
@@ -122,6 +151,17 @@ public class ClientThread extends Thread {
 					e.printStackTrace(System.out);
 				}
 			}
+			if (Boolean.parseBoolean(props.getProperty(Client.ASYNC_LOG_PROPERTY, Client.ASYNC_LOG_PROPERTY_DEFAULT))) {
+				AsyncLogWriter.start(Integer.parseInt(props.getProperty(Client.ASYNC_LOG_WRITERS_PROPERTY, Client.ASYNC_LOG_WRITERS_PROPERTY_DEFAULT)),
+						Integer.parseInt(props.getProperty(Client.ASYNC_LOG_CAPACITY_PROPERTY, Client.ASYNC_LOG_CAPACITY_PROPERTY_DEFAULT)));
+				if (updateLog != null && readLog != null) {
+					asyncUpdateLog = AsyncLogWriter.open(updateLog);
+					asyncReadLog = AsyncLogWriter.open(readLog);
+				} else if (binaryUpdateLog != null && binaryReadLog != null) {
+					asyncUpdateLog = AsyncLogWriter.open(binaryUpdateLog);
+					asyncReadLog = AsyncLogWriter.open(binaryReadLog);
+				}
+			}
 		}
 	}
 
@@ -132,10 +172,52 @@ public class ClientThread extends Thread {
 		return _actionsDone;
 	}
 
+	/**
+	 * Runs this socialite on a thread created by the factory (e.g. a virtual thread) once started,
+	 * use runnerOf to join it or get its state.
+	 */
+	public void runOn(ThreadFactory factory) {
+		_runner = factory.newThread(this);
+		_runner.setName(getName() + " " + _threadid);
+	}
+
+	/**
+	 * Takes a DB from the pool for every session instead of using its own DB.
+	 */
+	public void setDBPool(DBPool dbPool) {
+		_dbPool = dbPool;
+	}
+
+	public synchronized void start() {
+		if (_runner != null)
+			_runner.start();
+		else
+			super.start();
+	}
+
+	/**
+	 * @return the thread actually running t
+	 */
+	public static Thread runnerOf(Thread t) {
+		if (t instanceof ClientThread && ((ClientThread) t)._runner != null)
+			return ((ClientThread) t)._runner;
+		return t;
+	}
+
+	DB acquireDB() {
+		return _dbPool == null ? _db : _dbPool.acquire();
+	}
+
+	void releaseDB(DB db) {
+		if (_dbPool != null)
+			_dbPool.release(db);
+	}
+
 	public boolean initThread() {
 		try {
-
-			_db.init();
+			//the DBs of the pool are initialized by the pool
+			if (_dbPool == null)
+				_db.init();
 		} catch (DBException e ) {
 			e.printStackTrace(System.out);
 			return false;
@@ -152,6 +234,8 @@ public class ClientThread extends Thread {
 	}
 
 	public void run() {
+		//the warmup threads have their own streams
+		Utils.seedThread(_warmup ? -1 - _threadid : _threadid);
 		// spread the thread operations out so they don't all hit the DB at the
 		// same time
 		try {
@@ -169,6 +253,8 @@ public class ClientThread extends Thread {
 		try {
 			if (_dotransactions) {
 				long st = System.currentTimeMillis();
+				//same origin as st, used to compute the intended start time of each session
+				long stNanos = System.nanoTime();
 				int seqID = 0; // needed for determining staleness in
 				// granularity of users
 				int thinkTime = 0;
@@ -192,11 +278,16 @@ public class ClientThread extends Thread {
 
 				StringBuilder updateTestLog = new StringBuilder();
 				StringBuilder readTestLog = new StringBuilder();
+				//validates the log records while the run is in progress
+				OnlineValidator onlineValidator = _warmup ? null : OnlineValidator.get();
+				//records the actions when tracerecordfile is set
+				TraceRecorder trace = _warmup ? null : TraceRecorder.get(_props);
 				if (!this._warmup){
 					Client.threadsStart.countDown();
 					Client.threadsStart.await();
 				}
 				Client.experimentStartTime= System.currentTimeMillis();
+				long profileStart = _profile != null ? _profile.markStart() : 0;
 
 				/*while (((_opcount == 0) || (_opsdone < _opcount))
 						&& !_workload.isStopRequested()) {*/
@@ -204,28 +295,60 @@ public class ClientThread extends Thread {
 						&& (!_workload.isStopRequested() &&!is_terminated())) {
 
 					sleep(interarrivalTime);
+					if (_profile != null && !waitForProfile(profileStart))
+						break;
 					updateTestLog.delete(0, updateTestLog.length());
 					readTestLog.delete(0, readTestLog.length());
 					int actsDone = 0;
-					if ((actsDone = _workload.doTransaction(_db, _workloadstate,
-							_threadid, updateTestLog,readTestLog, seqID, resUpdateOperations,
-							friendshipInfo, pendingInfo, thinkTime,
-							insertImage, _warmup)) < 0) { //=0 when only perfomring actions like accept friendship and no pending frnd are there
+					if (onlineValidator != null)
+						onlineValidator.sessionStarted(_threadid, System.nanoTime());
+					DB db = acquireDB();
+					if (trace != null && db instanceof DBWrapper)
+						((DBWrapper) db).setTraceRecorder(trace);
+					if (_profile != null && correctCoordinatedOmission && db instanceof DBWrapper) {
+						((DBWrapper) db).setIntendedStartTime(profileStart + (long) (profileTimeOfNextSession() * 1000000));
+					} else if (_target > 0 && correctCoordinatedOmission && db instanceof DBWrapper) {
+						//the throttle below intends session _opsdone to start _opsdone/_target ms after st
+						((DBWrapper) db).setIntendedStartTime(stNanos + (long) (_opsdone / _target * 1000000));
+					}
+					try {
+						actsDone = _workload.doTransaction(db, _workloadstate,
+								_threadid, updateTestLog,readTestLog, seqID, resUpdateOperations,
+								friendshipInfo, pendingInfo, thinkTime,
+								insertImage, _warmup);
+					} finally {
+						//the DB may be pooled, the next session sets its own intended start
+						if (db instanceof DBWrapper)
+							((DBWrapper) db).setIntendedStartTime(-1);
+						releaseDB(db);
+					}
+					if (actsDone < 0) { //=0 when only perfomring actions like accept friendship and no pending frnd are there
 						break;
 					}
 
 					seqID++;
-					if(updateLog != null) //in warmup phase
-						updateLog.write(updateTestLog.toString()); 
-					if(readLog != null) //in warmup phase
-						readLog.write(readTestLog.toString());
+					if (onlineValidator != null)
+						onlineValidator.sessionCompleted(_threadid, updateTestLog, readTestLog);
+					if(asyncUpdateLog != null){ //written off the request path
+						asyncUpdateLog.write(updateTestLog.toString());
+						asyncReadLog.write(readTestLog.toString());
+					}else{
+						if(updateLog != null) //in warmup phase
+							updateLog.write(updateTestLog.toString()); 
+						if(readLog != null) //in warmup phase
+							readLog.write(readTestLog.toString());
+						if(binaryUpdateLog != null)
+							binaryUpdateLog.write(updateTestLog);
+						if(binaryReadLog != null)
+							binaryReadLog.write(readTestLog);
+					}
 
 					_opsdone++; //keeps a track of the number of sessions/sequences done
 					_actionsDone+=actsDone;  //keeps a track of the number of actual successful actions done
 
 
-					// throttle the operations
-					if (_target > 0) {
+					// throttle the operations, with a load profile the next session waits for its time before it starts
+					if (_target > 0 && _profile == null) {
 						// this is more accurate than other throttling
 						// approaches we have tried,
 						// like sleeping for (1/target throughput)-operation
@@ -244,6 +367,8 @@ public class ClientThread extends Thread {
 						}
 					}
 				}  // end doTransaction while
+				if (onlineValidator != null)
+					onlineValidator.threadDone(_threadid);
 				//YAZ
 				//				_workload.setStopRequested(true);
 
@@ -253,7 +378,14 @@ public class ClientThread extends Thread {
 				while (((_opcount == 0) || (_opsdone < _opcount))
 						&& !_workload.isStopRequested()) {
 
-					if (!_workload.doInsert(_db, _workloadstate)) {
+					DB db = acquireDB();
+					boolean inserted;
+					try {
+						inserted = _workload.doInsert(db, _workloadstate);
+					} finally {
+						releaseDB(db);
+					}
+					if (!inserted) {
 						//break;
 						System.out.println("Insertion failed. Make sure the appropriate data store schema" +
 								" was created.");
@@ -291,13 +423,23 @@ public class ClientThread extends Thread {
 		try {
 			//System.out.println("Worker thread "+_threadid+" is cleaning up");
 			cleanup();
-			if(updateLog != null){
-				updateLog.flush();
-				updateLog.close();
-			}
-			if(readLog != null){
-				readLog.flush();
-				readLog.close();
+			if(asyncUpdateLog != null){
+				//the log writer thread closes the files after writing what is queued
+				asyncUpdateLog.close();
+				asyncReadLog.close();
+			}else{
+				if(updateLog != null){
+					updateLog.flush();
+					updateLog.close();
+				}
+				if(readLog != null){
+					readLog.flush();
+					readLog.close();
+				}
+				if(binaryUpdateLog != null)
+					binaryUpdateLog.close();
+				if(binaryReadLog != null)
+					binaryReadLog.close();
 			}
 		} catch (Exception e) {
 			e.printStackTrace(System.out);
@@ -316,6 +458,30 @@ public class ClientThread extends Thread {
 //		}
 	}
 
+	/**
+	 * @return ms after the start of the load profile at which the next session of this thread is due, the
+	 * threads take turns so each of them does 1/_threadcount of the sessions
+	 */
+	double profileTimeOfNextSession() {
+		return _profile.getTimeOf((double) _opsdone * _threadcount + _threadid);
+	}
+
+	/**
+	 * Waits until the next session of this thread is due.
+	 * @return false if the run was stopped while waiting
+	 */
+	boolean waitForProfile(long profileStart) {
+		double due = profileTimeOfNextSession();
+		while (!_workload.isStopRequested() && !is_terminated()) {
+			double wait = due - (System.nanoTime() - profileStart) / 1000000.0;
+			if (wait <= 0)
+				return true;
+			//woken up at least every 100 ms to see if the run was stopped
+			LockSupport.parkNanos((long) (Math.min(wait, 100) * 1000000));
+		}
+		return false;
+	}
+
 	public boolean is_terminated() {
 		return _terminated;
 	}
@@ -19,6 +19,7 @@
 package edu.usc.bg.base;
 
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Properties;
 import java.util.Set;
@@ -61,6 +62,52 @@ public abstract class DB
 		return _p; 
 	}
 
+	//most rows kept for reuse by newResultRow
+	static final int MAX_FREE_RESULT_ROWS = 1024;
+	//result containers reused by the thread owning this DB instance, see getResultMap and getResultVector
+	private final HashMap<String,ByteIterator> resultMap = new HashMap<String,ByteIterator>();
+	private final Vector<HashMap<String,ByteIterator>> resultVector = new Vector<HashMap<String,ByteIterator>>();
+	private final ArrayList<HashMap<String,ByteIterator>> freeResultRows = new ArrayList<HashMap<String,ByteIterator>>();
+
+	/**
+	 * Returns an empty map to pass as the result of viewProfile instead of allocating one.
+	 * The same map is returned by every call, it is cleared by the next call so the caller must
+	 * be done with it and must not keep a reference to it by then.
+	 */
+	public HashMap<String,ByteIterator> getResultMap()
+	{
+		resultMap.clear();
+		return resultMap;
+	}
+
+	/**
+	 * Returns an empty vector to pass as the result of listFriends, viewFriendReq, viewTopKResources, ...
+	 * instead of allocating one. The same vector is returned by every call, it is cleared by the next call
+	 * and the rows it had are handed out again by newResultRow, so the caller must be done with the vector
+	 * and its rows and must not keep a reference to them by then.
+	 */
+	public Vector<HashMap<String,ByteIterator>> getResultVector()
+	{
+		for (int i = 0; i < resultVector.size() && freeResultRows.size() < MAX_FREE_RESULT_ROWS; i++) {
+			HashMap<String,ByteIterator> row = resultVector.get(i);
+			row.clear();
+			freeResultRows.add(row);
+		}
+		resultVector.clear();
+		return resultVector;
+	}
+
+	/**
+	 * Returns an empty map for a row of a result vector, reusing the rows of the previous getResultVector vector.
+	 * An implementation calls it instead of allocating the maps it adds to a result vector.
+	 */
+	public HashMap<String,ByteIterator> newResultRow()
+	{
+		if (freeResultRows.isEmpty())
+			return new HashMap<String,ByteIterator>();
+		return freeResultRows.remove(freeResultRows.size() - 1);
+	}
+
 	/**
 	 * Initialize any state for this DB.
 	 * Called once per DB instance; there is one DB instance per client thread.
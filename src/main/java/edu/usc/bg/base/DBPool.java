@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A fixed number of DB instances shared by the client threads.
+ * A thread takes a DB for a session and gives it back once the session is done, so a DB
+ * (and the measurements of its wrapper) is only used by one thread at a time.
+ * The session keeps the DB through the think times between its actions as the workload
+ * sleeps in the middle of a session, the pool size is therefore the number of sessions
+ * that can run at once and not only the number of actions in flight.
+ */
+public class DBPool {
+	final ArrayBlockingQueue<DB> free;
+
+	/**
+	 * Creates and initializes the DB instances.
+	 */
+	public DBPool(String dbname, Properties props, int size) throws UnknownDBException, DBException {
+		free = new ArrayBlockingQueue<DB>(size);
+		for (int i = 0; i < size; i++) {
+			DB db = DBFactory.newDB(dbname, props);
+			if (db == null)
+				throw new UnknownDBException(dbname);
+			db.init();
+			free.add(db);
+		}
+	}
+
+	/**
+	 * Waits for a DB to be free.
+	 */
+	public DB acquire() {
+		while (true) {
+			try {
+				return free.take();
+			} catch (InterruptedException e) {
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+
+	public void release(DB db) {
+		free.add(db);
+	}
+}
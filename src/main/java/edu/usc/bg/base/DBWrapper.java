@@ -22,6 +22,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 import edu.usc.bg.measurements.MyMeasurement;
+import edu.usc.bg.workloads.InitStateSnapshot;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
@@ -30,6 +31,24 @@ public class DBWrapper extends DB
 {
 	DB _db;
 	MyMeasurement _measurements;
+	//records the actions when the thread using this DB gives it a recorder
+	TraceRecorder.Buffer _trace;
+	//the buffer of this DB in the last recorder it was given, kept when the recording is stopped
+	TraceRecorder.Buffer _traceBuffer;
+	//op types are interned once so measuring an action does not look up strings
+	private static final int INSERT_OP=MyMeasurement.getOpId("INSERT");
+	private static final int PROFILE_OP=MyMeasurement.getOpId("PROFILE");
+	private static final int FRIENDS_OP=MyMeasurement.getOpId("FRIENDS");
+	private static final int PENDING_OP=MyMeasurement.getOpId("PENDING");
+	private static final int ACCEPT_OP=MyMeasurement.getOpId("ACCEPT");
+	private static final int REJECT_OP=MyMeasurement.getOpId("REJECT");
+	private static final int INV_OP=MyMeasurement.getOpId("INV");
+	private static final int UNFRIEND_OP=MyMeasurement.getOpId("UNFRIEND");
+	private static final int GETTOPRES_OP=MyMeasurement.getOpId("GETTOPRES");
+	private static final int GETRESCOMMENT_OP=MyMeasurement.getOpId("GETRESCOMMENT");
+	private static final int POSTCOMMENT_OP=MyMeasurement.getOpId("POSTCOMMENT");
+	private static final int DELCOMMENT_OP=MyMeasurement.getOpId("DELCOMMENT");
+	private static final int CREATEFRIENDSHIP_OP=MyMeasurement.getOpId("CREATEFRIENDSHIP");
 
 	public DBWrapper(DB db)
 	{
@@ -37,6 +56,28 @@ public class DBWrapper extends DB
 		_measurements=MyMeasurement.getMeasurements(Double.parseDouble(getProperties().getProperty(Client.EXPECTED_LATENCY_PROPERTY, Client.EXPECTED_LATENCY_PROPERTY_DEFAULT)));
 	}
 
+	/**
+	 * Identifies when the action(s) issued next were supposed to start according to the throttle
+	 * schedule, the response time of each of them (how late the session started plus the service
+	 * time of the action) is then reported next to its service time. Must be called when the
+	 * session starts and reset with -1 when it ends as the wrapper may be pooled.
+	 * @param intendedStartTime in System.nanoTime() units, a negative value disables the response time
+	 */
+	public void setIntendedStartTime(long intendedStartTime)
+	{
+		_measurements.setIntendedStartTime(intendedStartTime);
+	}
+
+	/**
+	 * @param trace records the actions issued from now on, null to stop recording
+	 */
+	public void setTraceRecorder(TraceRecorder trace)
+	{
+		if (trace != null && (_traceBuffer == null || _traceBuffer.recorder != trace))
+			_traceBuffer = trace.newBuffer();
+		_trace = trace == null ? null : _traceBuffer;
+	}
+
 	/**
 	 * Set the properties for this DB.
 	 */
@@ -53,6 +94,23 @@ public class DBWrapper extends DB
 		return _db.getProperties();
 	}
 
+	//the containers of the wrapped DB, the rows it recycles are the rows it gets back
+
+	public HashMap<String,ByteIterator> getResultMap()
+	{
+		return _db.getResultMap();
+	}
+
+	public Vector<HashMap<String,ByteIterator>> getResultVector()
+	{
+		return _db.getResultVector();
+	}
+
+	public HashMap<String,ByteIterator> newResultRow()
+	{
+		return _db.newResultRow();
+	}
+
 	/**
 	 * Initialize any state for this DB.
 	 * Called once per DB instance; there is one DB instance per client thread.
@@ -85,11 +143,12 @@ public class DBWrapper extends DB
 	@Override
 	public int insertEntity(String entitySet, String entityPK, HashMap<String,ByteIterator> values, boolean insertImage)
 	{
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.insertEntity(entitySet,entityPK,values, insertImage);
 		long en=System.nanoTime();
-		_measurements.measure("INSERT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("INSERT",res);
+		_measurements.measure(INSERT_OP,st,en);
+		_measurements.reportReturnCode(INSERT_OP,res);
 		return res;
 	}
 
@@ -100,8 +159,10 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.viewProfile(requesterID, profileOwnerID, result, insertImage, testMode);
 		long en=System.nanoTime();
-		_measurements.measure("PROFILE",(int)((en-st)/1000));
-		_measurements.reportReturnCode("PROFILE",res);
+		_measurements.measure(PROFILE_OP,st,en);
+		_measurements.reportReturnCode(PROFILE_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.PROFILE, requesterID, profileOwnerID, 0, 0, st);
 		return res;
 	}
 
@@ -112,8 +173,10 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.listFriends(requesterID, profileOwnerID, fields, result, insertImage, testMode);
 		long en=System.nanoTime();
-		_measurements.measure("FRIENDS",(int)((en-st)/1000));
-		_measurements.reportReturnCode("FRIENDS",res);
+		_measurements.measure(FRIENDS_OP,st,en);
+		_measurements.reportReturnCode(FRIENDS_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.FRIENDS, requesterID, profileOwnerID, 0, 0, st);
 		return res;
 	}
 
@@ -124,52 +187,66 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.viewFriendReq(profileOwnerID, values,  insertImage, testMode);
 		long en=System.nanoTime();
-		_measurements.measure("PENDING",(int)((en-st)/1000));
-		_measurements.reportReturnCode("PENDING",res);
+		_measurements.measure(PENDING_OP,st,en);
+		_measurements.reportReturnCode(PENDING_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.PENDING, profileOwnerID, 0, 0, 0, st);
 		return res;
 	}
 
 	@Override
 	public int acceptFriend(int invitorID, int inviteeID) {
 		//int res=0;
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.acceptFriend(invitorID, inviteeID);
 		long en=System.nanoTime();
-		_measurements.measure("ACCEPT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("ACCEPT",res);
+		_measurements.measure(ACCEPT_OP,st,en);
+		_measurements.reportReturnCode(ACCEPT_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.ACCEPT, invitorID, inviteeID, 0, 0, st);
 		return res;
 	}
 
 	@Override
 	public int rejectFriend(int invitorID, int inviteeID) {
 		//int res=0;
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.rejectFriend(invitorID, inviteeID);
 		long en=System.nanoTime();
-		_measurements.measure("REJECT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("REJECT",res);
+		_measurements.measure(REJECT_OP,st,en);
+		_measurements.reportReturnCode(REJECT_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.REJECT, invitorID, inviteeID, 0, 0, st);
 		return res;
 	}
 
 	@Override
 	public int inviteFriend(int invitorID, int inviteeID) {
 		//int res=0;
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.inviteFriend(invitorID, inviteeID);
 		long en=System.nanoTime();
-		_measurements.measure("INV",(int)((en-st)/1000));
-		_measurements.reportReturnCode("INV",res);
+		_measurements.measure(INV_OP,st,en);
+		_measurements.reportReturnCode(INV_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.INV, invitorID, inviteeID, 0, 0, st);
 		return res;
 	}
 
 	@Override
 	public int thawFriendship(int friendid1, int friendid2) {
 		//int res=0;
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.thawFriendship(friendid1, friendid2);
 		long en=System.nanoTime();
-		_measurements.measure("UNFRIEND",(int)((en-st)/1000));
-		_measurements.reportReturnCode("UNFRIEND",res);
+		_measurements.measure(UNFRIEND_OP,st,en);
+		_measurements.reportReturnCode(UNFRIEND_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.UNFRIEND, friendid1, friendid2, 0, 0, st);
 		return res;
 	}
 
@@ -180,8 +257,10 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.viewTopKResources(requesterID, profileOwnerID, k, result);
 		long en=System.nanoTime();
-		_measurements.measure("GETTOPRES",(int)((en-st)/1000));
-		_measurements.reportReturnCode("GETTOPRES",res);
+		_measurements.measure(GETTOPRES_OP,st,en);
+		_measurements.reportReturnCode(GETTOPRES_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.GETTOPRES, requesterID, profileOwnerID, k, 0, st);
 		return res;	}
 
 	@Override
@@ -191,31 +270,56 @@ public class DBWrapper extends DB
 		long st=System.nanoTime();
 		int res=_db.viewCommentOnResource(requesterID, profileOwnerID, resourceID, result);
 		long en=System.nanoTime();
-		_measurements.measure("GETRESCOMMENT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("GETRESCOMMENT",res);
+		_measurements.measure(GETRESCOMMENT_OP,st,en);
+		_measurements.reportReturnCode(GETRESCOMMENT_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.GETRESCOMMENT, requesterID, profileOwnerID, resourceID, 0, st);
 		return res;	}
 
 	@Override
 	public int postCommentOnResource(int commentCreatorID, int profileOwnerID,
 			int resourceID, HashMap<String,ByteIterator> values) {
 		//int res=0;
+		//read before the DB consumes the value
+		int commentId = _trace != null ? commentId(values) : 0;
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.postCommentOnResource(commentCreatorID, profileOwnerID, resourceID, values);
 		long en=System.nanoTime();
-		_measurements.measure("POSTCOMMENT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("POSTCOMMENT",res);
+		_measurements.measure(POSTCOMMENT_OP,st,en);
+		_measurements.reportReturnCode(POSTCOMMENT_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.POSTCOMMENT, commentCreatorID, profileOwnerID, resourceID, commentId, st);
 		return res;
 	}
 	
+	/**
+	 * @return the mid of the comment values without consuming it, 0 if there is none
+	 */
+	static int commentId(HashMap<String,ByteIterator> values)
+	{
+		ByteIterator mid = values.get("mid");
+		if (!(mid instanceof ObjectByteIterator))
+			return 0;
+		try {
+			return Integer.parseInt(new String(((ObjectByteIterator) mid).bytes).trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
 	@Override
 	public int delCommentOnResource(int resourceCreatorID, int resourceID,
 			int manipulationID) {
 		//int res=0;
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.delCommentOnResource(resourceCreatorID, resourceID, manipulationID);
 		long en=System.nanoTime();
-		_measurements.measure("DELCOMMENT",(int)((en-st)/1000));
-		_measurements.reportReturnCode("DELCOMMENT",res);
+		_measurements.measure(DELCOMMENT_OP,st,en);
+		_measurements.reportReturnCode(DELCOMMENT_OP,res);
+		if (_trace != null)
+			_trace.record(TraceFormat.DELCOMMENT, resourceCreatorID, 0, resourceID, manipulationID, st);
 		return res;
 	}
 
@@ -227,11 +331,12 @@ public class DBWrapper extends DB
 	}
 
 	public int CreateFriendship(int memberA, int memberB){
+		InitStateSnapshot.updateIssued();
 		long st=System.nanoTime();
 		int res=_db.CreateFriendship(memberA, memberB);
 		long en=System.nanoTime();
-		_measurements.measure("CREATEFRIENDSHIP",(int)((en-st)/1000));
-		_measurements.reportReturnCode("CREATEFRIENDSHIP",res);
+		_measurements.measure(CREATEFRIENDSHIP_OP,st,en);
+		_measurements.reportReturnCode(CREATEFRIENDSHIP_OP,res);
 		return res;
 	}
 	
@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+
+package edu.usc.bg.base;
+
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate of sessions (closed simulation) or requests (open simulation) per second varying over the run,
+ * defined as a sequence of phases separated by ';', each a type, a duration in seconds and rates in per second:
+ * <ul>
+ * <li>const:duration:rate</li>
+ * <li>ramp:duration:fromRate:toRate, linear</li>
+ * <li>step:duration:fromRate:toRate:steps, a staircase of steps of duration/steps seconds, the steps are tagged apart</li>
+ * <li>diurnal:duration:lowRate:highRate:period, a sine starting at lowRate and peaking at highRate after period/2 seconds</li>
+ * <li>spike:duration:rate:spikeRate:spikeDuration, rate with spikeRate for spikeDuration seconds in the middle of the phase</li>
+ * </ul>
+ * e.g. ramp:60:0:1000;step:300:1000:5000:5;const:60:500. The rate of the end of the last phase is kept after it.
+ * Every phase is tagged index-type (2-step.3 for the third step of the second phase) in the status output.
+ * The time is counted from a start shared by the threads, taken when the first of them starts.
+ */
+public class LoadProfile
+{
+	static final int LINEAR = 0;
+	static final int SINE = 1;
+
+	static class Segment
+	{
+		String tag;
+		int shape;
+		//ms since the start of the profile
+		double start;
+		double duration;
+		//per second, for a sine fromRate is the low and toRate the high rate
+		double fromRate;
+		double toRate;
+		double period;
+		//sessions due before the segment and by its end
+		double workBefore;
+		double workAfter;
+
+		double rate(double t)
+		{
+			if (shape == SINE)
+				return fromRate + (toRate - fromRate) * (1 - Math.cos(2 * Math.PI * t / period)) / 2;
+			return fromRate + (toRate - fromRate) * t / duration;
+		}
+
+		//sessions due in the first t ms of the segment
+		double work(double t)
+		{
+			if (shape == SINE)
+				return ((fromRate + toRate) / 2 * t - (toRate - fromRate) / 2 * period / (2 * Math.PI) * Math.sin(2 * Math.PI * t / period)) / 1000;
+			return (fromRate * t + (toRate - fromRate) * t * t / (2 * duration)) / 1000;
+		}
+
+		//ms in the segment at which work(t) reaches w, w at most work(duration)
+		double timeOf(double w)
+		{
+			if (w <= 0)
+				return 0;
+			if (shape == LINEAR) {
+				double a = (toRate - fromRate) / (2 * duration), b = fromRate, c = -w * 1000;
+				if (Math.abs(a) < 1e-12)
+					return b > 0 ? -c / b : 0;
+				double disc = Math.max(0, b * b - 4 * a * c);
+				//the root of the increasing part of the parabola, written to avoid cancellation
+				return Math.min(duration, 2 * -c / (b + Math.sqrt(disc)));
+			}
+			double low = 0, high = duration;
+			for (int i = 0; i < 60 && high - low > 1e-6; i++) {
+				double mid = (low + high) / 2;
+				if (work(mid) < w)
+					low = mid;
+				else
+					high = mid;
+			}
+			return high;
+		}
+	}
+
+	final Segment[] segments;
+	final double duration;
+	final double totalWork;
+	final double finalRate;
+	final AtomicLong startNanos = new AtomicLong(0);
+
+	public LoadProfile(String definition)
+	{
+		ArrayList<Segment> list = new ArrayList<Segment>();
+		double t = 0;
+		int idx = 0;
+		for (String phase : definition.split(";")) {
+			phase = phase.trim();
+			if (phase.isEmpty())
+				continue;
+			idx++;
+			String[] tokens = phase.split(":");
+			String type = tokens[0].trim().toLowerCase();
+			double[] args = new double[tokens.length - 1];
+			for (int i = 0; i < args.length; i++) {
+				try {
+					args[i] = Double.parseDouble(tokens[i + 1].trim());
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid number " + tokens[i + 1] + " in load profile phase " + phase);
+				}
+				if (args[i] < 0)
+					throw new IllegalArgumentException("Negative value in load profile phase " + phase);
+			}
+			if (args.length == 0 || args[0] <= 0)
+				throw new IllegalArgumentException("Missing or zero duration in load profile phase " + phase);
+			double d = args[0] * 1000;
+			String tag = idx + "-" + type;
+			if (type.equals("const") && args.length == 2) {
+				t = add(list, tag, LINEAR, t, d, args[1], args[1], 0);
+			} else if (type.equals("ramp") && args.length == 3) {
+				t = add(list, tag, LINEAR, t, d, args[1], args[2], 0);
+			} else if (type.equals("step") && args.length == 4 && args[3] >= 1) {
+				int steps = (int) args[3];
+				for (int s = 0; s < steps; s++) {
+					double r = steps == 1 ? args[1] : args[1] + (args[2] - args[1]) * s / (steps - 1);
+					t = add(list, tag + "." + (s + 1), LINEAR, t, d / steps, r, r, 0);
+				}
+			} else if (type.equals("diurnal") && args.length == 4 && args[3] > 0) {
+				t = add(list, tag, SINE, t, d, args[1], args[2], args[3] * 1000);
+			} else if (type.equals("spike") && args.length == 4 && args[3] < args[0]) {
+				double spike = args[3] * 1000;
+				t = add(list, tag, LINEAR, t, (d - spike) / 2, args[1], args[1], 0);
+				t = add(list, tag, LINEAR, t, spike, args[2], args[2], 0);
+				t = add(list, tag, LINEAR, t, (d - spike) / 2, args[1], args[1], 0);
+			} else {
+				throw new IllegalArgumentException("Invalid load profile phase " + phase);
+			}
+		}
+		if (list.isEmpty())
+			throw new IllegalArgumentException("Empty load profile");
+		segments = list.toArray(new Segment[list.size()]);
+		double work = 0;
+		for (Segment s : segments) {
+			s.workBefore = work;
+			work += s.work(s.duration);
+			s.workAfter = work;
+		}
+		Segment last = segments[segments.length - 1];
+		duration = t;
+		totalWork = work;
+		finalRate = last.rate(last.duration);
+	}
+
+	static double add(ArrayList<Segment> list, String tag, int shape, double start, double duration, double fromRate, double toRate, double period)
+	{
+		//a spike as long as its phase leaves empty segments around it
+		if (duration <= 0)
+			return start;
+		Segment s = new Segment();
+		s.tag = tag;
+		s.shape = shape;
+		s.start = start;
+		s.duration = duration;
+		s.fromRate = fromRate;
+		s.toRate = toRate;
+		s.period = period;
+		list.add(s);
+		return start + duration;
+	}
+
+	/**
+	 * @return the profile defined by loadprofile, null if it is not set
+	 */
+	public static LoadProfile fromProperties(Properties props)
+	{
+		String definition = props.getProperty(Client.LOAD_PROFILE_PROPERTY, Client.LOAD_PROFILE_PROPERTY_DEFAULT).trim();
+		if (definition.isEmpty())
+			return null;
+		return new LoadProfile(definition);
+	}
+
+	/**
+	 * Starts the profile if it is not started yet.
+	 * @return the System.nanoTime() the profile started at
+	 */
+	public long markStart()
+	{
+		startNanos.compareAndSet(0, System.nanoTime());
+		return startNanos.get();
+	}
+
+	/**
+	 * @return ms since the profile started, 0 if it did not start
+	 */
+	public double getElapsed()
+	{
+		long start = startNanos.get();
+		return start == 0 ? 0 : (System.nanoTime() - start) / 1000000.0;
+	}
+
+	Segment segmentAt(double t)
+	{
+		int low = 0, high = segments.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (segments[mid].start <= t)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return segments[low];
+	}
+
+	/**
+	 * @return the rate per second t ms after the start
+	 */
+	public double getRate(double t)
+	{
+		if (t >= duration)
+			return finalRate;
+		Segment s = segmentAt(Math.max(0, t));
+		return s.rate(t - s.start);
+	}
+
+	/**
+	 * @return the number of sessions due in the first t ms
+	 */
+	public double getWork(double t)
+	{
+		if (t >= duration)
+			return totalWork + finalRate * (t - duration) / 1000;
+		Segment s = segmentAt(Math.max(0, t));
+		return s.workBefore + s.work(Math.max(0, t - s.start));
+	}
+
+	/**
+	 * @return the ms after the start at which the number of sessions due reaches work, infinite if it never does
+	 */
+	public double getTimeOf(double work)
+	{
+		if (work > totalWork)
+			return finalRate > 0 ? duration + (work - totalWork) * 1000 / finalRate : Double.POSITIVE_INFINITY;
+		//the first segment by the end of which work is due
+		int low = 0, high = segments.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (segments[mid].workAfter >= work)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+		Segment s = segments[low];
+		return s.start + s.timeOf(work - s.workBefore);
+	}
+
+	/**
+	 * @return the tag of the phase t ms after the start, "end" after the last phase
+	 */
+	public String getPhase(double t)
+	{
+		if (t >= duration)
+			return "end";
+		return segmentAt(Math.max(0, t)).tag;
+	}
+
+	/**
+	 * @return the length of the profile in ms
+	 */
+	public double getDuration()
+	{
+		return duration;
+	}
+}
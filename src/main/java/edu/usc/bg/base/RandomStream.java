@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A Random drawing from a SplittableRandom, used as the random stream of a single thread.
+ * Unlike Random it does not update an atomic seed on every draw, and it can be derived
+ * from a seed and a stream id so the draws of every thread are reproducible.
+ * Not thread safe.
+ */
+public class RandomStream extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	private final SplittableRandom rand;
+
+	public RandomStream(SplittableRandom rand)
+	{
+		this.rand = rand;
+	}
+
+	/**
+	 * @return the stream streamId of the run seeded with seed
+	 */
+	public static RandomStream forStream(long seed, long streamId)
+	{
+		//spread the seeds of consecutive stream ids over the whole range
+		long z = seed + (streamId + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return new RandomStream(new SplittableRandom(z ^ (z >>> 31)));
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return rand.nextInt() >>> (32 - bits);
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return rand.nextInt();
+	}
+
+	@Override
+	public int nextInt(int bound)
+	{
+		return rand.nextInt(bound);
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return rand.nextLong();
+	}
+
+	@Override
+	public double nextDouble()
+	{
+		return rand.nextDouble();
+	}
+
+	@Override
+	public boolean nextBoolean()
+	{
+		return rand.nextBoolean();
+	}
+
+	@Override
+	public void nextBytes(byte[] bytes)
+	{
+		int i = 0;
+		while (i < bytes.length) {
+			long rnd = rand.nextLong();
+			for (int n = Math.min(bytes.length - i, 8); n-- > 0; rnd >>>= 8)
+				bytes[i++] = (byte) rnd;
+		}
+	}
+}
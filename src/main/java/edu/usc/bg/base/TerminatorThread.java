@@ -61,7 +61,7 @@ public class TerminatorThread extends Thread {
     System.out.println("Stop requested for workload. Now Joining!");
     for (Thread t : threads) {
     	try {
-    		t.join();
+    		ClientThread.runnerOf(t).join();
 		} catch (InterruptedException e) {
 			e.printStackTrace(System.out);
 		}
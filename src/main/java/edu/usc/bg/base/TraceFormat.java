@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+/**
+ * Layout of the fixed width records of an action trace, the actions issued to the data store
+ * by a BG run as recorded by TraceRecorder and replayed by the trace workload.
+ * Each record is RECORD_SIZE bytes:
+ * <pre>
+ * 0  long time of the action in nanoseconds since the first action of the trace
+ * 8  int  first member (requester, inviter, comment creator or resource creator)
+ * 12 int  second member (profile owner, invitee or friend), 0 if the action has none
+ * 16 int  resource id or k of viewTopKResources, 0 if the action has none
+ * 20 int  comment id (mid) of postCommentOnResource and delCommentOnResource, 0 otherwise
+ * 24 byte action code (PROFILE, FRIENDS, ...)
+ * </pre>
+ * The file is a sequence of chunks, each holding the records of one recording thread in the order
+ * of their times. TraceReader orders the records of the file by time.
+ */
+public final class TraceFormat
+{
+	public static final int RECORD_SIZE = 25;
+
+	static final int TIME_OFFSET = 0;
+	static final int MEMBER_OFFSET = 8;
+	static final int OTHER_MEMBER_OFFSET = 12;
+	static final int RESOURCE_OFFSET = 16;
+	static final int COMMENT_OFFSET = 20;
+	static final int ACTION_OFFSET = 24;
+
+	//the actions of the data store interface that are recorded, named as in the measurements
+	public static final String[] ACTIONS = {"PROFILE", "FRIENDS", "PENDING", "ACCEPT", "REJECT", "INV", "UNFRIEND",
+		"GETTOPRES", "GETRESCOMMENT", "POSTCOMMENT", "DELCOMMENT"};
+	public static final byte PROFILE = 0;
+	public static final byte FRIENDS = 1;
+	public static final byte PENDING = 2;
+	public static final byte ACCEPT = 3;
+	public static final byte REJECT = 4;
+	public static final byte INV = 5;
+	public static final byte UNFRIEND = 6;
+	public static final byte GETTOPRES = 7;
+	public static final byte GETRESCOMMENT = 8;
+	public static final byte POSTCOMMENT = 9;
+	public static final byte DELCOMMENT = 10;
+
+	private TraceFormat()
+	{
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapped TraceFormat file. The records are read by index straight from the mapping, the reads
+ * do not move any position so the reader can be shared by all the client threads.
+ * The records are indexed in the order of their times, if the file is not in that order (the
+ * recording DBs write their records in chunks) an index of the records sorted by time is built
+ * when the file is opened.
+ */
+public class TraceReader
+{
+	//files larger than this are mapped in several windows
+	static final long MAX_WINDOW = (Integer.MAX_VALUE / TraceFormat.RECORD_SIZE) * (long) TraceFormat.RECORD_SIZE;
+	static final long RECORDS_PER_WINDOW = MAX_WINDOW / TraceFormat.RECORD_SIZE;
+
+	final long numRecords;
+	final MappedByteBuffer[] windows;
+	//order[i] is the position in the file of the i-th record by time, null if the file is in time order
+	final int[] order;
+
+	public TraceReader(File f) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			//ignore a partially written last record
+			long size = channel.size() - channel.size() % TraceFormat.RECORD_SIZE;
+			numRecords = size / TraceFormat.RECORD_SIZE;
+			windows = new MappedByteBuffer[(int) ((size + MAX_WINDOW - 1) / MAX_WINDOW)];
+			for (int i = 0; i < windows.length; i++)
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, i * MAX_WINDOW, Math.min(size - i * MAX_WINDOW, MAX_WINDOW));
+		} finally {
+			//the mappings stay valid once the file is closed
+			file.close();
+		}
+		order = sortByTime();
+	}
+
+	/**
+	 * @return the positions of the records stably sorted by time, null if they already are
+	 */
+	int[] sortByTime() throws IOException
+	{
+		long[] times = null;
+		for (long r = 1; r < numRecords && times == null; r++) {
+			if (timeAt(r) < timeAt(r - 1)) {
+				if (numRecords > Integer.MAX_VALUE)
+					throw new IOException("The trace has too many records to be ordered by time");
+				times = new long[(int) numRecords];
+			}
+		}
+		if (times == null)
+			return null;
+		int n = times.length;
+		int[] positions = new int[n];
+		for (int i = 0; i < n; i++) {
+			times[i] = timeAt(i);
+			positions[i] = i;
+		}
+		//bottom up merge sort of the positions by their times
+		int[] merged = new int[n];
+		for (int width = 1; width < n; width *= 2) {
+			for (int from = 0; from < n; from += 2 * width) {
+				int mid = Math.min(from + width, n), to = Math.min(from + 2 * width, n);
+				int i = from, j = mid, k = from;
+				while (i < mid && j < to)
+					merged[k++] = times[positions[j]] < times[positions[i]] ? positions[j++] : positions[i++];
+				while (i < mid)
+					merged[k++] = positions[i++];
+				while (j < to)
+					merged[k++] = positions[j++];
+			}
+			int[] tmp = positions;
+			positions = merged;
+			merged = tmp;
+		}
+		return positions;
+	}
+
+	public long getNumRecords()
+	{
+		return numRecords;
+	}
+
+	long timeAt(long position)
+	{
+		return windows[(int) (position / RECORDS_PER_WINDOW)].getLong((int) (position % RECORDS_PER_WINDOW) * TraceFormat.RECORD_SIZE + TraceFormat.TIME_OFFSET);
+	}
+
+	long position(long record)
+	{
+		return order == null ? record : order[(int) record];
+	}
+
+	MappedByteBuffer window(long record)
+	{
+		return windows[(int) (position(record) / RECORDS_PER_WINDOW)];
+	}
+
+	int offset(long record, int field)
+	{
+		return (int) (position(record) % RECORDS_PER_WINDOW) * TraceFormat.RECORD_SIZE + field;
+	}
+
+	/**
+	 * @return the time of the action in nanoseconds since the first action of the trace
+	 */
+	public long getTime(long record)
+	{
+		return window(record).getLong(offset(record, TraceFormat.TIME_OFFSET));
+	}
+
+	public int getMember(long record)
+	{
+		return window(record).getInt(offset(record, TraceFormat.MEMBER_OFFSET));
+	}
+
+	public int getOtherMember(long record)
+	{
+		return window(record).getInt(offset(record, TraceFormat.OTHER_MEMBER_OFFSET));
+	}
+
+	public int getResource(long record)
+	{
+		return window(record).getInt(offset(record, TraceFormat.RESOURCE_OFFSET));
+	}
+
+	public int getComment(long record)
+	{
+		return window(record).getInt(offset(record, TraceFormat.COMMENT_OFFSET));
+	}
+
+	public byte getAction(long record)
+	{
+		return window(record).get(offset(record, TraceFormat.ACTION_OFFSET));
+	}
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the actions issued by the client threads to a TraceFormat file.
+ * There is one recorder per process, a DBWrapper records an action when the thread using it gave it
+ * the recorder. Each DBWrapper appends its records to a Buffer of its own, without any lock as a DB is
+ * used by one thread at a time, and hands the buffer to the writer thread of the recorder once it is
+ * full. The buffers are tied to the DB instances and not to the threads, so threads sharing a pool
+ * of DBs only need a buffer per DB. The file is a sequence of these buffers, the records of a buffer
+ * are in the order of their times and TraceReader orders the records of the whole file by time.
+ */
+public class TraceRecorder extends Thread
+{
+	static final int BUFFER_RECORDS = 256;
+	//written buffers kept for reuse, up to about this many
+	static final int MAX_FREE_BUFFERS = 1024;
+	//handed to the writer thread to stop it
+	static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	static TraceRecorder recorder;
+
+	final String fileName;
+	final RandomAccessFile file;
+	final FileChannel channel;
+	//the buffers of every recording DB, to write what is left in them on close
+	final ArrayList<Buffer> buffers = new ArrayList<Buffer>();
+	final LinkedBlockingQueue<ByteBuffer> fullBuffers = new LinkedBlockingQueue<ByteBuffer>();
+	final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+	//System.nanoTime() of the first action, the times are recorded relative to it
+	final AtomicLong origin = new AtomicLong(Long.MIN_VALUE);
+	final AtomicLong numRecords = new AtomicLong(0);
+	volatile boolean closed = false;
+
+	/**
+	 * The records of a DB instance, only accessed by the thread holding the DB until the recorder is closed.
+	 */
+	public static class Buffer
+	{
+		final TraceRecorder recorder;
+		//allocated with the first record
+		ByteBuffer buffer;
+
+		Buffer(TraceRecorder recorder)
+		{
+			this.recorder = recorder;
+		}
+
+		/**
+		 * @param startTime System.nanoTime() at the start of the action
+		 */
+		public void record(byte action, int member, int otherMember, int resource, int comment, long startTime)
+		{
+			recorder.record(this, action, member, otherMember, resource, comment, startTime);
+		}
+	}
+
+	TraceRecorder(String fileName) throws IOException
+	{
+		this.fileName = fileName;
+		file = new RandomAccessFile(new File(fileName), "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		this.setName("BGTraceWriter");
+		this.setDaemon(true);
+	}
+
+	/**
+	 * @return the recorder of this process, null if tracerecordfile is not set or the file could not be created
+	 */
+	public static synchronized TraceRecorder get(Properties props)
+	{
+		String fileName = props.getProperty(Client.TRACE_RECORD_FILE_PROPERTY, Client.TRACE_RECORD_FILE_PROPERTY_DEFAULT);
+		if (fileName.isEmpty())
+			return null;
+		if (recorder == null || recorder.closed) {
+			try {
+				recorder = new TraceRecorder(fileName);
+				recorder.start();
+				System.out.println("Recording the actions to " + fileName);
+			} catch (IOException e) {
+				e.printStackTrace(System.out);
+				System.out.println("Could not create the trace file " + fileName + " " + e.getMessage());
+				return null;
+			}
+		}
+		return recorder;
+	}
+
+	/**
+	 * Writes what is buffered and closes the file of the recorder of this process, if any.
+	 * Must be called once the recording threads are done.
+	 */
+	public static synchronized void closeRecorder()
+	{
+		if (recorder != null && !recorder.closed)
+			recorder.close();
+	}
+
+	/**
+	 * @return a buffer for the actions of a DB instance, it must not be used by two threads at once
+	 */
+	public Buffer newBuffer()
+	{
+		Buffer buffer = new Buffer(this);
+		synchronized (buffers) {
+			buffers.add(buffer);
+		}
+		return buffer;
+	}
+
+	void record(Buffer dbBuffer, byte action, int member, int otherMember, int resource, int comment, long startTime)
+	{
+		if (closed)
+			return;
+		long first = origin.get();
+		if (first == Long.MIN_VALUE) {
+			origin.compareAndSet(Long.MIN_VALUE, startTime);
+			first = origin.get();
+		}
+		if (dbBuffer.buffer == null)
+			dbBuffer.buffer = allocate();
+		ByteBuffer buffer = dbBuffer.buffer;
+		buffer.putLong(Math.max(0, startTime - first));
+		buffer.putInt(member);
+		buffer.putInt(otherMember);
+		buffer.putInt(resource);
+		buffer.putInt(comment);
+		buffer.put(action);
+		if (!buffer.hasRemaining()) {
+			dbBuffer.buffer = allocate();
+			buffer.flip();
+			fullBuffers.add(buffer);
+		}
+	}
+
+	ByteBuffer allocate()
+	{
+		ByteBuffer buffer = freeBuffers.poll();
+		return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_RECORDS * TraceFormat.RECORD_SIZE);
+	}
+
+	public void run()
+	{
+		while (true) {
+			ByteBuffer buffer;
+			try {
+				buffer = fullBuffers.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+			if (buffer == END)
+				return;
+			numRecords.addAndGet(buffer.remaining() / TraceFormat.RECORD_SIZE);
+			try {
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			} catch (IOException e) {
+				e.printStackTrace(System.out);
+			}
+			buffer.clear();
+			if (freeBuffers.size() < MAX_FREE_BUFFERS)
+				freeBuffers.add(buffer);
+		}
+	}
+
+	synchronized void close()
+	{
+		closed = true;
+		synchronized (buffers) {
+			for (Buffer dbBuffer : buffers) {
+				ByteBuffer buffer = dbBuffer.buffer;
+				if (buffer == null)
+					continue;
+				buffer.flip();
+				if (buffer.hasRemaining())
+					fullBuffers.add(buffer);
+			}
+			buffers.clear();
+		}
+		fullBuffers.add(END);
+		try {
+			join();
+		} catch (InterruptedException e) {
+			e.printStackTrace(System.out);
+		}
+		try {
+			channel.close();
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace(System.out);
+		}
+		System.out.println("Recorded " + numRecords.get() + " actions to " + fileName);
+	}
+}
@@ -18,23 +18,56 @@
 package edu.usc.bg.base;
 
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Utility functions.
  */
 public class Utils
 {
-  private static final Random rand = new Random();
+  //the streams of the threads that did not get one with seedThread are split from it
+  private static SplittableRandom rand = new SplittableRandom();
+  //seed of the run, null if the run is not seeded
+  private static Long seed = null;
   private static final ThreadLocal<Random> rng = new ThreadLocal<Random>();
 
+  /**
+   * @return the random stream of the calling thread
+   */
   public static Random random() {
     Random ret = rng.get();
     if(ret == null) {
-      ret = new Random(rand.nextLong());
+      ret = new RandomStream(splitStream());
       rng.set(ret);
     }
     return ret;
   }
+
+  private static synchronized SplittableRandom splitStream() {
+    return rand.split();
+  }
+
+  /**
+   * Seeds the run, called before the threads using random() are started.
+   */
+  public static synchronized void setSeed(long runSeed) {
+    seed = runSeed;
+    rand = new SplittableRandom(runSeed);
+    rng.remove();
+  }
+
+  /**
+   * Gives the calling thread the stream streamId of the run, it then draws the same numbers whatever
+   * the other threads do. Does nothing if the run is not seeded.
+   */
+  public static void seedThread(long streamId) {
+    Long runSeed;
+    synchronized (Utils.class) {
+      runSeed = seed;
+    }
+    if (runSeed != null)
+      rng.set(RandomStream.forStream(runSeed, streamId));
+  }
       /**
        * Generate a random ASCII string of a given length.
        */
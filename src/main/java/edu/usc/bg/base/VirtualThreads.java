@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the virtual threads the socialites run on when threadmode=virtual.
+ * The factory is compiled from src/main/java21 by the jdk21 build profile, a build for an
+ * older JDK does not have it and the socialites then run on platform threads.
+ */
+public class VirtualThreads {
+	static final String FACTORY_CLASS = "edu.usc.bg.base.VirtualThreadFactory";
+
+	/**
+	 * @return the factory of virtual threads, null if this build or the running JVM does not support them
+	 */
+	public static ThreadFactory factory() {
+		try {
+			return (ThreadFactory) Class.forName(FACTORY_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			System.out.println("Virtual threads are not part of this build, build with JDK 21 or later (profile jdk21). Using platform threads.");
+		} catch (Throwable e) {
+			System.out.println("Virtual threads are not supported by this JVM, run with JDK 21 or later. Using platform threads. " + e);
+		}
+		return null;
+	}
+}
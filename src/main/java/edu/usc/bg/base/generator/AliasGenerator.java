@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base.generator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import edu.usc.bg.base.Utils;
+
+/**
+ * Chooses from a discrete set of weighted values in constant time with Vose's alias method, whatever the number of values.
+ * Each value owns a slot of a table, a slot keeps its value with probability prob[i] and otherwise
+ * stands for its alias, so a value is drawn with one random slot and one random double.
+ * The values are added before the generator is shared, drawing only reads the table and uses the
+ * random generator of the calling thread. A value can only be drawn once the total weight is positive.
+ */
+public class AliasGenerator
+{
+	String[] values = new String[2];
+	double[] weights = new double[2];
+	int numValues = 0;
+	double totalWeight = 0;
+	//alias table, rebuilt when a value is added
+	double[] prob = new double[0];
+	int[] alias = new int[0];
+
+	public void addValue(double weight, String value)
+	{
+		if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight))
+			throw new IllegalArgumentException("Invalid weight " + weight + " for " + value);
+		if (numValues == values.length) {
+			values = Arrays.copyOf(values, numValues * 2);
+			weights = Arrays.copyOf(weights, numValues * 2);
+		}
+		values[numValues] = value;
+		weights[numValues] = weight;
+		numValues++;
+		buildTable();
+	}
+
+	void buildTable()
+	{
+		int n = numValues;
+		double sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += weights[i];
+		totalWeight = sum;
+		if (sum <= 0) {
+			//nothing to draw from, nextIndex fails
+			alias = new int[0];
+			prob = new double[0];
+			return;
+		}
+		double[] newProb = new double[n];
+		int[] newAlias = new int[n];
+		//scaled weights, the slots under 1 are filled with the excess of the slots over 1
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int numSmall = 0, numLarge = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / sum;
+			if (scaled[i] < 1)
+				small[numSmall++] = i;
+			else
+				large[numLarge++] = i;
+		}
+		while (numSmall > 0 && numLarge > 0) {
+			int s = small[--numSmall];
+			int l = large[--numLarge];
+			newProb[s] = scaled[s];
+			newAlias[s] = l;
+			scaled[l] = (scaled[l] + scaled[s]) - 1;
+			if (scaled[l] < 1)
+				small[numSmall++] = l;
+			else
+				large[numLarge++] = l;
+		}
+		//what is left is 1 up to rounding errors
+		while (numLarge > 0) {
+			int l = large[--numLarge];
+			newProb[l] = 1;
+			newAlias[l] = l;
+		}
+		while (numSmall > 0) {
+			int s = small[--numSmall];
+			newProb[s] = 1;
+			newAlias[s] = s;
+		}
+		alias = newAlias;
+		prob = newProb;
+	}
+
+	/**
+	 * Generate the index, in the order they were added, of the next value in the distribution.
+	 */
+	public int nextIndex()
+	{
+		double[] p = prob;
+		if (p.length == 0)
+			throw new IllegalStateException("No value with a positive weight to choose from");
+		Random rand = Utils.random();
+		int slot = rand.nextInt(p.length);
+		return rand.nextDouble() < p[slot] ? slot : alias[slot];
+	}
+
+	/**
+	 * Generate the next value in the distribution.
+	 */
+	public String nextString()
+	{
+		return values[nextIndex()];
+	}
+
+	/**
+	 * @return the sum of the weights of the values, a value can be drawn only if it is positive
+	 */
+	public double getTotalWeight()
+	{
+		return totalWeight;
+	}
+
+	public int getNumValues()
+	{
+		return numValues;
+	}
+
+	/**
+	 * @param idx index of the value, in the order the values were added
+	 */
+	public String getValue(int idx)
+	{
+		return values[idx];
+	}
+}
@@ -26,6 +26,8 @@ import java.io.IOException;
 import java.util.Random;
 import java.util.Vector;
 
+import edu.usc.bg.base.Utils;
+
 //randNumGenerator.setSeed( 2310370335033991L);
 /**
  * Generates a zipfian distribution
@@ -131,7 +133,8 @@ public class DistOfAccess {
 			currDist = "Zipfian";
 		}
 		bBinarySearch = bBinary;
-		randNumGenerator = new Random();
+		//unseeded, draw from the stream of the calling thread
+		randNumGenerator = null;
 
 		InitZipfian(numOfItems, ZipfianMean);
 
@@ -154,8 +157,10 @@ public class DistOfAccess {
 
 	int getRandomNum( int max )
 	{
-		return randNumGenerator.nextInt(max);  //should switch to java.util.concurrent.*;  ThreadLocalRandom.current() .nextInt
-		//return ThreadLocalRandom.current().nextInt(max);
+		if (randNumGenerator == null)
+			return Utils.random().nextInt(max);
+		//a seeded distribution keeps its own sequence shared by the threads
+		return randNumGenerator.nextInt(max);
 	}
 
 	public int GenerateOneItem()
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package edu.usc.bg.measurements;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.List;
+
+/**
+ * Appends the stats of every status window to a CSV file so the warm up, steady state
+ * and tail behavior of a run can be plotted without scraping the BG logs.
+ * Every window has a SESSIONS and an ACTIONS row with the throughput of the BG
+ * client followed by one row per op type with its latency percentiles. The last column is the window latency
+ * histogram as space separated bucketLowValue:count pairs of the non empty buckets.
+ * With a load profile every row is tagged with the phase of the profile at the end of the window and the
+ * sessions per second the profile offered over the window, both are empty otherwise.
+ */
+public class IntervalStatsWriter
+{
+	public static final String HEADER = "elapsed_ms,window_ms,phase,offered_per_sec,op,count,throughput_per_sec,avg_us,p50_us,p90_us,p99_us,p999_us,max_us,histogram";
+
+	private BufferedWriter bw;
+	private DecimalFormat d = new DecimalFormat("#.##");
+
+	public IntervalStatsWriter(String fileName) throws IOException
+	{
+		bw = new BufferedWriter(new FileWriter(fileName, false));
+		bw.write(HEADER);
+		bw.newLine();
+		bw.flush();
+	}
+
+	/**
+	 * @param elapsed ms since the benchmark started
+	 * @param window ms since the previous window
+	 * @param phase phase of the load profile, null without a load profile
+	 * @param offered sessions per second offered by the load profile over the window
+	 * @param sessions sessions done in the window
+	 * @param actions actions done in the window
+	 * @param opStats the per op stats of the window as returned by MyMeasurement.getWindowStats
+	 */
+	public void write(long elapsed, long window, String phase, double offered, long sessions, long actions, List<OpWindowStats> opStats) throws IOException
+	{
+		double perSec = window > 0 ? 1000.0 / window : 0;
+		String prefix = elapsed + "," + window + "," + (phase == null ? "," : phase + "," + d.format(offered)) + ",";
+		bw.write(prefix + "SESSIONS," + sessions + "," + d.format(sessions * perSec) + ",,,,,,,");
+		bw.newLine();
+		bw.write(prefix + "ACTIONS," + actions + "," + d.format(actions * perSec) + ",,,,,,,");
+		bw.newLine();
+		for (OpWindowStats op : opStats) {
+			LatencyHistogram h = op.getHistogram();
+			bw.write(prefix + op.getOpname() + "," + op.getNumoperations() + ","
+					+ d.format(op.getNumoperations() * perSec) + "," + d.format(op.getAverageLatency()) + ","
+					+ h.getValueAtPercentile(50) + "," + h.getValueAtPercentile(90) + ","
+					+ h.getValueAtPercentile(99) + "," + h.getValueAtPercentile(99.9) + ","
+					+ h.getValueAtPercentile(100) + "," + h.getNonEmptyBuckets());
+			bw.newLine();
+		}
+		bw.flush();
+	}
+
+	public void close() throws IOException
+	{
+		bw.close();
+	}
+}
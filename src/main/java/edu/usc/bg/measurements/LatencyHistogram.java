@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.measurements;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory, log bucketed histogram of latencies (in microseconds).
+ * Values below SUB_BUCKET_COUNT are kept exactly, larger values are kept in
+ * HALF_SUB_BUCKET_COUNT linear buckets per power of two, so the reported
+ * percentiles are within 1/HALF_SUB_BUCKET_COUNT (~1.6%) of the real value.
+ * Recording a value does not allocate.
+ *
+ * The histogram has a single writer, there is one per thread per op type. The
+ * writer publishes each bucket with an ordered store so other threads (e.g. the
+ * status thread) can merge it at any time without locking and without losing counts.
+ */
+public class LatencyHistogram
+{
+	static final int SUB_BUCKET_BITS = 7;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;
+	//latencies above 2^MAX_MAGNITUDE us (~19 hours) are kept in the last bucket
+	static final int MAX_MAGNITUDE = 36;
+	static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+	public static final double[] REPORTED_PERCENTILES = {50, 90, 95, 99, 99.9};
+
+	final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * @return the index of the bucket the value falls into
+	 */
+	static int bucketIndex(long value)
+	{
+		if (value < SUB_BUCKET_COUNT)
+			return value < 0 ? 0 : (int) value;
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		if (magnitude >= MAX_MAGNITUDE)
+			return BUCKET_COUNT - 1;
+		int shift = magnitude - SUB_BUCKET_BITS + 1;
+		return SUB_BUCKET_COUNT + (magnitude - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT
+				+ (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+	}
+
+	/**
+	 * @return the smallest value that falls into the bucket
+	 */
+	static long bucketLowValue(int index)
+	{
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		int offset = index - SUB_BUCKET_COUNT;
+		int magnitude = offset / HALF_SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+		int shift = magnitude - SUB_BUCKET_BITS + 1;
+		return ((long) (offset % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT)) << shift;
+	}
+
+	/**
+	 * @return the largest value that falls into the bucket
+	 */
+	static long bucketHighValue(int index)
+	{
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		if (index == BUCKET_COUNT - 1)
+			return Long.MAX_VALUE;
+		return bucketLowValue(index + 1) - 1;
+	}
+
+	/**
+	 * Must only be called by the thread owning this histogram
+	 */
+	public void record(long latency)
+	{
+		int index = bucketIndex(latency);
+		counts.lazySet(index, counts.get(index) + 1);
+	}
+
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			total += counts.get(i);
+		return total;
+	}
+
+	/**
+	 * adds all the values recorded by the other histogram to this one
+	 */
+	public void add(LatencyHistogram other)
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			counts.lazySet(i, counts.get(i) + other.counts.get(i));
+	}
+
+	/**
+	 * adds the values the other histogram recorded since the baseline was taken
+	 * and advances the baseline to what was just added
+	 * @param baseline the bucket counts of the other histogram at the previous call
+	 */
+	public void addSince(LatencyHistogram other, long[] baseline)
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			long current = other.counts.get(i);
+			counts.lazySet(i, counts.get(i) + current - baseline[i]);
+			baseline[i] = current;
+		}
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the latency (us) at or below which the given percentage of the recorded values fall
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long totalCount = getTotalCount();
+		if (totalCount == 0)
+			return 0;
+		long countAtPercentile = (long) Math.ceil((Math.min(percentile, 100.0) / 100.0) * totalCount);
+		if (countAtPercentile < 1)
+			countAtPercentile = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= countAtPercentile)
+				return i == BUCKET_COUNT - 1 ? bucketLowValue(i) : bucketHighValue(i);
+		}
+		return bucketLowValue(BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * @param latency the threshold in microseconds
+	 * @return the number of recorded values that were below the threshold, the bucket
+	 * containing the threshold is not counted so the result errs on the side of fewer satisfying ops
+	 */
+	public long getCountBelow(long latency)
+	{
+		int index = bucketIndex(latency);
+		long below = 0;
+		for (int i = 0; i < index; i++)
+			below += counts.get(i);
+		return below;
+	}
+
+	/**
+	 * @return the non empty buckets as space separated bucketLowValue:count pairs
+	 */
+	public String getNonEmptyBuckets()
+	{
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			long count = counts.get(i);
+			if (count == 0)
+				continue;
+			if (ret.length() > 0)
+				ret.append(' ');
+			ret.append(bucketLowValue(i)).append(':').append(count);
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * @return the reported percentiles in the format of the final results, e.g. "p50ResponseTime(us)=120, p90ResponseTime(us)=300, ..."
+	 */
+	public String getPercentileSummary()
+	{
+		DecimalFormat d = new DecimalFormat("#.#");
+		String ret = "";
+		for (int i = 0; i < REPORTED_PERCENTILES.length; i++) {
+			if (i > 0)
+				ret += ", ";
+			ret += "p" + d.format(REPORTED_PERCENTILES[i]) + "ResponseTime(us)=" + getValueAtPercentile(REPORTED_PERCENTILES[i]);
+		}
+		return ret;
+	}
+}
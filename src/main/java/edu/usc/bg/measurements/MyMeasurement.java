@@ -23,24 +23,34 @@ package edu.usc.bg.measurements;
 import java.io.File;
 import java.io.OutputStream;
 import java.text.DecimalFormat;
-import java.util.ConcurrentModificationException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Collects latency and rerurn code measurements, and reports them when requested.
  * 
+ * Operation types are interned to small integer ids (see getOpId) and every thread
+ * keeps its trackers in an array indexed by that id. Only the owning thread writes
+ * to its trackers, the status thread reads them without locks.
+ * 
  * @author barahman
  *
  */
 public class MyMeasurement
 {
 	
-	static Vector<MyMeasurement> allMeasurements=new Vector<MyMeasurement>();
+	static volatile List<MyMeasurement> allMeasurements=new CopyOnWriteArrayList<MyMeasurement>();
 	static String fileNameToken = "latency";
 	static double expectedLatency;
+	//interned operation types, the id of an op type is its index in opNames
+	static final ConcurrentHashMap<String, Integer> opIds = new ConcurrentHashMap<String, Integer>();
+	static volatile String[] opNames = new String[0];
 		
 	/**
 	 * creates a measurement tracker for each thread 
@@ -55,18 +65,44 @@ public class MyMeasurement
 		return mm;
 	}
 
+	/**
+	 * Interns an operation type, ids are stable for the lifetime of the process
+	 * @param operation the name of the operation, e.g. PROFILE
+	 * @return the id to be used with measure and reportReturnCode
+	 */
+	public static int getOpId(String operation)
+	{
+		Integer id = opIds.get(operation);
+		if (id != null)
+			return id;
+		synchronized (opIds) {
+			id = opIds.get(operation);
+			if (id == null) {
+				String[] names = Arrays.copyOf(opNames, opNames.length + 1);
+				id = opNames.length;
+				names[id] = operation;
+				opNames = names;
+				opIds.put(operation, id);
+			}
+		}
+		return id;
+	}
+
     /**
      * keeps a track of all the latency measurements
-     * the key is the type of the operation
+     * the index is the id of the type of the operation
      * the value is the object containing all latencies observed
+     * the array is only replaced by the owning thread when a new op type shows up
      */
-	HashMap<String,OpMeasurementTracker> data;
+	volatile OpMeasurementTracker[] data;
 	int threadid = 0;
 	String latencyFileName = fileNameToken+threadid+".txt";
 	OutputStream out;
+	//how late (ns) the current session of this thread started compared to the throttle schedule, -1 if it is not throttled
+	long scheduleLag = -1;
 	public MyMeasurement(int tid)
 	{
-		data=new HashMap<String,OpMeasurementTracker>();	
+		data=new OpMeasurementTracker[opNames.length];
 		threadid = tid;
 		latencyFileName = fileNameToken+threadid+".txt";
 		/*//create or open file
@@ -83,23 +119,74 @@ public class MyMeasurement
 	}
 
 	/**
-	 * Adds the latency observed for the operation 
+	 * @return the tracker of this thread for the op type, creating it the first time the op is seen
 	 */
-    public void measure(String operation, int latency)
+	OpMeasurementTracker getTracker(int opId)
 	{
-		if (!data.containsKey(operation))
-		{
-			data.put(operation,constructMeasurementTrackerForOp(operation));	
+		OpMeasurementTracker[] trackers = data;
+		if (opId >= trackers.length) {
+			trackers = Arrays.copyOf(trackers, opNames.length);
+			data = trackers;
 		}
-		try
-		{
-			data.get(operation).measure(latency);
-		}
-		catch (java.lang.ArrayIndexOutOfBoundsException e)
-		{
-			System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
-			e.printStackTrace(System.out);
+		OpMeasurementTracker m = trackers[opId];
+		if (m == null) {
+			m = constructMeasurementTrackerForOp(opNames[opId]);
+			trackers[opId] = m;
 		}
+		return m;
+	}
+
+	/**
+	 * @return the tracker of this thread for the op type or null if the thread has not seen it
+	 */
+	OpMeasurementTracker peekTracker(int opId)
+	{
+		OpMeasurementTracker[] trackers = data;
+		return opId < trackers.length ? trackers[opId] : null;
+	}
+
+	/**
+	 * Adds the latency observed for the operation 
+	 */
+    public void measure(String operation, int latency)
+	{
+		measure(getOpId(operation), latency);
+	}
+
+	/**
+	 * Adds the latency observed for the operation
+	 * @param opId the id returned by getOpId
+	 */
+	public void measure(int opId, int latency)
+	{
+		getTracker(opId).measure(latency);
+	}
+
+	/**
+	 * Adds the latency observed for the operation and, if an intended start time is set, its
+	 * response time: the lag of its session behind the schedule plus its own service time.
+	 * The earlier actions and think times of the session are not part of it.
+	 * @param opId the id returned by getOpId
+	 * @param startTime when the op was issued, in System.nanoTime() units
+	 * @param endTime when the op completed, in System.nanoTime() units
+	 */
+	public void measure(int opId, long startTime, long endTime)
+	{
+		int latency = (int) ((endTime - startTime) / 1000);
+		if (scheduleLag < 0)
+			getTracker(opId).measure(latency);
+		else
+			getTracker(opId).measure(latency, (scheduleLag + endTime - startTime) / 1000);
+	}
+
+	/**
+	 * Sets when the session whose ops are measured from now on was supposed to start, the lag
+	 * behind that time is taken now and added to the service time of each of its ops.
+	 * @param intendedStartTime in System.nanoTime() units, a negative value stops the response time measurement
+	 */
+	public void setIntendedStartTime(long intendedStartTime)
+	{
+		scheduleLag = intendedStartTime < 0 ? -1 : Math.max(0, System.nanoTime() - intendedStartTime);
 	}
 
       /**
@@ -107,51 +194,64 @@ public class MyMeasurement
        */
 	public void reportReturnCode(String operation, int code)
 	{
-		
-		if (!data.containsKey(operation))
-		{
-			data.put(operation,constructMeasurementTrackerForOp(operation));
-		}
-		data.get(operation).reportReturnCode(code);
+		reportReturnCode(getOpId(operation), code);
+	}
+
+	/**
+	 * Report a return code for a single type of operation by a thread
+	 * @param opId the id returned by getOpId
+	 */
+	public void reportReturnCode(int opId, int code)
+	{
+		getTracker(opId).reportReturnCode(code);
 	}
 	
 	
   /**
    * Return a one line summary of measurements of all the threads
+   * Only the ops done since the previous call are reported, it is meant to be called by the status thread.
    */
 	public static String getSummary()
+	{
+		return getSummary(getWindowStats());
+	}
+
+  /**
+   * Return a one line summary of the given window
+   */
+	public static String getSummary(List<OpWindowStats> window)
 	{
 		String ret="";
-		Set<String> allOpTypes = null;
-		//getting all the optypes different threads have performed
-		//TODO: what if one thread does an extra operation
-		for(int i=0; i<allMeasurements.size(); i++){
-			allOpTypes = allMeasurements.get(i).data.keySet();
+		DecimalFormat d = new DecimalFormat("#.##");
+		for(OpWindowStats op : window){
+			ret += "["+op.getOpname()+" AverageResponseTime(us)="+d.format(op.getAverageLatency())+", p99ResponseTime(us)="+op.getHistogram().getValueAtPercentile(99)+"]";
 		}
-		
-		try
-		{
-			Iterator<String> it = allOpTypes.iterator();	
-			while(it.hasNext()){
-				String opType = it.next();
-				int totalWindowLatency = 0;
-				int totalWindowOps = 0;
-				for(int i=0; i<allMeasurements.size(); i++){
-						OpMeasurementTracker m = allMeasurements.get(i).data.get(opType);
-						if(m!=null){
-							totalWindowLatency += m.getWindowtotallatencysum();
-							totalWindowOps += m.getWindownumoperations();
-							m.resetWindow();
-						}
+		return ret;
+	}
+
+	/**
+	 * Collects what all the threads observed since the previous call and starts a new window.
+	 * It is meant to be called by the status thread.
+	 * @return one entry per op type that was seen by at least one thread
+	 */
+	public static synchronized List<OpWindowStats> getWindowStats()
+	{
+		List<OpWindowStats> ret = new ArrayList<OpWindowStats>();
+		String[] allOpTypes = opNames;
+		for(int opId=0; opId<allOpTypes.length; opId++){
+			//{number of ops, total latency} in the window
+			long[] windowTotals = new long[2];
+			LatencyHistogram windowHistogram = new LatencyHistogram();
+			boolean seen = false;
+			for(MyMeasurement mm : allMeasurements){
+				OpMeasurementTracker m = mm.peekTracker(opId);
+				if(m!=null){
+					m.advanceWindow(windowHistogram, windowTotals);
+					seen = true;
 				}
-				DecimalFormat d = new DecimalFormat("#.##");
-				double report=((double)totalWindowLatency)/((double)totalWindowOps);
-				ret += "["+opType+" AverageResponseTime(us)="+d.format(report)+"]";
 			}
-		}
-		catch(ConcurrentModificationException e)
-		{
-			ret = "Warning - Concurrent modification. stats output skipped";
+			if(seen)
+				ret.add(new OpWindowStats(allOpTypes[opId], windowTotals[0], windowTotals[1], windowHistogram));
 		}
 		return ret;
 	}
@@ -163,31 +263,36 @@ public class MyMeasurement
 		public static String getFinalResults()
 		{
 			String ret="";
-			Set<String> allOpTypes = null;
-			//getting all the optypes different threads have performed
-			//TODO: what if one thread does an extra operation
-			for(int i=0; i<allMeasurements.size(); i++){
-				allOpTypes = allMeasurements.get(i).data.keySet();
-			}
-			
-			Iterator<String> it = allOpTypes.iterator();	
-			while(it.hasNext()){
-				String opType = it.next();
+			String[] allOpTypes = opNames;
+			for(int opId=0; opId<allOpTypes.length; opId++){
+				String opType = allOpTypes[opId];
 				long totalLatency = 0;
 				long totalOps = 0;
 				long max = 0;
 				long min = 0;
+				LatencyHistogram histogram = new LatencyHistogram();
+				long totalResponseLatency = 0;
+				long totalResponseOps = 0;
+				LatencyHistogram responseHistogram = new LatencyHistogram();
 				HashMap<Integer, Integer> returnCodes = new HashMap<Integer,Integer>();
 				String rets = "";
-				for(int i=0; i<allMeasurements.size(); i++){
-						OpMeasurementTracker m = allMeasurements.get(i).data.get(opType);
+				boolean seen = false;
+				for(MyMeasurement mm : allMeasurements){
+						OpMeasurementTracker m = mm.peekTracker(opId);
 						if(m!=null){
+							seen = true;
 							totalLatency += m.getTotallatencysum();
 							totalOps += m.getNumoperations();
 							if(min == 0 || min > m.getMin())
 								min = m.getMin();
 							if(max == 0 || max < m.getMax())
 								max = m.getMax();
+							histogram.add(m.getHistogram());
+							if(m.getResponseHistogram() != null){
+								totalResponseLatency += m.getTotalresponselatencysum();
+								totalResponseOps += m.getNumresponseoperations();
+								responseHistogram.add(m.getResponseHistogram());
+							}
 							HashMap<Integer, int[]> tmpRetCode = m.getReturnCode();
 							Set<Integer> keys = tmpRetCode.keySet();
 							Iterator<Integer> tmpit = keys.iterator();
@@ -204,6 +309,8 @@ public class MyMeasurement
 						//close latency file if open
 						if(m != null) m.closePrinter();
 				}
+				if(!seen)
+					continue;
 				Set<Integer> finalOpCodes = returnCodes.keySet();
 				Iterator<Integer> fit = finalOpCodes.iterator();
 				while(fit.hasNext()){
@@ -214,6 +321,15 @@ public class MyMeasurement
 				double report=((double)totalLatency)/((double)totalOps);
 				ret += "["+opType+"]";
 				ret +="NumOperations="+totalOps+", AverageResponseTime(us)="+d.format(report)+", MinResponseTime(us)="+min+", MaxResponseTime(us)="+max+"\n";
+				ret += histogram.getPercentileSummary()+"\n";
+				//the merged buckets, any percentile or SLA threshold can be computed from them after the run
+				ret += "Histogram(us:count)="+histogram.getNonEmptyBuckets()+"\n";
+				if(totalResponseOps > 0){
+					//intended start (throttle schedule) to completion, corrects for coordinated omission
+					double responseReport=((double)totalResponseLatency)/((double)totalResponseOps);
+					ret += "IntendedStart NumOperations="+totalResponseOps+", AverageResponseTime(us)="+d.format(responseReport)+", "+responseHistogram.getPercentileSummary()+"\n";
+					ret += "IntendedStart Histogram(us:count)="+responseHistogram.getNonEmptyBuckets()+"\n";
+				}
 				ret += rets+"\n";
 			}
 			return ret;
@@ -243,23 +359,14 @@ public class MyMeasurement
 	public static double getSatisfyingPerc()
 	{
 		double ret=0;
-		Set<String> allOpTypes = null;
-		//getting all the optypes different threads have performed
-		//TODO: what if one thread does an extra operation
-		for(int i=0; i<allMeasurements.size(); i++){
-			allOpTypes = allMeasurements.get(i).data.keySet();
-		}
-		int numsatisfying = 0;
-		int total = 0;	
-		Iterator<String> it = allOpTypes.iterator();
-		while(it.hasNext()){
-			String opType = it.next();
-			for(int i=0; i<allMeasurements.size(); i++){
-					OpMeasurementTracker m = allMeasurements.get(i).data.get(opType);
-					if(m!=null){
-						numsatisfying += m.getSatisfying();
-						total += m.getNumoperations();
-					}
+		long numsatisfying = 0;
+		long total = 0;	
+		for(MyMeasurement mm : allMeasurements){
+			for(OpMeasurementTracker m : mm.data){
+				if(m!=null){
+					numsatisfying += m.getSatisfying();
+					total += m.getNumoperations();
+				}
 			}
 		}
 		if(total == 0)
@@ -273,7 +380,7 @@ public class MyMeasurement
 	}
 
 	public static void resetMeasurement(){
-		allMeasurements = new Vector<MyMeasurement>();
+		allMeasurements = new CopyOnWriteArrayList<MyMeasurement>();
 		//delete the files created so far
 		for(int i=0; i<allMeasurements.size(); i++){
 			File f1 = new File(fileNameToken+i+".txt");
@@ -22,12 +22,17 @@ package edu.usc.bg.measurements;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 
 /**
  * Take measurements and maintains min, max, avg for each type of operation for each thread
  * 
+ * The counters have a single writer, the thread that owns this tracker, which publishes
+ * them with ordered stores. The status thread reads them without locking and computes
+ * its windows as the difference from the previous window, so no op is lost or reset.
+ * 
  * @author barahman
  *
  */
@@ -38,47 +43,46 @@ public class OpMeasurementTracker
 	//its static so there is one per thread per op type
 	//public Vector<Double> latencies = new Vector<Double>();
 	//double[] tmpLatencies = new double[LATENCY_ARRAY_SIZE];
-	long numoperations;
-	long totallatencysum;
-	//keep a windowed version of these stats for printing status
-	long windownumoperations;
-	long windowtotallatencysum;
-	long min;
-	long max;
-	String opname;
+	final AtomicLong numoperations = new AtomicLong();
+	final AtomicLong totallatencysum = new AtomicLong();
+	final AtomicLong min = new AtomicLong(-1);
+	final AtomicLong max = new AtomicLong(-1);
+	final AtomicLong numsatisfyingops = new AtomicLong();
+	//latency distribution of all the ops done so far
+	final LatencyHistogram histogram = new LatencyHistogram();
+	//response time (intended start to completion) of the ops issued on a throttle schedule
+	//created the first time such an op is measured
+	volatile LatencyHistogram responsehistogram;
+	final AtomicLong numresponseoperations = new AtomicLong();
+	final AtomicLong totalresponselatencysum = new AtomicLong();
+	//keep the totals seen at the end of the previous status window, only used by the status thread
+	long lastwindownumoperations;
+	long lastwindowtotallatencysum;
+	long[] lastwindowhistogram;
+	final String opname;
 	StatsPrinter printer;
 	//return codes for each thread's this kind of operation
 	HashMap<Integer,int[]> returncodes;
-	long numsatisfyingops = 0;
-	double expected = 0;
+	final double expected;
 
 	public long getSatisfying() {
-		return numsatisfyingops;
+		return numsatisfyingops.get();
 	}
 
 	public long getNumoperations() {
-		return numoperations;
+		return numoperations.get();
 	}
 
 	public long getTotallatencysum() {
-		return totallatencysum;
-	}
-
-
-	public long getWindownumoperations() {
-		return windownumoperations;
-	}
-
-	public long getWindowtotallatencysum() {
-		return windowtotallatencysum;
+		return totallatencysum.get();
 	}
 
 	public long getMin() {
-		return min;
+		return min.get();
 	}
 
 	public long getMax() {
-		return max;
+		return max.get();
 	}
 
 	public String getOpname() {
@@ -89,15 +93,28 @@ public class OpMeasurementTracker
 		return returncodes;
 	}
 
+	public LatencyHistogram getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * @return the response time distribution or null if no op of this type was issued on a throttle schedule
+	 */
+	public LatencyHistogram getResponseHistogram() {
+		return responsehistogram;
+	}
+
+	public long getNumresponseoperations() {
+		return numresponseoperations.get();
+	}
+
+	public long getTotalresponselatencysum() {
+		return totalresponselatencysum.get();
+	}
+
 	public OpMeasurementTracker(String name, OutputStream out, double expectedLatency)
 	{
-		numoperations=0;
-		totallatencysum=0;
-		windownumoperations=0;
-		windowtotallatencysum=0;
 		opname = name;
-		min=-1;
-		max=-1;
 		expected = expectedLatency;
 		//keeps a track of the return codes for this optype by one thread
 		//the key is the return code
@@ -124,15 +141,16 @@ public class OpMeasurementTracker
 	}
 
 
+	/**
+	 * Must only be called by the thread owning this tracker
+	 */
 	public void measure(long latency)
 	{
-		numoperations++;
-		totallatencysum+=latency;
-		windownumoperations++;
-		windowtotallatencysum+=latency;
+		histogram.record(latency);
+		totallatencysum.lazySet(totallatencysum.get()+latency);
 		//do comparison in milliseconds
 		if((((double)(latency))/1000) < (expected*1000))
-			numsatisfyingops++;
+			numsatisfyingops.lazySet(numsatisfyingops.get()+1);
 		//write it to the latency file of this thread
 		/*try {
 			printer.write((((double)(latency))/1000)+"");
@@ -145,23 +163,54 @@ public class OpMeasurementTracker
 			latencies.addAll(test);
 		}*/
 
-		if ( (min<0) || (latency<min) )
+		if ( (min.get()<0) || (latency<min.get()) )
 		{
-			min=latency;
+			min.lazySet(latency);
 		}
 
-		if ( (max<0) || (latency>max) )
+		if ( (max.get()<0) || (latency>max.get()) )
 		{
-			max=latency;
+			max.lazySet(latency);
+		}
+		//published last so a reader that sees the op also sees its latency
+		numoperations.lazySet(numoperations.get()+1);
+	}
+
+	/**
+	 * Measures an op issued on a throttle schedule, the service time is measured as usual and
+	 * the response time from its intended start to its completion next to it.
+	 * Must only be called by the thread owning this tracker
+	 * @param latency the service time in us
+	 * @param responseTime the time (us) from the intended start of the op to its completion
+	 */
+	public void measure(long latency, long responseTime)
+	{
+		measure(latency);
+		LatencyHistogram h = responsehistogram;
+		if (h == null) {
+			h = new LatencyHistogram();
+			responsehistogram = h;
 		}
+		h.record(responseTime);
+		totalresponselatencysum.lazySet(totalresponselatencysum.get()+responseTime);
+		numresponseoperations.lazySet(numresponseoperations.get()+1);
 	}
 
 	/**
-	 * once the status thread reads the stats it resets this window
+	 * Called by the status thread only. Adds what was observed since the previous window
+	 * to the given histogram and totals ({ops, latency sum}) and starts a new window.
 	 */
-	public void resetWindow() {
-		windowtotallatencysum=0;
-		windownumoperations=0;
+	void advanceWindow(LatencyHistogram windowHistogram, long[] windowTotals)
+	{
+		long ops = numoperations.get();
+		long latencysum = totallatencysum.get();
+		windowTotals[0] += ops - lastwindownumoperations;
+		windowTotals[1] += latencysum - lastwindowtotallatencysum;
+		lastwindownumoperations = ops;
+		lastwindowtotallatencysum = latencysum;
+		if (lastwindowhistogram == null)
+			lastwindowhistogram = new long[LatencyHistogram.BUCKET_COUNT];
+		windowHistogram.addSince(histogram, lastwindowhistogram);
 	}
 
 	public void closePrinter(){
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package edu.usc.bg.measurements;
+
+/**
+ * What all the threads observed for one type of operation during one status window
+ */
+public class OpWindowStats
+{
+	final String opname;
+	final long numoperations;
+	final long totallatencysum;
+	final LatencyHistogram histogram;
+
+	OpWindowStats(String name, long ops, long latencysum, LatencyHistogram windowHistogram)
+	{
+		opname = name;
+		numoperations = ops;
+		totallatencysum = latencysum;
+		histogram = windowHistogram;
+	}
+
+	public String getOpname() {
+		return opname;
+	}
+
+	public long getNumoperations() {
+		return numoperations;
+	}
+
+	public long getTotallatencysum() {
+		return totallatencysum;
+	}
+
+	public double getAverageLatency() {
+		return numoperations == 0 ? 0 : ((double) totallatencysum) / numoperations;
+	}
+
+	public LatencyHistogram getHistogram() {
+		return histogram;
+	}
+}
@@ -943,23 +943,9 @@ public class TokenWorker extends Thread{
 		if (result>=0)
 		{
 		//remove from the list coz it has been rejected
-		Vector<Integer> ids =CoreWorkload.pendingFrnds[CoreWorkload.memberIdxs.get(keyname)];
-		//		ids.removeElement((Integer)auserid);
-		ids.remove(ids.size()-1);
-		if(CoreWorkload.enforceFriendship){
-			try {
-				CoreWorkload.withPend.acquire();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			int numPending = CoreWorkload.usersWithpendingFrnds.get(keyname);
-			if(numPending - 1 == 0){
-				CoreWorkload.usersWithpendingFrnds.remove(keyname);
-			}else{
-				CoreWorkload.usersWithpendingFrnds.put(keyname, numPending-1);
-			}
-			CoreWorkload.withPend.release();
-		}
+		CoreWorkload.pendingFrnds.removeLast(CoreWorkload.memberIdxs.get(keyname));
+		if(CoreWorkload.enforceFriendship)
+			CoreWorkload.removePendingCount(keyname);
 
 
 		endUpdatea = System.nanoTime();
@@ -998,14 +984,8 @@ public class TokenWorker extends Thread{
 		coreWorkload.incrUserRef(invitee);
 
 		int inviter = -1;
-		Vector<Integer> ids =CoreWorkload.pendingFrnds[CoreWorkload.memberIdxs.get(invitee)];
-		if(ids.size() <= 0 && CoreWorkload.enforceFriendship){
+		if(CoreWorkload.pendingFrnds.size(CoreWorkload.memberIdxs.get(invitee)) <= 0 && CoreWorkload.enforceFriendship){
 			//pick another user with pending friends that is not active
-			try {
-				CoreWorkload.withPend.acquire();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
 			Set<Integer> allUsers = CoreWorkload.usersWithpendingFrnds.keySet();
 			if(allUsers.size() > 0){
 				int explored = allUsers.size();
@@ -1021,16 +1001,14 @@ public class TokenWorker extends Thread{
 					if(coreWorkload.isActive(newkeyname) != -1){
 						coreWorkload.deactivateUser(invitee);
 						invitee = newkeyname;
-						ids =CoreWorkload.pendingFrnds[CoreWorkload.memberIdxs.get(invitee)];
 						coreWorkload.incrUserRef(invitee);
 						break;
 					}}
 				}
 			}
-			CoreWorkload.withPend.release();
 		}
-		if(ids.size() > 0){ //should always be true unless no one has pending requests
-			inviter = ids.get(ids.size()-1);	
+		if(CoreWorkload.pendingFrnds.size(CoreWorkload.memberIdxs.get(invitee)) > 0){ //should always be true unless no one has pending requests
+			inviter = CoreWorkload.pendingFrnds.last(CoreWorkload.memberIdxs.get(invitee));	
 			inviter_invitee[0]=inviter; // inviter 
 			inviter_invitee[1]=invitee; // invitee
 
@@ -1085,30 +1063,9 @@ public class TokenWorker extends Thread{
 
 		//update state 
 
-		CoreWorkload.pendingFrnds[CoreWorkload.memberIdxs.get(invitee)].add(invitor);
-		if(CoreWorkload.enforceFriendship){
-			try {
-				CoreWorkload.withPend.acquire();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			if(CoreWorkload.usersWithpendingFrnds.get(invitee) == null)
-				CoreWorkload.usersWithpendingFrnds.put(invitee, 1);
-			else{
-				CoreWorkload.usersWithpendingFrnds.put(invitee, CoreWorkload.usersWithpendingFrnds.get(invitee)+1);
-			}
-			CoreWorkload.withPend.release();
-		
-		
-		
-		
-		
-		
-		
-		
-		
-		
-		}
+		CoreWorkload.pendingFrnds.add(CoreWorkload.memberIdxs.get(invitee), invitor);
+		if(CoreWorkload.enforceFriendship)
+			CoreWorkload.addPendingCount(invitee);
 		//		int numPendingsForOtherUserTillNow = 0;
 		//		if(Distribution.pendingInfo.get(Integer.toString(invitee))!= null){
 		//			numPendingsForOtherUserTillNow = Distribution.pendingInfo.get(Integer.toString(invitee));
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.validator;
+
+/**
+ * Layout of the fixed width binary read/update log records, the binary
+ * counterpart of the comma separated "READ,ACCEPTFRND,seq,thread,rid,start,end,val,[type,]actionType" lines.
+ * Each record is RECORD_SIZE bytes:
+ * <pre>
+ * 0  byte op code (READ, UPDATE)
+ * 1  byte mop type code (ACCEPTFRND, PENDFRND, ...)
+ * 2  byte update type code (none for reads, I, D)
+ * 3  byte action type code (GetProfile, AcceptFriend, ...)
+ * 4  int  sequence id
+ * 8  int  thread id
+ * 12 int  resource id
+ * 16 long start time (System.nanoTime())
+ * 24 long end time (System.nanoTime())
+ * 32 long value
+ * </pre>
+ */
+public final class BinaryLogFormat
+{
+	public static final int RECORD_SIZE = 40;
+
+	static final int OP_OFFSET = 0;
+	static final int MOP_OFFSET = 1;
+	static final int UPDATE_TYPE_OFFSET = 2;
+	static final int ACTION_TYPE_OFFSET = 3;
+	static final int SEQ_ID_OFFSET = 4;
+	static final int THREAD_ID_OFFSET = 8;
+	static final int RID_OFFSET = 12;
+	static final int START_OFFSET = 16;
+	static final int END_OFFSET = 24;
+	static final int VALUE_OFFSET = 32;
+
+	public static final String[] OP_TYPES = {"READ", "UPDATE"};
+	public static final String[] MOP_TYPES = {"ACCEPTFRND", "PENDFRND", "POSTCOMMENT", "GRPSHORTEST", "GRPCOMMON", "GRPFOFFRNDS"};
+	//reads have no update type
+	public static final String[] UPDATE_TYPES = {"", "I", "D"};
+	public static final String[] ACTION_TYPES = {"ViewProfile", "FriendsProfile", "ViewCommentOnResource", "PostComment",
+		"DeleteCommentonResource", "ViewPendingRequests", "InviteFriend", "ListFriends", "AcceptFriendship",
+		"ViewFriendRequests", "RejectFriendship", "ThawFriendship", "UnfriendPendingFriendship", "GetProfile",
+		"GetFriends", "GetPendingFriends", "InviteFriends", "AcceptFriend", "RejectFriend", "Unfriendfriend",
+		"PostComments", "DeleteComments", "ViewCommentonResource", "GetShortestPath", "GetCommonFrnds", "GetFrndsOfFrnds"};
+
+	//code of a name missing from its table
+	public static final byte UNKNOWN_CODE = -1;
+	public static final String UNKNOWN_NAME = "Unknown";
+	//value of a record whose value field was not a number
+	public static final long NO_VALUE = Long.MIN_VALUE;
+
+	public static final String FILE_EXTENSION = ".bin";
+
+	private BinaryLogFormat()
+	{
+	}
+
+	/**
+	 * @return the code of chars [from, to) of the sequence in the table or UNKNOWN_CODE
+	 */
+	static byte code(String[] table, CharSequence chars, int from, int to)
+	{
+		for (int i = 0; i < table.length; i++) {
+			String name = table[i];
+			if (name.length() != to - from)
+				continue;
+			int j = 0;
+			while (j < name.length() && name.charAt(j) == chars.charAt(from + j))
+				j++;
+			if (j == name.length())
+				return (byte) i;
+		}
+		return UNKNOWN_CODE;
+	}
+
+	static String name(String[] table, byte code)
+	{
+		return code >= 0 && code < table.length ? table[code] : UNKNOWN_NAME;
+	}
+
+	/**
+	 * @return the name of the log file of the thread, e.g. dir/update0-3.bin
+	 */
+	public static String fileName(String dir, String logtype, String machineid, int threadid)
+	{
+		return dir + "/" + logtype + machineid + "-" + threadid + FILE_EXTENSION;
+	}
+}
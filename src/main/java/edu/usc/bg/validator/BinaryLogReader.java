@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.validator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapped cursor over a BinaryLogFormat file. next() moves to the following
+ * record and the getters decode the fields of the current record straight from the
+ * mapping, so iterating over a file does not allocate.
+ * Used by a single thread.
+ */
+public class BinaryLogReader
+{
+	//files larger than this are mapped one window at a time
+	static final long MAX_WINDOW = (Integer.MAX_VALUE / BinaryLogFormat.RECORD_SIZE) * (long) BinaryLogFormat.RECORD_SIZE;
+
+	RandomAccessFile file;
+	FileChannel channel;
+	final long size;
+	long windowStart = 0;
+	MappedByteBuffer window;
+	//offset of the current record in the window, -RECORD_SIZE before the first next()
+	int position = -BinaryLogFormat.RECORD_SIZE;
+
+	public BinaryLogReader(File f) throws IOException
+	{
+		file = new RandomAccessFile(f, "r");
+		channel = file.getChannel();
+		//ignore a partially written last record
+		size = channel.size() - channel.size() % BinaryLogFormat.RECORD_SIZE;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_WINDOW));
+	}
+
+	/**
+	 * @return the number of records in the file
+	 */
+	public long getNumRecords()
+	{
+		return size / BinaryLogFormat.RECORD_SIZE;
+	}
+
+	/**
+	 * moves to the next record
+	 * @return false if there are no more records
+	 */
+	public boolean next() throws IOException
+	{
+		position += BinaryLogFormat.RECORD_SIZE;
+		if (position < window.limit())
+			return true;
+		long nextStart = windowStart + window.limit();
+		if (nextStart >= size)
+			return false;
+		windowStart = nextStart;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAX_WINDOW));
+		position = 0;
+		return true;
+	}
+
+	public byte getOpCode() {
+		return window.get(position + BinaryLogFormat.OP_OFFSET);
+	}
+
+	public boolean isUpdate() {
+		return getOpCode() == 1;
+	}
+
+	public byte getMopCode() {
+		return window.get(position + BinaryLogFormat.MOP_OFFSET);
+	}
+
+	public byte getUpdateTypeCode() {
+		return window.get(position + BinaryLogFormat.UPDATE_TYPE_OFFSET);
+	}
+
+	public byte getActionTypeCode() {
+		return window.get(position + BinaryLogFormat.ACTION_TYPE_OFFSET);
+	}
+
+	public int getSeqId() {
+		return window.getInt(position + BinaryLogFormat.SEQ_ID_OFFSET);
+	}
+
+	public int getThreadId() {
+		return window.getInt(position + BinaryLogFormat.THREAD_ID_OFFSET);
+	}
+
+	public int getRid() {
+		return window.getInt(position + BinaryLogFormat.RID_OFFSET);
+	}
+
+	public long getStarttime() {
+		return window.getLong(position + BinaryLogFormat.START_OFFSET);
+	}
+
+	public long getEndtime() {
+		return window.getLong(position + BinaryLogFormat.END_OFFSET);
+	}
+
+	public long getValue() {
+		return window.getLong(position + BinaryLogFormat.VALUE_OFFSET);
+	}
+
+	/**
+	 * @return the current record, its numeric fields are copied as they are and its names are the constants of BinaryLogFormat
+	 */
+	public logObject toRecord()
+	{
+		return new logObject(getOpCode(), getMopCode(), getSeqId(), getThreadId(), getRid(), getStarttime(), getEndtime(),
+				getValue(), getUpdateTypeCode(), getActionTypeCode());
+	}
+
+	public void close() throws IOException
+	{
+		window = null;
+		channel.close();
+		file.close();
+	}
+}
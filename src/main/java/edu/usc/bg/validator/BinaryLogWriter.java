@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.validator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes read/update log records in the BinaryLogFormat through one reusable buffer.
+ * Used by a single thread, writing a record does not allocate.
+ */
+public class BinaryLogWriter
+{
+	static final int BUFFER_RECORDS = 2048;
+
+	FileOutputStream out;
+	FileChannel channel;
+	final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * BinaryLogFormat.RECORD_SIZE);
+	//reused by writeLine to convert the text records
+	final LogRecordParser parser = new LogRecordParser();
+
+	public BinaryLogWriter(File file) throws IOException
+	{
+		out = new FileOutputStream(file);
+		channel = out.getChannel();
+	}
+
+	public void write(byte op, byte mop, byte updateType, byte actionType, int seqId, int threadId, int rid,
+			long start, long end, long value) throws IOException
+	{
+		if (buffer.remaining() < BinaryLogFormat.RECORD_SIZE)
+			flush();
+		buffer.put(op).put(mop).put(updateType).put(actionType)
+		.putInt(seqId).putInt(threadId).putInt(rid)
+		.putLong(start).putLong(end).putLong(value);
+	}
+
+	/**
+	 * Converts text log records, as generated by the workloads, to binary records without creating
+	 * any Strings.
+	 * @param records zero or more '\n' terminated lines in the comma separated log format
+	 */
+	public void write(CharSequence records) throws IOException
+	{
+		int len = records.length();
+		int lineStart = 0;
+		while (lineStart < len) {
+			int lineEnd = lineStart;
+			while (lineEnd < len && records.charAt(lineEnd) != '\n')
+				lineEnd++;
+			if (lineEnd > lineStart)
+				writeLine(records, lineStart, lineEnd);
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	void writeLine(CharSequence line, int from, int to) throws IOException
+	{
+		LogRecordParser p = parser;
+		if (p.parse(line, from, to))
+			write(p.op, p.mop, p.updateType, p.actionType, p.seqId, p.threadId, p.rid, p.start, p.end, p.value);
+	}
+
+	public void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	public void close() throws IOException
+	{
+		flush();
+		channel.close();
+		out.close();
+	}
+}
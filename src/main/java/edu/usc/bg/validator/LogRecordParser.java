@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+import java.util.ArrayList;
+
+/**
+ * Parses the comma separated read/update log records generated by the workloads into the fields
+ * of a BinaryLogFormat record without creating any Strings.
+ * Used by a single thread, the fields of the last line parsed are kept in the parser.
+ */
+public class LogRecordParser
+{
+	//reused, the end of each field of the line being parsed
+	final int[] fieldEnds = new int[10];
+	byte op, mop, updateType, actionType;
+	int seqId, threadId, rid;
+	long start, end, value;
+
+	/**
+	 * @param records zero or more '\n' terminated lines in the comma separated log format
+	 * @return the records of the lines, the malformed ones skipped
+	 */
+	public static logObject[] parseAll(CharSequence records)
+	{
+		LogRecordParser parser = new LogRecordParser();
+		ArrayList<logObject> ret = new ArrayList<logObject>();
+		int len = records.length();
+		int lineStart = 0;
+		while (lineStart < len) {
+			int lineEnd = lineStart;
+			while (lineEnd < len && records.charAt(lineEnd) != '\n')
+				lineEnd++;
+			if (lineEnd > lineStart && parser.parse(records, lineStart, lineEnd))
+				ret.add(parser.toRecord());
+			lineStart = lineEnd + 1;
+		}
+		return ret.toArray(new logObject[ret.size()]);
+	}
+
+	/**
+	 * Parses chars [from, to) of the line, a read record has 9 fields and an update record 10.
+	 * @return false if the line is malformed
+	 */
+	public boolean parse(CharSequence line, int from, int to)
+	{
+		int[] ends = fieldEnds;
+		int fields = 0;
+		for (int i = from; i < to && fields < ends.length; i++) {
+			if (line.charAt(i) == ',')
+				ends[fields++] = i;
+		}
+		if (fields < ends.length)
+			ends[fields++] = to;
+		if (fields < 9) {
+			System.out.println("Skipping malformed log record: " + line.subSequence(from, to));
+			return false;
+		}
+		op = BinaryLogFormat.code(BinaryLogFormat.OP_TYPES, line, from, ends[0]);
+		mop = BinaryLogFormat.code(BinaryLogFormat.MOP_TYPES, line, ends[0] + 1, ends[1]);
+		updateType = 0;
+		int actionField = 8;
+		if (fields > 9) {
+			updateType = BinaryLogFormat.code(BinaryLogFormat.UPDATE_TYPES, line, ends[7] + 1, ends[8]);
+			actionField = 9;
+		}
+		actionType = BinaryLogFormat.code(BinaryLogFormat.ACTION_TYPES, line, ends[actionField - 1] + 1, ends[actionField]);
+		seqId = (int) parseLong(line, ends[1] + 1, ends[2]);
+		threadId = (int) parseLong(line, ends[2] + 1, ends[3]);
+		rid = (int) parseLong(line, ends[3] + 1, ends[4]);
+		start = parseLong(line, ends[4] + 1, ends[5]);
+		end = parseLong(line, ends[5] + 1, ends[6]);
+		value = parseLong(line, ends[6] + 1, ends[7]);
+		return true;
+	}
+
+	/**
+	 * @return the record of the last line parsed
+	 */
+	public logObject toRecord()
+	{
+		return new logObject(op, mop, seqId, threadId, rid, start, end, value, updateType, actionType);
+	}
+
+	/**
+	 * @return the number in chars [from, to) or NO_VALUE if they are not a number
+	 */
+	static long parseLong(CharSequence chars, int from, int to)
+	{
+		if (from >= to)
+			return BinaryLogFormat.NO_VALUE;
+		boolean negative = chars.charAt(from) == '-';
+		int i = negative ? from + 1 : from;
+		if (i == to)
+			return BinaryLogFormat.NO_VALUE;
+		long value = 0;
+		for (; i < to; i++) {
+			char c = chars.charAt(i);
+			if (c < '0' || c > '9')
+				return BinaryLogFormat.NO_VALUE;
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+}
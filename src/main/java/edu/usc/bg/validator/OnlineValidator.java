@@ -0,0 +1,335 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.validator;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import edu.usc.bg.base.ClientDataStats;
+import edu.usc.bg.workloads.CoreWorkload;
+
+/**
+ * Validates the read log records while the benchmark is running instead of reading the
+ * log files back once it is done.
+ *
+ * The client threads hand the log records of every session they complete to this thread.
+ * Update records are applied to the update stats right away. A read can be validated once
+ * every update that started before the read ended is known. Updates are handed over when
+ * their session completes, so none of the updates still to come started before the oldest
+ * session in progress (the watermark) and the reads that ended before it are validated by
+ * the validation workers. The pending reads are kept ordered by end time so only the reads that ended
+ * before the watermark are looked at. Updates are not applied while a batch of reads is being validated.
+ * Only the interval tree approach is supported.
+ */
+public class OnlineValidator extends Thread
+{
+	//in flight start time of a thread that has not started its first session
+	static final long NOT_STARTED = Long.MIN_VALUE;
+	//in flight start time of a thread that is done
+	static final long DONE = Long.MAX_VALUE;
+
+	static OnlineValidator current = null;
+
+	static class Batch
+	{
+		final logObject[] records;
+		final int count;
+
+		Batch(logObject[] records, int count)
+		{
+			this.records = records;
+			this.count = count;
+		}
+	}
+
+	static final Batch END = new Batch(null, 0);
+
+	/**
+	 * Validates the batches of reads handed to the workers until it takes END.
+	 */
+	class Worker extends Thread
+	{
+		final ValidationThread validator;
+
+		Worker(int id)
+		{
+			this.setName("BGOnlineValidationWorker " + id);
+			this.setDaemon(true);
+			validator = new ValidationThread(props, null, updateStats, initCnt, new Semaphore(1), finalResults,
+					staleSeqSemaphore, staleSeqTracker, seqTracker, seenSeqSemaphore, 0,
+					ValidationMainClass.freshnessBuckets, ValidationMainClass.bucketDuration);
+		}
+
+		public void run()
+		{
+			while (true) {
+				Batch batch;
+				try {
+					batch = batches.take();
+				} catch (InterruptedException e) {
+					e.printStackTrace(System.out);
+					continue;
+				}
+				if (batch == END)
+					break;
+				try {
+					validator.validate(batch.records, batch.count);
+				} catch (RuntimeException e) {
+					//the worker validates the following batches
+					e.printStackTrace(System.out);
+				} finally {
+					validated.release();
+				}
+			}
+		}
+	}
+
+	static final Comparator<logObject> BY_END_TIME = new Comparator<logObject>() {
+		public int compare(logObject a, logObject b)
+		{
+			return Long.compare(a.getLongEndtime(), b.getLongEndtime());
+		}
+	};
+
+	final Properties props;
+	final int numThreads;
+	//start time (System.nanoTime()) of the session each thread is executing
+	final AtomicLongArray inFlight;
+	//the {update, read} records of the completed sessions, parsed by the client threads
+	final ConcurrentLinkedQueue<logObject[][]> completedSessions = new ConcurrentLinkedQueue<logObject[][]>();
+	volatile boolean stopRequested = false;
+	//stop without validating the pending reads
+	volatile boolean discard = false;
+
+	final ConcurrentHashMap<String, resourceUpdateStat> updateStats = new ConcurrentHashMap<String, resourceUpdateStat>();
+	final UpdateProcessorThread updateProcessor;
+	final HashMap<String, Integer> initCnt = CoreWorkload.initStats;
+	final HashMap<Integer, Integer>[] seqTracker;
+	final HashMap<Integer, Integer>[] staleSeqTracker;
+	final TotalValidationThreadResults finalResults = new TotalValidationThreadResults();
+	final Semaphore staleSeqSemaphore = new Semaphore(1);
+	final Semaphore seenSeqSemaphore = new Semaphore(1);
+	final int readToValidate;
+	final int numBuckets;
+	//reads waiting for the watermark to pass their end time, the one that ended first at the head
+	final PriorityQueue<logObject> pendingReads = new PriorityQueue<logObject>(1024, BY_END_TIME);
+	final LinkedBlockingQueue<Batch> batches = new LinkedBlockingQueue<Batch>();
+	//a permit per batch validated by the workers
+	final Semaphore validated = new Semaphore(0);
+	final Worker[] workers;
+	int numUpdates = 0;
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	OnlineValidator(Properties props, int numThreads)
+	{
+		this.setName("BGOnlineValidator");
+		this.setDaemon(true);
+		this.props = props;
+		this.numThreads = numThreads;
+		inFlight = new AtomicLongArray(numThreads);
+		for (int i = 0; i < numThreads; i++)
+			inFlight.set(i, NOT_STARTED);
+		updateProcessor = new UpdateProcessorThread(props, updateStats, null, null, new Semaphore(1));
+		seqTracker = new HashMap[numThreads + ValidationMainClass.bgNumWorkerThreads];
+		staleSeqTracker = new HashMap[numThreads + ValidationMainClass.bgNumWorkerThreads];
+		workers = new Worker[Math.max(1, Integer.parseInt(props.getProperty(ValidationMainClass.VALIDATION_THREADS_PROPERTY,
+				ValidationMainClass.VALIDATION_THREADS_PROPERTY_DEFAULT)))];
+		readToValidate = Integer.parseInt(props.getProperty(ValidationMainClass.VALIDATION_BLOCK_PROPERTY,
+				ValidationMainClass.VALIDATION_BLOCK_PROPERTY_DEFAULT));
+		numBuckets = ValidationMainClass.initFreshnessBucket(props);
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Starts validating online if the validation mode is online and the validation approach supports it.
+	 * @param numThreads the number of client threads, their ids must be between 0 and numThreads-1
+	 * @return the validator or null if the logs are validated once the run is done
+	 */
+	public static synchronized OnlineValidator start(Properties props, int numThreads)
+	{
+		if (!props.getProperty(ValidationMainClass.VALIDATION_MODE_PROPERTY,
+				ValidationMainClass.VALIDATION_MODE_PROPERTY_DEFAULT).equalsIgnoreCase("online"))
+			return null;
+		String approach = props.getProperty(ValidationMainClass.VALIDATION_APPROACH_PROPERTY,
+				ValidationMainClass.VALIDATION_APPROACH_PROPERTY_DEFAULT);
+		if (approach.equalsIgnoreCase("novalidation") || approach.equalsIgnoreCase("RDBMS")) {
+			System.out.println("Online validation is not supported with the " + approach + " validation approach, the logs will be validated after the run.");
+			return null;
+		}
+		current = new OnlineValidator(props, numThreads);
+		current.start();
+		System.out.println("\t-- Started online validation");
+		return current;
+	}
+
+	/**
+	 * @return the running validator or null if validation is done after the run
+	 */
+	public static OnlineValidator get()
+	{
+		return current;
+	}
+
+	/**
+	 * Called by a client thread before it starts a session, the start time must not be after the start time
+	 * of the actions of the session and the records of its previous session must have been handed over.
+	 */
+	public void sessionStarted(int threadid, long startTime)
+	{
+		inFlight.set(threadid, startTime);
+	}
+
+	/**
+	 * Called by a client thread once its session completed, the records are parsed by the calling thread.
+	 * @param updates the update log records of the session
+	 * @param reads the read log records of the session
+	 */
+	public void sessionCompleted(int threadid, CharSequence updates, CharSequence reads)
+	{
+		if (updates.length() > 0 || reads.length() > 0)
+			completedSessions.add(new logObject[][] {LogRecordParser.parseAll(updates), LogRecordParser.parseAll(reads)});
+	}
+
+	/**
+	 * Called by a client thread once it will not start any other session.
+	 */
+	public void threadDone(int threadid)
+	{
+		inFlight.set(threadid, DONE);
+	}
+
+	long getWatermark()
+	{
+		long watermark = DONE;
+		for (int i = 0; i < numThreads; i++)
+			watermark = Math.min(watermark, inFlight.get(i));
+		return watermark;
+	}
+
+	public void run()
+	{
+		while (!discard) {
+			boolean stopping = stopRequested;
+			//read before taking the sessions, the sessions that started before it are already queued
+			long watermark = stopping ? DONE : getWatermark();
+			boolean progress = applyCompletedSessions();
+			progress |= validateReadsBefore(watermark);
+			if (stopping)
+				break;
+			if (!progress) {
+				try {
+					sleep(10);
+				} catch (InterruptedException e) {
+					//do nothing
+				}
+			}
+		}
+		for (int i = 0; i < workers.length; i++)
+			batches.add(END);
+	}
+
+	boolean applyCompletedSessions()
+	{
+		boolean applied = false;
+		logObject[][] session;
+		while ((session = completedSessions.poll()) != null) {
+			applied = true;
+			for (logObject update : session[0]) {
+				try {
+					updateProcessor.process(update);
+					numUpdates++;
+				} catch (InterruptedException e) {
+					e.printStackTrace(System.out);
+				}
+			}
+			for (logObject read : session[1])
+				pendingReads.add(read);
+		}
+		return applied;
+	}
+
+	/**
+	 * validates the pending reads that ended before the watermark and waits for their validation to complete
+	 */
+	boolean validateReadsBefore(long watermark)
+	{
+		int numBatches = 0;
+		while (!pendingReads.isEmpty() && (watermark == DONE || pendingReads.peek().getLongEndtime() < watermark)) {
+			logObject[] toBeProcessed = new logObject[readToValidate];
+			int toBeProcessedArraySz = 0;
+			while (toBeProcessedArraySz < readToValidate && !pendingReads.isEmpty()
+					&& (watermark == DONE || pendingReads.peek().getLongEndtime() < watermark))
+				toBeProcessed[toBeProcessedArraySz++] = pendingReads.poll();
+			batches.add(new Batch(toBeProcessed, toBeProcessedArraySz));
+			numBatches++;
+		}
+		if (numBatches == 0)
+			return false;
+		validated.acquireUninterruptibly(numBatches);
+		return true;
+	}
+
+	/**
+	 * Validates the reads that are still pending, once all the client threads are done, and populates the
+	 * experiment stats the same way as the offline validation.
+	 */
+	public void finish(ClientDataStats expStat)
+	{
+		long finishStart = System.currentTimeMillis();
+		stopRequested = true;
+		try {
+			join();
+		} catch (InterruptedException e) {
+			e.printStackTrace(System.out);
+		}
+		System.out.println("\t-- Online validation done, validating the reads pending at the end of the run took(ms):"
+				+ (System.currentTimeMillis() - finishStart));
+		ValidationMainClass.populateValidationStats(props, finalResults, numUpdates, numBuckets, seqTracker, staleSeqTracker, expStat, finishStart);
+		clearCurrent(this);
+	}
+
+	/**
+	 * stops the running validator, if any, without validating the pending reads
+	 */
+	public static synchronized void stopRunning()
+	{
+		if (current != null) {
+			current.discard = true;
+			current = null;
+		}
+	}
+
+	static synchronized void clearCurrent(OnlineValidator v)
+	{
+		if (current == v)
+			current = null;
+	}
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.validator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import edu.usc.bg.base.Client;
+
+/**
+ * Validates the log files with a fixed number of partition threads instead of a thread per block of records.
+ * The records are partitioned by resource id so a partition thread owns the update stats of its resources,
+ * including the TOTALCNT stats shared by the PENDFRND and ACCEPTFRND counts of a member, and validates
+ * the reads of these resources. All the update records are handed over before the first read record, so
+ * a partition has applied every update of its resources when it validates a read.
+ * The partitions do not share any lock, their seen and stale sequence trackers are merged once they are done.
+ * Only the interval tree approach is supported.
+ */
+public class PartitionedValidator
+{
+	//number of batches a partition can have queued before the thread reading the logs waits
+	static final int QUEUE_CAPACITY = 16;
+
+	static class Batch
+	{
+		final logObject[] records;
+		final int count;
+		final boolean reads;
+
+		Batch(logObject[] records, int count, boolean reads)
+		{
+			this.records = records;
+			this.count = count;
+			this.reads = reads;
+		}
+	}
+
+	static final Batch END = new Batch(null, 0, false);
+
+	class Partition extends Thread
+	{
+		final ArrayBlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(QUEUE_CAPACITY);
+		final ConcurrentHashMap<String, resourceUpdateStat> updateStats = new ConcurrentHashMap<String, resourceUpdateStat>();
+		final HashMap<Integer, Integer>[] seqTracker;
+		final HashMap<Integer, Integer>[] staleSeqTracker;
+		final UpdateProcessorThread updateProcessor;
+		final ValidationThread validator;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Partition(int id)
+		{
+			this.setName("BGValidationPartition " + id);
+			seqTracker = new HashMap[numTrackers];
+			staleSeqTracker = new HashMap[numTrackers];
+			updateProcessor = new UpdateProcessorThread(props, updateStats, null, null, new Semaphore(1));
+			validator = new ValidationThread(props, null, updateStats, initCnt, new Semaphore(1), finalResults,
+					new Semaphore(1), staleSeqTracker, seqTracker, new Semaphore(1), 0,
+					ValidationMainClass.freshnessBuckets, ValidationMainClass.bucketDuration);
+		}
+
+		public void run()
+		{
+			while (true) {
+				Batch batch;
+				try {
+					batch = queue.take();
+				} catch (InterruptedException e) {
+					e.printStackTrace(System.out);
+					continue;
+				}
+				if (batch == END)
+					break;
+				if (batch.reads) {
+					validator.validate(batch.records, batch.count);
+					continue;
+				}
+				for (int i = 0; i < batch.count; i++) {
+					try {
+						updateProcessor.process(batch.records[i]);
+					} catch (InterruptedException e) {
+						e.printStackTrace(System.out);
+					}
+				}
+			}
+		}
+	}
+
+	final Properties props;
+	final HashMap<String, Integer> initCnt;
+	final TotalValidationThreadResults finalResults = new TotalValidationThreadResults();
+	final int numTrackers;
+	final int blockSize;
+	final int threadCount;
+	final String machineid;
+	final boolean binaryLog;
+	final Partition[] partitions;
+	//records of each partition not handed over yet
+	final logObject[][] buffers;
+	final int[] bufferSizes;
+
+	public PartitionedValidator(Properties props, int numPartitions, HashMap<String, Integer> initCnt)
+	{
+		this.props = props;
+		this.initCnt = initCnt;
+		threadCount = Integer.parseInt(props.getProperty(Client.THREAD_CNT_PROPERTY, Client.THREAD_CNT_PROPERTY_DEFAULT));
+		numTrackers = threadCount + ValidationMainClass.bgNumWorkerThreads;
+		machineid = props.getProperty(Client.MACHINE_ID_PROPERTY, Client.MACHINE_ID_PROPERTY_DEFAULT);
+		blockSize = Integer.parseInt(props.getProperty(ValidationMainClass.VALIDATION_BLOCK_PROPERTY,
+				ValidationMainClass.VALIDATION_BLOCK_PROPERTY_DEFAULT));
+		binaryLog = props.getProperty(Client.LOG_FORMAT_PROPERTY, Client.LOG_FORMAT_PROPERTY_DEFAULT).equalsIgnoreCase("binary");
+		partitions = new Partition[numPartitions];
+		buffers = new logObject[numPartitions][];
+		bufferSizes = new int[numPartitions];
+		for (int i = 0; i < numPartitions; i++) {
+			partitions[i] = new Partition(i);
+			buffers[i] = new logObject[blockSize];
+			partitions[i].start();
+		}
+	}
+
+	/**
+	 * hands the update records of all the threads to their partitions
+	 * @return the number of update records
+	 */
+	public int readUpdateFiles(String dir)
+	{
+		int numUpdates = readLogFiles(dir, "update", false);
+		flush(false);
+		return numUpdates;
+	}
+
+	/**
+	 * hands the read records of all the threads to their partitions and waits for them to be validated
+	 * @param seqTracker the sequences seen by the partitions are added to it
+	 * @param staleSeqTracker the stale sequences seen by the partitions are added to it
+	 */
+	public TotalValidationThreadResults readReadFiles(String dir, HashMap<Integer, Integer>[] seqTracker, HashMap<Integer, Integer>[] staleSeqTracker)
+	{
+		ValidationStatusThread vsThread = new ValidationStatusThread(finalResults);
+		vsThread.start();
+		System.out.println("\t-- Created the validation status thread");
+		readLogFiles(dir, "read", true);
+		flush(true);
+		for (Partition p : partitions) {
+			put(p, END);
+		}
+		for (Partition p : partitions) {
+			try {
+				p.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace(System.out);
+			}
+			merge(p.seqTracker, seqTracker);
+			merge(p.staleSeqTracker, staleSeqTracker);
+		}
+		try {
+			vsThread.setTimeToStop();
+			vsThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace(System.out);
+		}
+		return finalResults;
+	}
+
+	void merge(HashMap<Integer, Integer>[] from, HashMap<Integer, Integer>[] to)
+	{
+		for (int i = 0; i < numTrackers; i++) {
+			if (from[i] == null)
+				continue;
+			if (to[i] == null)
+				to[i] = new HashMap<Integer, Integer>();
+			to[i].putAll(from[i]);
+		}
+	}
+
+	int readLogFiles(String dir, String logtype, boolean reads)
+	{
+		int numRecords = 0;
+		for (int i = 0; i < threadCount; i++) {
+			if (binaryLog) {
+				try {
+					BinaryLogReader reader = new BinaryLogReader(new File(BinaryLogFormat.fileName(dir, logtype, machineid, i)));
+					while (reader.next()) {
+						numRecords++;
+						route(reader.toRecord(), reads);
+					}
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace(System.out);
+					System.out.println("Error reading the " + logtype + " log of thread " + machineid + "-" + i + " " + e.getMessage());
+				}
+				continue;
+			}
+			BufferedReader br = null;
+			String line = null;
+			try {
+				br = new BufferedReader(new FileReader(dir + "//" + logtype + machineid + "-" + i + ".txt"));
+				while ((line = br.readLine()) != null) {
+					numRecords++;
+					String[] tokens = line.split(",");
+					if (reads)
+						route(new logObject(tokens[0], tokens[1], tokens[2], tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], "", tokens[8]), true);
+					else
+						route(new logObject(tokens[0], tokens[1], tokens[2], tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], tokens[8], tokens[9]), false);
+				}
+			} catch (IOException e) {
+				e.printStackTrace(System.out);
+				System.out.println("Error reading the " + logtype + " log of thread " + machineid + "-" + i + " " + e.getMessage());
+			} finally {
+				try {
+					if (br != null)
+						br.close();
+				} catch (IOException e) {
+					e.printStackTrace(System.out);
+				}
+			}
+		}
+		return numRecords;
+	}
+
+	void route(logObject record, boolean reads)
+	{
+		int p = (record.getIntRid() & Integer.MAX_VALUE) % partitions.length;
+		buffers[p][bufferSizes[p]++] = record;
+		if (bufferSizes[p] == blockSize)
+			send(p, reads);
+	}
+
+	void flush(boolean reads)
+	{
+		for (int p = 0; p < partitions.length; p++) {
+			if (bufferSizes[p] > 0)
+				send(p, reads);
+		}
+	}
+
+	void send(int p, boolean reads)
+	{
+		put(partitions[p], new Batch(buffers[p], bufferSizes[p], reads));
+		buffers[p] = new logObject[blockSize];
+		bufferSizes[p] = 0;
+	}
+
+	void put(Partition p, Batch batch)
+	{
+		while (true) {
+			try {
+				p.queue.put(batch);
+				return;
+			} catch (InterruptedException e) {
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+}
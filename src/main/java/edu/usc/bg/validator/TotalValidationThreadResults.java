@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TotalValidationThreadResults{
+	AtomicInteger numReadOpsProcessed = null;
+	AtomicInteger numStaleReadsreturned = null;
+	AtomicInteger prunedReads = null;
+
+	public int getNumReadOpsProcessed() {
+		return numReadOpsProcessed.get();
+	}
+	public int getNumStaleReadsreturned() {
+		return numStaleReadsreturned.get();
+	}
+	public int getPruned() {
+		return prunedReads.get();
+	}
+
+	public void incPruned() {
+		int v;
+        do {
+            v = prunedReads.get();
+        } while (!prunedReads.compareAndSet(v, v + 1));
+	}
+	public void incNumStaleReadsreturned() {
+		int v;
+        do {
+            v = numStaleReadsreturned.get();
+        } while (!numStaleReadsreturned.compareAndSet(v, v + 1));
+	}
+	public void incNumReadOpsProcessed() {
+        int v;
+        do {
+            v = numReadOpsProcessed.get();
+        } while (!numReadOpsProcessed.compareAndSet(v, v + 1));
+    }
+
+	public TotalValidationThreadResults(){
+		if(numReadOpsProcessed == null){
+			numReadOpsProcessed = new AtomicInteger();
+			numReadOpsProcessed.set(0);
+		}
+		if(numStaleReadsreturned == null){
+			numStaleReadsreturned = new AtomicInteger();
+			numStaleReadsreturned.set(0);
+		}
+		if(prunedReads == null){
+			prunedReads = new AtomicInteger();
+			prunedReads.set(0);
+		}
+	}
+
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.validator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the update intervals of one resource, kept in primitive arrays.
+ * The intervals are kept twice, sorted by start time and sorted by end time. The update
+ * intervals of a thread arrive sorted by start (and mostly by end) time, so an interval is
+ * usually appended at the end or shifted in near the end. Intervals arriving far out of order
+ * (e.g. the log file of another thread) are appended and the arrays are sorted once before
+ * the next query.
+ *
+ * Cumulative sums of the update types in end time order give the number of updates completed
+ * before a read started with a binary search, prefix maxima of the end times in start time
+ * order give the latest end time of the updates started before it. A max tree of the end times
+ * in start time order finds the intervals overlapping a time range by only descending into the
+ * subtrees holding an interval that ends after the range starts, in O((1 + matches) log n).
+ *
+ * Adding intervals must not happen while the index is queried, the validator adds all the
+ * updates it knows of before validating reads against them.
+ */
+public class UpdateIntervalIndex
+{
+	//out of order intervals closer than this to the end of the arrays are shifted in
+	static final int MAX_SHIFT = 64;
+
+	/**
+	 * intervals sorted by key (start or end time) with the prefix sums of their
+	 * types and the prefix maxima of their other end point
+	 */
+	static class SortedIntervals
+	{
+		long[] keys = new long[4];
+		long[] others = new long[4];
+		int[] types = new int[4];
+		//typeSums[i] is the sum of types[0..i-1], maxOthers[i] the max of others[0..i-1]
+		long[] typeSums = new long[5];
+		long[] maxOthers = new long[5];
+		//max tree of the others, the leaf of interval i at keys.length + i and node n the max of nodes 2n and 2n+1, null if not kept
+		long[] maxTree;
+		int size = 0;
+		boolean sorted = true;
+
+		SortedIntervals(boolean withMaxTree)
+		{
+			if (withMaxTree)
+				buildMaxTree();
+		}
+
+		void add(long key, long other, int type)
+		{
+			if (size == keys.length)
+				grow();
+			int pos = size;
+			if (sorted && size > 0 && keys[size - 1] > key) {
+				pos = lowerBound(key + 1);
+				if (size - pos > MAX_SHIFT) {
+					sorted = false;
+					pos = size;
+				} else {
+					System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+					System.arraycopy(others, pos, others, pos + 1, size - pos);
+					System.arraycopy(types, pos, types, pos + 1, size - pos);
+				}
+			}
+			keys[pos] = key;
+			others[pos] = other;
+			types[pos] = type;
+			size++;
+			if (sorted)
+				computePrefixes(pos);
+		}
+
+		void grow()
+		{
+			int capacity = keys.length * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			others = Arrays.copyOf(others, capacity);
+			types = Arrays.copyOf(types, capacity);
+			typeSums = Arrays.copyOf(typeSums, capacity + 1);
+			maxOthers = Arrays.copyOf(maxOthers, capacity + 1);
+			if (maxTree != null)
+				buildMaxTree();
+		}
+
+		void computePrefixes(int from)
+		{
+			for (int i = from; i < size; i++) {
+				typeSums[i + 1] = typeSums[i] + types[i];
+				maxOthers[i + 1] = Math.max(maxOthers[i], others[i]);
+			}
+			if (maxTree == null)
+				return;
+			if (from == 0) {
+				buildMaxTree();
+				return;
+			}
+			for (int i = from; i < size; i++) {
+				int node = keys.length + i;
+				maxTree[node] = others[i];
+				for (node >>>= 1; node > 0; node >>>= 1) {
+					long max = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+					if (maxTree[node] == max)
+						break;
+					maxTree[node] = max;
+				}
+			}
+		}
+
+		//the capacity (keys.length) is a power of 2
+		void buildMaxTree()
+		{
+			int capacity = keys.length;
+			maxTree = new long[2 * capacity];
+			Arrays.fill(maxTree, Long.MIN_VALUE);
+			System.arraycopy(others, 0, maxTree, capacity, size);
+			for (int node = capacity - 1; node > 0; node--)
+				maxTree[node] = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+		}
+
+		/**
+		 * adds the intervals of the subtree at node, covering positions [from, to), that are before position k
+		 * and whose other end point is after time
+		 */
+		void collectOthersAfter(int node, int from, int to, int k, long time, List<Interval<Long>> result)
+		{
+			if (from >= k || maxTree[node] <= time)
+				return;
+			if (to - from == 1) {
+				result.add(new Interval<Long>(keys[from], others[from], (long) types[from]));
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			collectOthersAfter(2 * node, from, mid, k, time, result);
+			collectOthersAfter(2 * node + 1, mid, to, k, time, result);
+		}
+
+		void ensureSorted()
+		{
+			if (sorted)
+				return;
+			int[] order = new int[size];
+			for (int i = 0; i < size; i++)
+				order[i] = i;
+			mergeSort(order, new int[size], 0, size);
+			long[] newKeys = new long[keys.length];
+			long[] newOthers = new long[others.length];
+			int[] newTypes = new int[types.length];
+			for (int i = 0; i < size; i++) {
+				newKeys[i] = keys[order[i]];
+				newOthers[i] = others[order[i]];
+				newTypes[i] = types[order[i]];
+			}
+			keys = newKeys;
+			others = newOthers;
+			types = newTypes;
+			computePrefixes(0);
+			sorted = true;
+		}
+
+		//stable merge sort of the positions by key
+		void mergeSort(int[] order, int[] tmp, int from, int to)
+		{
+			if (to - from < 2)
+				return;
+			int mid = (from + to) >>> 1;
+			mergeSort(order, tmp, from, mid);
+			mergeSort(order, tmp, mid, to);
+			if (keys[order[mid - 1]] <= keys[order[mid]])
+				return;
+			int i = from, j = mid, k = from;
+			while (i < mid && j < to)
+				tmp[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+			while (i < mid)
+				tmp[k++] = order[i++];
+			while (j < to)
+				tmp[k++] = order[j++];
+			System.arraycopy(tmp, from, order, from, to - from);
+		}
+
+		/**
+		 * @return the index of the first interval with a key at or after time
+		 */
+		int lowerBound(long time)
+		{
+			int low = 0, high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (keys[mid] < time)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+	}
+
+	final SortedIntervals byStart = new SortedIntervals(true);
+	final SortedIntervals byEnd = new SortedIntervals(false);
+	volatile boolean sorted = true;
+
+	/**
+	 * @param updateType 1 for an insert, -1 for a delete
+	 */
+	public synchronized void add(long start, long end, int updateType)
+	{
+		byStart.add(start, end, updateType);
+		byEnd.add(end, start, updateType);
+		if (!byStart.sorted || !byEnd.sorted)
+			sorted = false;
+	}
+
+	synchronized void ensureSorted()
+	{
+		if (sorted)
+			return;
+		byStart.ensureSorted();
+		byEnd.ensureSorted();
+		sorted = true;
+	}
+
+	/**
+	 * @return the sum of the update types of the intervals that started before time and completed by time,
+	 * an interval ending exactly at time is considered completed
+	 */
+	public long getCompletedSum(long time)
+	{
+		ensureSorted();
+		long sum = byEnd.typeSums[byEnd.lowerBound(time + 1)];
+		//an interval starting and ending at time did not start before it
+		for (int i = byStart.lowerBound(time); i < byStart.size && byStart.keys[i] == time; i++) {
+			if (byStart.others[i] == time)
+				sum -= byStart.types[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the latest end time of the intervals that started before time, 0 if there is none
+	 */
+	public long getLatestEndStartedBefore(long time)
+	{
+		ensureSorted();
+		return byStart.maxOthers[byStart.lowerBound(time)];
+	}
+
+	/**
+	 * @return the intervals that intersect (start, end), as the IntervalTree query returns them
+	 */
+	public List<Interval<Long>> getOverlapping(long start, long end)
+	{
+		ensureSorted();
+		List<Interval<Long>> result = new ArrayList<Interval<Long>>();
+		//started before end and ended after start
+		byStart.collectOthersAfter(1, 0, byStart.keys.length, byStart.lowerBound(end), start, result);
+		return result;
+	}
+
+	public int size()
+	{
+		return byStart.size;
+	}
+}
@@ -83,7 +83,7 @@ public class UpdateProcessorThread extends Thread{
 						String sqlStr = "";
 						int tableId = 1;
 						if(!tenant.equalsIgnoreCase("single")) {
-							tableId = Integer.parseInt(record.getThreadId())+1;
+							tableId = record.getIntThreadId()+1;
 						}
 						sqlStr = "INSERT INTO tupdate"+machineid+"c"+tableId+" (opType, seqid, threadid, rid, starttime, endtime, numofupdate, updatetype) VALUES ("
 								+ "'"
@@ -108,18 +108,7 @@ public class UpdateProcessorThread extends Thread{
 						System.exit(0);
 					} 
 				}else{
-					//add the interval to this resource's interval tree
-					Long updateTypeInLong = 0L;
-					if(record.getUpdatetype().equals("I")) {
-						updateTypeInLong = 1L;
-					}
-					else {
-						updateTypeInLong = -1L;
-					}
-					_updateStats.get(record.getMopType()+"-"+record.getRid()).addInterval(Long.parseLong(record.getStarttime()), Long.parseLong(record.getEndtime()), updateTypeInLong);
-					
-					if (record.getMopType().equals("PENDFRND") || record.getMopType().equals("ACCEPTFRND"))
-						_updateStats.get("TOTALCNT-" + record.getRid()).addInterval(Long.parseLong(record.getStarttime()), Long.parseLong(record.getEndtime()), updateTypeInLong);
+					addInterval(record);
 				}	
 
 			}
@@ -139,6 +128,26 @@ public class UpdateProcessorThread extends Thread{
 	}
 
 
+	/**
+	 * Applies one update record to the update stats of its resource, used by the interval tree approach
+	 * when the records are processed by the caller's thread instead of by starting this thread.
+	 */
+	void process(logObject record) throws InterruptedException {
+		updateResource(record);
+		addInterval(record);
+	}
+
+	/**
+	 * add the interval of the update to this resource's interval tree
+	 */
+	private void addInterval(logObject record) {
+		long updateTypeInLong = record.isInsert() ? 1L : -1L;
+		_updateStats.get(record.getMopType()+"-"+record.getIntRid()).addInterval(record.getLongStarttime(), record.getLongEndtime(), updateTypeInLong);
+
+		if (record.getMopType().equals("PENDFRND") || record.getMopType().equals("ACCEPTFRND"))
+			_updateStats.get("TOTALCNT-" + record.getIntRid()).addInterval(record.getLongStarttime(), record.getLongEndtime(), updateTypeInLong);
+	}
+
 	/**
 	 * @param record
 	 * @throws InterruptedException
@@ -147,82 +156,30 @@ public class UpdateProcessorThread extends Thread{
 	 */
 	private void updateResource(logObject record) throws InterruptedException {
 		_putSemaphore.acquire();
-		resourceUpdateStat newVal = _updateStats.get(record.getMopType()+"-"+record.getRid());
-		if(newVal == null) {//record doesn't exist
-			newVal = new resourceUpdateStat();
-			newVal.setMinStartTime(record.getStarttime());
-			newVal.setMaxEndTime(record.getEndtime());
-			String updateTypeNewValue = (record.getUpdatetype().equalsIgnoreCase("I")) ? "1" : "-1";
-			newVal.setFinalVal(updateTypeNewValue);
-			_updateStats.put(record.getMopType()+"-"+record.getRid(), newVal);
-		}
-		else{
-			String tempValMinS = newVal.getMinStartTime();
-			String tempValMaxE = newVal.getMaxEndTime();
-			String tempValV = newVal.getFinalVal();
-
-			//update min start time if needed
-			if(Long.parseLong(tempValMinS) > Long.parseLong(record.getStarttime()))
-				newVal.setMinStartTime(record.getStarttime());
-			else
-				newVal.setMinStartTime(tempValMinS);
-
-			//update max end  time if needed
-			if(Long.parseLong(tempValMaxE) < Long.parseLong(record.getEndtime())) {
-				newVal.setMaxEndTime(record.getEndtime());
-			}
-			else {
-				newVal.setMaxEndTime(tempValMaxE);
-			}
-			
-			if(record.getUpdatetype().equalsIgnoreCase("I")) {
-				newVal.setFinalVal((Integer.parseInt(tempValV)+1)+"");
-			}
-			else {
-				newVal.setFinalVal((Integer.parseInt(tempValV)-1)+"");
-			}
-		}
-		
+		updateStat(record.getMopType()+"-"+record.getIntRid(), record);
 		if (record.getMopType().equals("ACCEPTFRND") || record.getMopType().equals("PENDFRND")) {
 			// update the TOTALCOUNT number
-			resourceUpdateStat totalCountStats = _updateStats.get("TOTALCNT-"+record.getRid());
-			
-			if(totalCountStats == null) {//record doesn't exist
-				totalCountStats = new resourceUpdateStat();
-				totalCountStats.setMinStartTime(record.getStarttime());
-				totalCountStats.setMaxEndTime(record.getEndtime());
-				String updateTypeNewValue = (record.getUpdatetype().equalsIgnoreCase("I")) ? "1" : "-1";
-				totalCountStats.setFinalVal(updateTypeNewValue);
-				_updateStats.put("TOTALCNT-"+record.getRid(), totalCountStats);
-			}
-			else{
-				String tempValMinS = totalCountStats.getMinStartTime();
-				String tempValMaxE = totalCountStats.getMaxEndTime();
-				String tempValV = totalCountStats.getFinalVal();
-	
-				//update min start time if needed
-				if(Long.parseLong(tempValMinS) > Long.parseLong(record.getStarttime()))
-					totalCountStats.setMinStartTime(record.getStarttime());
-				else
-					totalCountStats.setMinStartTime(tempValMinS);
-	
-				//update max end  time if needed
-				if(Long.parseLong(tempValMaxE) < Long.parseLong(record.getEndtime())) {
-					totalCountStats.setMaxEndTime(record.getEndtime());
-				}
-				else {
-					totalCountStats.setMaxEndTime(tempValMaxE);
-				}
-				
-				if(record.getUpdatetype().equalsIgnoreCase("I")) {
-					totalCountStats.setFinalVal((Integer.parseInt(tempValV)+1)+"");
-				}
-				else {
-					totalCountStats.setFinalVal((Integer.parseInt(tempValV)-1)+"");
-				}
-			} 
+			updateStat("TOTALCNT-"+record.getIntRid(), record);
 		}
-		
 		_putSemaphore.release();
 	}
+
+	private void updateStat(String key, logObject record) {
+		int updateType = record.isInsert() ? 1 : -1;
+		resourceUpdateStat newVal = _updateStats.get(key);
+		if(newVal == null) {//record doesn't exist
+			newVal = new resourceUpdateStat();
+			newVal.setMinStartTime(record.getLongStarttime());
+			newVal.setMaxEndTime(record.getLongEndtime());
+			newVal.setFinalVal(updateType);
+			_updateStats.put(key, newVal);
+			return;
+		}
+		//update min start time and max end time if needed
+		if(newVal.getMinStartTime() > record.getLongStarttime())
+			newVal.setMinStartTime(record.getLongStarttime());
+		if(newVal.getMaxEndTime() < record.getLongEndtime())
+			newVal.setMaxEndTime(record.getLongEndtime());
+		newVal.setFinalVal(newVal.getFinalVal() + updateType);
+	}
 }
\ No newline at end of file
@@ -116,95 +116,6 @@ class Bucket{  //multiple ppl access so atomic counter
 		}
 	}
 }
-/**
- * Reads the log record files and assigns them to the validation threads for being processed
- * merges the stats it gets from the validation threads
- * @author barahman
- *
- */
-class ValidationStatusThread extends Thread{
-	TotalValidationThreadResults _finalRes;
-	boolean timeToStop = false;
-
-	public boolean getTimeToStop(){
-		return timeToStop;
-	}
-	public void setTimeToStop(){
-		timeToStop = true;
-	}
-
-	ValidationStatusThread(TotalValidationThreadResults finalRes){
-		_finalRes = finalRes;
-	}
-
-	public void run(){
-		int count = 0;
-		while(!timeToStop){
-			try {
-				sleep(10000);
-				count++;
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			System.out.println("\t-- "+(count*10)+" secs: Reads are still being validated... NumReadOpsProcessed till now:"+_finalRes.getNumReadOpsProcessed());
-			System.out.println("\t-- "+(count*10)+" secs: Reads are still being validated... NumPruned till now:"+_finalRes.getPruned());
-		}
-	}
-}
-
-
-class TotalValidationThreadResults{
-	AtomicInteger numReadOpsProcessed = null;
-	AtomicInteger numStaleReadsreturned = null;
-	AtomicInteger prunedReads = null;
-
-	public int getNumReadOpsProcessed() {
-		return numReadOpsProcessed.get();
-	}
-	public int getNumStaleReadsreturned() {
-		return numStaleReadsreturned.get();
-	}
-	public int getPruned() {
-		return prunedReads.get();
-	}
-
-	public void incPruned() {
-		int v;
-        do {
-            v = prunedReads.get();
-        } while (!prunedReads.compareAndSet(v, v + 1));
-	}
-	public void incNumStaleReadsreturned() {
-		int v;
-        do {
-            v = numStaleReadsreturned.get();
-        } while (!numStaleReadsreturned.compareAndSet(v, v + 1));
-	}
-	public void incNumReadOpsProcessed() {
-        int v;
-        do {
-            v = numReadOpsProcessed.get();
-        } while (!numReadOpsProcessed.compareAndSet(v, v + 1));
-    }
-
-	public TotalValidationThreadResults(){
-		if(numReadOpsProcessed == null){
-			numReadOpsProcessed = new AtomicInteger();
-			numReadOpsProcessed.set(0);
-		}
-		if(numStaleReadsreturned == null){
-			numStaleReadsreturned = new AtomicInteger();
-			numStaleReadsreturned.set(0);
-		}
-		if(prunedReads == null){
-			prunedReads = new AtomicInteger();
-			prunedReads.set(0);
-		}
-	}
-
-}
-
-
 public class ValidationMainClass{
 
 	private static final boolean verbose = true;
@@ -219,6 +130,12 @@ public class ValidationMainClass{
 	public static final String VALIDATION_BUCKETS_PROPERTY_DEFAULT = "10";
 	public static final String VALIDATION_APPROACH_PROPERTY = "validationapproach";
 	public static final String VALIDATION_APPROACH_PROPERTY_DEFAULT = "novalidation"; //or RDBMS
+	//offline validates the log files after the run, online validates the records while the run is in progress (see OnlineValidator)
+	public static final String VALIDATION_MODE_PROPERTY = "validationmode";
+	public static final String VALIDATION_MODE_PROPERTY_DEFAULT = "offline";
+	//number of threads validating the logs partitioned by resource, 0 validates them with a thread per block of records
+	public static final String VALIDATION_PARTITIONS_PROPERTY = "validationpartitions";
+	public static final String VALIDATION_PARTITIONS_PROPERTY_DEFAULT = "0";
 	public static final String VALIDATION_DBURL_PROPERTY = "validation.url";
 	public static final String VALIDATION_DBURL_PROPERTY_DEFAULT = "jdbc:oracle:thin:@localhost:1521:orcl";
 	public static final String VALIDATION_DBUSER_PROPERTY = "validation.user";
@@ -326,7 +243,27 @@ public class ValidationMainClass{
 		//read the update files for all the threads
 		System.out.println(threadCount);
 		System.out.println(bgNumWorkerThreads);
+		boolean binaryLog = props.getProperty(Client.LOG_FORMAT_PROPERTY, Client.LOG_FORMAT_PROPERTY_DEFAULT).equalsIgnoreCase("binary");
 		for(int i=0; i<threadCount; i++){
+			if(binaryLog){
+				BinaryLogReader reader = null;
+				try {
+					reader = new BinaryLogReader(new File(BinaryLogFormat.fileName(dir, "update", ""+machineid, i)));
+					while (reader.next()) {
+						numTotalUpdates++;
+						updatesToBeProcessed.add(reader.toRecord());
+						if(updatesToBeProcessed.size() == vBlock){
+							sendUpdatesForProcessing(props, updateStats, updatesToBeProcessed, uThreads, semaphore, putSemaphore);
+							updatesToBeProcessed = new Vector<logObject>();
+						}
+					}
+					reader.close();
+				} catch (Exception e) {
+					e.printStackTrace(System.out);
+					System.out.println("Error reading the update log of thread "+ machineid+"-"+i+" "+e.getMessage());
+				}
+				continue;
+			}
 			String line = null;
 			String[] tokens=null;
 			try {
@@ -347,12 +284,7 @@ public class ValidationMainClass{
 					logObject record = new logObject(tokens[0], tokens[1], tokens[2],tokens[3], tokens[4], tokens[5], tokens[6], tokens[7], tokens[8], tokens[9]);
 					updatesToBeProcessed.add(record);
 					if(updatesToBeProcessed.size() == vBlock){
-						semaphore.acquire();
-						//create thread to process the update records
-						UpdateProcessorThread upThread = new UpdateProcessorThread(props, updateStats, updatesToBeProcessed, semaphore, putSemaphore);
-						uThreads.add(upThread);
-						semaphore.release();
-						upThread.start();
+						sendUpdatesForProcessing(props, updateStats, updatesToBeProcessed, uThreads, semaphore, putSemaphore);
 						updatesToBeProcessed = new Vector<logObject>();
 					}
 				}
@@ -374,15 +306,7 @@ public class ValidationMainClass{
 
 		//create a thread to process the remaining ones
 		if(updatesToBeProcessed.size() > 0 ){
-			try {
-				semaphore.acquire();
-			} catch (InterruptedException e) {
-				e.printStackTrace(System.out);
-			}
-			UpdateProcessorThread upThread = new UpdateProcessorThread(props, updateStats, updatesToBeProcessed, semaphore, putSemaphore);
-			uThreads.add(upThread);
-			semaphore.release();
-			upThread.start();
+			sendUpdatesForProcessing(props, updateStats, updatesToBeProcessed, uThreads, semaphore, putSemaphore);
 		}
 		//wait for all other threads to end
 		for(UpdateProcessorThread t: uThreads){
@@ -396,6 +320,23 @@ public class ValidationMainClass{
 	}
 
 
+	private static void sendUpdatesForProcessing(Properties props,
+			ConcurrentHashMap<String, resourceUpdateStat> updateStats,
+			Vector<logObject> updatesToBeProcessed, Vector<UpdateProcessorThread> uThreads,
+			Semaphore semaphore, Semaphore putSemaphore) {
+		try {
+			semaphore.acquire();
+		} catch (InterruptedException e) {
+			e.printStackTrace(System.out);
+		}
+		//create thread to process the update records
+		UpdateProcessorThread upThread = new UpdateProcessorThread(props, updateStats, updatesToBeProcessed, semaphore, putSemaphore);
+		uThreads.add(upThread);
+		semaphore.release();
+		upThread.start();
+	}
+
+
 	public static TotalValidationThreadResults readReadFiles(Properties props, ConcurrentHashMap<String, resourceUpdateStat> updateStats, String dir,  HashMap<Integer, Integer>[] seqTracker, HashMap<String, Integer> initCnt, HashMap<Integer, Integer>[] staleSeqTracker){
 		FileInputStream fstream = null;
 		//discard the reads that don't have updates on their resources or those that happened before first update on their resources, or those happened after last update
@@ -415,8 +356,26 @@ public class ValidationMainClass{
 		vsThread.start();
 		System.out.println("\t-- Created the validation status thread");
 		int toBeProcessedArraySz = 0;
+		boolean binaryLog = props.getProperty(Client.LOG_FORMAT_PROPERTY, Client.LOG_FORMAT_PROPERTY_DEFAULT).equalsIgnoreCase("binary");
 		try{
 			for(int i=0; i<threadCount; i++){
+				if(binaryLog){
+					BinaryLogReader reader = new BinaryLogReader(new File(BinaryLogFormat.fileName(dir, "read", ""+machineid, i)));
+					while (reader.next()) {
+						toBeProcessed[toBeProcessedArraySz] = reader.toRecord();
+						toBeProcessedArraySz++;
+						if(readToValidate == toBeProcessedArraySz){
+							sendReadsForProcessing(props, updateStats, seqTracker, initCnt,
+									staleSeqTracker, toBeProcessed, vThreads, semaphore,
+									finalResults, staleSeqSemaphore, seenSeqSemaphore,
+									toBeProcessedArraySz);
+							toBeProcessedArraySz = 0;
+							toBeProcessed = new logObject[readToValidate];
+						}
+					}
+					reader.close();
+					continue;
+				}
 				fstream = new FileInputStream(dir+"//read"+machineid+"-"+i + ".txt");
 				DataInputStream in = new DataInputStream(fstream);
 				BufferedReader br = new BufferedReader(new InputStreamReader(in));
@@ -540,10 +499,17 @@ public class ValidationMainClass{
 		int numBuckets = initFreshnessBucket(props);
 
 		long validationStart = System.currentTimeMillis();
+		int numPartitions = Integer.parseInt(props.getProperty(VALIDATION_PARTITIONS_PROPERTY, VALIDATION_PARTITIONS_PROPERTY_DEFAULT));
+		PartitionedValidator partitioned = null;
+		if(numPartitions > 0 && !approach.equalsIgnoreCase("RDBMS"))
+			partitioned = new PartitionedValidator(props, numPartitions, initCnt);
 		//read all the updates and update UpdateStats
 		System.out.println("\t-- Starting to read update files...");
 		long fileReadStart = System.currentTimeMillis();
-		numUpdates = readUpdateFiles(props, updateStats, dir);
+		if(partitioned != null)
+			numUpdates = partitioned.readUpdateFiles(dir);
+		else
+			numUpdates = readUpdateFiles(props, updateStats, dir);
 		if(ratingMode.equals("true")){
 			outpS.write("UpdatesInDB ");
 			outpS.flush();
@@ -556,7 +522,11 @@ public class ValidationMainClass{
 		//create validation status thread
 		System.out.println("\t-- Starting to read the read files...");
 		fileReadStart = System.currentTimeMillis();
-		TotalValidationThreadResults finalRes = readReadFiles(props, updateStats, dir, seqTracker, initCnt, staleSeqTracker);
+		TotalValidationThreadResults finalRes;
+		if(partitioned != null)
+			finalRes = partitioned.readReadFiles(dir, seqTracker, staleSeqTracker);
+		else
+			finalRes = readReadFiles(props, updateStats, dir, seqTracker, initCnt, staleSeqTracker);
 		System.out.println("\t-- Done reading read files...");
 		System.out.println("\t-- ReadValidationDuration(ms):"+(System.currentTimeMillis()-fileReadStart));
 		if(ratingMode.equals("true")){
@@ -566,6 +536,19 @@ public class ValidationMainClass{
 			outpS.flush();
 		}
 
+		populateValidationStats(props, finalRes, numUpdates, numBuckets, seqTracker, staleSeqTracker, expStat, validationStart);
+		if(ratingMode.equals("true")){
+			outpS.write("PopulateStats ");
+			outpS.flush();
+		}
+
+	}
+
+	/**
+	 * prints the staleness and freshness of the validated reads and populates the experiment stats with them
+	 */
+	static void populateValidationStats(Properties props, TotalValidationThreadResults finalRes, int numUpdates, int numBuckets,
+			HashMap<Integer, Integer>[] seqTracker, HashMap<Integer, Integer>[] staleSeqTracker, ClientDataStats expStat, long validationStart){
 		//print out freshsness stats
 		printFreshnessBuckets(numBuckets);
 
@@ -600,11 +583,6 @@ public class ValidationMainClass{
 		expStat.setNumReadSessions((double)totalSeq);
 		expStat.setNumStaleSessions((double)totalStaleSeq);
 		expStat.setValidationTime((double)(System.currentTimeMillis()-validationStart));
-		if(ratingMode.equals("true")){
-			outpS.write("PopulateStats ");
-			outpS.flush();
-		}
-
 	}
 
 	/**
@@ -655,7 +633,7 @@ public class ValidationMainClass{
 	 * @param props
 	 * return
 	 */
-	private static int initFreshnessBucket(Properties props) {
+	static int initFreshnessBucket(Properties props) {
 		int executiontimemsec =(int) (Double.parseDouble(props.getProperty(Client.MAX_EXECUTION_TIME, Client.MAX_EXECUTION_TIME_DEFAULT))*1000);
 		int numBuckets = Integer.parseInt(props.getProperty(VALIDATION_BUCKETS_PROPERTY, VALIDATION_BUCKETS_PROPERTY_DEFAULT));
 		bucketDuration = executiontimemsec/numBuckets;
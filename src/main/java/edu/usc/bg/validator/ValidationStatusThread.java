@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+/**
+ * Reads the log record files and assigns them to the validation threads for being processed
+ * merges the stats it gets from the validation threads
+ * @author barahman
+ *
+ */
+class ValidationStatusThread extends Thread{
+	TotalValidationThreadResults _finalRes;
+	boolean timeToStop = false;
+
+	public boolean getTimeToStop(){
+		return timeToStop;
+	}
+	public void setTimeToStop(){
+		timeToStop = true;
+	}
+
+	ValidationStatusThread(TotalValidationThreadResults finalRes){
+		_finalRes = finalRes;
+	}
+
+	public void run(){
+		int count = 0;
+		while(!timeToStop){
+			try {
+				sleep(10000);
+				count++;
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			System.out.println("\t-- "+(count*10)+" secs: Reads are still being validated... NumReadOpsProcessed till now:"+_finalRes.getNumReadOpsProcessed());
+			System.out.println("\t-- "+(count*10)+" secs: Reads are still being validated... NumPruned till now:"+_finalRes.getPruned());
+		}
+	}
+}
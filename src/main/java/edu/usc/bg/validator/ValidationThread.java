@@ -79,6 +79,15 @@ public class ValidationThread extends Thread {
 		_bucketDuration = bucketDuration;
 	}
 
+	/**
+	 * validates the reads in the caller's thread, used when the same object validates all the reads of a partition
+	 */
+	void validate(logObject[] toBeProcessed, int actualCount) {
+		_toProcess = toBeProcessed;
+		_actualCount = actualCount;
+		run();
+	}
+
 	public void run() {
 
 		Connection conn = null;
@@ -130,14 +139,15 @@ public class ValidationThread extends Thread {
 						continue;
 				_finalResults.incNumReadOpsProcessed();
 				// get the resource id for the res
-				int threadid = Integer.parseInt(record.getThreadId());
-				int seqid = Integer.parseInt(record.getSeqId());
-				int rid = Integer.parseInt(record.getRid());
-				String start = record.getStarttime();
-				String end = record.getEndtime();
-				int val = Integer.parseInt(record.getValue());
+				int threadid = record.getIntThreadId();
+				int seqid = record.getIntSeqId();
+				int rid = record.getIntRid();
+				long start = record.getLongStarttime();
+				long end = record.getLongEndtime();
+				int val = record.getIntValue();
 				String opType = record.getMopType();
-				long freshnessReadStart = Long.parseLong(start);
+				String key = opType + "-" + rid;
+				long freshnessReadStart = start;
 				long freshnessLatestUpdateEnd = 0L;
 				
 
@@ -160,10 +170,10 @@ public class ValidationThread extends Thread {
 					}
 					stmt = conn.createStatement();
 					rs = stmt.executeQuery(query);
-					if( _initStats.get(opType+"-"+rid) == null)
+					if( _initStats.get(key) == null)
 						numCompleted = 0;
 					else 
-						numCompleted = _initStats.get(opType+"-"+rid);
+						numCompleted = _initStats.get(key);
 					freshnessLatestUpdateEnd = 0;
 					while(rs.next()){
 						if(rs.getString("updatetype").equalsIgnoreCase("I"))
@@ -224,38 +234,16 @@ public class ValidationThread extends Thread {
 				}else{
 					//query for prev completed till the start read time
 					//if update end kisses read start it is considered as already completed
-					List<Interval<Long>> completedResult=null;
-					completedResult = _resUpdateDetails.get(opType+"-"+rid).queryIntervalTree(0, Long.parseLong(start));
-					if( _initStats.get(opType+"-"+rid) == null)
-						numCompleted = 0;
-					else 
-						numCompleted = _initStats.get(opType+"-"+rid);
-
-					boolean hasDuplicate = false;
-					freshnessLatestUpdateEnd = 0L;
-					for (int j=0; j < completedResult.size(); j++){
-						hasDuplicate = false;
-						if(completedResult.get(j).getEnd() > freshnessLatestUpdateEnd)
-							freshnessLatestUpdateEnd = completedResult.get(j).getEnd();
-						//check if the completed interval has the start of the read in it
-						//if it has it then it has already been counted in overlapping
-						//check if the interval picked as prev completed contains the start time 
-						//that means this is an interval that completes after the start and will be counted
-						//in overlapping intervals
-						if(completedResult.get(j).contains(Long.parseLong(start)))
-							hasDuplicate = true;
-
-						if(!hasDuplicate){
-							if(completedResult.get(j).getData()== 1)
-								numCompleted++;
-							else
-								numCompleted--;
-						}
-					}
+					//an update that completes after the start is counted in the overlapping ones instead
+					resourceUpdateStat completedStat = _resUpdateDetails.get(key);
+					Integer initCnt = _initStats.get(key);
+					numCompleted = initCnt == null ? 0 : initCnt;
+					numCompleted += completedStat.getNumCompleted(start);
+					freshnessLatestUpdateEnd = completedStat.getLatestUpdateEnd(start);
 					
 				
 					validValues.clear();
-					List<Interval<Long>> overlapResult = _resUpdateDetails.get(opType+"-"+rid).queryIntervalTree(Long.parseLong(start), Long.parseLong(end));
+					List<Interval<Long>> overlapResult = completedStat.queryIntervalTree(start, end);
 					validValues = getValidValues(start, end, numCompleted, overlapResult);
 					
 				}
@@ -289,14 +277,14 @@ public class ValidationThread extends Thread {
 					
 					try {
 						_staleSeqSemaphore.acquire();
-						if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+						if (_staleSeqTracker[record.getIntThreadId()] == null) {
 							HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-							valLst.put(Integer.parseInt(record.getSeqId()),-1);
-							_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-						} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-							HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-							valLst.put(Integer.parseInt(record.getSeqId()),-1);
-							//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+							valLst.put(record.getIntSeqId(),-1);
+							_staleSeqTracker[record.getIntThreadId()]=valLst;
+						} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+							HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+							valLst.put(record.getIntSeqId(),-1);
+							//_staleSeqTracker[record.getIntThreadId()]=valLst;
 						}
 						_staleSeqSemaphore.release();
 					} catch (InterruptedException e) {
@@ -328,38 +316,18 @@ public class ValidationThread extends Thread {
 							
 								//query for prev completed till the start read time
 								//if update end kisses read start it is considered as already completed
-								List<Interval<Long>> completedResult=null;
-								completedResult = _resUpdateDetails.get("TOTALCNT-"+rid).queryIntervalTree(0, Long.parseLong(start));
+								//an update that completes after the start is counted in the overlapping ones instead
+								resourceUpdateStat completedStat = _resUpdateDetails.get("TOTALCNT-"+rid);
 								if( _initStats.get("TOTALCNT-"+rid) == null)
 									numCompleted = 0;
 								else 
 									numCompleted = _initStats.get("TOTALCNT-"+rid);
-
-								boolean hasDuplicate = false;
-								freshnessLatestUpdateEnd = 0L;
-								for (int j=0; j < completedResult.size(); j++){
-									hasDuplicate = false;
-									if(completedResult.get(j).getEnd() > freshnessLatestUpdateEnd)
-										freshnessLatestUpdateEnd = completedResult.get(j).getEnd();
-									//check if the completed interval has the start of the read in it
-									//if it has it then it has already been counted in overlapping
-									//check if the interval picked as prev completed contains the start time 
-									//that means this is an interval that completes after the start and will be counted
-									//in overlapping intervals
-									if(completedResult.get(j).contains(Long.parseLong(start)))
-										hasDuplicate = true;
-
-									if(!hasDuplicate){
-										if(completedResult.get(j).getData()== 1)
-											numCompleted++;
-										else
-											numCompleted--;
-									}
-								}
+								numCompleted += completedStat.getNumCompleted(start);
+								freshnessLatestUpdateEnd = completedStat.getLatestUpdateEnd(start);
 								
 								Set<Integer> totalValidValues = new TreeSet<Integer>();
 								totalValidValues.clear();
-								List<Interval<Long>> overlapResult = _resUpdateDetails.get("TOTALCNT-"+rid).queryIntervalTree(Long.parseLong(start), Long.parseLong(end));
+								List<Interval<Long>> overlapResult = _resUpdateDetails.get("TOTALCNT-"+rid).queryIntervalTree(start, end);
 								totalValidValues = getValidValues(start, end, numCompleted, overlapResult);
 
 								
@@ -377,14 +345,14 @@ public class ValidationThread extends Thread {
 										
 										try {
 											_staleSeqSemaphore.acquire();
-											if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+											if (_staleSeqTracker[record.getIntThreadId()] == null) {
 												HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-												valLst.put(Integer.parseInt(record.getSeqId()),-1);
-												_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-											} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-												HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-												valLst.put(Integer.parseInt(record.getSeqId()),-1);
-												//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+												valLst.put(record.getIntSeqId(),-1);
+												_staleSeqTracker[record.getIntThreadId()]=valLst;
+											} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+												HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+												valLst.put(record.getIntSeqId(),-1);
+												//_staleSeqTracker[record.getIntThreadId()]=valLst;
 											}
 											_staleSeqSemaphore.release();
 										} catch (InterruptedException e) {
@@ -463,33 +431,34 @@ public class ValidationThread extends Thread {
 		// add sequence to sequences seen by this thread
 		try {
 			_seqSemaphore.acquire();
-			if (_seqTracker[Integer.parseInt(record.getThreadId())] == null) {
+			if (_seqTracker[record.getIntThreadId()] == null) {
 				HashMap<Integer, Integer> valLst = new HashMap<Integer,Integer>();
-				valLst.put(Integer.parseInt(record.getSeqId()),-1);
-				_seqTracker[Integer.parseInt(record.getThreadId())]= valLst;
-			} else if (_seqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-				_seqTracker[Integer.parseInt(record.getThreadId())].put(Integer.parseInt(record.getSeqId()),-1);
+				valLst.put(record.getIntSeqId(),-1);
+				_seqTracker[record.getIntThreadId()]= valLst;
+			} else if (_seqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+				_seqTracker[record.getIntThreadId()].put(record.getIntSeqId(),-1);
 			}
 			_seqSemaphore.release();
 		} catch (InterruptedException e1) {
 			e1.printStackTrace();
 		}
 
-		if(_resUpdateDetails.get(record.getMopType()+"-"+record.getRid()) == null){ //never updated
+		String key = record.getMopType() + "-" + record.getIntRid();
+		if(_resUpdateDetails.get(key) == null){ //never updated
 			//discard for freshness computation
 			_finalResults.incPruned();
 			int cmpVal =0;
-			if(_initStats.get(record.getMopType()+"-"+record.getRid()) == null)
+			if(_initStats.get(key) == null)
 				cmpVal = 0;
 			else 
-				cmpVal = _initStats.get(record.getMopType()+"-"+record.getRid());
-			if(Integer.parseInt(record.getValue()) != cmpVal){
+				cmpVal = _initStats.get(key);
+			if(record.getIntValue() != cmpVal){
 				_finalResults.incNumStaleReadsreturned();
 				int inVal = 0;
-				if(_initStats.get(record.getMopType()+"-"+record.getRid()) == null)
+				if(_initStats.get(key) == null)
 					inVal = 0;
 				else
-					inVal = _initStats.get(record.getMopType()+"-"+record.getRid());
+					inVal = _initStats.get(key);
 
 				if (verbose)
 				{
@@ -504,14 +473,14 @@ public class ValidationThread extends Thread {
 				}
 				try {
 					_staleSeqSemaphore.acquire();
-					if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+					if (_staleSeqTracker[record.getIntThreadId()] == null) {
 						HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-					} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-						HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+						valLst.put(record.getIntSeqId(),-1);
+						_staleSeqTracker[record.getIntThreadId()]=valLst;
+					} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+						HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+						valLst.put(record.getIntSeqId(),-1);
+						//_staleSeqTracker[record.getIntThreadId()]=valLst;
 					}
 					_staleSeqSemaphore.release();
 				} catch (InterruptedException e) {
@@ -521,17 +490,17 @@ public class ValidationThread extends Thread {
 
 			return true;
 		}else{
-			resourceUpdateStat updateLogStat = _resUpdateDetails.get(record.getMopType()+"-"+record.getRid());
+			resourceUpdateStat updateLogStat = _resUpdateDetails.get(key);
 			//check if read before first update
-			if(Long.parseLong(record.getEndtime()) < Long.parseLong(updateLogStat.getMinStartTime())){
+			if(record.getLongEndtime() < updateLogStat.getMinStartTime()){
 				//discard for freshness calculations
 				_finalResults.incPruned();
 				int cmpVal = 0;
-				if( _initStats.get(record.getMopType()+"-"+record.getRid()) == null  )
+				if( _initStats.get(key) == null  )
 					cmpVal = 0;
 				else
-					cmpVal = _initStats.get(record.getMopType()+"-"+record.getRid());
-				if(Integer.parseInt(record.getValue()) != cmpVal ){
+					cmpVal = _initStats.get(key);
+				if(record.getIntValue() != cmpVal ){
 					_finalResults.incNumStaleReadsreturned();
 
 					if(verbose)
@@ -547,14 +516,14 @@ public class ValidationThread extends Thread {
 					}
 					try {
 						_staleSeqSemaphore.acquire();
-						if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+						if (_staleSeqTracker[record.getIntThreadId()] == null) {
 							HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-							valLst.put(Integer.parseInt(record.getSeqId()),-1);
-							_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-						} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-							HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-							valLst.put(Integer.parseInt(record.getSeqId()),-1);
-							//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+							valLst.put(record.getIntSeqId(),-1);
+							_staleSeqTracker[record.getIntThreadId()]=valLst;
+						} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+							HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+							valLst.put(record.getIntSeqId(),-1);
+							//_staleSeqTracker[record.getIntThreadId()]=valLst;
 						}
 						_staleSeqSemaphore.release();
 					} catch (InterruptedException e) {
@@ -562,40 +531,40 @@ public class ValidationThread extends Thread {
 					}
 				}
 				return true;
-			}else if(Long.parseLong(record.getStarttime()) > Long.parseLong(updateLogStat.getMaxEndTime())){ 
+			}else if(record.getLongStarttime() > updateLogStat.getMaxEndTime()){ 
 				//check if after last update
-				long freshnessReadStart = Long.parseLong(record.getStarttime());
-				long freshnessLatesUpdateEnd = Long.parseLong(updateLogStat.getMaxEndTime());
+				long freshnessReadStart = record.getLongStarttime();
+				long freshnessLatesUpdateEnd = updateLogStat.getMaxEndTime();
 				int freshnessBucketIdx =(int) ((freshnessReadStart - freshnessLatesUpdateEnd)/1000000)/_bucketDuration; //converting to msec
 				_finalResults.incPruned();
 				int inVal = 0;
-				if(_initStats.get(record.getMopType()+"-"+record.getRid()) == null)
+				if(_initStats.get(key) == null)
 					inVal = 0;
 				else
-					inVal =_initStats.get(record.getMopType()+"-"+record.getRid());
-				if(Integer.parseInt(record.getValue()) != (Integer.parseInt(updateLogStat.getFinalVal())+inVal)){
+					inVal =_initStats.get(key);
+				if(record.getIntValue() != (updateLogStat.getFinalVal()+inVal)){
 					_finalResults.incNumStaleReadsreturned();
 					if (verbose)
 					{
 						System.out.println("after update case: Data was stale for " + record.getMopType() + ": "
 								+ record.getSeqId() + "-" + record.getThreadId() + "-" + record.getRid()
 								+ ": Range is between "
-								+ (Integer.parseInt(updateLogStat.getFinalVal())+inVal)
+								+ (updateLogStat.getFinalVal()+inVal)
 								+ "-"
-								+ (Integer.parseInt(updateLogStat.getFinalVal())+inVal)
+								+ (updateLogStat.getFinalVal()+inVal)
 								+ " value Read is=" + record.getValue());
 						 
 					}
 					try {
 						_staleSeqSemaphore.acquire();
-						if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+						if (_staleSeqTracker[record.getIntThreadId()] == null) {
 							HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-							valLst.put(Integer.parseInt(record.getSeqId()),-1);
-							_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-						} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-							HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-							valLst.put(Integer.parseInt(record.getSeqId()),-1);
-							//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+							valLst.put(record.getIntSeqId(),-1);
+							_staleSeqTracker[record.getIntThreadId()]=valLst;
+						} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+							HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+							valLst.put(record.getIntSeqId(),-1);
+							//_staleSeqTracker[record.getIntThreadId()]=valLst;
 						}
 						_staleSeqSemaphore.release();
 					} catch (InterruptedException e) {
@@ -614,13 +583,13 @@ public class ValidationThread extends Thread {
 		return false;
 	}
 
-	private TreeSet<Integer> getValidValues(String start, String end,
+	private TreeSet<Integer> getValidValues(long start, long end,
 			int numCompleted, List<Interval<Long>> overlapResult) {
 		// sort the overlapping intervals based on their end time
 		SortedMap<Long, Integer> endSortedIntervals = new TreeMap<Long, Integer>();
 		//assuming we have one big interval that starts at time 0 and ends at "start" and has a value of numCompleted
 		//so we know till "start" the value of read is definitely numCompleted
-		endSortedIntervals.put(Long.parseLong(start), numCompleted);
+		endSortedIntervals.put(start, numCompleted);
 		//scan through all the overlapping intervals and for every end timestamp find the update types completed exactly at that point
 		//that is finding all the other overlapping ones that have been completed exactly at that end time for any interval
 		for (Interval<Long> interval : overlapResult){
@@ -692,12 +661,12 @@ public class ValidationThread extends Thread {
 		// add sequence to sequences seen by this thread
 		try {
 			_seqSemaphore.acquire();
-			if (_seqTracker[Integer.parseInt(record.getThreadId())] == null) {
+			if (_seqTracker[record.getIntThreadId()] == null) {
 				HashMap<Integer, Integer> valLst = new HashMap<Integer,Integer>();
-				valLst.put(Integer.parseInt(record.getSeqId()),-1);
-				_seqTracker[Integer.parseInt(record.getThreadId())]= valLst;
-			} else if (_seqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-				_seqTracker[Integer.parseInt(record.getThreadId())].put(Integer.parseInt(record.getSeqId()),-1);
+				valLst.put(record.getIntSeqId(),-1);
+				_seqTracker[record.getIntThreadId()]= valLst;
+			} else if (_seqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+				_seqTracker[record.getIntThreadId()].put(record.getIntSeqId(),-1);
 			}
 			_seqSemaphore.release();
 		} catch (InterruptedException e1) {
@@ -706,7 +675,7 @@ public class ValidationThread extends Thread {
 			
 		//if shortest path
 		if((record.getMopType().contains(SHORTEST_DISTANCE))){
-			int cmpVal = computeActualDistance(CoreWorkload.memberIdxs.get(Integer.parseInt(record.getRid())),CoreWorkload.memberIdxs.get(Integer.parseInt(record.getValue().split("#")[0])),CoreWorkload.memberIdxs.size());
+			int cmpVal = computeActualDistance(CoreWorkload.memberIdxs.get(record.getIntRid()),CoreWorkload.memberIdxs.get(Integer.parseInt(record.getValue().split("#")[0])),CoreWorkload.memberIdxs.size());
 			if(Integer.parseInt(record.getValue().split("#")[1]) != cmpVal){
 				_finalResults.incNumStaleReadsreturned();
 				if (verbose)
@@ -720,14 +689,14 @@ public class ValidationThread extends Thread {
 				}
 				try {
 					_staleSeqSemaphore.acquire();
-					if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+					if (_staleSeqTracker[record.getIntThreadId()] == null) {
 						HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-					} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-						HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+						valLst.put(record.getIntSeqId(),-1);
+						_staleSeqTracker[record.getIntThreadId()]=valLst;
+					} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+						HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+						valLst.put(record.getIntSeqId(),-1);
+						//_staleSeqTracker[record.getIntThreadId()]=valLst;
 					}
 					_staleSeqSemaphore.release();
 				} catch (InterruptedException e) {
@@ -736,7 +705,7 @@ public class ValidationThread extends Thread {
 			}
 		}else if ((record.getMopType().contains(LIST_COMMON))){
 			//the first value in the recor's value attribute is the second member id
-			HashMap<String, String> cmpVal = computeCommon(CoreWorkload.memberIdxs.get(Integer.parseInt(record.getRid())),CoreWorkload.memberIdxs.get(Integer.parseInt(record.getValue().split("#")[0])),CoreWorkload.memberIdxs.size());
+			HashMap<String, String> cmpVal = computeCommon(CoreWorkload.memberIdxs.get(record.getIntRid()),CoreWorkload.memberIdxs.get(Integer.parseInt(record.getValue().split("#")[0])),CoreWorkload.memberIdxs.size());
 			if(!compareArrayHashMap( (record.getValue().substring(record.getValue().indexOf("#")+1)).split("#"), cmpVal)){
 				_finalResults.incNumStaleReadsreturned();
 				if (verbose)
@@ -750,14 +719,14 @@ public class ValidationThread extends Thread {
 				}
 				try {
 					_staleSeqSemaphore.acquire();
-					if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+					if (_staleSeqTracker[record.getIntThreadId()] == null) {
 						HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-					} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-						HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+						valLst.put(record.getIntSeqId(),-1);
+						_staleSeqTracker[record.getIntThreadId()]=valLst;
+					} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+						HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+						valLst.put(record.getIntSeqId(),-1);
+						//_staleSeqTracker[record.getIntThreadId()]=valLst;
 					}
 					_staleSeqSemaphore.release();
 				} catch (InterruptedException e) {
@@ -766,7 +735,7 @@ public class ValidationThread extends Thread {
 			}
 			
 		}else if ((record.getMopType().contains(LIST_FOF))){
-			HashMap<String, String> cmpVal = computeFoF(CoreWorkload.memberIdxs.get(Integer.parseInt(record.getRid())),CoreWorkload.memberIdxs.size());
+			HashMap<String, String> cmpVal = computeFoF(CoreWorkload.memberIdxs.get(record.getIntRid()),CoreWorkload.memberIdxs.size());
 			if(!compareArrayHashMap(record.getValue().split("#"), cmpVal)){
 				_finalResults.incNumStaleReadsreturned();
 				if (verbose)
@@ -780,14 +749,14 @@ public class ValidationThread extends Thread {
 				}
 				try {
 					_staleSeqSemaphore.acquire();
-					if (_staleSeqTracker[Integer.parseInt(record.getThreadId())] == null) {
+					if (_staleSeqTracker[record.getIntThreadId()] == null) {
 						HashMap<Integer, Integer> valLst = new HashMap<Integer, Integer>();
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
-					} else if (_staleSeqTracker[Integer.parseInt(record.getThreadId())].get(Integer.parseInt(record.getSeqId())) == null) {
-						HashMap<Integer,Integer> valLst = _staleSeqTracker[Integer.parseInt(record.getThreadId())];
-						valLst.put(Integer.parseInt(record.getSeqId()),-1);
-						//_staleSeqTracker[Integer.parseInt(record.getThreadId())]=valLst;
+						valLst.put(record.getIntSeqId(),-1);
+						_staleSeqTracker[record.getIntThreadId()]=valLst;
+					} else if (_staleSeqTracker[record.getIntThreadId()].get(record.getIntSeqId()) == null) {
+						HashMap<Integer,Integer> valLst = _staleSeqTracker[record.getIntThreadId()];
+						valLst.put(record.getIntSeqId(),-1);
+						//_staleSeqTracker[record.getIntThreadId()]=valLst;
 					}
 					_staleSeqSemaphore.release();
 				} catch (InterruptedException e) {
@@ -16,26 +16,66 @@
  * permissions and limitations under the License. See accompanying                                                                                                                 
  * LICENSE file.                                                                                                                                                                   
  */
-
-
 package edu.usc.bg.validator;
 
+/**
+ * A read or update log record.
+ * The numeric fields are kept as primitives, the validation threads read them with the getInt/getLong getters.
+ * A record of a text log is parsed once when it is created, a record of a binary log is created from the decoded
+ * fields and its String getters format the numbers only when they are called.
+ */
 public class logObject {
 	String optype="", mopType="", seqId, threadId, rid, value, starttime, endtime, updatetype; //only for update log records
 	String actionType;
+	int intSeqId, intThreadId, intRid;
+	long longStarttime, longEndtime;
+	//BinaryLogFormat.NO_VALUE when the value is not a number, e.g. the values of the graph actions
+	long longValue = BinaryLogFormat.NO_VALUE;
 	
 	public logObject(String opt, String mot, String sid, String tid, String resid, String start, String end, String val, String type, String actionType){
 		optype=opt;
 		mopType = mot;
-		seqId = sid;
-		threadId = tid;
-		rid = resid;
-		value = val;
-		starttime = start;
-		endtime=end;
+		setSeqId(sid);
+		setThreadId(tid);
+		setRid(resid);
+		setValue(val);
+		setStarttime(start);
+		setEndtime(end);
 		updatetype = type;
 		this.actionType = actionType;
 	}
+
+	/**
+	 * Creates a record from the fields of a binary log record.
+	 */
+	public logObject(byte opCode, byte mopCode, int seqId, int threadId, int rid, long start, long end, long value, byte updateTypeCode, byte actionTypeCode){
+		optype = BinaryLogFormat.name(BinaryLogFormat.OP_TYPES, opCode);
+		mopType = BinaryLogFormat.name(BinaryLogFormat.MOP_TYPES, mopCode);
+		updatetype = BinaryLogFormat.name(BinaryLogFormat.UPDATE_TYPES, updateTypeCode);
+		actionType = BinaryLogFormat.name(BinaryLogFormat.ACTION_TYPES, actionTypeCode);
+		intSeqId = seqId;
+		intThreadId = threadId;
+		intRid = rid;
+		longStarttime = start;
+		longEndtime = end;
+		longValue = value;
+	}
+
+	static int parseInt(String s) {
+		try {
+			return Integer.parseInt(s);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	static long parseLong(String s, long invalid) {
+		try {
+			return Long.parseLong(s);
+		} catch (NumberFormatException e) {
+			return invalid;
+		}
+	}
 	
 	public String getActionType() {
 		return actionType;
@@ -60,57 +100,111 @@ public class logObject {
 	}
 
 	public String getSeqId() {
+		if (seqId == null)
+			seqId = Integer.toString(intSeqId);
 		return seqId;
 	}
 
+	public int getIntSeqId() {
+		return intSeqId;
+	}
+
 	public void setSeqId(String seqId) {
 		this.seqId = seqId;
+		intSeqId = parseInt(seqId);
 	}
 
 	public String getThreadId() {
+		if (threadId == null)
+			threadId = Integer.toString(intThreadId);
 		return threadId;
 	}
 
+	public int getIntThreadId() {
+		return intThreadId;
+	}
+
 	public void setThreadId(String threadId) {
 		this.threadId = threadId;
+		intThreadId = parseInt(threadId);
 	}
 
 	public String getRid() {
+		if (rid == null)
+			rid = Integer.toString(intRid);
 		return rid;
 	}
 
+	public int getIntRid() {
+		return intRid;
+	}
+
 	public void setRid(String rid) {
 		this.rid = rid;
+		intRid = parseInt(rid);
 	}
 
 	public String getValue() {
+		if (value == null)
+			value = longValue == BinaryLogFormat.NO_VALUE ? "null" : Long.toString(longValue);
 		return value;
 	}
 
+	/**
+	 * @return the value, BinaryLogFormat.NO_VALUE if it is not a number
+	 */
+	public long getLongValue() {
+		return longValue;
+	}
+
+	public int getIntValue() {
+		return (int) longValue;
+	}
+
 	public void setValue(String value) {
 		this.value = value;
+		longValue = parseLong(value, BinaryLogFormat.NO_VALUE);
 	}
 
 	public String getStarttime() {
+		if (starttime == null)
+			starttime = Long.toString(longStarttime);
 		return starttime;
 	}
 
+	public long getLongStarttime() {
+		return longStarttime;
+	}
+
 	public void setStarttime(String starttime) {
 		this.starttime = starttime;
+		longStarttime = parseLong(starttime, -1);
 	}
 
 	public String getEndtime() {
+		if (endtime == null)
+			endtime = Long.toString(longEndtime);
 		return endtime;
 	}
 
+	public long getLongEndtime() {
+		return longEndtime;
+	}
+
 	public void setEndtime(String endtime) {
 		this.endtime = endtime;
+		longEndtime = parseLong(endtime, -1);
 	}
 
 	public String getUpdatetype() {
 		return updatetype;
 	}
 
+	//true for an update that inserts, false for one that deletes
+	public boolean isInsert() {
+		return "I".equalsIgnoreCase(updatetype);
+	}
+
 	public void setUpdatetype(String updatetype) {
 		this.updatetype = updatetype;
 	}
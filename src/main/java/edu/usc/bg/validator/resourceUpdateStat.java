@@ -31,17 +31,18 @@ public class resourceUpdateStat {
 	//the min time when an update started on this resource
 	//the max time when an update ended on this resource
 	//the final value expected for this resource
-	//timeIntTree is used when the intervaltree approach is used for validation
+	//timeIndex is used when the intervaltree approach is used for validation
 
-	String minStartTime="0", maxEndTime="0", finalVal="0";
-	IntervalTree<Long> timeIntTree = new IntervalTree<Long>();  //there should be only one instance of this for every resource
+	long minStartTime=0, maxEndTime=0;
+	int finalVal=0;
+	UpdateIntervalIndex timeIndex = new UpdateIntervalIndex();  //there should be only one instance of this for every resource
 	
 	resourceUpdateStat(){
 
 	}
 
-	public synchronized void addInterval(long start, long end, long updateType){
-		timeIntTree.addInterval(start, end, updateType);
+	public void addInterval(long start, long end, long updateType){
+		timeIndex.add(start, end, (int) updateType);
 		//List<Interval<Long>> its = timeIntTree.getIntervals(start, end);
 		//System.out.println(((Interval<Long>)(its.get(0))).getData()+" "+((Interval<Long>)(its.get(0))).getStart()+" "+((Interval<Long>)(its.get(0))).getEnd());
 		/*List<Long> its2 = timeIntTree.get(start, end);
@@ -49,32 +50,44 @@ public class resourceUpdateStat {
 		*/
 	}
 	
+	//the intervals overlapping the read (start, end)
 	public List<Interval<Long>> queryIntervalTree(long start, long end){
-		return timeIntTree.getIntervals(start, end);
+		return timeIndex.getOverlapping(start, end);
+	}
+
+	//net number of inserts minus deletes completed before the read start time
+	//if update end kisses read start it is considered as already completed
+	public int getNumCompleted(long start){
+		return (int) timeIndex.getCompletedSum(start);
+	}
+
+	//latest end time of the updates that started before the read start time, 0 if there is none
+	public long getLatestUpdateEnd(long start){
+		return timeIndex.getLatestEndStartedBefore(start);
 	}
 	
 	
-	public String getMinStartTime() {
+	public long getMinStartTime() {
 		return minStartTime;
 	}
 
-	public void setMinStartTime(String minStartTime) {
+	public void setMinStartTime(long minStartTime) {
 		this.minStartTime = minStartTime;
 	}
 
-	public String getMaxEndTime() {
+	public long getMaxEndTime() {
 		return maxEndTime;
 	}
 
-	public void setMaxEndTime(String maxEndTime) {
+	public void setMaxEndTime(long maxEndTime) {
 		this.maxEndTime = maxEndTime;
 	}
 
-	public String getFinalVal() {
+	public int getFinalVal() {
 		return finalVal;
 	}
 
-	public void setFinalVal(String finalVal) {
+	public void setFinalVal(int finalVal) {
 		this.finalVal = finalVal;
 	}
 
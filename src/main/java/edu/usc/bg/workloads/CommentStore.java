@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Keeps the ids of the comments posted on every resource of the BG client and the largest comment id
+ * given out per resource, as int arrays. The operations on a resource lock one of a fixed set of stripes
+ * so threads posting and deleting comments on different resources rarely wait on each other.
+ */
+public class CommentStore {
+	static final int NUM_STRIPES = 64;
+	static final int INITIAL_CAPACITY = 4;
+	static final int[] EMPTY = new int[0];
+
+	//index of each resource in the arrays below
+	final MemberIndex resourceIdxs = new MemberIndex();
+	final int[] resourceIds;
+	final int[][] comments;
+	final int[] counts;
+	final int[] maxCommentIds;
+	final Object[] stripes = new Object[NUM_STRIPES];
+
+	public CommentStore(int[] resourceIds) {
+		this.resourceIds = resourceIds;
+		comments = new int[resourceIds.length][];
+		counts = new int[resourceIds.length];
+		maxCommentIds = new int[resourceIds.length];
+		for (int i = 0; i < resourceIds.length; i++) {
+			resourceIdxs.put(resourceIds[i], i);
+			comments[i] = EMPTY;
+		}
+		for (int i = 0; i < NUM_STRIPES; i++)
+			stripes[i] = new Object();
+	}
+
+	Object lock(int idx) {
+		return stripes[idx & (NUM_STRIPES - 1)];
+	}
+
+	public int[] getResourceIds() {
+		return resourceIds;
+	}
+
+	/**
+	 * @return the id of the next comment on the resource, -1 if the resource is not one of this BG client
+	 */
+	public int nextCommentId(int resourceId) {
+		int idx = resourceIdxs.get(resourceId);
+		if (idx == MemberIndex.NO_INDEX)
+			return -1;
+		synchronized (lock(idx)) {
+			return ++maxCommentIds[idx];
+		}
+	}
+
+	/**
+	 * @return the number of comments on the resource, 0 if the resource is not one of this BG client
+	 */
+	public int size(int resourceId) {
+		int idx = resourceIdxs.get(resourceId);
+		if (idx == MemberIndex.NO_INDEX)
+			return 0;
+		synchronized (lock(idx)) {
+			return counts[idx];
+		}
+	}
+
+	public void add(int resourceId, int commentId) {
+		int idx = resourceIdxs.get(resourceId);
+		if (idx == MemberIndex.NO_INDEX)
+			return;
+		synchronized (lock(idx)) {
+			int cnt = counts[idx];
+			if (cnt == comments[idx].length)
+				comments[idx] = Arrays.copyOf(comments[idx], Math.max(INITIAL_CAPACITY, cnt + (cnt >> 1)));
+			comments[idx][cnt] = commentId;
+			counts[idx] = cnt + 1;
+		}
+	}
+
+	/**
+	 * Removes a comment of the resource picked at random.
+	 * @return the id of the comment removed, -1 if the resource has no comment
+	 */
+	public int removeRandom(int resourceId, Random random) {
+		int idx = resourceIdxs.get(resourceId);
+		if (idx == MemberIndex.NO_INDEX)
+			return -1;
+		synchronized (lock(idx)) {
+			int cnt = counts[idx];
+			if (cnt == 0)
+				return -1;
+			int pos = random.nextInt(cnt);
+			int commentId = comments[idx][pos];
+			//the order of the comments does not matter, move the last one in its place
+			comments[idx][pos] = comments[idx][cnt - 1];
+			counts[idx] = cnt - 1;
+			return commentId;
+		}
+	}
+}
@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
@@ -37,6 +38,7 @@ import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.usc.bg.BGMainClass;
 import edu.usc.bg.Member;
@@ -48,10 +50,11 @@ import edu.usc.bg.base.DBFactory;
 import edu.usc.bg.base.ObjectByteIterator;
 import edu.usc.bg.base.RandomByteIterator;
 import edu.usc.bg.base.UnknownDBException;
+import edu.usc.bg.base.Utils;
 import edu.usc.bg.base.Workload;
 import edu.usc.bg.base.WorkloadException;
+import edu.usc.bg.base.generator.AliasGenerator;
 import edu.usc.bg.base.generator.CounterGenerator;
-import edu.usc.bg.base.generator.DiscreteGenerator;
 import edu.usc.bg.base.generator.IntegerGenerator;
 import edu.usc.bg.base.generator.ScrambledZipfianGenerator;
 import edu.usc.bg.base.generator.SkewedLatestGenerator;
@@ -75,23 +78,24 @@ import edu.usc.bg.server.TokenWorker;
 class initQueryThread extends Thread{
 	DB _db;
 	int[] _tMembers;
+	//index in _tMembers of the next member to query, shared by the query threads
+	AtomicInteger _nextMember;
+	CoreWorkload _workload;
 	Properties _props ;
-	HashMap<Integer, Vector<Integer>> _pIds ;
-	HashMap<Integer,Vector<Integer>> _cIds ;
-	HashMap<Integer, Vector<Integer>> _rIds ;	
 	HashMap<String, Integer> _initCnt ;
 
 	/**
 	 * Initialize the thread and its connection to the data store
-	 * @param tMembers
+	 * @param tMembers the members queried by all the threads
+	 * @param nextMember the threads take the members one at a time from it
+	 * @param workload the state of the members queried is added to it
 	 * @param Properties
 	 */
-	initQueryThread(int[] tMembers, Properties props){
+	initQueryThread(int[] tMembers, AtomicInteger nextMember, CoreWorkload workload, Properties props){
 		_tMembers = tMembers;
-		_pIds = new HashMap<Integer, Vector<Integer>>(_tMembers.length);
-		_cIds = new HashMap<Integer, Vector<Integer>>(_tMembers.length);
-		_rIds = new HashMap<Integer, Vector<Integer>>(_tMembers.length);
-		_initCnt = new HashMap<String, Integer>(_tMembers.length*4);
+		_nextMember = nextMember;
+		_workload = workload;
+		_initCnt = new HashMap<String, Integer>();
 
 		String dbname = props.getProperty(Client.DB_CLIENT_PROPERTY, Client.DB_CLIENT_PROPERTY_DEFAULT);
 		_props = props;
@@ -111,38 +115,11 @@ class initQueryThread extends Thread{
 		return _initCnt;
 	}
 
-	public HashMap<Integer, Vector<Integer>> getPendings(){
-		return _pIds;
-	}
-
-	public HashMap<Integer, Vector<Integer>> getConfirmed(){
-		return _cIds;
-	}
-
-	public HashMap<Integer, Vector<Integer>> getResources(){
-		return _rIds;
-	}
-
 	/**
 	 * clears all the structures used by this thread once the thread is done reporting its data to the main thread
 	 */
 	public void freeResources(){
 		_tMembers = null;
-		if(_cIds != null){
-			_cIds.clear();
-			_cIds = null;
-		}
-
-		if(_pIds != null){
-			_pIds.clear();
-			_pIds = null;
-		}
-
-		if(_rIds != null){
-			_rIds.clear();
-			_rIds = null;
-		}
-
 		if(_initCnt != null){
 			_initCnt.clear();
 			_initCnt = null;
@@ -152,8 +129,9 @@ class initQueryThread extends Thread{
 
 	public void run(){
 		int res =0;
-		for(int i=0; i<_tMembers.length; i++){
-			HashMap<String, ByteIterator> profileResult = new HashMap<String, ByteIterator>();
+		int i;
+		while((i = _nextMember.getAndIncrement()) < _tMembers.length){
+			HashMap<String, ByteIterator> profileResult = _db.getResultMap();
 			res = _db.viewProfile(_tMembers[i], _tMembers[i], profileResult, false, false);
 			if(res < 0){
 				System.out.println("Problem in getting initial stats.");
@@ -166,11 +144,6 @@ class initQueryThread extends Thread{
 			_initCnt.put("ACCEPTFRND-"+_tMembers[i], cf);
 			_initCnt.put("TOTALCNT-" + _tMembers[i], pf + cf);
 
-			if(profileResult != null){
-				profileResult.clear();
-				profileResult = null;
-			}
-
 			//get all resources for this user
 			getStatsForUser(i);
 		}
@@ -208,27 +181,15 @@ class initQueryThread extends Thread{
 		for(int d=0; d<resResult.size(); d++){
 			String resId = resResult.get(d).get("rid").toString().trim();
 			resIds.add(Integer.parseInt(resId));
-			Vector<HashMap<String, ByteIterator>> commentResult = new Vector<HashMap<String, ByteIterator>>();
+			Vector<HashMap<String, ByteIterator>> commentResult = _db.getResultVector();
 			resViewComment = _db.viewCommentOnResource(_tMembers[i], _tMembers[i], Integer.parseInt(resId), commentResult);
 			if(resViewComment < 0){
 				System.out.println("Problem in getting initial stats.");
 				System.exit(0);	
 			}	
 			_initCnt.put("POSTCOMMENT-"+resId, commentResult.size());
-			if(commentResult != null){
-				commentResult.clear();
-				commentResult = null;
-			}
-		}
-		_rIds.put(_tMembers[i], resIds);
-		if(resResult != null){
-			resResult.clear();
-			resResult = null;
 		}
-
-		_pIds.put(_tMembers[i], pids);
-
-		_cIds.put(_tMembers[i], cids);
+		_workload.addMemberState(_tMembers[i], pids, cids, resIds);
 	}
 }
 
@@ -256,6 +217,11 @@ public class CoreWorkload extends Workload
 	public static  boolean enableLogging = true;
 	public static final String ENABLE_LOGGING_PROPERTY = "enablelogging";
 	public static final String LOCK_READS_PROPERTY = "lockreads";
+	/**
+	 * number of members of its shard tried when the member picked for a session is busy, 0 tries the whole shard
+	 */
+	public static final String ACTIVATION_PROBES_PROPERTY = "activationprobes";
+	public static final String ACTIVATION_PROBES_PROPERTY_DEFAULT = "0";
 	/**
 	 * needed for zipfian distributions
 	 */
@@ -491,41 +457,61 @@ public class CoreWorkload extends Workload
 	public static HashMap<String, Integer> initStats = new HashMap<String, Integer>();
 
 	public static int numShards = 101;
-	private static char[][] userStatusShards;
-	private static Semaphore[] uStatSemaphores;
+	//members issuing a session, claimed with CAS
+	private static MemberActivationTable activationTable;
+	private static int activationProbes = 0;
 	//keeps a track of user frequency of access
-	private static int[][] userFreqShards;
-	private static Semaphore[] uFreqSemaphores;
+	private static MemberAccessCounters userFreqs;
 	private static DistOfAccess myDist;
 	private static DistOfAccess myZipfDist;
 	public static Member[] myMemberObjs;	
 
-	static Random random = new Random();
-
 	IntegerGenerator keysequence;
 	CounterGenerator transactioninsertkeysequence;
-	DiscreteGenerator operationchooser;
+	AliasGenerator operationchooser;
+	//method doing each value of the operationchooser, per benchmarking mode
+	ActionHandler[][] actionHandlers;
+
+	/**
+	 * A session or action of the workload
+	 */
+	interface ActionHandler {
+		int run(DB db, int threadid, StringBuilder updateLog, StringBuilder readLog, int seqID, HashMap<String, Integer> resUpdateOperations
+				, HashMap<String, Integer> friendshipInfo, HashMap<String, Integer> pendingInfo, int thinkTime, boolean insertImage, boolean warmup) throws IOException;
+	}
 
 	IntegerGenerator keychooser;
 	public int usercount;
 	int useroffset;
 
 	//keep a track of all related users for every user
-	public HashMap<Integer, String>[] userRelations ;
+	public RelationStore userRelations ;
 	private static Semaphore []rStat ;
 
-	//no need to have a lock as a user can't be activated by multiple threads to accept invitations
-	public static Vector<Integer>[] pendingFrnds;
-	public static Semaphore withPend=new Semaphore(1,true) ;
-	public static HashMap<Integer, Integer> usersWithpendingFrnds; //needed for enforced friendship, maintains userid and number of pending
+	//pending invitations of every member, indexed by memberIdxs
+	public static InvitationStore pendingFrnds;
+	public static ConcurrentHashMap<Integer, Integer> usersWithpendingFrnds; //needed for enforced friendship, maintains userid and number of pending
 	public static Semaphore[] aFrnds ;
 	public static HashMap<Integer, String>[] acceptedFrnds ;
-	public static HashMap<Integer, Integer> memberIdxs = new HashMap<Integer, Integer>();
-	private static Vector<Integer>[] createdResources;
+	public static MemberIndex memberIdxs = new MemberIndex();
+	static Vector<Integer>[] createdResources;
 	public static byte[] membersOwners;
-	private static Semaphore sCmts = new Semaphore(1, true);
-	private static HashMap<Integer,Vector<Integer>> postedComments;
-	private static HashMap<Integer, Integer> maxCommentIds ;
+	//comments posted on the resources of the members and the largest comment id of every resource
+	private static CommentStore postedComments;
+
+	/**
+	 * counts an invitation of the member in usersWithpendingFrnds
+	 */
+	public static void addPendingCount(int uid) {
+		usersWithpendingFrnds.merge(uid, 1, Integer::sum);
+	}
+
+	/**
+	 * uncounts an invitation of the member in usersWithpendingFrnds, the member is removed with its last one
+	 */
+	public static void removePendingCount(int uid) {
+		usersWithpendingFrnds.computeIfPresent(uid, (id, numPending) -> numPending == 1 ? null : numPending - 1);
+	}
 
 	String requestdistrib = "";
 	int machineid = 0;
@@ -541,6 +527,7 @@ public class CoreWorkload extends Workload
 	{
 		lockReads =Boolean.parseBoolean(p.getProperty(LOCK_READS_PROPERTY,Boolean.toString(lockReads) ));
 		enableLogging =Boolean.parseBoolean(p.getProperty(ENABLE_LOGGING_PROPERTY,Boolean.toString(enableLogging) ));
+		activationProbes = Integer.parseInt(p.getProperty(ACTIVATION_PROBES_PROPERTY, ACTIVATION_PROBES_PROPERTY_DEFAULT));
 		initOptionChooser(p);
 
 		usercount=Integer.parseInt(p.getProperty(Client.USER_COUNT_PROPERTY, Client.USER_COUNT_PROPERTY_DEFAULT));
@@ -683,14 +670,12 @@ public class CoreWorkload extends Workload
 	}
 
 	private void createInternalDSFragments() {
-		userStatusShards = new char[numShards][];
-		uStatSemaphores = new Semaphore[numShards];
+		int[] shardSizes = new int[numShards];
 		//		withPend = new Semaphore[numShards];
 		rStat = new Semaphore[numShards];
 		aFrnds= new Semaphore[numShards];
 
-		userFreqShards = new int[numShards][];
-		uFreqSemaphores = new Semaphore[numShards];
+		userFreqs = new MemberAccessCounters(myMemberObjs.length);
 
 		int avgShardSize = usercount/numShards;
 		int remainingMembers = usercount-(avgShardSize*numShards);
@@ -698,32 +683,26 @@ public class CoreWorkload extends Workload
 			int numShardUsers = avgShardSize;
 			if(i<remainingMembers)
 				numShardUsers++;
-			userStatusShards[i] = new char[numShardUsers];
-			userFreqShards[i] = new int[numShardUsers];
-			for(int j=0; j<numShardUsers; j++){
-				userStatusShards[i][j]='d';
-				userFreqShards[i][j]=0;
-			}
-			uStatSemaphores[i] = new Semaphore(1, true);
-			uFreqSemaphores[i] = new Semaphore(1, true);
+			shardSizes[i] = numShardUsers;
 
 			aFrnds[i] = new Semaphore(1, true);
 			rStat[i] = new Semaphore(1, true);
 			//			withPend[i] = new Semaphore(1, true);
 
 		}
+		activationTable = new MemberActivationTable(shardSizes);
 	}
 	/**
 	 * @param Properties 
 	 */
-	private void initOptionChooser(Properties p) {
+	private void initOptionChooser(Properties p) throws WorkloadException {
 		//sessions
 		Map<String, Double> session = getSessionParameters(p);
 
 		//actions
 		Map<String, Double> actions = getActionParameters(p);
 
-		operationchooser=new DiscreteGenerator();
+		operationchooser=new AliasGenerator();
 
 		//sessions
 		for(Map.Entry<String, Double> entry:session.entrySet()){
@@ -738,6 +717,16 @@ public class CoreWorkload extends Workload
 				operationchooser.addValue(entry.getValue(), entry.getKey());
 			}
 		}
+
+		if (operationchooser.getTotalWeight() <= 0)
+			throw new WorkloadException("The workload mix is empty, every session and action proportion (e.g. " + GETOWNPROFILE_PROPORTION_PROPERTY + ") is 0");
+
+		//resolve the ops once so doTransaction does not compare strings
+		actionHandlers = new ActionHandler[operationchooser.getNumValues()][Client.HYBRID_DELEGATE+1];
+		for (int i = 0; i < actionHandlers.length; i++) {
+			for (int mode = 0; mode < actionHandlers[i].length; mode++)
+				actionHandlers[i][mode] = createActionHandler(operationchooser.getValue(i), mode);
+		}
 	}
 
 	/**
@@ -900,22 +889,19 @@ public class CoreWorkload extends Workload
 				initStats.put("ACCEPTFRND-"+myMemberObjs[o].get_uid(),acceptedFrnds[o].size());
 			}
 
-			for(int o=0; o<pendingFrnds.length; o++){
-				initStats.put("PENDFRND-"+myMemberObjs[o].get_uid(),pendingFrnds[o].size());
+			for(int o=0; o<pendingFrnds.getNumMembers(); o++){
+				initStats.put("PENDFRND-"+myMemberObjs[o].get_uid(),pendingFrnds.size(o));
 			}
 
-			int totalCount = acceptedFrnds.length > pendingFrnds.length ? 
-					pendingFrnds.length : acceptedFrnds.length;
+			int totalCount = acceptedFrnds.length > pendingFrnds.getNumMembers() ? 
+					pendingFrnds.getNumMembers() : acceptedFrnds.length;
 
 			for (int o = 0; o < totalCount; o++) {				
-				initStats.put("TOTALCNT-"+myMemberObjs[o].get_uid(), acceptedFrnds[o].size() + pendingFrnds[o].size());
+				initStats.put("TOTALCNT-"+myMemberObjs[o].get_uid(), acceptedFrnds[o].size() + pendingFrnds.size(o));
 			}
 
-			Set<Integer> keys = postedComments.keySet();
-			Iterator<Integer> it = keys.iterator();
-			while(it.hasNext()){
-				int key = it.next();
-				initStats.put("POSTCOMMENT-"+key, postedComments.get(key).size());
+			for(int key : postedComments.getResourceIds()){
+				initStats.put("POSTCOMMENT-"+key, postedComments.size(key));
 			}
 
 
@@ -925,13 +911,11 @@ public class CoreWorkload extends Workload
 
 		try {
 
-			userRelations = new HashMap[usercount];
+			userRelations = new RelationStore(usercount);
 			for(int i=0; i<myMemberObjs.length; i++){
 				//initially adding every user to the related vector of themselves
-				HashMap<Integer, String> init = new HashMap<Integer, String>();
-				init.put(myMemberObjs[i].get_uid(),"");
 				rStat[i%numShards].acquire();
-				userRelations[i] = init;
+				userRelations.add(i, myMemberObjs[i].get_uid());
 				rStat[i%numShards].release();
 			}
 
@@ -1090,7 +1074,7 @@ public class CoreWorkload extends Workload
 						acceptedFrnds[uidx].put(fkey, "");
 						acceptedFrnds[fidx].put(ukey, "");
 					}else{
-						pendingFrnds[fidx].add(ukey);
+						pendingFrnds.add(fidx, ukey);
 						if(enforceFriendship && usersWithpendingFrnds.get(ukey) == null){
 							usersWithpendingFrnds.put(ukey, numFriendsPerUser/2);
 						}
@@ -1153,7 +1137,7 @@ public class CoreWorkload extends Workload
 							acceptedFrnds[uidx].put(fkey, "");
 							//						acceptedFrnds[fidx].put(ukey, null); YAZ
 						}else{
-							pendingFrnds[uidx].add(fkey);
+							pendingFrnds.add(uidx, fkey);
 
 
 						} //
@@ -1283,91 +1267,118 @@ public class CoreWorkload extends Workload
 	 * return
 	 */
 	private boolean initStatsQueryData(Properties p) {
-		int numQThreads = 5;
+		String snapshotFile = p.getProperty(Client.INIT_SNAPSHOT_FILE_PROPERTY, Client.INIT_SNAPSHOT_FILE_PROPERTY_DEFAULT);
+		if(!snapshotFile.isEmpty() && InitStateSnapshot.load(this, snapshotFile, p)){
+			InitStateSnapshot.track(snapshotFile);
+			return true;
+		}
+		int numQThreads = Integer.parseInt(p.getProperty(Client.INIT_QUERY_THREADS_PROPERTY, Client.INIT_QUERY_THREADS_PROPERTY_DEFAULT));
+		int[] tMembers = new int[myMemberObjs.length];
+		for(int d=0; d<tMembers.length; d++)
+			tMembers[d] = myMemberObjs[d].get_uid();
+		//the threads take the members one at a time so a slow member does not hold back the others
+		AtomicInteger nextMember = new AtomicInteger(0);
+		long start = System.currentTimeMillis();
 		Vector<initQueryThread> qThreads = new Vector<initQueryThread>();
-		int tUserCount = myMemberObjs.length / numQThreads;
-		int remainingUsers = myMemberObjs.length - (tUserCount*numQThreads);
-		int addUser = 0;
-		for(int u=0; u<numQThreads; u++){
-			if(u == numQThreads-1)
-				addUser = remainingUsers;
-			int[] tMembers = new int[tUserCount+addUser];
-			for(int d=0; d<tUserCount+addUser; d++)
-				tMembers[d] = myMemberObjs[d+u*tUserCount].get_uid();
-			initQueryThread t = new initQueryThread(tMembers, p);
+		for(int u=0; u<Math.max(1, Math.min(numQThreads, tMembers.length)); u++){
+			initQueryThread t = new initQueryThread(tMembers, nextMember, this, p);
 			qThreads.add(t);
 			t.start();	
 		}
-		for (Thread t : qThreads) {
+		for (initQueryThread t : qThreads) {
 			try {
 				t.join();
-				initStats.putAll(((initQueryThread)t).getInit());
-				HashMap<Integer, Vector<Integer>> pends = ((initQueryThread)t).getPendings();
-				Set<Integer> keys = pends.keySet();
-				Iterator<Integer> it = keys.iterator();
-				while(it.hasNext()){
-					int aKey = (it.next());
-					pendingFrnds[memberIdxs.get(aKey)] = pends.get(aKey);
-					//needed for enforced friendship
-					if(enforceFriendship && pends.get(aKey).size() > 0)
-						usersWithpendingFrnds.put(aKey,pends.get(aKey).size());
-					for(int d=0; d<pends.get(aKey).size(); d++){
-						relateUsers(aKey, pends.get(aKey).get(d));
-					}
-				}
-
-				HashMap<Integer, Vector<Integer>> confs = ((initQueryThread)t).getConfirmed();
-				keys = confs.keySet();
-				it = keys.iterator();
-				while(it.hasNext()){
-					int aKey = (it.next());
-					for(int d=0; d<confs.get(aKey).size(); d++){
-						acceptedFrnds[memberIdxs.get(aKey)].put(confs.get(aKey).get(d),null);
-						relateUsers(aKey, confs.get(aKey).get(d));
-					}
-				}
-
-				HashMap<Integer, Vector<Integer>> resources = ((initQueryThread)t).getResources();
-				Set<Integer> ukeys = resources.keySet();
-				it = ukeys.iterator();
-				while(it.hasNext()){
-					int uKey = (it.next());
-					createdResources[memberIdxs.get(uKey)] = resources.get(uKey);
-				}
-				((initQueryThread)t).freeResources();
+				initStats.putAll(t.getInit());
+				t.freeResources();
 			}catch(Exception e){
 				e.printStackTrace(System.out);
 				return false;
 			}
 		}
+		System.out.println("Queried the initial state of "+tMembers.length+" members with "+qThreads.size()+" threads in "+(System.currentTimeMillis()-start)+" msec");
 
 		qThreads.clear();
 		qThreads = null;
 
+		if(!snapshotFile.isEmpty()){
+			InitStateSnapshot.save(snapshotFile);
+			InitStateSnapshot.track(snapshotFile);
+		}
 		return true;
 	}
 
+	/**
+	 * Adds the state of a member queried from the data store (or read from a snapshot) to the internal structures.
+	 * Called concurrently for different members.
+	 * @param uid the member
+	 * @param pendings the members who invited it
+	 * @param confirmed its friends
+	 * @param resources the resources it created
+	 */
+	void addMemberState(int uid, Vector<Integer> pendings, Vector<Integer> confirmed, Vector<Integer> resources){
+		int idx = memberIdxs.get(uid);
+		for(int inviter : pendings){
+			pendingFrnds.add(idx, inviter);
+			relateUsers(uid, inviter);
+		}
+		//needed for enforced friendship
+		if(enforceFriendship && pendings.size() > 0)
+			usersWithpendingFrnds.put(uid, pendings.size());
+		for(int friend : confirmed){
+			acceptedFrnds[idx].put(friend, null);
+			relateUsers(uid, friend);
+		}
+		createdResources[idx] = resources;
+	}
+
+	/**
+	 * Adds the state of a member read from a snapshot straight to the internal structures, before any
+	 * session runs and from a single thread, so the relations are added without taking the shard locks.
+	 * @param uid the member
+	 * @param pendings the members who invited it
+	 * @param confirmed its friends
+	 * @param resources the resources it created
+	 */
+	void addMemberState(int uid, int[] pendings, int[] confirmed, int[] resources){
+		int idx = memberIdxs.get(uid);
+		for(int inviter : pendings){
+			pendingFrnds.add(idx, inviter);
+			userRelations.add(idx, inviter);
+			userRelations.add(memberIdxs.get(inviter), uid);
+		}
+		//needed for enforced friendship
+		if(enforceFriendship && pendings.length > 0)
+			usersWithpendingFrnds.put(uid, pendings.length);
+		for(int friend : confirmed){
+			acceptedFrnds[idx].put(friend, null);
+			userRelations.add(idx, friend);
+			userRelations.add(memberIdxs.get(friend), uid);
+		}
+		Vector<Integer> created = new Vector<Integer>(resources.length);
+		for(int rid : resources)
+			created.add(rid);
+		createdResources[idx] = created;
+	}
+
 	/**
 	 * @param Properties 
 	 */
 	private void initPendingFriendsAcceptFriendsCreatedResourcesDataStructures(
 			Properties p) {
 		int numResPerUser = Integer.parseInt(p.getProperty(Client.RESOURCE_COUNT_PROPERTY, Client.RESOURCE_COUNT_PROPERTY_DEFAULT));
-		usersWithpendingFrnds = new HashMap<Integer, Integer>();
-		pendingFrnds = new Vector[usercount];
+		usersWithpendingFrnds = new ConcurrentHashMap<Integer, Integer>();
+		pendingFrnds = new InvitationStore(usercount);
 		acceptedFrnds = new HashMap[usercount];
 		createdResources = new Vector[usercount];
-		postedComments = new HashMap<Integer, Vector<Integer>>();
-		maxCommentIds = new HashMap<Integer, Integer>(0);
+		int[] resourceIds = new int[myMemberObjs.length*numResPerUser];
 		for(int i=0; i<myMemberObjs.length;i++){
-			pendingFrnds[i]= new Vector<Integer>();
 			acceptedFrnds[i] = new HashMap<Integer,String>();
 			createdResources[i] = new Vector<Integer>();
 			for(int j=0; j<numResPerUser; j++){
-				postedComments.put((myMemberObjs[i].get_uid()*numResPerUser+j), new Vector<Integer>());
-				maxCommentIds.put((myMemberObjs[i].get_uid()*numResPerUser+j), 0);
+				resourceIds[i*numResPerUser+j] = myMemberObjs[i].get_uid()*numResPerUser+j;
 			}
 		}
+		postedComments = new CommentStore(resourceIds);
 	}
 
 	/**
@@ -1378,166 +1389,12 @@ public class CoreWorkload extends Workload
 	 */
 	public int doTransaction(DB db, Object threadstate, int threadid,  StringBuilder updateLog, StringBuilder readLog,  int seqID, HashMap<String, Integer> resUpdateOperations
 			, HashMap<String, Integer> friendshipInfo, HashMap<String, Integer> pendingInfo, int thinkTime, boolean insertImage, boolean warmup)  {
-		String op=operationchooser.nextString();
+		ActionHandler handler = actionHandlers[operationchooser.nextIndex()][Client.BENCHMARKING_MODE];
 		int opsDone = 0;
+		if (handler == null)
+			return opsDone;
 		try{
-
-
-			//actions
-
-			if (op.compareTo("GETPROACT") == 0){
-				if (Client.BENCHMARKING_MODE==Client.RETAIN ||Client.BENCHMARKING_MODE==Client.HYBRID_RETAIN)
-					opsDone = doActionGetProfileRetain(db, threadid, updateLog, readLog ,seqID, insertImage, warmup);
-				else if  (Client.BENCHMARKING_MODE==Client.DELEGATE ||Client.BENCHMARKING_MODE==Client.HYBRID_DELEGATE)
-					opsDone = doActionGetProfileDelegate(db, threadid, updateLog, readLog ,seqID, insertImage, warmup);
-
-				else
-					opsDone = doActionGetProfile(db, threadid, updateLog, readLog ,seqID, insertImage, warmup);
-
-			}
-			else if (op.compareTo("GETFRNDLSTACT") == 0)
-			{
-				if (Client.BENCHMARKING_MODE==Client.RETAIN ||Client.BENCHMARKING_MODE==Client.HYBRID_RETAIN)
-					opsDone = doActionGetFriendsRetain(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
-				else if  (Client.BENCHMARKING_MODE==Client.DELEGATE ||Client.BENCHMARKING_MODE==Client.HYBRID_DELEGATE)
-					opsDone = doActionGetFriendsDelegate(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
-				else
-					opsDone = doActionGetFriends(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
-
-			}
-			else if (op.compareTo("GETPENDACT") == 0)
-			{
-				if (Client.BENCHMARKING_MODE==Client.RETAIN ||Client.BENCHMARKING_MODE==Client.HYBRID_RETAIN)
-					opsDone = doActionGetPendingsRetain(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
-				else if  (Client.BENCHMARKING_MODE==Client.DELEGATE ||Client.BENCHMARKING_MODE==Client.HYBRID_DELEGATE)
-					opsDone = doActionGetPendingsDelegate(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
-				else 
-					opsDone = doActionGetPendings(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
-
-			}
-			else if (op.compareTo("INVFRNDACT") == 0)
-			{
-				if (Client.BENCHMARKING_MODE==Client.RETAIN)
-
-					opsDone = doActioninviteFriendRetain(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, insertImage, warmup);
-
-
-				else if  (Client.BENCHMARKING_MODE==Client.DELEGATE)
-					opsDone = doActioninviteFriendDelegate(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, insertImage, warmup);
-				else 
-					opsDone = doActioninviteFriend(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, insertImage, warmup);
-
-			}
-			else if (op.compareTo("ACCFRNDACT") == 0)
-			{
-				if (Client.BENCHMARKING_MODE==Client.RETAIN)
-
-					opsDone = doActionAcceptFriendsRetain(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
-
-				else if (Client.BENCHMARKING_MODE==Client.DELEGATE)
-					opsDone = doActionAcceptFriendsDelegate(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
-				else
-					opsDone = doActionAcceptFriends(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
-
-			}
-			else if (op.compareTo("REJFRNDACT") == 0)
-			{
-				if (Client.BENCHMARKING_MODE==Client.RETAIN)
-
-					opsDone = doActionRejectFriendsRetain(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
-
-				else if (Client.BENCHMARKING_MODE==Client.DELEGATE)
-					opsDone = doActionRejectFriendsDelegate(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
-				else
-					opsDone = doActionRejectFriends(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
-
-			}
-			else if (op.compareTo("UNFRNDACT") == 0)
-			{
-				if (Client.BENCHMARKING_MODE==Client.RETAIN)
-
-					opsDone = doActionUnFriendFriendsRetain(db, threadid,updateLog,readLog, seqID, friendshipInfo
-							,pendingInfo, thinkTime,  insertImage, warmup);
-
-				else if (Client.BENCHMARKING_MODE==Client.DELEGATE)
-					opsDone = doActionUnFriendFriendsDelegate(db, threadid,updateLog,readLog, seqID, friendshipInfo
-							,pendingInfo, thinkTime,  insertImage, warmup);
-				else
-					opsDone = doActionUnFriendFriends(db, threadid,updateLog,readLog, seqID, friendshipInfo
-							,pendingInfo, thinkTime,  insertImage, warmup);
-
-			}
-			else if (op.compareTo("GETRESACT") == 0)
-			{
-				opsDone = doActionGetTopResources(db, threadid, updateLog, readLog ,seqID, insertImage,  warmup);
-			}
-			else if (op.compareTo("GETCMTACT") == 0)
-			{
-				opsDone = doActionviewCommentOnResource(db, threadid, updateLog, readLog ,seqID, thinkTime, insertImage,  warmup);
-			}
-			else if (op.compareTo("POSTCMTACT") == 0)
-			{
-				opsDone = doActionPostComments(db,threadid, updateLog, readLog,seqID, resUpdateOperations,thinkTime, insertImage,  warmup);
-			}
-			else if (op.compareTo("DELCMTACT") == 0)
-			{
-				opsDone = doActionDelComments(db,threadid, updateLog, readLog,seqID, resUpdateOperations,thinkTime, insertImage,  warmup);
-			}
-			//		else if (op.compareTo("GETSHORTESTACT") == 0)
-			//		{
-			//			opsDone = doActionGetShortestPath(db,threadid, updateLog, readLog,seqID, warmup);
-			//		}
-			//		else if (op.compareTo("LISTCOMMONACT") == 0)
-			//		{
-			//			opsDone = doActionListCommonFrnds(db,threadid, updateLog, readLog,seqID, insertImage, warmup);
-			//		}
-			//		else if (op.compareTo("LISTFOFFACT") == 0)
-			//		{
-			//			opsDone = doActionListFriendsOfFriends(db,threadid, updateLog, readLog,seqID,insertImage, warmup);
-			//		}
-			//session
-			else {
-				if (op.compareTo("OWNPROFILE")==0)
-				{
-					opsDone = doTransactionOwnProfile(db, threadid, updateLog, readLog ,seqID, thinkTime, insertImage,  warmup);
-				}
-				else if (op.compareTo("FRIENDPROFILE")==0)
-				{
-					opsDone = doTransactionFriendProfile(db, threadid, updateLog, readLog,seqID, thinkTime,  insertImage, warmup);
-				}
-				else if (op.compareTo("POSTCOMMENT")==0)
-				{
-					opsDone = doTransactionPostCommentOnResource(db,threadid, updateLog, readLog,seqID, resUpdateOperations, thinkTime, insertImage, warmup);
-				}
-				else if (op.compareTo("DELCOMMENT")==0)
-				{
-					opsDone = doTransactionDeleteCommentOnResource(db,threadid, updateLog, readLog,seqID, resUpdateOperations, thinkTime, insertImage, warmup);
-				}
-				else if (op.compareTo("ACCEPTREQ")==0)
-				{
-					opsDone = doTransactionAcceptFriendship(db,threadid,  updateLog, readLog,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
-				}
-				else if (op.compareTo("REJECTREQ") == 0)
-				{
-					opsDone = doTransactionRejectFriendship(db,threadid,  updateLog,readLog ,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
-				}
-				else if (op.compareTo("UNFRNDACCEPTREQ") == 0)
-				{
-					opsDone = doTransactionUnfriendPendingFriendship(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, thinkTime, "ACCEPT", insertImage, warmup);
-				}
-				else if (op.compareTo("UNFRNDREJECTREQ") == 0)
-				{
-					opsDone = doTransactionUnfriendPendingFriendship(db,threadid, updateLog, readLog,seqID, friendshipInfo, pendingInfo, thinkTime, "REJECT", insertImage, warmup);
-				}
-				else if (op.compareTo("UNFRNDREQ") == 0)
-				{
-					opsDone = doTransactionUnfriendFriendship(db,threadid,  updateLog, readLog,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
-				}
-				else if (op.compareTo("GENFRNDREQ") == 0)
-				{
-					opsDone = doTransactionGenerateFriendship(db,threadid,  updateLog, readLog ,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
-				}
-			}
+			opsDone = handler.run(db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			System.out.println("Error!:"+e.getMessage());
@@ -1547,6 +1404,127 @@ public class CoreWorkload extends Workload
 		return opsDone;
 	}
 
+	/**
+	 * @return the method doing the session or action op in the benchmarking mode, null if op is not known
+	 */
+	private ActionHandler createActionHandler(String op, int mode) {
+		boolean retain = mode == Client.RETAIN || mode == Client.HYBRID_RETAIN;
+		boolean delegate = mode == Client.DELEGATE || mode == Client.HYBRID_DELEGATE;
+		switch (op) {
+		//actions
+		case "GETPROACT":
+			if (retain)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionGetProfileRetain(db, threadid, updateLog, readLog ,seqID, insertImage, warmup);
+			if (delegate)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionGetProfileDelegate(db, threadid, updateLog, readLog ,seqID, insertImage, warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionGetProfile(db, threadid, updateLog, readLog ,seqID, insertImage, warmup);
+		case "GETFRNDLSTACT":
+			if (retain)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionGetFriendsRetain(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
+			if (delegate)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionGetFriendsDelegate(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionGetFriends(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
+		case "GETPENDACT":
+			if (retain)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionGetPendingsRetain(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
+			if (delegate)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionGetPendingsDelegate(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionGetPendings(db,threadid, updateLog,readLog,seqID, insertImage, warmup);
+		//the hybrid modes run the friendship actions of the partitioned mode
+		case "INVFRNDACT":
+			if (mode == Client.RETAIN)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActioninviteFriendRetain(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, insertImage, warmup);
+			if (mode == Client.DELEGATE)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActioninviteFriendDelegate(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, insertImage, warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActioninviteFriend(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, insertImage, warmup);
+		case "ACCFRNDACT":
+			if (mode == Client.RETAIN)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionAcceptFriendsRetain(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
+			if (mode == Client.DELEGATE)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionAcceptFriendsDelegate(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionAcceptFriends(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
+		case "REJFRNDACT":
+			if (mode == Client.RETAIN)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionRejectFriendsRetain(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
+			if (mode == Client.DELEGATE)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionRejectFriendsDelegate(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionRejectFriends(db, threadid, updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage,warmup);
+		case "UNFRNDACT":
+			if (mode == Client.RETAIN)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionUnFriendFriendsRetain(db, threadid,updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage, warmup);
+			if (mode == Client.DELEGATE)
+				return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+				doActionUnFriendFriendsDelegate(db, threadid,updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage, warmup);
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionUnFriendFriends(db, threadid,updateLog,readLog, seqID, friendshipInfo,pendingInfo, thinkTime,  insertImage, warmup);
+		case "GETRESACT":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionGetTopResources(db, threadid, updateLog, readLog ,seqID, insertImage,  warmup);
+		case "GETCMTACT":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionviewCommentOnResource(db, threadid, updateLog, readLog ,seqID, thinkTime, insertImage,  warmup);
+		case "POSTCMTACT":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionPostComments(db,threadid, updateLog, readLog,seqID, resUpdateOperations,thinkTime, insertImage,  warmup);
+		case "DELCMTACT":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doActionDelComments(db,threadid, updateLog, readLog,seqID, resUpdateOperations,thinkTime, insertImage,  warmup);
+		//sessions
+		case "OWNPROFILE":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionOwnProfile(db, threadid, updateLog, readLog ,seqID, thinkTime, insertImage,  warmup);
+		case "FRIENDPROFILE":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionFriendProfile(db, threadid, updateLog, readLog,seqID, thinkTime,  insertImage, warmup);
+		case "POSTCOMMENT":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionPostCommentOnResource(db,threadid, updateLog, readLog,seqID, resUpdateOperations, thinkTime, insertImage, warmup);
+		case "DELCOMMENT":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionDeleteCommentOnResource(db,threadid, updateLog, readLog,seqID, resUpdateOperations, thinkTime, insertImage, warmup);
+		case "ACCEPTREQ":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionAcceptFriendship(db,threadid,  updateLog, readLog,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
+		case "REJECTREQ":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionRejectFriendship(db,threadid,  updateLog,readLog ,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
+		case "UNFRNDACCEPTREQ":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionUnfriendPendingFriendship(db,threadid, updateLog,readLog, seqID, friendshipInfo, pendingInfo, thinkTime, "ACCEPT", insertImage, warmup);
+		case "UNFRNDREJECTREQ":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionUnfriendPendingFriendship(db,threadid, updateLog, readLog,seqID, friendshipInfo, pendingInfo, thinkTime, "REJECT", insertImage, warmup);
+		case "UNFRNDREQ":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionUnfriendFriendship(db,threadid,  updateLog, readLog,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
+		case "GENFRNDREQ":
+			return (db, threadid, updateLog, readLog, seqID, resUpdateOperations, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup) ->
+			doTransactionGenerateFriendship(db,threadid,  updateLog, readLog ,seqID, friendshipInfo, pendingInfo, thinkTime, insertImage, warmup);
+		//GETSHORTESTACT, LISTCOMMONACT and LISTFOFFACT are not issued
+		default:
+			return null;
+		}
+	}
+
 	private int activateKeynameAndUpdateFreq() {
 		int keyname = buildKeyName(usercount);
 		//activate the user so no one else can grab it
@@ -1717,7 +1695,7 @@ public class CoreWorkload extends Workload
 		}
 
 		if(fResult.size() > 0){
-			Random random = new Random();
+			Random random = Utils.random();
 			int idx = random.nextInt(fResult.size());
 			HashMap<String,ByteIterator> fpResult=new HashMap<String,ByteIterator>();
 			int friendId = -1;
@@ -1794,7 +1772,7 @@ public class CoreWorkload extends Workload
 		}
 
 		if(rResult.size() > 0){
-			Random random = new Random();
+			Random random = Utils.random();
 			int idx = random.nextInt(rResult.size());
 			String resourceID = "";
 			String ownerID ="";
@@ -1813,11 +1791,6 @@ public class CoreWorkload extends Workload
 			if(!warmup){
 				HashMap<String,ByteIterator> commentValues = new HashMap<String, ByteIterator>();
 				createCommentAttrs(commentValues);
-				try {
-					sCmts.acquire();
-				} catch (InterruptedException e1) {
-					e1.printStackTrace();
-				}
 
 				numOpsDone += postCommentTransaction(db, threadid, updateLog,
 						seqID, resUpdateOperations, commentor,
@@ -1888,9 +1861,7 @@ public class CoreWorkload extends Workload
 			HashMap<String, ByteIterator> commentValues) {
 		String actionType = "PostComment";
 		int ret, numOpsDone = 0;
-		int mid = maxCommentIds.get(Integer.parseInt(resourceID))+1;
-		maxCommentIds.put(Integer.parseInt(resourceID), mid);
-		sCmts.release();
+		int mid = postedComments.nextCommentId(Integer.parseInt(resourceID));
 		commentValues.put("mid", new ObjectByteIterator(Integer.toString(mid).getBytes()));
 		long startUpdate = System.nanoTime();
 		ret =db.postCommentOnResource(commentor, Integer.parseInt(ownerID), Integer.parseInt(resourceID), commentValues);
@@ -1901,7 +1872,7 @@ public class CoreWorkload extends Workload
 		long endUpdate = System.nanoTime();
 		//if I add it before the update , a delete may delete it without it actually being in the database
 		//resulting in wrong results
-		postedComments.get(Integer.parseInt(resourceID)).add(mid);	
+		postedComments.add(Integer.parseInt(resourceID), mid);	
 		numOpsDone++;
 		int numUpdatesTillNow = 0;
 		if(resUpdateOperations.get(resourceID)!= null){
@@ -1941,7 +1912,7 @@ public class CoreWorkload extends Workload
 		}
 
 		if(rResult.size() > 0){
-			Random random = new Random();
+			Random random = Utils.random();
 			int idx = random.nextInt(rResult.size());
 
 			Vector<HashMap<String,ByteIterator>> cResult=new Vector<HashMap<String,ByteIterator>>();
@@ -1958,12 +1929,7 @@ public class CoreWorkload extends Workload
 				e.printStackTrace(System.out);
 			}
 			//if( cResult.size()>0){
-			try {
-				sCmts.acquire();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			if(postedComments.get(Integer.parseInt(resourceID)) != null && postedComments.get(Integer.parseInt(resourceID)).size()>0 ){
+			if(postedComments.size(Integer.parseInt(resourceID))>0 ){
 				if(!warmup){
 
 					numOpsDone += delCommentOnResourceTransaction(db, threadid,
@@ -1976,13 +1942,10 @@ public class CoreWorkload extends Workload
 						e.printStackTrace(System.out);
 					}
 
-				}else {
-					sCmts.release();
 				}
 
 				numOpsDone += viewCommentOnResourceTransaction(db, threadid, readLog, seqID, warmup, keyname, keyname, resourceID);
-			}else
-				sCmts.release();
+			}
 		}	
 		deactivateUser(keyname);
 		return numOpsDone;
@@ -2006,10 +1969,9 @@ public class CoreWorkload extends Workload
 			Random random, String resourceID, String ownerID) {
 		String actionType = "DeleteCommentonResource";
 		int ret, numOpsDone = 0;
-		int midx = random.nextInt(postedComments.get(Integer.parseInt(resourceID)).size());
-		int mid = postedComments.get(Integer.parseInt(resourceID)).get(midx);
-		postedComments.get(Integer.parseInt(resourceID)).remove(midx);
-		sCmts.release();
+		int mid = postedComments.removeRandom(Integer.parseInt(resourceID), random);
+		if(mid == -1) //deleted by another thread since it was checked
+			return numOpsDone;
 		long startUpdate = System.nanoTime();
 		ret = db.delCommentOnResource(Integer.parseInt(ownerID), Integer.parseInt(resourceID), mid);
 		if(ret < 0){
@@ -2141,7 +2103,7 @@ public class CoreWorkload extends Workload
 			System.exit(0);
 		}
 
-		pendingFrnds[memberIdxs.get(noRelId)].add(keyname);
+		pendingFrnds.add(memberIdxs.get(noRelId), keyname);
 		int numPendingsForOtherUserTillNow = 0;
 		if(pendingInfo.get(Integer.toString(noRelId))!= null){
 			numPendingsForOtherUserTillNow = pendingInfo.get(Integer.toString(noRelId));
@@ -2229,21 +2191,21 @@ public class CoreWorkload extends Workload
 
 		if(!warmup){
 
-			Vector<Integer> ids =pendingFrnds[memberIdxs.get(keyname)];
-			if(ids.size() > 0){
-				Random random = new Random();
-				int idx = random.nextInt(ids.size());
+			int pidx = memberIdxs.get(keyname);
+			if(pendingFrnds.size(pidx) > 0){
+				Random random = Utils.random();
+				int idx = random.nextInt(pendingFrnds.size(pidx));
 				//int idx = random.nextInt(peResult.size());
 				long startUpdatea = System.nanoTime();
 				String auserid = "";
 				//auserid =peResult.get(idx).get("userid").toString();
-				auserid = ids.get(idx).toString();
+				auserid = Integer.toString(pendingFrnds.get(pidx, idx));
 				ret = db.acceptFriend(Integer.parseInt(auserid), keyname);
 				if(ret < 0){
 					System.out.println("There is an exception in acceptFriends.");
 					System.exit(0);
 				}
-				ids.remove(idx);
+				pendingFrnds.removeAt(pidx, idx);
 				try {
 					aFrnds[memberIdxs.get(Integer.parseInt(auserid))%numShards].acquire();
 					acceptedFrnds[memberIdxs.get(Integer.parseInt(auserid))].put(keyname,""); 
@@ -2375,21 +2337,21 @@ public class CoreWorkload extends Workload
 		if(!warmup){//TODO reject friend
 			/*if(peResult.size() == 0){
 				//do nothing*/
-			Vector<Integer> ids =pendingFrnds[memberIdxs.get(keyname)];
-			if(ids.size() > 0){
-				Random random = new Random();
-				int idx = random.nextInt(ids.size());
+			int pidx = memberIdxs.get(keyname);
+			if(pendingFrnds.size(pidx) > 0){
+				Random random = Utils.random();
+				int idx = random.nextInt(pendingFrnds.size(pidx));
 				//int idx = random.nextInt(peResult.size());
 				String auserid = "";
 				//auserid =peResult.get(idx).get("userid").toString();
-				auserid = ids.get(idx).toString();
+				auserid = Integer.toString(pendingFrnds.get(pidx, idx));
 				long startUpdatea = System.nanoTime();
 				int ret = db.rejectFriend(Integer.parseInt(auserid), keyname);
 				if(ret < 0){
 					System.out.println("There is an exception in rejectFriend.");
 					System.exit(0);
 				}
-				ids.remove(idx);
+				pendingFrnds.removeAt(pidx, idx);
 				int numPendingsForThisUserTillNow = 0;
 				if(pendingInfo.get(Integer.toString(keyname))!= null){
 					numPendingsForThisUserTillNow = pendingInfo.get(Integer.toString(keyname));
@@ -2603,7 +2565,7 @@ public class CoreWorkload extends Workload
 			if(fResult.size() == 0){
 				//do nothing
 			}else{
-				Random random = new Random();
+				Random random = Utils.random();
 				int idx = random.nextInt(fResult.size());
 				long startUpdater = System.nanoTime();
 				String auserid = "";
@@ -2677,7 +2639,7 @@ public class CoreWorkload extends Workload
 			if(peResult.size() == 0){
 				//do nothing
 			}else{
-				Random random = new Random();
+				Random random = Utils.random();
 				int idx = random.nextInt(peResult.size());
 				long startUpdatea = System.nanoTime();
 				if(nextOp.equals("ACCEPT")){
@@ -2779,7 +2741,7 @@ public class CoreWorkload extends Workload
 		}
 		userMachineId =  membersOwners[profilekeyname];
 		int sociliteOwner= membersOwners[requisterkeyname];
-		HashMap<String,ByteIterator> pResult=new HashMap<String,ByteIterator>();
+		HashMap<String,ByteIterator> pResult=db.getResultMap();
 		long startReadp=0, endReadp=0;
 
 
@@ -2928,7 +2890,7 @@ public class CoreWorkload extends Workload
 
 		}
 
-		HashMap<String,ByteIterator> pResult=new HashMap<String,ByteIterator>();
+		HashMap<String,ByteIterator> pResult=db.getResultMap();
 		long startReadLocal=0, endReadLocal=0,startReadRemote=0;
 		byte[] responseArray;
 		SocketIO soc=null;
@@ -3162,7 +3124,7 @@ public class CoreWorkload extends Workload
 
 		int profilekeyname = buildKeyName(READ_ACTION);	
 		//		incrUserRef(keyname);
-		Vector<HashMap<String,ByteIterator>> fResult=new Vector<HashMap<String,ByteIterator>>();
+		Vector<HashMap<String,ByteIterator>> fResult=db.getResultVector();
 		long startReadLocal=0, endReadLocal=0,startReadRemote=0;
 		byte[] responseArray;
 		SocketIO socRequester=null, socProfileowner=null;
@@ -3266,7 +3228,7 @@ public class CoreWorkload extends Workload
 		String actionType = "GetPendingFriends";
 		int numOpsDone = 0;
 		int keyname = buildKeyName(READ_ACTION);
-		Vector<HashMap<String,ByteIterator>> pResult=new Vector<HashMap<String,ByteIterator>>();
+		Vector<HashMap<String,ByteIterator>> pResult=db.getResultVector();
 		long startReadLocal=0, endReadLocal=0,startReadRemote=0;
 		byte[] responseArray;
 		SocketIO soc=null;
@@ -4513,7 +4475,7 @@ public class CoreWorkload extends Workload
 		incrUserRef(commentor);
 		Vector<Integer> profilekeynameresources = createdResources[memberIdxs.get(commentor)];
 		if(profilekeynameresources.size() > 0){
-			Random random = new Random();
+			Random random = Utils.random();
 			int idx = random.nextInt(profilekeynameresources.size());
 			//Vector<HashMap<String,ByteIterator>> cResult=new Vector<HashMap<String,ByteIterator>>();
 			String resourceID = "";
@@ -4521,25 +4483,17 @@ public class CoreWorkload extends Workload
 			if(!warmup){
 				HashMap<String,ByteIterator> commentValues = new HashMap<String, ByteIterator>(); 
 				createCommentAttrs(commentValues);
-				try {
-					//needed for when we have a mix of actions and sessions as other members can also post comments on any resource
-					sCmts.acquire();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				} 
-
-				int mid = maxCommentIds.get(Integer.parseInt(resourceID))+1;
-				maxCommentIds.put(Integer.parseInt(resourceID), mid);
-				sCmts.release();
+				//the ids are given out by the store as other members can also post comments on any resource
+				int mid = postedComments.nextCommentId(Integer.parseInt(resourceID));
 				commentValues.put("mid", new ObjectByteIterator(Integer.toString(mid).getBytes()));
 				long startUpdate = System.nanoTime();
 				int ret =db.postCommentOnResource(commentor, commentor, Integer.parseInt(resourceID), commentValues); 
 				if(ret < 0){
-					System.out.println("There is an exception in postComment."+mid+" "+resourceID+" "+commentor+" "+postedComments.get(Integer.parseInt(resourceID)));
+					System.out.println("There is an exception in postComment."+mid+" "+resourceID+" "+commentor+" "+postedComments.size(Integer.parseInt(resourceID)));
 					System.exit(0);
 				}
 				long endUpdate = System.nanoTime();
-				postedComments.get(Integer.parseInt(resourceID)).add(mid);
+				postedComments.add(Integer.parseInt(resourceID), mid);
 				numOpsDone++;
 				int numUpdatesTillNow = 0;
 
@@ -4570,22 +4524,14 @@ public class CoreWorkload extends Workload
 		incrUserRef(keyname);
 		Vector<Integer> profilekeynameresources = createdResources[memberIdxs.get(keyname)];
 		if(profilekeynameresources.size() > 0){
-			Random random = new Random();
+			Random random = Utils.random();
 			int idx = random.nextInt(profilekeynameresources.size());
 			Vector<HashMap<String,ByteIterator>> cResult=new Vector<HashMap<String,ByteIterator>>();
 			String resourceID = "";
 			resourceID = profilekeynameresources.get(idx).toString();
 			if(!warmup){
-				try {
-					sCmts.acquire();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				if(postedComments.get(Integer.parseInt(resourceID)) != null && postedComments.get(Integer.parseInt(resourceID)).size()>0 ){
-					int midx = random.nextInt(postedComments.get(Integer.parseInt(resourceID)).size());
-					int mid = postedComments.get(Integer.parseInt(resourceID)).get(midx);
-					postedComments.get(Integer.parseInt(resourceID)).remove(midx);
-					sCmts.release();
+				int mid = postedComments.removeRandom(Integer.parseInt(resourceID), random);
+				if(mid != -1){
 					long startUpdate = System.nanoTime();
 					int ret =db.delCommentOnResource(keyname,Integer.parseInt(resourceID), mid); 
 					if(ret < 0){
@@ -4605,8 +4551,7 @@ public class CoreWorkload extends Workload
 						updateLog.append("UPDATE,POSTCOMMENT,"+seqID+","+threadid+","+resourceID+","+startUpdate+","+endUpdate+","+(numUpdatesTillNow-1)+",D"+ "," + actionType +"\n");
 						updatesExist = true;
 					}
-				}else
-					sCmts.release();
+				}
 			}
 		}
 		deactivateUser(keyname);
@@ -4626,7 +4571,7 @@ public class CoreWorkload extends Workload
 		//get resources for profilekeyname
 		Vector<Integer> profilekeynameresources = createdResources[memberIdxs.get(profilekeyname)];
 		if(profilekeynameresources.size() > 0){
-			Random random = new Random();
+			Random random = Utils.random();
 			int idx = random.nextInt(profilekeynameresources.size());
 			Vector<HashMap<String,ByteIterator>> cResult=new Vector<HashMap<String,ByteIterator>>();
 			String resourceID ="";
@@ -4756,14 +4701,20 @@ public class CoreWorkload extends Workload
 	public ArrayList<Integer> viewRelations(int uid1)
 	{
 		ArrayList<Integer> related=new ArrayList<Integer>();
-		if(userRelations[(memberIdxs.get(uid1))] != null){
-			HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid1)];
-
-			for (int i:rels.keySet())
-			{
-				related.add(i);
+		int idx = memberIdxs.get(uid1);
+		int[] rels;
+		try {
+			rStat[idx%numShards].acquire();
+			rels = userRelations.toArray(idx);
+			rStat[idx%numShards].release();
+		} catch (InterruptedException e) {
+			e.printStackTrace(System.out);
+			return related;
+		}
+		for (int i:rels)
+		{
+			related.add(i);
 
-			}
 		}
 
 		return related;
@@ -4777,17 +4728,10 @@ public class CoreWorkload extends Workload
 
 
 		try {
-			rStat[(memberIdxs.get(uid1))%numShards].acquire();
-			if(userRelations[(memberIdxs.get(uid1))] != null){
-				HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid1)];
-				if(rels.containsKey(uid2)){
-					related= true;
-				}else
-					related = false;
-			}else
-				related = false;
-
-			rStat[(memberIdxs.get(uid1))%numShards].release();
+			int idx = memberIdxs.get(uid1);
+			rStat[idx%numShards].acquire();
+			related = userRelations.contains(idx, uid2);
+			rStat[idx%numShards].release();
 		} catch (Exception e) {
 			System.out.println("Error in Rels");
 			e.printStackTrace(System.out);
@@ -4798,36 +4742,15 @@ public class CoreWorkload extends Workload
 
 	public void relateUsers(int uid1, int uid2){
 		try {
-
-			rStat[memberIdxs.get(uid1)%numShards].acquire();
-			if(userRelations[memberIdxs.get(uid1)] != null){
-				HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid1)];
-				if(!rels.containsKey(uid2)){
-					rels.put(uid2,"");
-				}
-				userRelations[memberIdxs.get(uid1)]= rels;
-			}else{
-				HashMap<Integer, String> rels = new HashMap<Integer, String>();
-				rels.put(uid2,"");
-				userRelations[memberIdxs.get(uid1)]= rels;
-			}
-			rStat[memberIdxs.get(uid1)%numShards].release();
-
-			rStat[memberIdxs.get(uid2)%numShards].acquire();
-
-			if(userRelations[memberIdxs.get(uid2)] != null){
-				HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid2)];
-				if(!rels.containsKey(uid1)){
-					rels.put(uid1,"");
-				}
-				userRelations[memberIdxs.get(uid2)]= rels;
-			}else{
-				HashMap<Integer, String> rels = new HashMap<Integer, String>();
-				rels.put(uid1,"");
-				userRelations[memberIdxs.get(uid2)]= rels;	
-			}
-
-			rStat[memberIdxs.get(uid2)%numShards].release();
+			int idx1 = memberIdxs.get(uid1);
+			rStat[idx1%numShards].acquire();
+			userRelations.add(idx1, uid2);
+			rStat[idx1%numShards].release();
+
+			int idx2 = memberIdxs.get(uid2);
+			rStat[idx2%numShards].acquire();
+			userRelations.add(idx2, uid1);
+			rStat[idx2%numShards].release();
 		} catch (Exception e) {
 			System.out.println("Error in Rels");
 			e.printStackTrace(System.out);
@@ -4837,21 +4760,15 @@ public class CoreWorkload extends Workload
 
 	public void deRelateUsers(int uid1, int uid2){
 		try {
-			rStat[memberIdxs.get(uid1)%numShards].acquire();
-			HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid1)];
-			if(rels.containsKey(uid2)){
-				rels.remove(uid2);
-			}
-			userRelations[memberIdxs.get(uid1)] = rels;
-			rStat[memberIdxs.get(uid1)%numShards].release();
-
-			rStat[memberIdxs.get(uid2)%numShards].acquire();
-			rels = userRelations[memberIdxs.get(uid2)];
-			if(rels.containsKey(uid1)){
-				rels.remove(uid1);
-			}
-			userRelations[memberIdxs.get(uid2)] = rels;
-			rStat[memberIdxs.get(uid2)%numShards].release();
+			int idx1 = memberIdxs.get(uid1);
+			rStat[idx1%numShards].acquire();
+			userRelations.remove(idx1, uid2);
+			rStat[idx1%numShards].release();
+
+			int idx2 = memberIdxs.get(uid2);
+			rStat[idx2%numShards].acquire();
+			userRelations.remove(idx2, uid1);
+			rStat[idx2%numShards].release();
 		} catch (Exception e) {
 			System.out.println("Error in Rels");
 			e.printStackTrace(System.out);
@@ -4863,32 +4780,10 @@ public class CoreWorkload extends Workload
 	public void relateUsers_oneSide(int uid1, int uid2){
 		try {
 
-			rStat[memberIdxs.get(uid1)%numShards].acquire();
-			if(userRelations[memberIdxs.get(uid1)] != null){
-				HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid1)];
-				if(!rels.containsKey(uid2)){
-					rels.put(uid2,"");
-				}
-				userRelations[memberIdxs.get(uid1)]= rels;
-			}else{
-				HashMap<Integer, String> rels = new HashMap<Integer, String>();
-				rels.put(uid2,"");
-				userRelations[memberIdxs.get(uid1)]= rels;
-			}
-			//			
-			//			if(userRelations[memberIdxs.get(uid2)] != null){
-			//				HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid2)];
-			//				if(!rels.containsKey(uid1)){
-			//					rels.put(uid1,"");
-			//				}
-			//				userRelations[memberIdxs.get(uid2)]= rels;
-			//			}else{
-			//				HashMap<Integer, String> rels = new HashMap<Integer, String>();
-			//				rels.put(uid1,"");
-			//				userRelations[memberIdxs.get(uid2)]= rels;	
-			//			}
-			//
-			rStat[memberIdxs.get(uid1)%numShards].release();
+			int idx1 = memberIdxs.get(uid1);
+			rStat[idx1%numShards].acquire();
+			userRelations.add(idx1, uid2);
+			rStat[idx1%numShards].release();
 		}
 
 
@@ -4902,19 +4797,10 @@ public class CoreWorkload extends Workload
 
 	public void deRelateUsers_oneSide(int uid1, int uid2){
 		try {
-			rStat[memberIdxs.get(uid1)%numShards].acquire();
-			HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid1)];
-			if(rels.containsKey(uid2)){
-				rels.remove(uid2);
-			}
-			userRelations[memberIdxs.get(uid1)] = rels;
-
-			//			rels = userRelations[memberIdxs.get(uid2)];
-			//			if(rels.containsKey(uid1)){
-			//				rels.remove(uid1);
-			//			}
-			//			userRelations[memberIdxs.get(uid2)] = rels;
-			rStat[memberIdxs.get(uid1)%numShards].release();
+			int idx1 = memberIdxs.get(uid1);
+			rStat[idx1%numShards].acquire();
+			userRelations.remove(idx1, uid2);
+			rStat[idx1%numShards].release();
 		} catch (Exception e) {
 			System.out.println("Error in Rels");
 			e.printStackTrace(System.out);
@@ -4952,29 +4838,27 @@ public class CoreWorkload extends Workload
 	public  int viewNotRelatedUsers(int uid){
 		int key = -1;
 		try{
-			rStat[memberIdxs.get(uid)%numShards].acquire();
-			HashMap<Integer, String> rels = userRelations[memberIdxs.get(uid)];
+			int uidx = memberIdxs.get(uid);
+			rStat[uidx%numShards].acquire();
 			int id = buildKeyName(Client.numMembers) ;
-			if (Client.BENCHMARKING_MODE==Client.PARTITIONED ||Client.BENCHMARKING_MODE==Client.HYBRID_DELEGATE || Client.BENCHMARKING_MODE==Client.HYBRID_RETAIN)
+			if (Client.BENCHMARKING_MODE==Client.PARTITIONED ||Client.BENCHMARKING_MODE==Client.HYBRID_DELEGATE || Client.BENCHMARKING_MODE==Client.HYBRID_RETAIN){
 				id=memberIdxs.get(id);
-			//int idx = memberIdxs.get(id);==
-			//int idx = random.nextInt(usercount)+useroffset;
-			int temp;
-			Set<Integer> keys=rels.keySet();
-			for(int i=id; i<id+Client.numMembers; i++){
-				if (Client.BENCHMARKING_MODE==Client.PARTITIONED ||Client.BENCHMARKING_MODE==Client.HYBRID_DELEGATE || Client.BENCHMARKING_MODE==Client.HYBRID_RETAIN)
+				//int idx = random.nextInt(usercount)+useroffset;
+				int temp;
+				for(int i=id; i<id+Client.numMembers; i++){
 					temp=myMemberObjs[i%usercount].get_uid();
-				else
-					temp=i%Client.numMembers;
-				if(!rels.containsKey((temp))){
-					//					key = myMemberObjs[i%usercount].get_uid();
-					key=temp;
-					break;
+					if(!userRelations.contains(uidx, temp)){
+						key=temp;
+						break;
+					}
 				}
+			}else{
+				//the user ids are 0 to numMembers-1, skip the run of related ids following the random one
+				key = userRelations.nextNotRelated(uidx, id%Client.numMembers, Client.numMembers);
 			}
 			if(key == -1)
 				System.out.println("No more friends to allocate for  "+uid+" ; benchmark results invalid");
-			rStat[memberIdxs.get(uid)%numShards].release();	
+			rStat[uidx%numShards].release();	
 		}catch(Exception e){
 			System.out.println("Error in view not related");
 			e.printStackTrace(System.out);
@@ -4996,24 +4880,10 @@ public class CoreWorkload extends Workload
 			e.printStackTrace(System.out);
 			System.exit(-1);
 		}
-		try {
-			uStatSemaphores[shardIdx].acquire();
-			if (userStatusShards[shardIdx][idxInShard] == 'a'){
-				//user is active
-				uStatSemaphores[shardIdx].release();
-				return -1;
-			}else{
-				//user is not active
-				//activate it
-				userStatusShards[shardIdx][idxInShard] = 'a';
-				uStatSemaphores[shardIdx].release();
-				return 0;
-			}	
-		} catch (Exception e) {
-			System.out.println("Error-Cant activate any user");
-			e.printStackTrace(System.out);
-			System.exit(-1);
-		}
+		//if the user is not active activate it
+		if (activationTable.tryActivate(shardIdx, idxInShard))
+			return 0;
+		//user is active
 		return -1;
 	}
 
@@ -5023,36 +4893,17 @@ public class CoreWorkload extends Workload
 			int actualIdx = memberIdxs.get(uid);
 			int shardIdx = myMemberObjs[actualIdx].get_shardIdx();
 			int idxInShard = myMemberObjs[actualIdx].get_idxInShard();
-			uStatSemaphores[shardIdx].acquire();
-			int cnt =0; //needed for avoiding loops
-			//int shardscnt = 0;
 			//find a free member within this shard
-			while (userStatusShards[shardIdx][idxInShard] != 'd'){
-				if(cnt == userStatusShards[shardIdx].length){
-					uStatSemaphores[shardIdx].release();
-					/*shardscnt ++;
-					if(shardscnt == numShards){ //went through all the shards once
-						return -1;
-					}
-					shardIdx = (shardIdx+1)%numShards;
-					cnt = 0;
-					idxInShard = 0;
-					actualIdx = numShards*idxInShard+shardIdx;
-					uid = myMemberObjs[actualIdx].get_uid();
-					uStatSemaphores[shardIdx].acquire();
-					continue;*/
-					//					System.out.println("all users within this shard are busy: " + userStatusShards[shardIdx].length);
-					return -1;
-				}
-				idxInShard = (idxInShard+1);
-				idxInShard = idxInShard%userStatusShards[shardIdx].length;
+			int claimedIdx = activationTable.activateFrom(shardIdx, idxInShard, activationProbes);
+			if (claimedIdx == -1){
+				//all the users probed within this shard are busy
+				return -1;
+			}
+			if (claimedIdx != idxInShard){
 				//map to actual idx
-				actualIdx = numShards*idxInShard+shardIdx;
+				actualIdx = numShards*claimedIdx+shardIdx;
 				uid = myMemberObjs[actualIdx].get_uid();
-				cnt++;
 			}
-			userStatusShards[shardIdx][idxInShard] ='a';
-			uStatSemaphores[shardIdx].release();
 		} catch (Exception e) {
 			System.out.println("Error-Cant activate any user."+" user id="+uid+" "+e.getMessage());
 			e.printStackTrace(System.out);
@@ -5068,38 +4919,26 @@ public class CoreWorkload extends Workload
 		int shardIdx = myMemberObjs[actualIdx].get_shardIdx();
 		int idxInShard = myMemberObjs[actualIdx].get_idxInShard();
 
-		try {
-			uStatSemaphores[shardIdx].acquire();
-			if (userStatusShards[shardIdx][idxInShard] == 'd') {
-				System.out.println("Error - The user is already deactivated:"+uid);
-				System.exit(0);
-			}
-			userStatusShards[shardIdx][idxInShard]='d'; //Mark as available
-			uStatSemaphores[shardIdx].release();
-		} catch (Exception e) {
-			System.out.println("Error - couldnt deactivate user");
-			e.printStackTrace(System.out);
-			System.exit(-1);
+		//Mark as available
+		if (!activationTable.deactivate(shardIdx, idxInShard)) {
+			System.out.println("Error - The user is already deactivated:"+uid);
+			System.exit(0);
 		}
 
 		return ;
 	}
 
+	/**
+	 * @return the number of times a busy member was found while activating members
+	 */
+	public static long getFailedActivationClaims()
+	{
+		return activationTable == null ? 0 : activationTable.getFailedClaims();
+	}
+
 	public  void incrUserRef(int uid)
 	{
-		int actualIdx = memberIdxs.get(uid);
-		int shardIdx = myMemberObjs[actualIdx].get_shardIdx();
-		int idxInShard = myMemberObjs[actualIdx].get_idxInShard();		
-		try {
-			uFreqSemaphores[shardIdx].acquire();
-			userFreqShards[shardIdx][idxInShard]=userFreqShards[shardIdx][idxInShard]+1;  
-			uFreqSemaphores[shardIdx].release();
-		} catch (Exception e) {
-			System.out.println("Error-Cant increament users frequency of access");
-			e.printStackTrace(System.out);
-			System.exit(-1);
-		}
-		return;
+		userFreqs.increment(memberIdxs.get(uid));
 	}
 
 
@@ -5135,13 +4974,21 @@ public class CoreWorkload extends Workload
 		StringBuilder userFreqStats =new StringBuilder();
 		//int sum = 0;
 		for(int i=0; i<myMemberObjs.length; i++){
-			userFreqStats.append(myMemberObjs[i].get_uid()+" ,"+userFreqShards[myMemberObjs[i].get_shardIdx()][myMemberObjs[i].get_idxInShard()]+System.getProperty("line.separator"));
-			//sum += userFreqShards[myMemberObjs[i].get_shardIdx()][myMemberObjs[i].get_idxInShard()];	
+			userFreqStats.append(myMemberObjs[i].get_uid()+" ,"+userFreqs.get(i)+System.getProperty("line.separator"));
 		}
 
 		return userFreqStats;
 	}
 
+	/**
+	 * @return the skew of the accesses to the members, see MemberAccessCounters.getReport
+	 */
+	public static LinkedHashMap<String, Double> getFrequencyReport(){
+		if(userFreqs == null)
+			return new LinkedHashMap<String, Double>();
+		return userFreqs.getReport();
+	}
+
 	public static byte convert(boolean b) {
 		if (b) {
 			return 1;
@@ -5187,7 +5034,7 @@ public class CoreWorkload extends Workload
 				if (commandLineMode) {
 					System.out.println("generate profile owner id " + profilekeyname);
 				}
-				Vector<HashMap<String,ByteIterator>> fResult=new Vector<HashMap<String,ByteIterator>>();
+				Vector<HashMap<String,ByteIterator>> fResult=db.getResultVector();
 				long startReadf = System.nanoTime();
 				ret = db.listFriends(requestId1, profilekeyname, null, fResult,  insertImage, false);
 				long endReadf = System.nanoTime();
@@ -5287,7 +5134,7 @@ public class CoreWorkload extends Workload
 				if (ownerId==-1)
 					return 0;
 			}
-			Vector<HashMap<String,ByteIterator>> pResult=new Vector<HashMap<String,ByteIterator>>();
+			Vector<HashMap<String,ByteIterator>> pResult=db.getResultVector();
 			long startReadf = System.nanoTime();
 			ret = db.viewFriendReq(ownerId,pResult, insertImage, false);
 			if(ret < 0){
@@ -5516,7 +5363,7 @@ public class CoreWorkload extends Workload
 			return 0;
 		//		incrUserRef(keyname);
 		int profilekeyname = buildKeyName(usercount);
-		HashMap<String,ByteIterator> pResult=new HashMap<String,ByteIterator>();
+		HashMap<String,ByteIterator> pResult=db.getResultMap();
 		long startReadp = System.nanoTime();
 		int ret = db.viewProfile(keyname, profilekeyname, pResult, insertImage, false);
 		if(ret < 0){
@@ -5550,7 +5397,7 @@ public class CoreWorkload extends Workload
 			return 0;
 		//		incrUserRef(keyname);
 		int profilekeyname = buildKeyName(usercount);
-		Vector<HashMap<String,ByteIterator>> fResult=new Vector<HashMap<String,ByteIterator>>();
+		Vector<HashMap<String,ByteIterator>> fResult=db.getResultVector();
 		long startReadf = System.nanoTime();
 		int ret = db.listFriends(keyname, profilekeyname, null, fResult,  insertImage, false);
 		if(ret < 0){
@@ -5578,7 +5425,7 @@ public class CoreWorkload extends Workload
 		if(keyname == -1)
 			return 0;
 		//		incrUserRef(keyname);
-		Vector<HashMap<String,ByteIterator>> pResult=new Vector<HashMap<String,ByteIterator>>();
+		Vector<HashMap<String,ByteIterator>> pResult=db.getResultVector();
 		long startReadf = System.nanoTime();
 		int ret = db.viewFriendReq(keyname,pResult, insertImage, false);
 		if(ret < 0){
@@ -5624,20 +5471,9 @@ public class CoreWorkload extends Workload
 					System.out.println("There is an exception in inviteFriend.");
 					System.exit(0);
 				}
-				pendingFrnds[memberIdxs.get(noRelId)].add(keyname);
-				if(enforceFriendship){
-					try {
-						withPend.acquire();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-					if(usersWithpendingFrnds.get(noRelId) == null)
-						usersWithpendingFrnds.put(noRelId, 1);
-					else{
-						usersWithpendingFrnds.put(noRelId, usersWithpendingFrnds.get(noRelId)+1);
-					}
-					withPend.release();
-				}
+				pendingFrnds.add(memberIdxs.get(noRelId), keyname);
+				if(enforceFriendship)
+					addPendingCount(noRelId);
 				long endUpdatei = System.nanoTime();
 				numOpsDone++;
 				if(enableLogging){
@@ -5671,14 +5507,8 @@ public class CoreWorkload extends Workload
 		incrUserRef(keyname); 
 		if(!warmup){
 			int auserid = -1;
-			Vector<Integer> ids =pendingFrnds[memberIdxs.get(keyname)];
-			if(ids.size() <= 0 && enforceFriendship){
+			if(pendingFrnds.size(memberIdxs.get(keyname)) <= 0 && enforceFriendship){
 				//pick another user with pending friends that is not active
-				try {
-					withPend.acquire();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
 				Set<Integer> allUsers = usersWithpendingFrnds.keySet();
 				Iterator<Integer> allUsersIt = allUsers.iterator();
 				if(allUsers.size() > 0){
@@ -5692,20 +5522,17 @@ public class CoreWorkload extends Workload
 						if(isActive(newkeyname) != -1){
 							deactivateUser(keyname);
 							keyname = newkeyname;
-							ids =pendingFrnds[memberIdxs.get(keyname)];
 							incrUserRef(keyname);
 							break;
 						}
 					}
 				}/*else{
 					db.acceptFriend(-1, -1);
-					withPend.release();
 					return 0;
 				}*/
-				withPend.release();
 			}
-			if(ids.size() > 0){ //should always be true unless no one has friendship
-				auserid = ids.get(ids.size()-1);
+			if(pendingFrnds.size(memberIdxs.get(keyname)) > 0){ //should always be true unless no one has friendship
+				auserid = pendingFrnds.last(memberIdxs.get(keyname));
 				long startUpdatea = System.nanoTime();
 				int ret = 0;
 				ret = db.acceptFriend(auserid, keyname);
@@ -5713,21 +5540,10 @@ public class CoreWorkload extends Workload
 					System.out.println("There is an exception in acceptFriend.");
 					System.exit(0);
 				}
-				if(enforceFriendship){
-					try {
-						withPend.acquire();
-					} catch (InterruptedException e1) {
-						e1.printStackTrace();
-					}
-					int numPending = usersWithpendingFrnds.get(keyname);
-					if(numPending - 1 == 0)
-						usersWithpendingFrnds.remove(keyname);
-					else
-						usersWithpendingFrnds.put(keyname, numPending-1);
-					withPend.release();
-				}
+				if(enforceFriendship)
+					removePendingCount(keyname);
 				//remove from the list because it has been accepted
-				ids.remove(ids.size()-1);
+				pendingFrnds.removeLast(memberIdxs.get(keyname));
 				try {
 					aFrnds[memberIdxs.get(auserid)%numShards].acquire();
 					acceptedFrnds[memberIdxs.get(auserid)].put(keyname,"");
@@ -5787,14 +5603,8 @@ public class CoreWorkload extends Workload
 		incrUserRef(keyname);
 		if(!warmup){
 			int auserid = -1;
-			Vector<Integer> ids =pendingFrnds[memberIdxs.get(keyname)];
-			if(ids.size() <= 0 && enforceFriendship){
+			if(pendingFrnds.size(memberIdxs.get(keyname)) <= 0 && enforceFriendship){
 				//pick another user with pending friends that is not active
-				try {
-					withPend.acquire();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
 				Set<Integer> allUsers = usersWithpendingFrnds.keySet();
 				if(allUsers.size() > 0){
 					int explored = allUsers.size();
@@ -5809,16 +5619,14 @@ public class CoreWorkload extends Workload
 						if(isActive(newkeyname) != -1){
 							deactivateUser(keyname);
 							keyname = newkeyname;
-							ids =pendingFrnds[memberIdxs.get(keyname)];
 							incrUserRef(keyname);
 							break;
 						}
 					}
 				}
-				withPend.release();
 			}
-			if(ids.size() > 0){ //should always be true unless no one has pending requests
-				auserid = ids.get(ids.size()-1);
+			if(pendingFrnds.size(memberIdxs.get(keyname)) > 0){ //should always be true unless no one has pending requests
+				auserid = pendingFrnds.last(memberIdxs.get(keyname));
 				int ret = 0;			
 				long startUpdatea = System.nanoTime();
 				ret = db.rejectFriend(auserid, keyname);
@@ -5827,22 +5635,9 @@ public class CoreWorkload extends Workload
 					System.exit(0);
 				}
 				//remove from the list coz it has been rejected
-				ids.remove(ids.size()-1);
-				if(enforceFriendship){
-					try {
-						withPend.acquire();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-
-					int numPending = usersWithpendingFrnds.get(keyname);
-					if(numPending - 1 == 0){
-						usersWithpendingFrnds.remove(keyname);
-					}else{
-						usersWithpendingFrnds.put(keyname, numPending-1);
-					}
-					withPend.release();
-				}
+				pendingFrnds.removeLast(memberIdxs.get(keyname));
+				if(enforceFriendship)
+					removePendingCount(keyname);
 
 				long endUpdatea = System.nanoTime();
 				numOpsDone++;
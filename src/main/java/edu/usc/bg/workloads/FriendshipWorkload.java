@@ -22,11 +22,11 @@ package edu.usc.bg.workloads;
 
 import java.util.HashMap;
 import java.util.Properties;
-import java.util.Random;
 import java.util.Vector;
 
 import edu.usc.bg.base.Client;
 import edu.usc.bg.base.DB;
+import edu.usc.bg.base.Utils;
 import edu.usc.bg.base.Workload;
 import edu.usc.bg.base.WorkloadException;
 
@@ -57,7 +57,6 @@ public class FriendshipWorkload extends Workload {
 	int flags[];
 	boolean feedLoad = false;
 	Vector<Integer> _members;
-	Random random = new Random();
 
 	public FriendshipWorkload() {
 
@@ -82,7 +81,7 @@ public class FriendshipWorkload extends Workload {
 	private void addFriends(DB db, int dbKey, int keyNum) {
 		int res = 0;
 		// Generate the fields using StringByteIterator and RandomByteIterator.
-		if ((random.nextInt(userCount) + 1) > userCount * friendPercentage)
+		if ((Utils.random().nextInt(userCount) + 1) > userCount * friendPercentage)
 		{		
 			res = db.inviteFriend(dbKey, keyNum); //data = new StringByteIterator("1"); // Pending.
 		}else {					
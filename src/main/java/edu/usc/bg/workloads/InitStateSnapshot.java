@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+
+import edu.usc.bg.Member;
+import edu.usc.bg.base.ByteIterator;
+import edu.usc.bg.base.Client;
+import edu.usc.bg.base.DB;
+import edu.usc.bg.base.DBFactory;
+
+/**
+ * Saves the initial state of the members queried from the data store to a file so the following runs
+ * against the same data store can read it instead of querying every member again.
+ * The file holds the member ids, the inviters, friends and resources of every member and the initial stats.
+ * The snapshot a run starts from is deleted by the first update the run issues (and by a load), it is only
+ * reused while the data store is not modified. The pending, friend and comment counts of a sample of the members
+ * are also checked against the data store as a sanity check, it catches a snapshot of another data store but
+ * not every modification.
+ */
+public class InitStateSnapshot {
+	static final int MAGIC = 0x42475353;
+	static final int VERSION = 1;
+	//number of members whose profile is checked against the data store
+	static final int NUM_CHECKED_MEMBERS = 100;
+
+	//the snapshot this run started from, null once it is deleted
+	static volatile String activeFile = null;
+
+	/**
+	 * Writes the state of the members, the file is replaced once it is complete.
+	 */
+	public static void save(String fileName) {
+		Member[] members = CoreWorkload.myMemberObjs;
+		File file = new File(fileName);
+		File tmp = new File(fileName + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(members.length);
+			for (Member m : members)
+				out.writeInt(m.get_uid());
+			for (int i = 0; i < members.length; i++) {
+				int idx = CoreWorkload.memberIdxs.get(members[i].get_uid());
+				int numPendings = CoreWorkload.pendingFrnds.size(idx);
+				out.writeInt(numPendings);
+				for (int p = 0; p < numPendings; p++)
+					out.writeInt(CoreWorkload.pendingFrnds.get(idx, p));
+				out.writeInt(CoreWorkload.acceptedFrnds[idx].size());
+				for (int friend : CoreWorkload.acceptedFrnds[idx].keySet())
+					out.writeInt(friend);
+				Vector<Integer> resources = CoreWorkload.createdResources[idx];
+				out.writeInt(resources.size());
+				for (int rid : resources)
+					out.writeInt(rid);
+			}
+			out.writeInt(CoreWorkload.initStats.size());
+			for (Map.Entry<String, Integer> stat : CoreWorkload.initStats.entrySet()) {
+				out.writeUTF(stat.getKey());
+				out.writeInt(stat.getValue());
+			}
+			out.close();
+			out = null;
+			if (!tmp.renameTo(file)) {
+				file.delete();
+				if (!tmp.renameTo(file))
+					throw new IOException("Could not rename " + tmp + " to " + file);
+			}
+			System.out.println("Saved the initial state of " + members.length + " members to " + fileName);
+		} catch (IOException e) {
+			System.out.println("Could not save the initial state to " + fileName + " " + e.getMessage());
+			e.printStackTrace(System.out);
+		} finally {
+			try {
+				if (out != null)
+					out.close();
+			} catch (IOException e) {
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the snapshot once this run issues its first update, see updateIssued.
+	 */
+	public static void track(String fileName) {
+		activeFile = fileName;
+	}
+
+	/**
+	 * Called before every update issued to the data store, deletes the snapshot the run started from the first time.
+	 */
+	public static void updateIssued() {
+		if (activeFile == null)
+			return;
+		String fileName;
+		synchronized (InitStateSnapshot.class) {
+			fileName = activeFile;
+			activeFile = null;
+		}
+		if (fileName != null)
+			invalidate(fileName);
+	}
+
+	/**
+	 * Deletes the snapshot, the data store it was taken from is modified.
+	 */
+	public static void invalidate(String fileName) {
+		File file = new File(fileName);
+		if (!file.exists())
+			return;
+		if (file.delete())
+			System.out.println("Deleted the initial state snapshot " + fileName + ", the data store is modified");
+		else
+			System.out.println("Could not delete the initial state snapshot " + fileName + " of the modified data store, delete it before the next run");
+	}
+
+	/**
+	 * Reads the state of the members and adds it to the workload if it matches the data store.
+	 * @return false if the file does not exist, is not for these members or does not match the data store,
+	 * nothing is added to the workload then
+	 */
+	public static boolean load(CoreWorkload workload, String fileName, Properties props) {
+		File file = new File(fileName);
+		if (!file.exists())
+			return false;
+		Member[] members = CoreWorkload.myMemberObjs;
+		int[][] pendings, confirmed, resources;
+		HashMap<String, Integer> stats;
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				System.out.println("Ignoring " + fileName + ", it is not an initial state snapshot of this version");
+				return false;
+			}
+			if (in.readInt() != members.length) {
+				System.out.println("Ignoring " + fileName + ", it was taken for other members");
+				return false;
+			}
+			for (Member m : members) {
+				if (in.readInt() != m.get_uid()) {
+					System.out.println("Ignoring " + fileName + ", it was taken for other members");
+					return false;
+				}
+			}
+			pendings = new int[members.length][];
+			confirmed = new int[members.length][];
+			resources = new int[members.length][];
+			for (int i = 0; i < members.length; i++) {
+				pendings[i] = readIds(in);
+				confirmed[i] = readIds(in);
+				resources[i] = readIds(in);
+			}
+			int numStats = in.readInt();
+			stats = new HashMap<String, Integer>(numStats * 2);
+			for (int s = 0; s < numStats; s++)
+				stats.put(in.readUTF(), in.readInt());
+		} catch (IOException e) {
+			System.out.println("Ignoring " + fileName + ", it could not be read " + e.getMessage());
+			return false;
+		} finally {
+			try {
+				if (in != null)
+					in.close();
+			} catch (IOException e) {
+				e.printStackTrace(System.out);
+			}
+		}
+
+		if (!matchesDataStore(members, resources, stats, props)) {
+			System.out.println("Ignoring " + fileName + ", the data store was modified since it was taken");
+			return false;
+		}
+		for (int i = 0; i < members.length; i++)
+			workload.addMemberState(members[i].get_uid(), pendings[i], confirmed[i], resources[i]);
+		CoreWorkload.initStats.putAll(stats);
+		System.out.println("Read the initial state of " + members.length + " members from " + fileName);
+		return true;
+	}
+
+	static int[] readIds(DataInputStream in) throws IOException {
+		int[] ids = new int[in.readInt()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = in.readInt();
+		return ids;
+	}
+
+	/**
+	 * Compares the pending and friend counts of members spread over the snapshot with their profile in the data store,
+	 * and the number of comments on their first resource.
+	 */
+	static boolean matchesDataStore(Member[] members, int[][] resources, HashMap<String, Integer> stats, Properties props) {
+		if (members.length == 0)
+			return true;
+		String dbname = props.getProperty(Client.DB_CLIENT_PROPERTY, Client.DB_CLIENT_PROPERTY_DEFAULT);
+		DB db;
+		try {
+			db = DBFactory.newDB(dbname, props);
+			db.init();
+		} catch (Exception e) {
+			e.printStackTrace(System.out);
+			return false;
+		}
+		boolean matches = true;
+		int step = Math.max(1, members.length / NUM_CHECKED_MEMBERS);
+		for (int i = 0; i < members.length && matches; i += step) {
+			int uid = members[i].get_uid();
+			HashMap<String, ByteIterator> profile = db.getResultMap();
+			if (db.viewProfile(uid, uid, profile, false, false) < 0) {
+				matches = false;
+				break;
+			}
+			Integer pf = stats.get("PENDFRND-" + uid);
+			Integer cf = stats.get("ACCEPTFRND-" + uid);
+			matches = pf != null && cf != null
+					&& pf == Integer.parseInt(profile.get("pendingcount").toString().trim())
+					&& cf == Integer.parseInt(profile.get("friendcount").toString().trim());
+			if (matches && resources[i].length > 0) {
+				Vector<HashMap<String, ByteIterator>> comments = db.getResultVector();
+				Integer pc = stats.get("POSTCOMMENT-" + resources[i][0]);
+				matches = db.viewCommentOnResource(uid, uid, resources[i][0], comments) >= 0
+						&& pc != null && pc == comments.size();
+			}
+		}
+		try {
+			db.cleanup(true);
+		} catch (Exception e) {
+			e.printStackTrace(System.out);
+		}
+		return matches;
+	}
+}
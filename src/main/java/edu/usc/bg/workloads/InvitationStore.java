@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the pending invitations of every member, the ids of the inviters in the order they invited, as an
+ * int array per member. A member is identified by its index (memberIdxs).
+ * The operations on a member lock one of a fixed set of stripes, threads working on different members
+ * rarely wait on each other.
+ */
+public class InvitationStore {
+	static final int NUM_STRIPES = 64;
+	static final int INITIAL_CAPACITY = 4;
+	static final int[] EMPTY = new int[0];
+
+	final int[][] inviters;
+	final int[] counts;
+	final Object[] stripes = new Object[NUM_STRIPES];
+
+	public InvitationStore(int numMembers) {
+		inviters = new int[numMembers][];
+		counts = new int[numMembers];
+		for (int i = 0; i < numMembers; i++)
+			inviters[i] = EMPTY;
+		for (int i = 0; i < NUM_STRIPES; i++)
+			stripes[i] = new Object();
+	}
+
+	Object lock(int idx) {
+		return stripes[idx & (NUM_STRIPES - 1)];
+	}
+
+	public int getNumMembers() {
+		return counts.length;
+	}
+
+	public void add(int idx, int inviter) {
+		synchronized (lock(idx)) {
+			int cnt = counts[idx];
+			if (cnt == inviters[idx].length)
+				inviters[idx] = Arrays.copyOf(inviters[idx], Math.max(INITIAL_CAPACITY, cnt + (cnt >> 1)));
+			inviters[idx][cnt] = inviter;
+			counts[idx] = cnt + 1;
+		}
+	}
+
+	public int size(int idx) {
+		synchronized (lock(idx)) {
+			return counts[idx];
+		}
+	}
+
+	/**
+	 * @return the inviter at position pos, -1 if the member has fewer invitations
+	 */
+	public int get(int idx, int pos) {
+		synchronized (lock(idx)) {
+			return pos < counts[idx] ? inviters[idx][pos] : -1;
+		}
+	}
+
+	/**
+	 * @return the latest inviter, -1 if the member has no pending invitation
+	 */
+	public int last(int idx) {
+		synchronized (lock(idx)) {
+			return counts[idx] > 0 ? inviters[idx][counts[idx] - 1] : -1;
+		}
+	}
+
+	/**
+	 * Removes the invitation at position pos, the following ones keep their order.
+	 * @return the inviter removed, -1 if the member has fewer invitations
+	 */
+	public int removeAt(int idx, int pos) {
+		synchronized (lock(idx)) {
+			int cnt = counts[idx];
+			if (pos < 0 || pos >= cnt)
+				return -1;
+			int inviter = inviters[idx][pos];
+			System.arraycopy(inviters[idx], pos + 1, inviters[idx], pos, cnt - pos - 1);
+			counts[idx] = cnt - 1;
+			return inviter;
+		}
+	}
+
+	/**
+	 * @return the latest inviter removed, -1 if the member has no pending invitation
+	 */
+	public int removeLast(int idx) {
+		synchronized (lock(idx)) {
+			int cnt = counts[idx];
+			if (cnt == 0)
+				return -1;
+			counts[idx] = cnt - 1;
+			return inviters[idx][cnt - 1];
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts the accesses to every member without locks.
+ * The counts are striped, a thread increments the counters of its own stripe so threads
+ * accessing the same popular member rarely update the same counter, and the stripes are
+ * summed when the counts are read.
+ */
+public class MemberAccessCounters {
+	static final int MAX_STRIPES = 8;
+
+	final AtomicIntegerArray[] stripes;
+	final int stripeMask;
+
+	public MemberAccessCounters(int numMembers) {
+		int numStripes = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors())));
+		stripes = new AtomicIntegerArray[numStripes];
+		for (int i = 0; i < numStripes; i++)
+			stripes[i] = new AtomicIntegerArray(numMembers);
+		stripeMask = numStripes - 1;
+	}
+
+	/**
+	 * @param idx index of the member
+	 */
+	public void increment(int idx) {
+		stripes[(int) Thread.currentThread().getId() & stripeMask].getAndIncrement(idx);
+	}
+
+	public long get(int idx) {
+		long count = 0;
+		for (AtomicIntegerArray stripe : stripes)
+			count += stripe.get(idx);
+		return count;
+	}
+
+	public int getNumMembers() {
+		return stripes[0].length();
+	}
+
+	/**
+	 * Summarizes the skew of the accesses: the total and max count, the share of the accesses
+	 * to the most accessed 1%, 10% and 20% of the members and the number of members per
+	 * power of two count range.
+	 * @return the measurements in the order they should be reported
+	 */
+	public LinkedHashMap<String, Double> getReport() {
+		int numMembers = getNumMembers();
+		long[] counts = new long[numMembers];
+		long total = 0, max = 0;
+		int accessed = 0;
+		for (int i = 0; i < numMembers; i++) {
+			counts[i] = get(i);
+			total += counts[i];
+			max = Math.max(max, counts[i]);
+			if (counts[i] > 0)
+				accessed++;
+		}
+		LinkedHashMap<String, Double> report = new LinkedHashMap<String, Double>();
+		report.put("TotalAccesses", (double) total);
+		report.put("MembersAccessed", (double) accessed);
+		report.put("MaxAccesses", (double) max);
+		Arrays.sort(counts);
+		for (int pct : new int[] { 1, 10, 20 }) {
+			int top = Math.max(1, (int) ((long) numMembers * pct / 100));
+			long topTotal = 0;
+			for (int i = numMembers - 1; i >= 0 && i >= numMembers - top; i--)
+				topTotal += counts[i];
+			report.put("Top" + pct + "%MembersShare(%)", total == 0 ? 0 : topTotal * 100.0 / total);
+		}
+		//counts are sorted, walk the power of two ranges
+		int i = 0;
+		while (i < numMembers && counts[i] == 0)
+			i++;
+		report.put("Members(0)", (double) i);
+		for (long low = 1; i < numMembers; low *= 2) {
+			long high = low * 2 - 1;
+			int start = i;
+			while (i < numMembers && counts[i] <= high)
+				i++;
+			report.put("Members(" + (low == high ? "" + low : low + "-" + high) + ")", (double) (i - start));
+		}
+		return report;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks which members are active (issuing a session) without locks.
+ * A member is claimed with a compare and set of its slot from DEACTIVATED to ACTIVATED,
+ * the members are laid out in the same shards as the other per member structures of the workload.
+ */
+public class MemberActivationTable {
+	static final int DEACTIVATED = 0;
+	static final int ACTIVATED = 1;
+
+	final AtomicIntegerArray[] shards;
+	//number of times a busy member was found while claiming one
+	final LongAdder failedClaims = new LongAdder();
+
+	public MemberActivationTable(int[] shardSizes) {
+		shards = new AtomicIntegerArray[shardSizes.length];
+		for (int i = 0; i < shardSizes.length; i++)
+			shards[i] = new AtomicIntegerArray(shardSizes[i]);
+	}
+
+	public int getShardSize(int shardIdx) {
+		return shards[shardIdx].length();
+	}
+
+	/**
+	 * @return true if the member was deactivated and is now claimed by the caller
+	 */
+	public boolean tryActivate(int shardIdx, int idxInShard) {
+		AtomicIntegerArray shard = shards[shardIdx];
+		//read before the CAS, a busy member is not written to
+		if (shard.get(idxInShard) == DEACTIVATED && shard.compareAndSet(idxInShard, DEACTIVATED, ACTIVATED))
+			return true;
+		failedClaims.increment();
+		return false;
+	}
+
+	/**
+	 * Claims the member or, if it is busy, the first deactivated member following it in its shard.
+	 * @param maxProbes the number of members tried at most, 0 or less tries the whole shard
+	 * @return the index in the shard of the member claimed, -1 if none could be claimed
+	 */
+	public int activateFrom(int shardIdx, int idxInShard, int maxProbes) {
+		int len = shards[shardIdx].length();
+		int probes = maxProbes <= 0 || maxProbes > len ? len : maxProbes;
+		for (int i = 0; i < probes; i++) {
+			int idx = (idxInShard + i) % len;
+			if (tryActivate(shardIdx, idx))
+				return idx;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return false if the member was not active
+	 */
+	public boolean deactivate(int shardIdx, int idxInShard) {
+		return shards[shardIdx].compareAndSet(idxInShard, ACTIVATED, DEACTIVATED);
+	}
+
+	public boolean isActive(int shardIdx, int idxInShard) {
+		return shards[shardIdx].get(idxInShard) == ACTIVATED;
+	}
+
+	public long getFailedClaims() {
+		return failedClaims.sum();
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.util.Arrays;
+
+/**
+ * Maps a member id to the index of the member in the workload's internal structures without boxing.
+ * Member ids are usually contiguous (useroffset to useroffset+usercount-1) or evenly spread over the
+ * BG clients, they are then kept in an int array indexed by id. Ids spread too far apart are kept in an
+ * open addressing hash table instead.
+ * Filled in the workload's init before the client threads start, it is then only read.
+ */
+public class MemberIndex {
+	//returned for an id that is not a member of this BG client
+	public static final int NO_INDEX = -1;
+	//an id range larger than this many times the number of members switches to the hash table
+	static final int MAX_DENSE_FACTOR = 4;
+
+	//dense representation, index of member id base+i in dense[i]
+	int base = 0;
+	int[] dense = new int[0];
+	//hash table representation, null while the dense one is used
+	int[] keys = null;
+	int[] values = null;
+	int size = 0;
+
+	public void put(int memberId, int idx) {
+		if (keys != null) {
+			putHashed(memberId, idx);
+			return;
+		}
+		if (size == 0 && dense.length == 0)
+			base = memberId;
+		long offset = (long) memberId - base;
+		if (offset < 0 || offset >= dense.length) {
+			long low = Math.min(base, memberId);
+			long high = Math.max((long) base + dense.length - 1, memberId);
+			long range = high - low + 1;
+			if (range > MAX_DENSE_FACTOR * ((long) size + 1) + 16) {
+				toHashed();
+				putHashed(memberId, idx);
+				return;
+			}
+			//leave room to append the following ids
+			int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(range, Math.min((long) dense.length * 2, MAX_DENSE_FACTOR * ((long) size + 1))));
+			int[] newDense = new int[capacity];
+			Arrays.fill(newDense, NO_INDEX);
+			System.arraycopy(dense, 0, newDense, (int) (base - low), dense.length);
+			dense = newDense;
+			base = (int) low;
+			offset = (long) memberId - base;
+		}
+		if (dense[(int) offset] == NO_INDEX)
+			size++;
+		dense[(int) offset] = idx;
+	}
+
+	/**
+	 * @return the index of the member or NO_INDEX if the id is not a member of this BG client
+	 */
+	public int get(int memberId) {
+		if (keys == null) {
+			long offset = (long) memberId - base;
+			if (offset < 0 || offset >= dense.length)
+				return NO_INDEX;
+			return dense[(int) offset];
+		}
+		int mask = keys.length - 1;
+		for (int slot = hash(memberId) & mask; ; slot = (slot + 1) & mask) {
+			if (values[slot] == NO_INDEX)
+				return NO_INDEX;
+			if (keys[slot] == memberId)
+				return values[slot];
+		}
+	}
+
+	public boolean containsKey(int memberId) {
+		return get(memberId) != NO_INDEX;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	static int hash(int memberId) {
+		int h = memberId * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	void toHashed() {
+		int[] oldDense = dense;
+		int oldBase = base;
+		dense = new int[0];
+		size = 0;
+		allocateTable(Math.max(16, Integer.highestOneBit(Math.max(1, oldDense.length)) * 2));
+		for (int i = 0; i < oldDense.length; i++) {
+			if (oldDense[i] != NO_INDEX)
+				putHashed(oldBase + i, oldDense[i]);
+		}
+	}
+
+	void allocateTable(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, NO_INDEX);
+	}
+
+	void putHashed(int memberId, int idx) {
+		//keep the table at most half full
+		if ((size + 1) * 2 > keys.length) {
+			int[] oldKeys = keys;
+			int[] oldValues = values;
+			allocateTable(keys.length * 2);
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldValues[i] != NO_INDEX)
+					putHashed(oldKeys[i], oldValues[i]);
+			}
+		}
+		int mask = keys.length - 1;
+		for (int slot = hash(memberId) & mask; ; slot = (slot + 1) & mask) {
+			if (values[slot] == NO_INDEX) {
+				keys[slot] = memberId;
+				values[slot] = idx;
+				size++;
+				return;
+			}
+			if (keys[slot] == memberId) {
+				values[slot] = idx;
+				return;
+			}
+		}
+	}
+}
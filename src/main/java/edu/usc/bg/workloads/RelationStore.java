@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.workloads;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the members every member is related to (friends or invited) as a sorted int array per member,
+ * about 4 bytes per relation instead of a HashMap entry and a boxed key.
+ * A member is identified by its index (memberIdxs), the related members by their user id.
+ * Not synchronized, the workload serializes the operations on a member with its rStat semaphore.
+ */
+public class RelationStore {
+	static final int INITIAL_CAPACITY = 4;
+	static final int[] EMPTY = new int[0];
+
+	final int[][] relations;
+	final int[] counts;
+
+	public RelationStore(int numMembers) {
+		relations = new int[numMembers][];
+		counts = new int[numMembers];
+		for (int i = 0; i < numMembers; i++)
+			relations[i] = EMPTY;
+	}
+
+	public int getNumMembers() {
+		return relations.length;
+	}
+
+	public boolean contains(int idx, int uid) {
+		return Arrays.binarySearch(relations[idx], 0, counts[idx], uid) >= 0;
+	}
+
+	/**
+	 * @return false if the members were already related
+	 */
+	public boolean add(int idx, int uid) {
+		int[] rels = relations[idx];
+		int cnt = counts[idx];
+		int pos = Arrays.binarySearch(rels, 0, cnt, uid);
+		if (pos >= 0)
+			return false;
+		pos = -pos - 1;
+		if (cnt == rels.length) {
+			int[] grown = new int[Math.max(INITIAL_CAPACITY, cnt + (cnt >> 1))];
+			System.arraycopy(rels, 0, grown, 0, pos);
+			System.arraycopy(rels, pos, grown, pos + 1, cnt - pos);
+			rels = grown;
+		} else {
+			System.arraycopy(rels, pos, rels, pos + 1, cnt - pos);
+		}
+		rels[pos] = uid;
+		relations[idx] = rels;
+		counts[idx] = cnt + 1;
+		return true;
+	}
+
+	/**
+	 * @return false if the members were not related
+	 */
+	public boolean remove(int idx, int uid) {
+		int[] rels = relations[idx];
+		int cnt = counts[idx];
+		int pos = Arrays.binarySearch(rels, 0, cnt, uid);
+		if (pos < 0)
+			return false;
+		System.arraycopy(rels, pos + 1, rels, pos, cnt - pos - 1);
+		counts[idx] = cnt - 1;
+		return true;
+	}
+
+	public int size(int idx) {
+		return counts[idx];
+	}
+
+	/**
+	 * @return the user ids the member is related to, in increasing order
+	 */
+	public int[] toArray(int idx) {
+		return Arrays.copyOf(relations[idx], counts[idx]);
+	}
+
+	/**
+	 * Finds the first user id the member is not related to, going through the ids from to numIds-1
+	 * and then 0 to from-1, when the user ids are 0 to numIds-1.
+	 * The ids of the member's run of consecutive relations are skipped without testing them one by one.
+	 * @return the user id or -1 if the member is related to every id
+	 */
+	public int nextNotRelated(int idx, int from, int numIds) {
+		int[] rels = relations[idx];
+		int cnt = counts[idx];
+		int candidate = firstGap(rels, cnt, from, numIds);
+		if (candidate < numIds)
+			return candidate;
+		candidate = firstGap(rels, cnt, 0, from);
+		return candidate < from ? candidate : -1;
+	}
+
+	/**
+	 * @return the first id in [from, to) that is not in rels, to if they are all in it
+	 */
+	static int firstGap(int[] rels, int cnt, int from, int to) {
+		int pos = Arrays.binarySearch(rels, 0, cnt, from);
+		if (pos < 0)
+			return from;
+		int candidate = from;
+		while (candidate < to && pos < cnt && rels[pos] == candidate) {
+			pos++;
+			candidate++;
+		}
+		return candidate;
+	}
+}
@@ -27,7 +27,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Properties;
-import java.util.Random;
 import java.util.Vector;
 
 import edu.usc.bg.base.ByteIterator;
@@ -35,6 +34,7 @@ import edu.usc.bg.base.Client;
 import edu.usc.bg.base.DB;
 import edu.usc.bg.base.ObjectByteIterator;
 import edu.usc.bg.base.RandomByteIterator;
+import edu.usc.bg.base.Utils;
 import edu.usc.bg.base.Workload;
 import edu.usc.bg.base.WorkloadException;
 import edu.usc.bg.base.generator.CounterGenerator;
@@ -67,7 +67,6 @@ public class ResourceWorkload extends Workload {
     int recordCount = userCount * avgResourceCount; // Resource number.
 	int keyCounter = -1; // Counter for controlling the creator ID.
 	CounterGenerator creatorSequence;
-	Random random = new Random();
 	int creatorNum;
 	Vector<Integer> _members;
 	int keyIdx;
@@ -90,7 +89,7 @@ public class ResourceWorkload extends Workload {
 
 	// Return a date using the specific format.
 	public String getDate(){
-		Date date = new Date(random.nextLong()%MAX_INTERVAL + BASE_INTERVAL);
+		Date date = new Date(Utils.random().nextLong()%MAX_INTERVAL + BASE_INTERVAL);
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 		String dateString = sdf.format(date);
 		return dateString;
@@ -108,7 +107,7 @@ public class ResourceWorkload extends Workload {
 			if(1 == i){
 				data = new ObjectByteIterator(Integer.toString(creatorNum).getBytes()); // Creator ID.
 			}else if(2 == i){
-				data = new ObjectByteIterator(Integer.toString(_members.get(random.nextInt(userCount))).getBytes()); // WallUser ID.
+				data = new ObjectByteIterator(Integer.toString(_members.get(Utils.random().nextInt(userCount))).getBytes()); // WallUser ID.
 			}else if(6 == i){
 				data = new ObjectByteIterator(getDate().getBytes()); // Doc.
 			}else{
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+
+package edu.usc.bg.workloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.usc.bg.base.ByteIterator;
+import edu.usc.bg.base.DB;
+import edu.usc.bg.base.DBWrapper;
+import edu.usc.bg.base.ObjectByteIterator;
+import edu.usc.bg.base.RandomByteIterator;
+import edu.usc.bg.base.TraceFormat;
+import edu.usc.bg.base.TraceReader;
+import edu.usc.bg.base.Workload;
+import edu.usc.bg.base.WorkloadException;
+
+/**
+ * Replays an action trace recorded with tracerecordfile (see TraceFormat) instead of generating the actions.
+ * The client threads take the actions of the trace one at a time, in the order they were recorded, and issue
+ * them with the members, resources and comments they were recorded with. Each call of doTransaction issues one action.
+ * In open mode an action is issued at its recorded time (scaled by tracetimescale) since the start of the replay,
+ * the actions of a trace recorded with N threads need about N threads to keep up, their response time is measured
+ * from that time. In closed mode the actions are
+ * issued as fast as the threads can issue them.
+ * The run stops once every action is issued. The actions are not logged for validation.
+ */
+public class TraceWorkload extends Workload
+{
+	public static final String TRACE_FILE_PROPERTY = "tracefile";
+	//open or closed
+	public static final String TRACE_REPLAY_MODE_PROPERTY = "tracereplaymode";
+	public static final String TRACE_REPLAY_MODE_PROPERTY_DEFAULT = "open";
+	//the recorded times are multiplied by it, 0.5 replays the trace twice as fast
+	public static final String TRACE_TIME_SCALE_PROPERTY = "tracetimescale";
+	public static final String TRACE_TIME_SCALE_PROPERTY_DEFAULT = "1";
+	//an action issued this late compared to its scaled time is counted as late
+	static final long LATE_NANOS = 1000000;
+
+	TraceReader trace;
+	boolean openLoop;
+	double timeScale;
+	final AtomicLong nextRecord = new AtomicLong(0);
+	//System.nanoTime() when the first action was taken
+	final AtomicLong startTime = new AtomicLong(Long.MIN_VALUE);
+	final AtomicLong lateActions = new AtomicLong(0);
+
+	@Override
+	public void init(Properties p, Vector<Integer> members) throws WorkloadException
+	{
+		String fileName = p.getProperty(TRACE_FILE_PROPERTY);
+		if (fileName == null)
+			throw new WorkloadException("Missing property: " + TRACE_FILE_PROPERTY);
+		try {
+			trace = new TraceReader(new File(fileName));
+		} catch (IOException e) {
+			throw new WorkloadException("Could not read the trace " + fileName, e);
+		}
+		openLoop = !p.getProperty(TRACE_REPLAY_MODE_PROPERTY, TRACE_REPLAY_MODE_PROPERTY_DEFAULT).equalsIgnoreCase("closed");
+		timeScale = Double.parseDouble(p.getProperty(TRACE_TIME_SCALE_PROPERTY, TRACE_TIME_SCALE_PROPERTY_DEFAULT));
+		nextRecord.set(0);
+		startTime.set(Long.MIN_VALUE);
+		lateActions.set(0);
+		System.out.println("Replaying " + trace.getNumRecords() + " actions from " + fileName + (openLoop ? " at " + timeScale + " times their recorded time" : " closed loop"));
+	}
+
+	@Override
+	public boolean doInsert(DB db, Object threadstate)
+	{
+		System.out.println("The trace workload does not load data, use the user, friendship and resource workloads.");
+		return false;
+	}
+
+	@Override
+	public int doTransaction(DB db, Object threadstate, int threadid, StringBuilder updateLog, StringBuilder readLog, int seqID,
+			HashMap<String, Integer> resUpdateOperations, HashMap<String, Integer> friendshipInfo, HashMap<String, Integer> pendingInfo,
+			int thinkTime, boolean insertImage, boolean warmup)
+	{
+		//the trace is replayed once, by the benchmark threads
+		if (warmup)
+			return -1;
+		long record = nextRecord.getAndIncrement();
+		if (record >= trace.getNumRecords()) {
+			if (record == trace.getNumRecords())
+				requestStop();
+			return -1;
+		}
+		startTime.compareAndSet(Long.MIN_VALUE, System.nanoTime());
+		if (openLoop) {
+			long due = startTime.get() + (long) (trace.getTime(record) * timeScale);
+			long wait;
+			while ((wait = due - System.nanoTime()) > 0 && !isStopRequested())
+				LockSupport.parkNanos(wait);
+			if (-wait > LATE_NANOS)
+				lateActions.getAndIncrement();
+			//the response time is measured from when the action was due, the client thread resets it once the session ends
+			if (db instanceof DBWrapper)
+				((DBWrapper) db).setIntendedStartTime(due);
+		}
+		return issue(db, record, insertImage) < 0 ? 0 : 1;
+	}
+
+	int issue(DB db, long record, boolean insertImage)
+	{
+		int member = trace.getMember(record);
+		int otherMember = trace.getOtherMember(record);
+		switch (trace.getAction(record)) {
+		case TraceFormat.PROFILE:
+			return db.viewProfile(member, otherMember, db.getResultMap(), insertImage, false);
+		case TraceFormat.FRIENDS:
+			return db.listFriends(member, otherMember, null, db.getResultVector(), insertImage, false);
+		case TraceFormat.PENDING:
+			return db.viewFriendReq(member, db.getResultVector(), insertImage, false);
+		case TraceFormat.ACCEPT:
+			return db.acceptFriend(member, otherMember);
+		case TraceFormat.REJECT:
+			return db.rejectFriend(member, otherMember);
+		case TraceFormat.INV:
+			return db.inviteFriend(member, otherMember);
+		case TraceFormat.UNFRIEND:
+			return db.thawFriendship(member, otherMember);
+		case TraceFormat.GETTOPRES:
+			return db.viewTopKResources(member, otherMember, trace.getResource(record), db.getResultVector());
+		case TraceFormat.GETRESCOMMENT:
+			return db.viewCommentOnResource(member, otherMember, trace.getResource(record), db.getResultVector());
+		case TraceFormat.POSTCOMMENT:
+			return db.postCommentOnResource(member, otherMember, trace.getResource(record), commentValues(trace.getComment(record)));
+		case TraceFormat.DELCOMMENT:
+			return db.delCommentOnResource(member, trace.getResource(record), trace.getComment(record));
+		default:
+			System.out.println("Unknown action " + trace.getAction(record) + " in record " + record + " of the trace");
+			return -1;
+		}
+	}
+
+	HashMap<String, ByteIterator> commentValues(int mid)
+	{
+		HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+		values.put("mid", new ObjectByteIterator(Integer.toString(mid).getBytes()));
+		values.put("timestamp", new ObjectByteIterator(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(new Date()).getBytes()));
+		values.put("type", new RandomByteIterator(100));
+		values.put("content", new RandomByteIterator(100));
+		return values;
+	}
+
+	@Override
+	public HashMap<String, String> getDBInitialStats(DB db)
+	{
+		return db.getInitialStats();
+	}
+
+	@Override
+	public void cleanup() throws WorkloadException
+	{
+		if (trace != null)
+			System.out.println("Replayed " + Math.min(nextRecord.get(), trace.getNumRecords()) + " of " + trace.getNumRecords()
+					+ " actions" + (openLoop ? ", " + lateActions.get() + " more than " + LATE_NANOS / 1000 + " us late" : ""));
+	}
+}
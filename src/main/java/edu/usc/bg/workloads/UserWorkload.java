@@ -26,7 +26,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Properties;
-import java.util.Random;
 import java.util.Vector;
 
 import edu.usc.bg.base.ByteIterator;
@@ -34,6 +33,7 @@ import edu.usc.bg.base.Client;
 import edu.usc.bg.base.DB;
 import edu.usc.bg.base.ObjectByteIterator;
 import edu.usc.bg.base.RandomByteIterator;
+import edu.usc.bg.base.Utils;
 import edu.usc.bg.base.Workload;
 import edu.usc.bg.base.WorkloadException;
 import edu.usc.bg.base.generator.CounterGenerator;
@@ -68,7 +68,6 @@ public class UserWorkload extends Workload {
 	int recordCount = 100; // User number.
 	CounterGenerator keySequence;
 	Vector<Integer> _members;
-	Random random = new Random();
 
 	public UserWorkload() {
 
@@ -88,7 +87,7 @@ public class UserWorkload extends Workload {
 
 	// Return a date using the specific format.
 	public String getDate(){
-		Date date = new Date(random.nextLong()%MAX_INTERVAL + BASE_INTERVAL);
+		Date date = new Date(Utils.random().nextLong()%MAX_INTERVAL + BASE_INTERVAL);
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 		String dateString = sdf.format(date);
 		return dateString;
@@ -116,11 +115,11 @@ public class UserWorkload extends Workload {
 		//if images should be inserted for users, create and send them with other fields
 		if(insertImage){
 			byte[] profileImage = new byte[imageSize*IMAGE_SIZE_GRAN];
-			new Random().nextBytes(profileImage);
+			Utils.random().nextBytes(profileImage);
 			values.put("pic", new ObjectByteIterator(profileImage));
 			
 			byte[] thumbImage = new byte[THUMB_IMAGE_SIZE*IMAGE_SIZE_GRAN];
-			new Random().nextBytes(thumbImage);
+			Utils.random().nextBytes(thumbImage);
 			values.put("tpic", new ObjectByteIterator(thumbImage) );
 			
 		}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package edu.usc.bg.base;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates a virtual thread for every socialite, only compiled by the jdk21 build profile.
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+	final ThreadFactory factory = Thread.ofVirtual().name("BGClient Virtual Thread-", 0).factory();
+
+	public Thread newThread(Runnable r) {
+		return factory.newThread(r);
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import edu.usc.bg.base.DB;
+import edu.usc.bg.base.Workload;
+
+public class WorkerPoolTest {
+	static class IdleWorkload extends Workload {
+		public boolean doInsert(DB db, Object threadstate) { return true; }
+		public int doTransaction(DB db, Object threadstate, int threadid, StringBuilder updateLog, StringBuilder readLog, int seqID, HashMap<String, Integer> resUpdateOperations
+				, HashMap<String, Integer> friendshipInfo, HashMap<String, Integer> pendingInfo, int thinkTime, boolean insertImage, boolean warmup) { return 0; }
+		public HashMap<String, String> getDBInitialStats(DB db) { return new HashMap<String, String>(); }
+	}
+
+	/**
+	 * Sets the pool up as start does, without creating any worker.
+	 */
+	static Workload reset(String policy, int capacity, int minWorkers, int maxWorkers, long keepAliveNanos) {
+		Workload workload = new IdleWorkload();
+		WorkerPool._workload = workload;
+		WorkerPool.overloadPolicy = policy;
+		WorkerPool.queueCapacity = capacity;
+		WorkerPool.minWorkers = minWorkers;
+		WorkerPool.maxWorkers = maxWorkers;
+		WorkerPool.keepAliveNanos = keepAliveNanos;
+		WorkerPool.liveWorkers = new AtomicInteger(0);
+		WorkerPool.idleWorkers = new AtomicInteger(0);
+		WorkerPool.shedReqs = new AtomicInteger(0);
+		WorkerPool.growSignal = new Semaphore(0);
+		Worker.processedReq = new AtomicInteger(0);
+		Distribution.queue = new ConcurrentLinkedQueue<Request>();
+		Distribution.queuedReqs = new AtomicInteger(0);
+		Distribution.available = new Semaphore(0);
+		return workload;
+	}
+
+	@Test
+	public void queuePolicyAdmitsPastTheCapacity() {
+		reset(WorkerPool.QUEUE_POLICY, 2, 1, 1, 0);
+		Distribution.queuedReqs.set(10);
+		assertTrue(WorkerPool.admit());
+		assertEquals(0, WorkerPool.getShedReqs());
+	}
+
+	@Test
+	public void shedPolicyDropsArrivalsPastTheCapacity() {
+		reset(WorkerPool.SHED_POLICY, 2, 1, 1, 0);
+		Distribution.queuedReqs.set(1);
+		assertTrue(WorkerPool.admit());
+		Distribution.queuedReqs.set(2);
+		assertFalse(WorkerPool.admit());
+		assertFalse(WorkerPool.admit());
+		assertEquals(2, WorkerPool.getShedReqs());
+		//a shed arrival counts as processed so the workers finish
+		assertEquals(2, Worker.processedReq.get());
+	}
+
+	@Test
+	public void blockPolicyWaitsForRoom() throws Exception {
+		reset(WorkerPool.BLOCK_POLICY, 2, 1, 1, 0);
+		Distribution.queuedReqs.set(2);
+		CountDownLatch admitted = new CountDownLatch(1);
+		Thread arrival = new Thread(() -> {
+			if (WorkerPool.admit())
+				admitted.countDown();
+		});
+		arrival.start();
+		assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+		Distribution.queuedReqs.decrementAndGet();
+		assertTrue(admitted.await(5, TimeUnit.SECONDS));
+		assertEquals(0, WorkerPool.getShedReqs());
+	}
+
+	@Test
+	public void blockPolicyStopsWaitingOnStop() throws Exception {
+		Workload workload = reset(WorkerPool.BLOCK_POLICY, 1, 1, 1, 0);
+		Distribution.queuedReqs.set(1);
+		CountDownLatch returned = new CountDownLatch(1);
+		Thread arrival = new Thread(() -> {
+			WorkerPool.admit();
+			returned.countDown();
+		});
+		arrival.start();
+		assertFalse(returned.await(100, TimeUnit.MILLISECONDS));
+		workload.requestStop();
+		assertTrue(returned.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void growerIsSignalledOnlyWhenTheIdleWorkersAreOutnumbered() {
+		reset(WorkerPool.QUEUE_POLICY, 0, 1, 2, 0);
+		WorkerPool.liveWorkers.set(1);
+		WorkerPool.idleWorkers.set(1);
+		Distribution.queuedReqs.set(1);
+		WorkerPool.requestQueued();
+		assertEquals(0, WorkerPool.growSignal.availablePermits());
+		Distribution.queuedReqs.set(2);
+		WorkerPool.requestQueued();
+		WorkerPool.requestQueued();
+		assertEquals(1, WorkerPool.growSignal.availablePermits());
+		//no signal once the pool is at its maximum
+		WorkerPool.growSignal.drainPermits();
+		WorkerPool.liveWorkers.set(2);
+		Distribution.queuedReqs.set(5);
+		WorkerPool.requestQueued();
+		assertEquals(0, WorkerPool.growSignal.availablePermits());
+	}
+
+	@Test
+	public void takenRequestsMakeAWorkerBusy() {
+		reset(WorkerPool.QUEUE_POLICY, 0, 1, 1, 0);
+		WorkerPool.liveWorkers.set(1);
+		WorkerPool.idleWorkers.set(1);
+		Distribution.offerRequest(new Request(1));
+		assertEquals(1, Distribution.queuedReqs.get());
+		Request req = WorkerPool.takeRequest();
+		assertNotNull(req);
+		assertEquals(0, Distribution.queuedReqs.get());
+		assertEquals(0, WorkerPool.idleWorkers.get());
+		WorkerPool.requestServed();
+		assertEquals(1, WorkerPool.idleWorkers.get());
+		//nothing queued, the worker stays idle
+		assertNull(WorkerPool.takeRequest());
+		assertEquals(1, WorkerPool.idleWorkers.get());
+	}
+
+	@Test
+	public void idleWorkersRetireDownToTheMinimum() {
+		reset(WorkerPool.QUEUE_POLICY, 0, 1, 3, 0);
+		WorkerPool.liveWorkers.set(3);
+		WorkerPool.idleWorkers.set(3);
+		long idleSince = System.nanoTime();
+		assertTrue(WorkerPool.tryRetire(idleSince));
+		assertTrue(WorkerPool.tryRetire(idleSince));
+		assertFalse(WorkerPool.tryRetire(idleSince));
+		assertEquals(1, WorkerPool.liveWorkers.get());
+		assertEquals(1, WorkerPool.idleWorkers.get());
+		assertTrue(WorkerPool.workerDone());
+	}
+
+	@Test
+	public void workersIdleForLessThanTheKeepAliveStay() {
+		reset(WorkerPool.QUEUE_POLICY, 0, 1, 3, TimeUnit.SECONDS.toNanos(60));
+		WorkerPool.liveWorkers.set(3);
+		WorkerPool.idleWorkers.set(3);
+		assertFalse(WorkerPool.tryRetire(System.nanoTime()));
+		assertEquals(3, WorkerPool.liveWorkers.get());
+		assertFalse(WorkerPool.workerDone());
+	}
+}
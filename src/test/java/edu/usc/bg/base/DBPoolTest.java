@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.base;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class DBPoolTest {
+	/**
+	 * A data store that does nothing, counts the instances initialized.
+	 */
+	public static class NoopDB extends DB {
+		static int numInitialized = 0;
+
+		public boolean init() throws DBException {
+			synchronized (NoopDB.class) {
+				numInitialized++;
+			}
+			return true;
+		}
+
+		public int insertEntity(String entitySet, String entityPK, HashMap<String, ByteIterator> values, boolean insertImage) { return 0; }
+		public int viewProfile(int requesterID, int profileOwnerID, HashMap<String, ByteIterator> result, boolean insertImage, boolean testMode) { return 0; }
+		public int listFriends(int requesterID, int profileOwnerID, Set<String> fields, Vector<HashMap<String, ByteIterator>> result, boolean insertImage, boolean testMode) { return 0; }
+		public int viewFriendReq(int profileOwnerID, Vector<HashMap<String, ByteIterator>> results, boolean insertImage, boolean testMode) { return 0; }
+		public int acceptFriend(int inviterID, int inviteeID) { return 0; }
+		public int rejectFriend(int inviterID, int inviteeID) { return 0; }
+		public int inviteFriend(int inviterID, int inviteeID) { return 0; }
+		public int viewTopKResources(int requesterID, int profileOwnerID, int k, Vector<HashMap<String, ByteIterator>> result) { return 0; }
+		public int getCreatedResources(int creatorID, Vector<HashMap<String, ByteIterator>> result) { return 0; }
+		public int viewCommentOnResource(int requesterID, int profileOwnerID, int resourceID, Vector<HashMap<String, ByteIterator>> result) { return 0; }
+		public int postCommentOnResource(int commentCreatorID, int resourceCreatorID, int resourceID, HashMap<String, ByteIterator> values) { return 0; }
+		public int delCommentOnResource(int resourceCreatorID, int resourceID, int manipulationID) { return 0; }
+		public int thawFriendship(int friendid1, int friendid2) { return 0; }
+		public HashMap<String, String> getInitialStats() { return new HashMap<String, String>(); }
+		public int CreateFriendship(int friendid1, int friendid2) { return 0; }
+		public void createSchema(Properties props) { }
+		public int queryPendingFriendshipIds(int memberID, Vector<Integer> pendingIds) { return 0; }
+		public int queryConfirmedFriendshipIds(int memberID, Vector<Integer> confirmedIds) { return 0; }
+	}
+
+	static DBPool newPool(int size) throws Exception {
+		return new DBPool(NoopDB.class.getName(), new Properties(), size);
+	}
+
+	@Test
+	public void everyInstanceIsInitializedOnce() throws Exception {
+		int before = NoopDB.numInitialized;
+		newPool(3);
+		assertEquals(3, NoopDB.numInitialized - before);
+	}
+
+	@Test
+	public void checkedOutInstancesAreDistinctAndComeBack() throws Exception {
+		DBPool pool = newPool(2);
+		DB a = pool.acquire();
+		DB b = pool.acquire();
+		assertTrue(a != b);
+		assertTrue(a instanceof DBWrapper);
+		pool.release(a);
+		assertTrue(pool.acquire() == a);
+		pool.release(b);
+		pool.release(a);
+		assertEquals(2, pool.free.size());
+	}
+
+	@Test
+	public void acquireWaitsForARelease() throws Exception {
+		DBPool pool = newPool(1);
+		DB held = pool.acquire();
+		AtomicReference<DB> taken = new AtomicReference<DB>();
+		CountDownLatch done = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			taken.set(pool.acquire());
+			done.countDown();
+		});
+		waiter.start();
+		assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+		pool.release(held);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(taken.get() == held);
+	}
+
+	@Test
+	public void unknownDBIsRejected() {
+		assertThrows(UnknownDBException.class, () -> new DBPool("edu.usc.bg.base.NoSuchDB", new Properties(), 1));
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.base;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LoadProfileTest
+{
+	//ms
+	static final double TOLERANCE = 1e-3;
+
+	static void assertInverse(LoadProfile profile)
+	{
+		double end = profile.getDuration() * 1.2;
+		for (double t = 0; t <= end; t += end / 997) {
+			double work = profile.getWork(t);
+			if (profile.getRate(t) > 0)
+				assertEquals(t, profile.getTimeOf(work), TOLERANCE, "t=" + t);
+			else
+				assertEquals(work, profile.getWork(profile.getTimeOf(work)), 1e-6, "t=" + t);
+		}
+	}
+
+	@Test
+	public void rampWorkIsTheAreaUnderTheRate()
+	{
+		LoadProfile profile = new LoadProfile("ramp:10:0:100");
+		//the rate rises from 0 to 100/s over 10s, 500 sessions
+		assertEquals(500, profile.getWork(10000), 1e-9);
+		assertEquals(125, profile.getWork(5000), 1e-9);
+		assertEquals(50, profile.getRate(5000), 1e-9);
+		//the last rate is kept after the profile
+		assertEquals(600, profile.getWork(11000), 1e-9);
+		assertEquals(11000, profile.getTimeOf(600), TOLERANCE);
+	}
+
+	@Test
+	public void getTimeOfInvertsGetWorkOnARamp()
+	{
+		assertInverse(new LoadProfile("ramp:10:0:100"));
+		assertInverse(new LoadProfile("ramp:10:300:20;const:5:20"));
+	}
+
+	@Test
+	public void diurnalWorkIsTheAreaUnderTheSine()
+	{
+		LoadProfile profile = new LoadProfile("diurnal:20:10:30:20");
+		//a full period averages to the middle rate
+		assertEquals(400, profile.getWork(20000), 1e-6);
+		assertEquals(10, profile.getRate(0), 1e-9);
+		assertEquals(30, profile.getRate(10000), 1e-9);
+	}
+
+	@Test
+	public void getTimeOfInvertsGetWorkOnADiurnalPhase()
+	{
+		assertInverse(new LoadProfile("diurnal:20:10:30:20"));
+		assertInverse(new LoadProfile("diurnal:30:0:50:12;ramp:10:50:0"));
+	}
+
+	@Test
+	public void phasesAreTagged()
+	{
+		LoadProfile profile = new LoadProfile("const:1:10;step:4:10:40:4;spike:3:10:100:1");
+		assertEquals("1-const", profile.getPhase(500));
+		assertEquals("2-step.3", profile.getPhase(3500));
+		assertEquals(100, profile.getRate(6500), 1e-9);
+		assertEquals("end", profile.getPhase(8000));
+		assertTrue(profile.getTimeOf(profile.getWork(8000) + 1) > 8000);
+	}
+
+	@Test
+	public void invalidProfilesAreRejected()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new LoadProfile("ramp:10:0"));
+		assertThrows(IllegalArgumentException.class, () -> new LoadProfile("const:0:10"));
+		assertThrows(IllegalArgumentException.class, () -> new LoadProfile("const:10:-1"));
+		assertThrows(IllegalArgumentException.class, () -> new LoadProfile(""));
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.base;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+
+public class TraceRecorderTest {
+	static final int THREADS = 8;
+	//not a multiple of the buffer size, the last buffer of each DB is written on close
+	static final int RECORDS_PER_THREAD = 1000;
+
+	@Test
+	public void recordedActionsAreReadBackInTimeOrder() throws Exception {
+		File f = File.createTempFile("bgtrace", ".bin");
+		try {
+			TraceRecorder recorder = new TraceRecorder(f.getPath());
+			recorder.start();
+			long origin = System.nanoTime();
+			recorder.newBuffer().record(TraceFormat.PROFILE, -1, -1, -1, -1, origin);
+			//a DB that never records
+			recorder.newBuffer();
+			Thread[] threads = new Thread[THREADS];
+			for (int t = 0; t < THREADS; t++) {
+				final int k = t;
+				final TraceRecorder.Buffer buffer = recorder.newBuffer();
+				threads[t] = new Thread(() -> {
+					//the records of the DBs interleave in time
+					for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+						int seq = i * THREADS + k;
+						buffer.record((byte) (i % TraceFormat.ACTIONS.length), k, i, seq, -k, origin + (seq + 1) * 1000L);
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread t : threads)
+				t.join();
+			recorder.close();
+			assertEquals(1 + THREADS * RECORDS_PER_THREAD, recorder.numRecords.get());
+
+			TraceReader reader = new TraceReader(f);
+			assertEquals(1 + THREADS * RECORDS_PER_THREAD, reader.getNumRecords());
+			assertEquals(0, reader.getTime(0));
+			assertEquals(-1, reader.getMember(0));
+			boolean[] seen = new boolean[THREADS * RECORDS_PER_THREAD];
+			for (long r = 1; r < reader.getNumRecords(); r++) {
+				assertTrue(reader.getTime(r) >= reader.getTime(r - 1));
+				int seq = reader.getResource(r);
+				assertEquals((seq + 1) * 1000L, reader.getTime(r));
+				int k = seq % THREADS, i = seq / THREADS;
+				assertEquals(k, reader.getMember(r));
+				assertEquals(i, reader.getOtherMember(r));
+				assertEquals(-k, reader.getComment(r));
+				assertEquals((byte) (i % TraceFormat.ACTIONS.length), reader.getAction(r));
+				assertTrue(!seen[seq]);
+				seen[seq] = true;
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void aDBKeepsItsBufferForTheSameRecorder() throws Exception {
+		File f = File.createTempFile("bgtrace", ".bin");
+		try {
+			TraceRecorder recorder = new TraceRecorder(f.getPath());
+			recorder.start();
+			DBWrapper db = new DBWrapper(new DBPoolTest.NoopDB());
+			db.setTraceRecorder(recorder);
+			TraceRecorder.Buffer buffer = db._trace;
+			db.setTraceRecorder(null);
+			assertTrue(db._trace == null);
+			db.setTraceRecorder(recorder);
+			assertTrue(db._trace == buffer);
+			assertEquals(1, recorder.buffers.size());
+			db.viewProfile(1, 2, db.getResultMap(), false, false);
+			recorder.close();
+
+			TraceReader reader = new TraceReader(f);
+			assertEquals(1, reader.getNumRecords());
+			assertEquals(TraceFormat.PROFILE, reader.getAction(0));
+			assertEquals(1, reader.getMember(0));
+			assertEquals(2, reader.getOtherMember(0));
+		} finally {
+			f.delete();
+		}
+	}
+}
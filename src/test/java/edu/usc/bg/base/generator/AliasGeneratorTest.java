@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.base.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class AliasGeneratorTest
+{
+	static final int DRAWS = 200000;
+
+	static void assertDrawnInProportion(AliasGenerator gen, double[] weights)
+	{
+		double sum = 0;
+		for (double w : weights)
+			sum += w;
+		int[] counts = new int[weights.length];
+		for (int i = 0; i < DRAWS; i++)
+			counts[gen.nextIndex()]++;
+		for (int i = 0; i < weights.length; i++) {
+			double p = weights[i] / sum;
+			//5 standard deviations of the binomial count
+			double tolerance = 5 * Math.sqrt(DRAWS * p * (1 - p)) + 1;
+			assertEquals(DRAWS * p, counts[i], tolerance, "value " + i);
+		}
+	}
+
+	@Test
+	public void valuesAreDrawnInProportionToTheirWeights()
+	{
+		double[] weights = {0.5, 0.25, 0.125, 0.0625, 0.0625, 0};
+		AliasGenerator gen = new AliasGenerator();
+		for (int i = 0; i < weights.length; i++)
+			gen.addValue(weights[i], "v" + i);
+		assertEquals(weights.length, gen.getNumValues());
+		assertEquals("v2", gen.getValue(2));
+		assertDrawnInProportion(gen, weights);
+	}
+
+	@Test
+	public void manySkewedValues()
+	{
+		double[] weights = new double[1000];
+		AliasGenerator gen = new AliasGenerator();
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = 1.0 / (i + 1);
+			gen.addValue(weights[i], Integer.toString(i));
+		}
+		assertDrawnInProportion(gen, weights);
+	}
+
+	@Test
+	public void aSingleValueIsAlwaysDrawn()
+	{
+		AliasGenerator gen = new AliasGenerator();
+		gen.addValue(3, "only");
+		for (int i = 0; i < 100; i++)
+			assertEquals("only", gen.nextString());
+	}
+
+	@Test
+	public void invalidWeightsAreRejected()
+	{
+		AliasGenerator gen = new AliasGenerator();
+		assertThrows(IllegalArgumentException.class, () -> gen.addValue(-1, "negative"));
+		assertThrows(IllegalArgumentException.class, () -> gen.addValue(Double.NaN, "nan"));
+	}
+
+	@Test
+	public void drawingWithoutAPositiveWeightFails()
+	{
+		AliasGenerator gen = new AliasGenerator();
+		assertEquals(0, gen.getTotalWeight(), 0);
+		assertThrows(IllegalStateException.class, () -> gen.nextIndex());
+		gen.addValue(0, "zero");
+		gen.addValue(0, "alsoZero");
+		assertEquals(0, gen.getTotalWeight(), 0);
+		assertThrows(IllegalStateException.class, () -> gen.nextIndex());
+		gen.addValue(2, "two");
+		assertEquals(2, gen.getTotalWeight(), 0);
+		assertEquals("two", gen.nextString());
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.measurements;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void smallValuesHaveABucketEach()
+	{
+		for (int v = 0; v < LatencyHistogram.SUB_BUCKET_COUNT; v++) {
+			assertEquals(v, LatencyHistogram.bucketIndex(v));
+			assertEquals(v, LatencyHistogram.bucketLowValue(v));
+			assertEquals(v, LatencyHistogram.bucketHighValue(v));
+		}
+		assertEquals(0, LatencyHistogram.bucketIndex(-5));
+	}
+
+	@Test
+	public void bucketsAreContiguousAndContainTheirBounds()
+	{
+		for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+			long low = LatencyHistogram.bucketLowValue(i);
+			long high = LatencyHistogram.bucketHighValue(i);
+			assertTrue(low <= high);
+			assertEquals(i, LatencyHistogram.bucketIndex(low));
+			assertEquals(i, LatencyHistogram.bucketIndex(high));
+			assertEquals(high + 1, LatencyHistogram.bucketLowValue(i + 1));
+		}
+		assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void bucketWidthIsWithinTheRelativeError()
+	{
+		for (int i = LatencyHistogram.SUB_BUCKET_COUNT; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+			long low = LatencyHistogram.bucketLowValue(i);
+			long width = LatencyHistogram.bucketHighValue(i) - low + 1;
+			assertTrue(width * LatencyHistogram.HALF_SUB_BUCKET_COUNT <= low, "bucket " + i);
+		}
+	}
+
+	@Test
+	public void percentilesMatchTheSortedValues()
+	{
+		Random rand = new Random(7);
+		long[] values = new long[10000];
+		LatencyHistogram h = new LatencyHistogram();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.exp(rand.nextDouble() * 14);
+			h.record(values[i]);
+		}
+		Arrays.sort(values);
+		assertEquals(values.length, h.getTotalCount());
+		for (double p : new double[] {1, 50, 90, 99, 99.9, 100}) {
+			long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+			long reported = h.getValueAtPercentile(p);
+			assertTrue(reported >= exact, "p" + p);
+			assertTrue(reported - exact <= exact / LatencyHistogram.HALF_SUB_BUCKET_COUNT, "p" + p);
+		}
+	}
+
+	@Test
+	public void countBelowExcludesTheBucketOfTheThreshold()
+	{
+		LatencyHistogram h = new LatencyHistogram();
+		for (long v = 0; v < 1000; v++)
+			h.record(v);
+		assertEquals(100, h.getCountBelow(100));
+		long below = h.getCountBelow(500);
+		assertTrue(below <= 500 && below >= 500 - 500 / LatencyHistogram.HALF_SUB_BUCKET_COUNT);
+		assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+	}
+
+	@Test
+	public void addSinceOnlyAddsTheNewValues()
+	{
+		LatencyHistogram thread = new LatencyHistogram();
+		LatencyHistogram total = new LatencyHistogram();
+		long[] baseline = new long[LatencyHistogram.BUCKET_COUNT];
+		thread.record(10);
+		thread.record(2000);
+		total.addSince(thread, baseline);
+		thread.record(10);
+		total.addSince(thread, baseline);
+		assertEquals(3, total.getTotalCount());
+		assertEquals(2, total.getCountBelow(11));
+	}
+}
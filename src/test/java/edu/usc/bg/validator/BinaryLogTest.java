@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class BinaryLogTest
+{
+	File write(String records) throws IOException
+	{
+		File f = File.createTempFile("bglog", BinaryLogFormat.FILE_EXTENSION);
+		f.deleteOnExit();
+		BinaryLogWriter w = new BinaryLogWriter(f);
+		w.write(records);
+		w.close();
+		return f;
+	}
+
+	@Test
+	public void textRecordsRoundTrip() throws IOException
+	{
+		File f = write("UPDATE,POSTCOMMENT,12,3,45,1000,2000,7,I,PostComment\n"
+				+ "READ,PENDFRND,13,3,46,3000,4000,2,ViewPendingRequests\n"
+				+ "UPDATE,ACCEPTFRND,14,4,-1,5000,6000,-3,D,AcceptFriendship\n");
+		BinaryLogReader r = new BinaryLogReader(f);
+		assertEquals(3, r.getNumRecords());
+
+		assertTrue(r.next());
+		assertTrue(r.isUpdate());
+		logObject record = r.toRecord();
+		assertEquals("UPDATE", record.getOptype());
+		assertEquals("POSTCOMMENT", record.getMopType());
+		assertEquals(12, record.getIntSeqId());
+		assertEquals(3, record.getIntThreadId());
+		assertEquals(45, record.getIntRid());
+		assertEquals(1000, record.getLongStarttime());
+		assertEquals(2000, record.getLongEndtime());
+		assertEquals(7, record.getLongValue());
+		assertTrue(record.isInsert());
+		assertEquals("PostComment", record.getActionType());
+
+		assertTrue(r.next());
+		assertFalse(r.isUpdate());
+		record = r.toRecord();
+		assertEquals("READ", record.getOptype());
+		assertEquals("PENDFRND", record.getMopType());
+		assertEquals("46", record.getRid());
+		assertEquals("2", record.getValue());
+		assertEquals("ViewPendingRequests", record.getActionType());
+
+		assertTrue(r.next());
+		record = r.toRecord();
+		assertEquals(-1, record.getIntRid());
+		assertEquals(-3, record.getIntValue());
+		assertFalse(record.isInsert());
+		assertEquals("D", record.getUpdatetype());
+
+		assertFalse(r.next());
+		r.close();
+	}
+
+	@Test
+	public void unknownNamesAndValuesAreKept() throws IOException
+	{
+		File f = write("READ,NOSUCHMOP,1,2,3,4,5,abc,NoSuchAction\nbad record\n");
+		BinaryLogReader r = new BinaryLogReader(f);
+		assertEquals(1, r.getNumRecords());
+		assertTrue(r.next());
+		assertEquals(BinaryLogFormat.UNKNOWN_CODE, r.getMopCode());
+		assertEquals(BinaryLogFormat.NO_VALUE, r.getValue());
+		assertEquals(BinaryLogFormat.UNKNOWN_NAME, r.toRecord().getActionType());
+		r.close();
+	}
+
+	@Test
+	public void binaryRecordsRoundTripAcrossBuffers() throws IOException
+	{
+		File f = File.createTempFile("bglog", BinaryLogFormat.FILE_EXTENSION);
+		f.deleteOnExit();
+		int n = BinaryLogWriter.BUFFER_RECORDS * 2 + 5;
+		BinaryLogWriter w = new BinaryLogWriter(f);
+		for (int i = 0; i < n; i++)
+			w.write((byte) 1, (byte) 2, (byte) 1, (byte) 3, i, i % 7, i * 2, 10L * i, 10L * i + 5, Long.MAX_VALUE - i);
+		w.close();
+		BinaryLogReader r = new BinaryLogReader(f);
+		assertEquals(n, r.getNumRecords());
+		for (int i = 0; i < n; i++) {
+			assertTrue(r.next());
+			assertEquals(i, r.getSeqId());
+			assertEquals(i % 7, r.getThreadId());
+			assertEquals(i * 2, r.getRid());
+			assertEquals(10L * i, r.getStarttime());
+			assertEquals(10L * i + 5, r.getEndtime());
+			assertEquals(Long.MAX_VALUE - i, r.getValue());
+		}
+		assertFalse(r.next());
+		r.close();
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import edu.usc.bg.workloads.CoreWorkload;
+
+public class OnlineValidatorTest
+{
+	@Test
+	public void readsAreValidatedOnceTheWatermarkPassesThem() throws InterruptedException
+	{
+		Properties props = new Properties();
+		props.setProperty(ValidationMainClass.VALIDATION_THREADS_PROPERTY, "3");
+		props.setProperty(ValidationMainClass.VALIDATION_BLOCK_PROPERTY, "7");
+		props.setProperty("maxexecutiontime", "100");
+		CoreWorkload.initStats = new HashMap<String, Integer>();
+		OnlineValidator validator = new OnlineValidator(props, 2);
+		validator.start();
+		//two threads alternately invite a friend to member 5 then read the pending invitations, every 10th read is stale
+		long time = 1000;
+		int sessions = 200;
+		for (int i = 0; i < sessions; i++) {
+			int thread = i % 2;
+			validator.sessionStarted(thread, time);
+			String update = "UPDATE,PENDFRND," + i + "," + thread + ",5," + time + "," + (time + 10) + ",1,I,InviteFriends\n";
+			String read = "READ,PENDFRND," + i + "," + thread + ",5," + (time + 20) + "," + (time + 30) + "," + (i % 10 == 0 ? 999 : i + 1) + ",ViewPendingRequests\n";
+			validator.sessionCompleted(thread, new StringBuilder(update), new StringBuilder(read));
+			time += 100;
+		}
+		validator.threadDone(0);
+		validator.threadDone(1);
+		validator.stopRequested = true;
+		validator.join();
+
+		assertEquals(0, validator.pendingReads.size());
+		assertEquals(sessions, validator.numUpdates);
+		TotalValidationThreadResults results = validator.finalResults;
+		assertEquals(sessions, results.getNumReadOpsProcessed() + results.getPruned());
+		assertEquals(sessions / 10, results.getNumStaleReadsreturned());
+	}
+
+	@Test
+	public void theWatermarkIsTheOldestSessionInProgress() throws InterruptedException
+	{
+		Properties props = new Properties();
+		props.setProperty(ValidationMainClass.VALIDATION_THREADS_PROPERTY, "1");
+		props.setProperty("maxexecutiontime", "100");
+		OnlineValidator validator = new OnlineValidator(props, 3);
+		assertEquals(OnlineValidator.NOT_STARTED, validator.getWatermark());
+		validator.sessionStarted(0, 50);
+		validator.sessionStarted(1, 20);
+		validator.threadDone(2);
+		assertEquals(20, validator.getWatermark());
+		validator.threadDone(1);
+		assertEquals(50, validator.getWatermark());
+		validator.threadDone(0);
+		assertEquals(OnlineValidator.DONE, validator.getWatermark());
+		//stops the workers
+		validator.stopRequested = true;
+		validator.start();
+		validator.join();
+	}
+}
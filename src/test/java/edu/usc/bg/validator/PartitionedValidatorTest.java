@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import edu.usc.bg.base.Client;
+
+public class PartitionedValidatorTest
+{
+	static final int THREADS = 2;
+	static final int RESOURCES = 10;
+	static final int UPDATES_PER_RESOURCE = 20;
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void partitionsValidateTheReadsOfTheirResources() throws IOException
+	{
+		File dir = Files.createTempDirectory("bgpartitioned").toFile();
+		dir.deleteOnExit();
+		//each thread invites friends to its resources, the reads of even resources see the latest count and the others a stale one
+		int seq = 0;
+		for (int t = 0; t < THREADS; t++) {
+			FileWriter updates = new FileWriter(new File(dir, "update0-" + t + ".txt"));
+			FileWriter reads = new FileWriter(new File(dir, "read0-" + t + ".txt"));
+			for (int rid = t; rid < RESOURCES; rid += THREADS) {
+				long time = 1000;
+				for (int i = 0; i < UPDATES_PER_RESOURCE; i++, time += 100)
+					updates.write("UPDATE,PENDFRND," + seq++ + "," + t + "," + rid + "," + time + "," + (time + 10) + ",1,I,InviteFriends\n");
+				int value = rid % 2 == 0 ? UPDATES_PER_RESOURCE : UPDATES_PER_RESOURCE - 5;
+				reads.write("READ,PENDFRND," + seq++ + "," + t + "," + rid + "," + time + "," + (time + 10) + "," + value + ",ViewPendingRequests\n");
+			}
+			updates.close();
+			reads.close();
+			new File(dir, "update0-" + t + ".txt").deleteOnExit();
+			new File(dir, "read0-" + t + ".txt").deleteOnExit();
+		}
+
+		Properties props = new Properties();
+		props.setProperty(Client.THREAD_CNT_PROPERTY, Integer.toString(THREADS));
+		props.setProperty(Client.MACHINE_ID_PROPERTY, "0");
+		props.setProperty("maxexecutiontime", "100");
+		ValidationMainClass.initFreshnessBucket(props);
+		HashMap<String, Integer> initCnt = new HashMap<String, Integer>();
+		for (int rid = 0; rid < RESOURCES; rid++)
+			initCnt.put("PENDFRND-" + rid, 0);
+		PartitionedValidator validator = new PartitionedValidator(props, 3, initCnt);
+		int numTrackers = THREADS + ValidationMainClass.bgNumWorkerThreads;
+		HashMap<Integer, Integer>[] seqTracker = new HashMap[numTrackers];
+		HashMap<Integer, Integer>[] staleSeqTracker = new HashMap[numTrackers];
+
+		assertEquals(RESOURCES * UPDATES_PER_RESOURCE, validator.readUpdateFiles(dir.getPath()));
+		TotalValidationThreadResults results = validator.readReadFiles(dir.getPath(), seqTracker, staleSeqTracker);
+		//the reads following every update of their resource are pruned
+		assertEquals(RESOURCES, results.getNumReadOpsProcessed() + results.getPruned());
+		assertEquals(RESOURCES / 2, results.getNumStaleReadsreturned());
+		int stale = 0;
+		for (HashMap<Integer, Integer> tracker : staleSeqTracker)
+			stale += tracker == null ? 0 : tracker.size();
+		assertTrue(stale > 0);
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.validator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class UpdateIntervalIndexTest
+{
+	static String key(Interval<Long> i)
+	{
+		return i.getStart() + "-" + i.getEnd() + ":" + i.getData();
+	}
+
+	static List<String> sortedKeys(List<Interval<Long>> intervals)
+	{
+		List<String> keys = new ArrayList<String>();
+		for (Interval<Long> i : intervals)
+			keys.add(key(i));
+		Collections.sort(keys);
+		return keys;
+	}
+
+	/**
+	 * adds the same intervals to the index and to the interval tree it replaced,
+	 * mostly in start order as the threads log them, and compares their answers
+	 */
+	void compareWithIntervalTree(long seed, boolean inOrder)
+	{
+		Random rand = new Random(seed);
+		UpdateIntervalIndex index = new UpdateIntervalIndex();
+		IntervalTree<Long> tree = new IntervalTree<Long>();
+		List<long[]> added = new ArrayList<long[]>();
+		long clock = 0;
+		for (int i = 0; i < 2000; i++) {
+			long start = inOrder ? (clock += rand.nextInt(5)) - rand.nextInt(3) : rand.nextInt(5000);
+			//a few long updates
+			long end = start + (rand.nextInt(50) == 0 ? rand.nextInt(3000) : rand.nextInt(40));
+			int type = rand.nextBoolean() ? 1 : -1;
+			index.add(start, end, type);
+			tree.addInterval(start, end, (long) type);
+			added.add(new long[] {start, end, type});
+			if (i % 50 != 0)
+				continue;
+			for (int q = 0; q < 20; q++) {
+				long from = rand.nextInt(6000);
+				long to = from + rand.nextInt(100) + 1;
+				assertEquals(sortedKeys(tree.getIntervals(from, to)), sortedKeys(index.getOverlapping(from, to)));
+				long time = rand.nextInt(6000);
+				long completed = 0, latestEnd = 0;
+				for (long[] interval : added) {
+					if (interval[0] < time && interval[1] <= time)
+						completed += interval[2];
+					if (interval[0] < time)
+						latestEnd = Math.max(latestEnd, interval[1]);
+				}
+				assertEquals(completed, index.getCompletedSum(time));
+				assertEquals(latestEnd, index.getLatestEndStartedBefore(time));
+			}
+		}
+		assertEquals(added.size(), index.size());
+	}
+
+	@Test
+	public void matchesIntervalTreeForIntervalsInStartOrder()
+	{
+		for (long seed = 0; seed < 5; seed++)
+			compareWithIntervalTree(seed, true);
+	}
+
+	@Test
+	public void matchesIntervalTreeForIntervalsOutOfOrder()
+	{
+		for (long seed = 0; seed < 5; seed++)
+			compareWithIntervalTree(seed, false);
+	}
+
+	@Test
+	public void oneLongUpdateOverlapsEveryLaterRange()
+	{
+		UpdateIntervalIndex index = new UpdateIntervalIndex();
+		index.add(0, 1000000, 1);
+		for (long t = 10; t < 10000; t += 10)
+			index.add(t, t + 5, -1);
+		List<Interval<Long>> overlapping = index.getOverlapping(5005, 5006);
+		assertEquals(1, overlapping.size());
+		assertEquals(0, overlapping.get(0).getStart());
+		assertEquals(2, index.getOverlapping(5001, 5003).size());
+	}
+
+	@Test
+	public void updateEndingAtTheTimeIsCompleted()
+	{
+		UpdateIntervalIndex index = new UpdateIntervalIndex();
+		index.add(10, 20, 1);
+		index.add(20, 20, 1);
+		index.add(15, 30, -1);
+		assertEquals(0, index.getCompletedSum(19));
+		assertEquals(1, index.getCompletedSum(20));
+		assertEquals(2, index.getCompletedSum(21));
+		assertEquals(1, index.getCompletedSum(30));
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.workloads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+public class CommentStoreTest
+{
+	@Test
+	public void unknownResourcesAreIgnored()
+	{
+		CommentStore store = new CommentStore(new int[] {100, 200});
+		assertEquals(-1, store.nextCommentId(300));
+		store.add(300, 1);
+		assertEquals(0, store.size(300));
+		assertEquals(-1, store.removeRandom(300, new Random(1)));
+		assertEquals(-1, store.removeRandom(100, new Random(1)));
+	}
+
+	@Test
+	public void concurrentPostsAndDeletesKeepEveryComment() throws InterruptedException
+	{
+		final int[] resourceIds = {100, 200, 300};
+		final CommentStore store = new CommentStore(resourceIds);
+		//comment ids given out and not deleted, per resource
+		final ConcurrentHashMap<String, Boolean> posted = new ConcurrentHashMap<String, Boolean>();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final Random random = new Random(t);
+			threads[t] = new Thread() {
+				public void run()
+				{
+					for (int i = 0; i < 3000; i++) {
+						int rid = resourceIds[random.nextInt(resourceIds.length)];
+						if (random.nextInt(3) > 0) {
+							int mid = store.nextCommentId(rid);
+							assertTrue(posted.putIfAbsent(rid + "-" + mid, true) == null, "duplicate comment id");
+							store.add(rid, mid);
+						} else {
+							int mid = store.removeRandom(rid, random);
+							if (mid >= 0)
+								assertTrue(posted.remove(rid + "-" + mid) != null, "unknown comment deleted");
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		int total = 0;
+		for (int rid : resourceIds)
+			total += store.size(rid);
+		assertEquals(posted.size(), total);
+	}
+}
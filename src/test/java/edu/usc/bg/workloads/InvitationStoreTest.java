@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.workloads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class InvitationStoreTest
+{
+	@Test
+	public void invitationsKeepTheirOrder()
+	{
+		InvitationStore store = new InvitationStore(2);
+		for (int inviter = 10; inviter < 15; inviter++)
+			store.add(1, inviter);
+		assertEquals(5, store.size(1));
+		assertEquals(0, store.size(0));
+		assertEquals(12, store.get(1, 2));
+		assertEquals(-1, store.get(1, 5));
+		assertEquals(12, store.removeAt(1, 2));
+		assertEquals(13, store.get(1, 2));
+		assertEquals(14, store.last(1));
+		assertEquals(14, store.removeLast(1));
+		assertEquals(-1, store.removeAt(1, 3));
+		assertEquals(3, store.size(1));
+		assertEquals(-1, store.removeLast(0));
+		assertEquals(-1, store.last(0));
+	}
+
+	@Test
+	public void concurrentInvitationsAreNotLost() throws InterruptedException
+	{
+		final int numMembers = 10;
+		final int perThread = 5000;
+		final InvitationStore store = new InvitationStore(numMembers);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int inviter = t;
+			threads[t] = new Thread() {
+				public void run()
+				{
+					for (int i = 0; i < perThread; i++) {
+						store.add(i % numMembers, inviter);
+						//half the invitations are answered right away
+						if (i % 2 == 1)
+							store.removeLast(i % numMembers);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		int total = 0;
+		int[] perInviter = new int[threads.length];
+		for (int idx = 0; idx < numMembers; idx++) {
+			total += store.size(idx);
+			for (int pos = 0; pos < store.size(idx); pos++)
+				perInviter[store.get(idx, pos)]++;
+		}
+		assertEquals(threads.length * perThread / 2, total);
+		int sum = 0;
+		for (int count : perInviter)
+			sum += count;
+		assertEquals(total, sum);
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.workloads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.LinkedHashMap;
+
+import org.junit.jupiter.api.Test;
+
+public class MemberAccessCountersTest
+{
+	@Test
+	public void concurrentIncrementsAreNotLost() throws InterruptedException
+	{
+		final MemberAccessCounters counters = new MemberAccessCounters(100);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run()
+				{
+					//every thread hits member 0 and spreads the rest over all the members
+					for (int i = 0; i < 10000; i++) {
+						counters.increment(0);
+						counters.increment(i % 100);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		assertEquals(8 * (10000 + 100), counters.get(0));
+		for (int idx = 1; idx < 100; idx++)
+			assertEquals(8 * 100, counters.get(idx));
+	}
+
+	@Test
+	public void reportSummarizesTheSkew()
+	{
+		MemberAccessCounters counters = new MemberAccessCounters(100);
+		for (int i = 0; i < 900; i++)
+			counters.increment(7);
+		for (int idx = 10; idx < 20; idx++)
+			for (int i = 0; i < 10; i++)
+				counters.increment(idx);
+		LinkedHashMap<String, Double> report = counters.getReport();
+		assertEquals(1000, report.get("TotalAccesses"), 0);
+		assertEquals(11, report.get("MembersAccessed"), 0);
+		assertEquals(900, report.get("MaxAccesses"), 0);
+		assertEquals(90, report.get("Top1%MembersShare(%)"), 1e-9);
+		assertEquals(100, report.get("Top20%MembersShare(%)"), 1e-9);
+		assertEquals(89, report.get("Members(0)"), 0);
+		assertEquals(10, report.get("Members(8-15)"), 0);
+		assertEquals(1, report.get("Members(512-1023)"), 0);
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.workloads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MemberActivationTableTest
+{
+	@Test
+	public void aMemberIsClaimedOnce()
+	{
+		MemberActivationTable table = new MemberActivationTable(new int[] {4, 2});
+		assertTrue(table.tryActivate(1, 1));
+		assertTrue(table.isActive(1, 1));
+		assertFalse(table.isActive(0, 1));
+		assertFalse(table.tryActivate(1, 1));
+		assertEquals(1, table.getFailedClaims());
+		assertTrue(table.deactivate(1, 1));
+		assertFalse(table.deactivate(1, 1));
+		assertTrue(table.tryActivate(1, 1));
+	}
+
+	@Test
+	public void activateFromProbesAtMostMaxProbesMembers()
+	{
+		MemberActivationTable table = new MemberActivationTable(new int[] {10});
+		for (int i = 2; i < 6; i++)
+			table.tryActivate(0, i);
+		//2 to 5 are busy, 6 is the 5th member from 2
+		assertEquals(-1, table.activateFrom(0, 2, 4));
+		assertEquals(4, table.getFailedClaims());
+		assertEquals(6, table.activateFrom(0, 2, 5));
+		assertEquals(8, table.getFailedClaims());
+	}
+
+	@Test
+	public void activateFromWrapsAroundTheShard()
+	{
+		MemberActivationTable table = new MemberActivationTable(new int[] {5, 5});
+		table.tryActivate(0, 3);
+		table.tryActivate(0, 4);
+		assertEquals(0, table.activateFrom(0, 3, 3));
+		//a bound of 0 or more than the shard size tries the whole shard
+		assertEquals(1, table.activateFrom(0, 3, 0));
+		assertEquals(2, table.activateFrom(0, 3, 100));
+		assertEquals(-1, table.activateFrom(0, 3, 0));
+		assertTrue(table.tryActivate(1, 3));
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.workloads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class MemberIndexTest
+{
+	@Test
+	public void contiguousIdsStayDense()
+	{
+		MemberIndex index = new MemberIndex();
+		for (int i = 0; i < 10000; i++)
+			index.put(5000 + i, i);
+		assertNull(index.keys);
+		assertEquals(10000, index.size());
+		assertEquals(0, index.get(5000));
+		assertEquals(9999, index.get(14999));
+		assertEquals(MemberIndex.NO_INDEX, index.get(4999));
+		assertEquals(MemberIndex.NO_INDEX, index.get(15000));
+	}
+
+	@Test
+	public void idsSpreadOverClientsStayDense()
+	{
+		//every 3rd id, as when the members are spread over 3 BG clients
+		MemberIndex index = new MemberIndex();
+		for (int i = 0; i < 10000; i++)
+			index.put(1 + 3 * i, i);
+		assertNull(index.keys);
+		assertEquals(4999, index.get(1 + 3 * 4999));
+		assertFalse(index.containsKey(2));
+	}
+
+	@Test
+	public void idsAddedInDecreasingOrderStayDense()
+	{
+		MemberIndex index = new MemberIndex();
+		for (int i = 999; i >= 0; i--)
+			index.put(i, i);
+		assertNull(index.keys);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(i, index.get(i));
+	}
+
+	@Test
+	public void sparseIdsSwitchToTheHashTable()
+	{
+		Random rand = new Random(11);
+		MemberIndex index = new MemberIndex();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 5000; i++) {
+			int id = i < 100 ? i : rand.nextInt(Integer.MAX_VALUE);
+			index.put(id, i);
+			expected.put(id, i);
+		}
+		assertNotNull(index.keys);
+		assertEquals(expected.size(), index.size());
+		for (Map.Entry<Integer, Integer> e : expected.entrySet())
+			assertEquals(e.getValue().intValue(), index.get(e.getKey()));
+		for (int i = 0; i < 1000; i++) {
+			int id = -1 - rand.nextInt(Integer.MAX_VALUE);
+			assertFalse(index.containsKey(id));
+		}
+	}
+
+	@Test
+	public void putReplacesTheIndexOfAnId()
+	{
+		MemberIndex dense = new MemberIndex();
+		dense.put(7, 1);
+		dense.put(7, 2);
+		assertEquals(1, dense.size());
+		assertEquals(2, dense.get(7));
+
+		MemberIndex hashed = new MemberIndex();
+		hashed.put(0, 1);
+		hashed.put(Integer.MAX_VALUE, 2);
+		hashed.put(Integer.MAX_VALUE, 3);
+		assertTrue(hashed.keys != null);
+		assertEquals(2, hashed.size());
+		assertEquals(3, hashed.get(Integer.MAX_VALUE));
+		assertEquals(1, hashed.get(0));
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2012 USC Database Laboratory All rights reserved.
+ *
+ * Authors:  Sumita Barahmand and Shahram Ghandeharizadeh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package edu.usc.bg.workloads;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+public class RelationStoreTest
+{
+	@Test
+	public void addAndRemoveKeepTheRelationsSorted()
+	{
+		RelationStore store = new RelationStore(2);
+		assertTrue(store.add(0, 5));
+		assertTrue(store.add(0, 1));
+		assertTrue(store.add(0, 3));
+		assertFalse(store.add(0, 3));
+		assertArrayEquals(new int[] {1, 3, 5}, store.toArray(0));
+		assertTrue(store.remove(0, 3));
+		assertFalse(store.remove(0, 3));
+		assertArrayEquals(new int[] {1, 5}, store.toArray(0));
+		assertTrue(store.contains(0, 5));
+		assertFalse(store.contains(1, 5));
+		assertEquals(0, store.size(1));
+	}
+
+	@Test
+	public void firstGapSkipsTheRunOfRelations()
+	{
+		int[] rels = {2, 3, 4, 5, 8};
+		assertEquals(0, RelationStore.firstGap(rels, rels.length, 0, 10));
+		assertEquals(6, RelationStore.firstGap(rels, rels.length, 2, 10));
+		assertEquals(6, RelationStore.firstGap(rels, rels.length, 4, 10));
+		assertEquals(9, RelationStore.firstGap(rels, rels.length, 8, 10));
+		//the run reaches the end of the range
+		assertEquals(5, RelationStore.firstGap(rels, rels.length, 2, 5));
+		//only the first cnt ids are relations
+		assertEquals(5, RelationStore.firstGap(rels, 3, 2, 10));
+	}
+
+	@Test
+	public void nextNotRelatedWrapsAround()
+	{
+		RelationStore store = new RelationStore(1);
+		for (int uid = 3; uid < 10; uid++)
+			store.add(0, uid);
+		assertEquals(0, store.nextNotRelated(0, 3, 10));
+		store.add(0, 0);
+		store.add(0, 1);
+		assertEquals(2, store.nextNotRelated(0, 5, 10));
+		assertEquals(2, store.nextNotRelated(0, 1, 10));
+		store.add(0, 2);
+		assertEquals(-1, store.nextNotRelated(0, 4, 10));
+	}
+
+	@Test
+	public void nextNotRelatedMatchesALinearScan()
+	{
+		Random rand = new Random(5);
+		int numIds = 200;
+		for (int round = 0; round < 50; round++) {
+			RelationStore store = new RelationStore(1);
+			TreeSet<Integer> related = new TreeSet<Integer>();
+			int n = rand.nextInt(numIds + 1);
+			for (int i = 0; i < n; i++) {
+				int uid = rand.nextInt(numIds);
+				store.add(0, uid);
+				related.add(uid);
+			}
+			for (int from = 0; from < numIds; from++) {
+				int expected = -1;
+				for (int i = 0; i < numIds && expected < 0; i++) {
+					int uid = (from + i) % numIds;
+					if (!related.contains(uid))
+						expected = uid;
+				}
+				assertEquals(expected, store.nextNotRelated(0, from, numIds));
+			}
+		}
+	}
+}